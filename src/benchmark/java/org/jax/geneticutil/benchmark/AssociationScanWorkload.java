@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import org.jax.geneticutil.analysis.GenomeScanChunk;
+import org.jax.geneticutil.analysis.GenomeScanScheduler;
+import org.jax.geneticutil.analysis.GenomeScanTask;
+import org.jax.geneticutil.analysis.ThresholdSegmentListener;
+import org.jax.geneticutil.analysis.ThresholdSegmenter;
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+
+/**
+ * A single marker association scan. Each SNP is scored against a seeded
+ * random phenotype with a LOD score computed from the correlation between
+ * the phenotype and an indicator for the first strain's allele, and the
+ * scores are segmented with a {@link ThresholdSegmenter}. Each chunk
+ * segments its padded range and keeps the segments that start in its core
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class AssociationScanWorkload implements ScanWorkload
+{
+    /**
+     * the LOD score threshold for segments
+     */
+    static final double LOD_THRESHOLD = 3.0;
+    
+    /**
+     * the largest gap between above threshold SNPs within a segment
+     */
+    static final long MAX_GAP_IN_BASE_PAIRS = 100000L;
+    
+    private final long seed;
+    
+    /**
+     * Constructor
+     * @param seed
+     *          the phenotype seed
+     */
+    public AssociationScanWorkload(long seed)
+    {
+        this.seed = seed;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return "association";
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long run(
+            final PackedPanel panel,
+            GenomeScanScheduler scheduler,
+            ExecutorService executor)
+            throws Exception
+    {
+        // center the phenotype once up front
+        int strainCount = panel.getStrainCount();
+        Random random = new Random(this.seed);
+        final double[] centeredPhenotypes = new double[strainCount];
+        double mean = 0.0;
+        for(int i = 0; i < strainCount; i++)
+        {
+            centeredPhenotypes[i] = random.nextGaussian();
+            mean += centeredPhenotypes[i];
+        }
+        mean /= strainCount;
+        double sumOfSquares = 0.0;
+        for(int i = 0; i < strainCount; i++)
+        {
+            centeredPhenotypes[i] -= mean;
+            sumOfSquares += centeredPhenotypes[i] * centeredPhenotypes[i];
+        }
+        final double phenotypeSumOfSquares = sumOfSquares;
+        
+        List<List<BasePairInterval>> chunkResults = scheduler.scan(
+                new GenomeScanTask<List<BasePairInterval>>()
+                {
+                    public List<BasePairInterval> scanChunk(GenomeScanChunk chunk)
+                    {
+                        return scanChunkSegments(
+                                chunk,
+                                panel.getPackedGenotypes(chunk.getChromosomeNumber()),
+                                centeredPhenotypes,
+                                phenotypeSumOfSquares);
+                    }
+                },
+                executor);
+        
+        long segmentCount = 0L;
+        for(List<BasePairInterval> chunkResult: chunkResults)
+        {
+            segmentCount += chunkResult.size();
+        }
+        return segmentCount;
+    }
+    
+    private static List<BasePairInterval> scanChunkSegments(
+            final GenomeScanChunk chunk,
+            long[][] packedGenotypes,
+            double[] centeredPhenotypes,
+            double phenotypeSumOfSquares)
+    {
+        final List<BasePairInterval> segments = new ArrayList<BasePairInterval>();
+        ThresholdSegmenter segmenter = new ThresholdSegmenter(
+                LOD_THRESHOLD,
+                MAX_GAP_IN_BASE_PAIRS,
+                new ThresholdSegmentListener()
+                {
+                    public void segmentFound(
+                            int chromosomeNumber,
+                            long startInBasePairs,
+                            long extentInBasePairs,
+                            long peakStartInBasePairs,
+                            long peakExtentInBasePairs,
+                            double peakValue)
+                    {
+                        if(chunk.coreContains(startInBasePairs))
+                        {
+                            segments.add(new SimpleBasePairInterval(
+                                    chromosomeNumber,
+                                    startInBasePairs,
+                                    extentInBasePairs));
+                        }
+                    }
+                });
+        
+        long[] positions = chunk.getSnpPositionsInBasePairs();
+        int strainCount = packedGenotypes.length;
+        int paddedEndIndex = chunk.getPaddedEndIndex();
+        for(int snpIndex = chunk.getPaddedStartIndex(); snpIndex < paddedEndIndex; snpIndex++)
+        {
+            // regress the phenotype on an indicator for the first strain's
+            // allele. the phenotype is centered so the cross product only
+            // needs the indicator sums
+            int referenceAllele = PackedPanel.getAllele(packedGenotypes[0], snpIndex);
+            int matchCount = 0;
+            double matchPhenotypeSum = 0.0;
+            for(int strain = 0; strain < strainCount; strain++)
+            {
+                if(PackedPanel.getAllele(packedGenotypes[strain], snpIndex) == referenceAllele)
+                {
+                    matchCount++;
+                    matchPhenotypeSum += centeredPhenotypes[strain];
+                }
+            }
+            
+            double lodScore = 0.0;
+            if(matchCount < strainCount && phenotypeSumOfSquares > 0.0)
+            {
+                double indicatorSumOfSquares =
+                    matchCount - (double)matchCount * matchCount / strainCount;
+                double rSquared = matchPhenotypeSum * matchPhenotypeSum /
+                    (indicatorSumOfSquares * phenotypeSumOfSquares);
+                lodScore = -0.5 * strainCount * Math.log10(Math.max(1e-300, 1.0 - rSquared));
+            }
+            segmenter.addInterval(chunk.getChromosomeNumber(), positions[snpIndex], 1L, lodScore);
+        }
+        segmenter.flush();
+        return segments;
+    }
+}
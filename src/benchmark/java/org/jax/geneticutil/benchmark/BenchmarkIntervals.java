@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.CompositeRealValuedBasePairInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+
+/**
+ * Seeded fixtures shared by the benchmarks so that every run (and every
+ * release) measures exactly the same data
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+final class BenchmarkIntervals
+{
+    /**
+     * the seed used for all fixtures
+     */
+    static final long SEED = 0x5EEDL;
+    
+    private static final int CHROMOSOME_COUNT = 3;
+    
+    private static final long CHROMOSOME_LENGTH_IN_BASE_PAIRS = 150000000L;
+    
+    private static final int MAX_EXTENT_IN_BASE_PAIRS = 200000;
+    
+    private BenchmarkIntervals()
+    {
+        // static utility class
+    }
+    
+    /**
+     * Create random intervals scattered over a few chromosomes
+     * @param random
+     *          the random source
+     * @param count
+     *          the number of intervals
+     * @return
+     *          the intervals
+     */
+    static SimpleBasePairInterval[] createSimpleIntervals(Random random, int count)
+    {
+        SimpleBasePairInterval[] intervals = new SimpleBasePairInterval[count];
+        for(int i = 0; i < count; i++)
+        {
+            intervals[i] = new SimpleBasePairInterval(
+                    1 + random.nextInt(CHROMOSOME_COUNT),
+                    randomStart(random),
+                    randomExtent(random));
+        }
+        return intervals;
+    }
+    
+    /**
+     * Wrap the given intervals in real valued composites
+     * @param random
+     *          the random source for the values
+     * @param intervals
+     *          the intervals to wrap
+     * @return
+     *          the composites
+     */
+    static CompositeRealValuedBasePairInterval[] createCompositeIntervals(
+            Random random,
+            BasePairInterval[] intervals)
+    {
+        CompositeRealValuedBasePairInterval[] composites =
+            new CompositeRealValuedBasePairInterval[intervals.length];
+        for(int i = 0; i < intervals.length; i++)
+        {
+            composites[i] = new CompositeRealValuedBasePairInterval(
+                    intervals[i],
+                    random.nextGaussian());
+        }
+        return composites;
+    }
+    
+    /**
+     * Create random partitioned intervals
+     * @param random
+     *          the random source
+     * @param count
+     *          the number of intervals
+     * @param strainCount
+     *          the number of strains in each partition
+     * @return
+     *          the intervals
+     */
+    static PartitionedInterval[] createPartitionedIntervals(
+            Random random,
+            int count,
+            int strainCount)
+    {
+        PartitionedInterval[] intervals = new PartitionedInterval[count];
+        for(int i = 0; i < count; i++)
+        {
+            BitSet strainBitSet = new BitSet(strainCount);
+            for(int strain = 0; strain < strainCount; strain++)
+            {
+                if(random.nextBoolean())
+                {
+                    strainBitSet.set(strain);
+                }
+            }
+            intervals[i] = new PartitionedInterval(
+                    1 + random.nextInt(CHROMOSOME_COUNT),
+                    randomStart(random),
+                    randomExtent(random),
+                    strainBitSet);
+        }
+        return intervals;
+    }
+    
+    /**
+     * Create random multi partitioned intervals
+     * @param random
+     *          the random source
+     * @param count
+     *          the number of intervals
+     * @param strainCount
+     *          the number of strains in each partition
+     * @param groupCount
+     *          the number of strain groups
+     * @return
+     *          the intervals
+     */
+    static MultiPartitionedInterval[] createMultiPartitionedIntervals(
+            Random random,
+            int count,
+            int strainCount,
+            int groupCount)
+    {
+        MultiPartitionedInterval[] intervals = new MultiPartitionedInterval[count];
+        for(int i = 0; i < count; i++)
+        {
+            short[] strainGroups = new short[strainCount];
+            for(int strain = 0; strain < strainCount; strain++)
+            {
+                strainGroups[strain] = (short)random.nextInt(groupCount);
+            }
+            intervals[i] = new MultiPartitionedInterval(
+                    1 + random.nextInt(CHROMOSOME_COUNT),
+                    randomStart(random),
+                    randomExtent(random),
+                    strainGroups);
+        }
+        return intervals;
+    }
+    
+    private static long randomStart(Random random)
+    {
+        return 1L + (long)(random.nextDouble() * CHROMOSOME_LENGTH_IN_BASE_PAIRS);
+    }
+    
+    private static long randomExtent(Random random)
+    {
+        return 1L + random.nextInt(MAX_EXTENT_IN_BASE_PAIRS);
+    }
+}
@@ -0,0 +1,606 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jax.geneticutil.analysis.GenomeScanScheduler;
+import org.jax.geneticutil.synthetic.SyntheticPanelGenerator;
+
+/**
+ * End to end benchmark of genome scans over synthetic panels from a
+ * {@link SyntheticPanelGenerator}. Every combination of workload, strain
+ * count, SNP density and thread count is run a few times after warming up,
+ * and for each one we report:
+ * <ul>
+ * <li>throughput in SNPs x strains per second (median run)</li>
+ * <li>scaling efficiency: the speedup over the smallest thread count
+ *     divided by the increase in threads</li>
+ * <li>peak heap (the sum of the heap pool peaks over the measured runs)</li>
+ * <li>allocation rate over all threads, where the JVM supports per thread
+ *     allocation counters</li>
+ * <li>GC count and time during the measured runs</li>
+ * </ul>
+ * Results are printed as a table and written as JSON for comparing
+ * releases. Pass "--jfr file.jfr" to record a flight recording of the
+ * measured runs (on JVMs with flight recorder), and use the usual JVM
+ * options for GC logging. The "benchmark-scan" ant target does all of this.
+ * Run with "--help" for the options.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomeScanHarness
+{
+    /**
+     * the SNPs each chunk is padded with. This must be at least
+     * {@link IbsScanWorkload#MIN_RUN_SNP_COUNT}
+     */
+    private static final int OVERLAP_SNP_COUNT = 256;
+    
+    /**
+     * chunks per thread to give the executor room to balance
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private static final String JFR_RECORDING_NAME = "genome-scan-harness";
+    
+    private final Map<String, String> options;
+    
+    private final List<Measurement> measurements = new ArrayList<Measurement>();
+    
+    /**
+     * the results of one workload configuration
+     */
+    private static final class Measurement
+    {
+        private String workload;
+        
+        private int strainCount;
+        
+        private double snpsPerMegabase;
+        
+        private long snpCount;
+        
+        private int threadCount;
+        
+        private long resultCount;
+        
+        private double medianSeconds;
+        
+        private double throughput;
+        
+        private double scalingEfficiency = Double.NaN;
+        
+        private long peakHeapBytes;
+        
+        private double allocationBytesPerSecond = Double.NaN;
+        
+        private long gcCount;
+        
+        private long gcMillis;
+    }
+    
+    /**
+     * Constructor
+     * @param options
+     *          the command line options
+     */
+    public GenomeScanHarness(Map<String, String> options)
+    {
+        this.options = options;
+    }
+    
+    /**
+     * The main entry point
+     * @param args
+     *          the command line arguments. see {@link #printUsage()}
+     * @throws Exception
+     *          if the benchmark fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        options.put("workloads", "ibs,haplotype,association");
+        options.put("strains", "16,64");
+        options.put("snps-per-mb", "50,200");
+        options.put("threads", defaultThreadCounts());
+        options.put("length-scale", "0.25");
+        options.put("seed", "42");
+        options.put("warmup", "1");
+        options.put("iterations", "3");
+        options.put("output", "scan-benchmark-results.json");
+        options.put("jfr", "");
+        
+        for(int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            if(arg.equals("--help") || !arg.startsWith("--") ||
+               !options.containsKey(arg.substring(2)) || i + 1 == args.length)
+            {
+                printUsage();
+                return;
+            }
+            options.put(arg.substring(2), args[++i]);
+        }
+        
+        new GenomeScanHarness(options).run();
+    }
+    
+    private static void printUsage()
+    {
+        System.out.println(
+                "usage: GenomeScanHarness [options]\n" +
+                "  --workloads    comma separated list of ibs, haplotype, association\n" +
+                "  --strains      comma separated strain counts\n" +
+                "  --snps-per-mb  comma separated SNP densities\n" +
+                "  --threads      comma separated thread counts\n" +
+                "  --length-scale fraction of the real chromosome lengths to use\n" +
+                "  --seed         the panel and phenotype seed\n" +
+                "  --warmup       unmeasured runs per configuration\n" +
+                "  --iterations   measured runs per configuration\n" +
+                "  --output       the JSON result file\n" +
+                "  --jfr          record the measured runs to this JFR file");
+    }
+    
+    private static String defaultThreadCounts()
+    {
+        int processorCount = Runtime.getRuntime().availableProcessors();
+        StringBuilder threadCounts = new StringBuilder("1");
+        for(int threadCount = 2; threadCount <= processorCount; threadCount *= 2)
+        {
+            threadCounts.append(',').append(threadCount);
+        }
+        return threadCounts.toString();
+    }
+    
+    private void run() throws Exception
+    {
+        List<ScanWorkload> workloads = this.createWorkloads();
+        int[] strainCounts = parseInts(this.options.get("strains"));
+        double[] snpDensities = parseDoubles(this.options.get("snps-per-mb"));
+        int[] threadCounts = parseInts(this.options.get("threads"));
+        Arrays.sort(threadCounts);
+        long seed = Long.parseLong(this.options.get("seed"));
+        
+        String jfrFile = this.options.get("jfr");
+        if(jfrFile.length() > 0)
+        {
+            startFlightRecording(jfrFile);
+        }
+        try
+        {
+            for(int strainCount: strainCounts)
+            {
+                for(double snpsPerMegabase: snpDensities)
+                {
+                    PackedPanel panel = this.generatePanel(seed, strainCount, snpsPerMegabase);
+                    for(ScanWorkload workload: workloads)
+                    {
+                        Measurement baseline = null;
+                        for(int threadCount: threadCounts)
+                        {
+                            Measurement measurement = this.measure(
+                                    workload,
+                                    panel,
+                                    snpsPerMegabase,
+                                    threadCount);
+                            if(baseline == null)
+                            {
+                                baseline = measurement;
+                            }
+                            measurement.scalingEfficiency =
+                                (measurement.throughput / baseline.throughput) /
+                                ((double)threadCount / baseline.threadCount);
+                            this.measurements.add(measurement);
+                            printMeasurement(measurement);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if(jfrFile.length() > 0)
+            {
+                stopFlightRecording();
+            }
+        }
+        
+        this.writeJson(new File(this.options.get("output")));
+    }
+    
+    private List<ScanWorkload> createWorkloads()
+    {
+        long seed = Long.parseLong(this.options.get("seed"));
+        List<ScanWorkload> workloads = new ArrayList<ScanWorkload>();
+        for(String name: this.options.get("workloads").split(","))
+        {
+            name = name.trim();
+            if(name.equals("ibs"))
+            {
+                workloads.add(new IbsScanWorkload());
+            }
+            else if(name.equals("haplotype"))
+            {
+                workloads.add(new HaplotypePartitionWorkload());
+            }
+            else if(name.equals("association"))
+            {
+                workloads.add(new AssociationScanWorkload(seed));
+            }
+            else
+            {
+                throw new IllegalArgumentException("unknown workload: " + name);
+            }
+        }
+        return workloads;
+    }
+    
+    private PackedPanel generatePanel(
+            long seed,
+            int strainCount,
+            double snpsPerMegabase)
+            throws IOException
+    {
+        SyntheticPanelGenerator generator = new SyntheticPanelGenerator(seed, strainCount);
+        generator.setLengthScale(Double.parseDouble(this.options.get("length-scale")));
+        generator.setSnpsPerMegabase(snpsPerMegabase);
+        generator.setIbsIntervalsGenerated(false);
+        
+        long startNanos = System.nanoTime();
+        PackedPanel panel = new PackedPanel();
+        generator.generate(panel);
+        System.out.println(String.format(
+                Locale.US,
+                "# generated %d strains x %d SNPs in %.2f s",
+                strainCount,
+                panel.getSnpCount(),
+                (System.nanoTime() - startNanos) / 1e9));
+        return panel;
+    }
+    
+    private Measurement measure(
+            ScanWorkload workload,
+            PackedPanel panel,
+            double snpsPerMegabase,
+            int threadCount)
+            throws Exception
+    {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor)Executors.newFixedThreadPool(
+                threadCount,
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "genome-scan-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.prestartAllCoreThreads();
+        
+        try
+        {
+            GenomeScanScheduler scheduler = new GenomeScanScheduler(
+                    panel.getSnpPositionsByChromosome(),
+                    CHUNKS_PER_THREAD * threadCount,
+                    OVERLAP_SNP_COUNT);
+            
+            int warmupCount = Integer.parseInt(this.options.get("warmup"));
+            for(int i = 0; i < warmupCount; i++)
+            {
+                workload.run(panel, scheduler, executor);
+            }
+            
+            int iterationCount = Math.max(1, Integer.parseInt(this.options.get("iterations")));
+            double[] seconds = new double[iterationCount];
+            long resultCount = 0L;
+            
+            System.gc();
+            resetPeakHeapUsage();
+            long gcCountBefore = getGcCount();
+            long gcMillisBefore = getGcMillis();
+            long allocatedBytesBefore = getAllocatedBytes();
+            long totalNanos = 0L;
+            for(int i = 0; i < iterationCount; i++)
+            {
+                long startNanos = System.nanoTime();
+                resultCount = workload.run(panel, scheduler, executor);
+                long elapsedNanos = System.nanoTime() - startNanos;
+                totalNanos += elapsedNanos;
+                seconds[i] = elapsedNanos / 1e9;
+            }
+            long allocatedBytesAfter = getAllocatedBytes();
+            
+            Measurement measurement = new Measurement();
+            measurement.workload = workload.getName();
+            measurement.strainCount = panel.getStrainCount();
+            measurement.snpsPerMegabase = snpsPerMegabase;
+            measurement.snpCount = panel.getSnpCount();
+            measurement.threadCount = threadCount;
+            measurement.resultCount = resultCount;
+            Arrays.sort(seconds);
+            measurement.medianSeconds = seconds[iterationCount / 2];
+            measurement.throughput =
+                (double)panel.getSnpCount() * panel.getStrainCount() /
+                measurement.medianSeconds;
+            measurement.peakHeapBytes = getPeakHeapUsage();
+            if(allocatedBytesBefore >= 0L && allocatedBytesAfter >= 0L)
+            {
+                measurement.allocationBytesPerSecond =
+                    (allocatedBytesAfter - allocatedBytesBefore) / (totalNanos / 1e9);
+            }
+            measurement.gcCount = getGcCount() - gcCountBefore;
+            measurement.gcMillis = getGcMillis() - gcMillisBefore;
+            return measurement;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static void resetPeakHeapUsage()
+    {
+        for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(pool.getType() == MemoryType.HEAP)
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+    
+    private static long getPeakHeapUsage()
+    {
+        long peakBytes = 0L;
+        for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(pool.getType() == MemoryType.HEAP)
+            {
+                peakBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peakBytes;
+    }
+    
+    private static long getGcCount()
+    {
+        long count = 0L;
+        for(GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0L, collector.getCollectionCount());
+        }
+        return count;
+    }
+    
+    private static long getGcMillis()
+    {
+        long millis = 0L;
+        for(GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            millis += Math.max(0L, collector.getCollectionTime());
+        }
+        return millis;
+    }
+    
+    /**
+     * Get the bytes allocated by all live threads. The worker threads are
+     * started before and stopped after the measurement so none of their
+     * allocations are lost
+     * @return
+     *          the bytes allocated or -1 if the JVM doesn't support it
+     */
+    private static long getAllocatedBytes()
+    {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if(!(threadBean instanceof com.sun.management.ThreadMXBean))
+        {
+            return -1L;
+        }
+        
+        com.sun.management.ThreadMXBean allocationBean =
+            (com.sun.management.ThreadMXBean)threadBean;
+        if(!allocationBean.isThreadAllocatedMemorySupported() ||
+           !allocationBean.isThreadAllocatedMemoryEnabled())
+        {
+            return -1L;
+        }
+        
+        long allocatedBytes = 0L;
+        for(long threadBytes: allocationBean.getThreadAllocatedBytes(
+                threadBean.getAllThreadIds()))
+        {
+            allocatedBytes += Math.max(0L, threadBytes);
+        }
+        return allocatedBytes;
+    }
+    
+    private static void startFlightRecording(String fileName) throws Exception
+    {
+        invokeDiagnosticCommand(
+                "jfrStart",
+                "name=" + JFR_RECORDING_NAME,
+                "settings=profile",
+                "filename=" + new File(fileName).getAbsolutePath());
+    }
+    
+    private static void stopFlightRecording() throws Exception
+    {
+        invokeDiagnosticCommand("jfrStop", "name=" + JFR_RECORDING_NAME);
+    }
+    
+    /**
+     * Run a diagnostic command (the same commands as jcmd) through JMX so
+     * that we don't depend on the flight recorder API at compile time
+     * @param command
+     *          the command
+     * @param arguments
+     *          the command arguments
+     * @throws Exception
+     *          if the command fails
+     */
+    private static void invokeDiagnosticCommand(String command, String... arguments)
+            throws Exception
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object result = server.invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                command,
+                new Object[] {arguments},
+                new String[] {String[].class.getName()});
+        if(result != null)
+        {
+            System.out.println("# " + result.toString().trim());
+        }
+    }
+    
+    private static void printMeasurement(Measurement measurement)
+    {
+        System.out.println(String.format(
+                Locale.US,
+                "%-12s strains=%-4d snps=%-9d threads=%-3d %9.3f s %12.4g snp*strain/s " +
+                "eff=%5.2f peakHeap=%6.1f MB alloc=%8.1f MB/s gc=%d (%d ms) results=%d",
+                measurement.workload,
+                measurement.strainCount,
+                measurement.snpCount,
+                measurement.threadCount,
+                measurement.medianSeconds,
+                measurement.throughput,
+                measurement.scalingEfficiency,
+                measurement.peakHeapBytes / 1048576.0,
+                measurement.allocationBytesPerSecond / 1048576.0,
+                measurement.gcCount,
+                measurement.gcMillis,
+                measurement.resultCount));
+    }
+    
+    private void writeJson(File file) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null && !parent.isDirectory() && !parent.mkdirs())
+        {
+            throw new IOException("failed to create " + parent);
+        }
+        
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file),
+                "UTF-8"));
+        try
+        {
+            writer.println("{");
+            writer.println("  \"jvm\": \"" +
+                    System.getProperty("java.vm.name") + " " +
+                    System.getProperty("java.version") + "\",");
+            writer.println("  \"availableProcessors\": " +
+                    Runtime.getRuntime().availableProcessors() + ",");
+            writer.println("  \"maxHeapBytes\": " + Runtime.getRuntime().maxMemory() + ",");
+            writer.println("  \"options\": {");
+            int optionIndex = 0;
+            for(Map.Entry<String, String> option: this.options.entrySet())
+            {
+                writer.print("    \"" + option.getKey() + "\": \"" + option.getValue() + "\"");
+                writer.println(++optionIndex < this.options.size() ? "," : "");
+            }
+            writer.println("  },");
+            writer.println("  \"results\": [");
+            for(int i = 0; i < this.measurements.size(); i++)
+            {
+                Measurement measurement = this.measurements.get(i);
+                writer.print(String.format(
+                        Locale.US,
+                        "    {\"workload\": \"%s\", \"strains\": %d, \"snpsPerMegabase\": %s, " +
+                        "\"snps\": %d, \"threads\": %d, \"medianSeconds\": %s, " +
+                        "\"snpStrainsPerSecond\": %s, \"scalingEfficiency\": %s, " +
+                        "\"peakHeapBytes\": %d, \"allocationBytesPerSecond\": %s, " +
+                        "\"gcCount\": %d, \"gcMillis\": %d, \"resultCount\": %d}",
+                        measurement.workload,
+                        measurement.strainCount,
+                        toJsonNumber(measurement.snpsPerMegabase),
+                        measurement.snpCount,
+                        measurement.threadCount,
+                        toJsonNumber(measurement.medianSeconds),
+                        toJsonNumber(measurement.throughput),
+                        toJsonNumber(measurement.scalingEfficiency),
+                        measurement.peakHeapBytes,
+                        toJsonNumber(measurement.allocationBytesPerSecond),
+                        measurement.gcCount,
+                        measurement.gcMillis,
+                        measurement.resultCount));
+                writer.println(i + 1 < this.measurements.size() ? "," : "");
+            }
+            writer.println("  ]");
+            writer.println("}");
+        }
+        finally
+        {
+            writer.close();
+        }
+        System.out.println("# wrote " + file.getAbsolutePath());
+    }
+    
+    private static String toJsonNumber(double value)
+    {
+        return Double.isNaN(value) || Double.isInfinite(value) ?
+               "null" :
+               Double.toString(value);
+    }
+    
+    private static int[] parseInts(String values)
+    {
+        String[] tokens = values.split(",");
+        int[] ints = new int[tokens.length];
+        for(int i = 0; i < tokens.length; i++)
+        {
+            ints[i] = Integer.parseInt(tokens[i].trim());
+        }
+        return ints;
+    }
+    
+    private static double[] parseDoubles(String values)
+    {
+        String[] tokens = values.split(",");
+        double[] doubles = new double[tokens.length];
+        for(int i = 0; i < tokens.length; i++)
+        {
+            doubles[i] = Double.parseDouble(tokens[i].trim());
+        }
+        return doubles;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.jax.geneticutil.analysis.GenomeScanChunk;
+import org.jax.geneticutil.analysis.GenomeScanScheduler;
+import org.jax.geneticutil.analysis.GenomeScanTask;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+
+/**
+ * Partitions the strains into haplotypes over fixed windows of
+ * {@link #WINDOW_SNP_COUNT} SNPs. Strains with identical alleles over a
+ * window share a group and neighboring windows with the same partition are
+ * merged into one {@link MultiPartitionedInterval}. Windows line up with
+ * the packed genotype words so a strain's window pattern is a single long.
+ * Blocks are cut at chunk boundaries
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class HaplotypePartitionWorkload implements ScanWorkload
+{
+    /**
+     * the window size, which is the number of SNPs in a packed long
+     */
+    static final int WINDOW_SNP_COUNT = 32;
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return "haplotype";
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long run(
+            final PackedPanel panel,
+            GenomeScanScheduler scheduler,
+            ExecutorService executor)
+            throws Exception
+    {
+        List<List<MultiPartitionedInterval>> chunkResults = scheduler.scan(
+                new GenomeScanTask<List<MultiPartitionedInterval>>()
+                {
+                    public List<MultiPartitionedInterval> scanChunk(GenomeScanChunk chunk)
+                    {
+                        return partitionChunk(
+                                chunk,
+                                panel.getPackedGenotypes(chunk.getChromosomeNumber()));
+                    }
+                },
+                executor);
+        
+        long blockCount = 0L;
+        for(List<MultiPartitionedInterval> chunkResult: chunkResults)
+        {
+            blockCount += chunkResult.size();
+        }
+        return blockCount;
+    }
+    
+    private static List<MultiPartitionedInterval> partitionChunk(
+            GenomeScanChunk chunk,
+            long[][] packedGenotypes)
+    {
+        List<MultiPartitionedInterval> blocks = new ArrayList<MultiPartitionedInterval>();
+        long[] positions = chunk.getSnpPositionsInBasePairs();
+        int strainCount = packedGenotypes.length;
+        long[] distinctPatterns = new long[strainCount];
+        
+        // this chunk owns the windows that start in its core
+        int firstWindow = (chunk.getCoreStartIndex() + WINDOW_SNP_COUNT - 1) / WINDOW_SNP_COUNT;
+        int endWindow = (chunk.getCoreEndIndex() + WINDOW_SNP_COUNT - 1) / WINDOW_SNP_COUNT;
+        
+        short[] blockGroups = null;
+        int blockStartIndex = 0;
+        int blockEndIndex = 0;
+        for(int window = firstWindow; window < endWindow; window++)
+        {
+            int windowStartIndex = window * WINDOW_SNP_COUNT;
+            int windowEndIndex = Math.min(positions.length, windowStartIndex + WINDOW_SNP_COUNT);
+            
+            short[] groups = new short[strainCount];
+            int distinctCount = 0;
+            for(int strain = 0; strain < strainCount; strain++)
+            {
+                long pattern = packedGenotypes[strain][window];
+                int group = 0;
+                while(group < distinctCount && distinctPatterns[group] != pattern)
+                {
+                    group++;
+                }
+                if(group == distinctCount)
+                {
+                    distinctPatterns[distinctCount++] = pattern;
+                }
+                groups[strain] = (short)group;
+            }
+            
+            if(blockGroups != null && Arrays.equals(blockGroups, groups))
+            {
+                blockEndIndex = windowEndIndex;
+            }
+            else
+            {
+                if(blockGroups != null)
+                {
+                    blocks.add(createBlock(chunk, positions, blockStartIndex, blockEndIndex, blockGroups));
+                }
+                blockGroups = groups;
+                blockStartIndex = windowStartIndex;
+                blockEndIndex = windowEndIndex;
+            }
+        }
+        if(blockGroups != null)
+        {
+            blocks.add(createBlock(chunk, positions, blockStartIndex, blockEndIndex, blockGroups));
+        }
+        return blocks;
+    }
+    
+    private static MultiPartitionedInterval createBlock(
+            GenomeScanChunk chunk,
+            long[] positions,
+            int startIndex,
+            int endIndex,
+            short[] groups)
+    {
+        long startInBasePairs = positions[startIndex];
+        return new MultiPartitionedInterval(
+                chunk.getChromosomeNumber(),
+                startInBasePairs,
+                1L + positions[endIndex - 1] - startInBasePairs,
+                groups);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.jax.geneticutil.analysis.GenomeScanChunk;
+import org.jax.geneticutil.analysis.GenomeScanScheduler;
+import org.jax.geneticutil.analysis.GenomeScanTask;
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+
+/**
+ * Finds the IBS intervals of every strain pair, where an IBS interval is a
+ * run of at least {@link #MIN_RUN_SNP_COUNT} SNPs with identical alleles.
+ * Alleles are compared 32 SNPs at a time on the packed genotypes. Runs are
+ * clipped to the chunk cores and stitched back together with
+ * {@link GenomeScanScheduler#stitchIntervals(List)}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class IbsScanWorkload implements ScanWorkload
+{
+    /**
+     * the shortest run of matching SNPs that counts as IBS. This must not be
+     * more than the scheduler's overlap or runs crossing chunks could be
+     * dropped
+     */
+    static final int MIN_RUN_SNP_COUNT = 20;
+    
+    /**
+     * the low bit of every packed 2 bit allele
+     */
+    private static final long LOW_ALLELE_BITS = 0x5555555555555555L;
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return "ibs";
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public long run(
+            final PackedPanel panel,
+            GenomeScanScheduler scheduler,
+            ExecutorService executor)
+            throws Exception
+    {
+        final int strainCount = panel.getStrainCount();
+        final int pairCount = strainCount * (strainCount - 1) / 2;
+        List<List<List<BasePairInterval>>> chunkResults = scheduler.scan(
+                new GenomeScanTask<List<List<BasePairInterval>>>()
+                {
+                    public List<List<BasePairInterval>> scanChunk(GenomeScanChunk chunk)
+                    {
+                        long[][] packedGenotypes = panel.getPackedGenotypes(
+                                chunk.getChromosomeNumber());
+                        List<List<BasePairInterval>> pairIntervals =
+                            new ArrayList<List<BasePairInterval>>(pairCount);
+                        for(int i = 0; i < strainCount; i++)
+                        {
+                            for(int j = i + 1; j < strainCount; j++)
+                            {
+                                pairIntervals.add(findRuns(
+                                        chunk,
+                                        packedGenotypes[i],
+                                        packedGenotypes[j]));
+                            }
+                        }
+                        return pairIntervals;
+                    }
+                },
+                executor);
+        
+        long intervalCount = 0L;
+        List<List<BasePairInterval>> pairChunkResults =
+            new ArrayList<List<BasePairInterval>>(chunkResults.size());
+        for(int pairIndex = 0; pairIndex < pairCount; pairIndex++)
+        {
+            pairChunkResults.clear();
+            for(List<List<BasePairInterval>> chunkResult: chunkResults)
+            {
+                pairChunkResults.add(chunkResult.get(pairIndex));
+            }
+            intervalCount += scheduler.stitchIntervals(pairChunkResults).size();
+        }
+        return intervalCount;
+    }
+    
+    private static List<BasePairInterval> findRuns(
+            GenomeScanChunk chunk,
+            long[] packedGenotypes1,
+            long[] packedGenotypes2)
+    {
+        List<BasePairInterval> runs = new ArrayList<BasePairInterval>();
+        long[] positions = chunk.getSnpPositionsInBasePairs();
+        int coreStartIndex = chunk.getCoreStartIndex();
+        int coreEndIndex = chunk.getCoreEndIndex();
+        int paddedEndIndex = chunk.getPaddedEndIndex();
+        
+        int runStartIndex = chunk.getPaddedStartIndex();
+        while(runStartIndex < paddedEndIndex)
+        {
+            int runEndIndex = nextMismatch(
+                    packedGenotypes1,
+                    packedGenotypes2,
+                    runStartIndex,
+                    paddedEndIndex);
+            if(runEndIndex - runStartIndex >= MIN_RUN_SNP_COUNT &&
+               runStartIndex < coreEndIndex &&
+               runEndIndex > coreStartIndex)
+            {
+                // clip to the core so that the stitching can rejoin runs
+                // that cross chunks
+                long startInBasePairs = runStartIndex < coreStartIndex ?
+                        chunk.getCoreStartInBasePairs() :
+                        positions[runStartIndex];
+                long endInBasePairs = runEndIndex > coreEndIndex ?
+                        chunk.getCoreEndInBasePairs() :
+                        positions[runEndIndex - 1];
+                runs.add(new SimpleBasePairInterval(
+                        chunk.getChromosomeNumber(),
+                        startInBasePairs,
+                        1L + endInBasePairs - startInBasePairs));
+            }
+            runStartIndex = runEndIndex + 1;
+        }
+        return runs;
+    }
+    
+    /**
+     * Find the next SNP where the alleles differ
+     * @param packedGenotypes1
+     *          the first strain's genotypes
+     * @param packedGenotypes2
+     *          the second strain's genotypes
+     * @param fromIndex
+     *          the first SNP to check
+     * @param endIndex
+     *          the end of the range to search
+     * @return
+     *          the index of the mismatch or endIndex if there isn't one
+     */
+    private static int nextMismatch(
+            long[] packedGenotypes1,
+            long[] packedGenotypes2,
+            int fromIndex,
+            int endIndex)
+    {
+        int index = fromIndex;
+        while(index < endIndex)
+        {
+            int word = index >>> 5;
+            long difference = packedGenotypes1[word] ^ packedGenotypes2[word];
+            long mismatches =
+                ((difference | (difference >>> 1)) & LOW_ALLELE_BITS) &
+                (-1L << ((index & 31) << 1));
+            if(mismatches != 0L)
+            {
+                return Math.min(
+                        endIndex,
+                        (word << 5) + (Long.numberOfTrailingZeros(mismatches) >>> 1));
+            }
+            index = (word + 1) << 5;
+        }
+        return endIndex;
+    }
+}
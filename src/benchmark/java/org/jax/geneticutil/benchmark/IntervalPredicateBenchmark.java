@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.CompositeRealValuedBasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link BasePairInterval} predicates on
+ * {@link SimpleBasePairInterval} and the cost of going through the
+ * {@link CompositeRealValuedBasePairInterval} delegate. Every benchmark
+ * compares each interval in a fixed array against its neighbor so results
+ * are reported per predicate call
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalPredicateBenchmark
+{
+    /**
+     * the number of intervals (and predicate calls) per invocation
+     */
+    private static final int INTERVAL_COUNT = 4096;
+    
+    private SimpleBasePairInterval[] simpleIntervals;
+    
+    private CompositeRealValuedBasePairInterval[] compositeIntervals;
+    
+    /**
+     * Build the fixtures
+     */
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(BenchmarkIntervals.SEED);
+        this.simpleIntervals = BenchmarkIntervals.createSimpleIntervals(
+                random,
+                INTERVAL_COUNT + 1);
+        this.compositeIntervals = BenchmarkIntervals.createCompositeIntervals(
+                random,
+                this.simpleIntervals);
+    }
+    
+    /**
+     * {@link SimpleBasePairInterval#intersects(BasePairInterval)}
+     * @return the intersection count so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int simpleIntersects()
+    {
+        return countIntersections(this.simpleIntervals);
+    }
+    
+    /**
+     * {@link CompositeRealValuedBasePairInterval#intersects(BasePairInterval)}
+     * @return the intersection count so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int compositeIntersects()
+    {
+        return countIntersections(this.compositeIntervals);
+    }
+    
+    /**
+     * {@link SimpleBasePairInterval#contains(BasePairInterval)}
+     * @return the containment count so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int simpleContains()
+    {
+        return countContainments(this.simpleIntervals);
+    }
+    
+    /**
+     * {@link CompositeRealValuedBasePairInterval#contains(BasePairInterval)}
+     * @return the containment count so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int compositeContains()
+    {
+        return countContainments(this.compositeIntervals);
+    }
+    
+    /**
+     * {@link SimpleBasePairInterval#getOverlapInBasePairs(BasePairInterval)}
+     * @return the total overlap so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public long simpleOverlap()
+    {
+        return sumOverlaps(this.simpleIntervals);
+    }
+    
+    /**
+     * {@link CompositeRealValuedBasePairInterval#getOverlapInBasePairs(BasePairInterval)}
+     * @return the total overlap so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public long compositeOverlap()
+    {
+        return sumOverlaps(this.compositeIntervals);
+    }
+    
+    private static int countIntersections(BasePairInterval[] intervals)
+    {
+        int count = 0;
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            if(intervals[i].intersects(intervals[i + 1]))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static int countContainments(BasePairInterval[] intervals)
+    {
+        int count = 0;
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            if(intervals[i].contains(intervals[i + 1]))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static long sumOverlaps(BasePairInterval[] intervals)
+    {
+        long sum = 0L;
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            sum += intervals[i].getOverlapInBasePairs(intervals[i + 1]);
+        }
+        return sum;
+    }
+}
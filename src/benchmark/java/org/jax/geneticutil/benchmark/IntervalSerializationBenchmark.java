@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.CompositeRealValuedBasePairInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures java serialization round trips (write then read back) of
+ * interval lists. The columnar {@link BasePairIntervalArray} is included
+ * as a point of comparison for the per object lists
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalSerializationBenchmark
+{
+    private static final int STRAIN_COUNT = 32;
+    
+    private static final int GROUP_COUNT = 8;
+    
+    /**
+     * the number of intervals in each list
+     */
+    @Param({"10000"})
+    public int intervalCount;
+    
+    private ArrayList<SimpleBasePairInterval> simpleIntervals;
+    
+    private ArrayList<CompositeRealValuedBasePairInterval> compositeIntervals;
+    
+    private ArrayList<PartitionedInterval> partitionedIntervals;
+    
+    private ArrayList<MultiPartitionedInterval> multiPartitionedIntervals;
+    
+    private BasePairIntervalArray intervalArray;
+    
+    /**
+     * Build the fixtures
+     */
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(BenchmarkIntervals.SEED);
+        SimpleBasePairInterval[] simpleIntervalArray =
+            BenchmarkIntervals.createSimpleIntervals(random, this.intervalCount);
+        this.simpleIntervals = new ArrayList<SimpleBasePairInterval>(
+                Arrays.asList(simpleIntervalArray));
+        this.compositeIntervals = new ArrayList<CompositeRealValuedBasePairInterval>(
+                Arrays.asList(BenchmarkIntervals.createCompositeIntervals(
+                        random,
+                        simpleIntervalArray)));
+        this.partitionedIntervals = new ArrayList<PartitionedInterval>(
+                Arrays.asList(BenchmarkIntervals.createPartitionedIntervals(
+                        random,
+                        this.intervalCount,
+                        STRAIN_COUNT)));
+        this.multiPartitionedIntervals = new ArrayList<MultiPartitionedInterval>(
+                Arrays.asList(BenchmarkIntervals.createMultiPartitionedIntervals(
+                        random,
+                        this.intervalCount,
+                        STRAIN_COUNT,
+                        GROUP_COUNT)));
+        this.intervalArray = BasePairIntervalArray.fromIntervals(this.simpleIntervals);
+    }
+    
+    /**
+     * Round trip a list of {@link SimpleBasePairInterval}s
+     * @return the copy
+     * @throws IOException
+     *          never for in memory streams
+     * @throws ClassNotFoundException
+     *          never since the classes are on the class path
+     */
+    @Benchmark
+    public Object simpleIntervals()
+            throws IOException, ClassNotFoundException
+    {
+        return roundTrip(this.simpleIntervals);
+    }
+    
+    /**
+     * Round trip a list of {@link CompositeRealValuedBasePairInterval}s
+     * @return the copy
+     * @throws IOException
+     *          never for in memory streams
+     * @throws ClassNotFoundException
+     *          never since the classes are on the class path
+     */
+    @Benchmark
+    public Object compositeIntervals()
+            throws IOException, ClassNotFoundException
+    {
+        return roundTrip(this.compositeIntervals);
+    }
+    
+    /**
+     * Round trip a list of {@link PartitionedInterval}s
+     * @return the copy
+     * @throws IOException
+     *          never for in memory streams
+     * @throws ClassNotFoundException
+     *          never since the classes are on the class path
+     */
+    @Benchmark
+    public Object partitionedIntervals()
+            throws IOException, ClassNotFoundException
+    {
+        return roundTrip(this.partitionedIntervals);
+    }
+    
+    /**
+     * Round trip a list of {@link MultiPartitionedInterval}s
+     * @return the copy
+     * @throws IOException
+     *          never for in memory streams
+     * @throws ClassNotFoundException
+     *          never since the classes are on the class path
+     */
+    @Benchmark
+    public Object multiPartitionedIntervals()
+            throws IOException, ClassNotFoundException
+    {
+        return roundTrip(this.multiPartitionedIntervals);
+    }
+    
+    /**
+     * Round trip a {@link BasePairIntervalArray}
+     * @return the copy
+     * @throws IOException
+     *          never for in memory streams
+     * @throws ClassNotFoundException
+     *          never since the classes are on the class path
+     */
+    @Benchmark
+    public Object intervalArray()
+            throws IOException, ClassNotFoundException
+    {
+        return roundTrip(this.intervalArray);
+    }
+    
+    private static Object roundTrip(Object object)
+            throws IOException, ClassNotFoundException
+    {
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytesOut);
+        objectOut.writeObject(object);
+        objectOut.close();
+        
+        ObjectInputStream objectIn = new ObjectInputStream(
+                new ByteArrayInputStream(bytesOut.toByteArray()));
+        try
+        {
+            return objectIn.readObject();
+        }
+        finally
+        {
+            objectIn.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.CompositeRealValuedBasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures sorting with {@link SimpleBasePairInterval#SNP_INTERVAL_COMPARATOR}
+ * and with the natural ordering of {@link SimpleBasePairInterval} and
+ * {@link CompositeRealValuedBasePairInterval}. Each invocation sorts a fresh
+ * copy of the same shuffled array. {@link #copyOnly()} measures just the copy
+ * so that it can be subtracted out
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalSortBenchmark
+{
+    /**
+     * the number of intervals to sort
+     */
+    @Param({"1000", "100000"})
+    public int intervalCount;
+    
+    private SimpleBasePairInterval[] simpleIntervals;
+    
+    private CompositeRealValuedBasePairInterval[] compositeIntervals;
+    
+    /**
+     * Build the fixtures
+     */
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(BenchmarkIntervals.SEED);
+        this.simpleIntervals = BenchmarkIntervals.createSimpleIntervals(
+                random,
+                this.intervalCount);
+        this.compositeIntervals = BenchmarkIntervals.createCompositeIntervals(
+                random,
+                this.simpleIntervals);
+    }
+    
+    /**
+     * Baseline that only copies the array
+     * @return the copy
+     */
+    @Benchmark
+    public BasePairInterval[] copyOnly()
+    {
+        return this.simpleIntervals.clone();
+    }
+    
+    /**
+     * Sort using {@link SimpleBasePairInterval#SNP_INTERVAL_COMPARATOR}
+     * @return the sorted copy
+     */
+    @Benchmark
+    public BasePairInterval[] sortWithComparator()
+    {
+        BasePairInterval[] intervals = this.simpleIntervals.clone();
+        Arrays.sort(intervals, SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        return intervals;
+    }
+    
+    /**
+     * Sort using {@link SimpleBasePairInterval#compareTo(BasePairInterval)}
+     * @return the sorted copy
+     */
+    @Benchmark
+    public BasePairInterval[] sortSimpleNatural()
+    {
+        BasePairInterval[] intervals = this.simpleIntervals.clone();
+        Arrays.sort(intervals);
+        return intervals;
+    }
+    
+    /**
+     * Sort using
+     * {@link CompositeRealValuedBasePairInterval#compareTo(BasePairInterval)}
+     * which orders by position and then by value
+     * @return the sorted copy
+     */
+    @Benchmark
+    public BasePairInterval[] sortCompositeNatural()
+    {
+        BasePairInterval[] intervals = this.compositeIntervals.clone();
+        Arrays.sort(intervals);
+        return intervals;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.ImmutableStrainChromosome;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.StrainPair;
+import org.jax.geneticutil.synthetic.SyntheticPanelSink;
+
+/**
+ * The input to the scan workloads: SNP positions and 2 bit packed genotypes
+ * (see {@link ImmutableStrainChromosome#getPackedSnpTypes()}) per
+ * chromosome. This is a {@link SyntheticPanelSink} that keeps only the
+ * packed form so that big panels don't hold a SNP object per genotype
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class PackedPanel implements SyntheticPanelSink
+{
+    private final Map<Integer, long[]> snpPositionsByChromosome =
+        new TreeMap<Integer, long[]>();
+    
+    private final Map<Integer, long[][]> packedGenotypesByChromosome =
+        new TreeMap<Integer, long[][]>();
+    
+    private int strainCount = 0;
+    
+    private long snpCount = 0L;
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void chromosomeGenerated(
+            int chromosomeNumber,
+            ImmutableStrainChromosome[] strainChromosomes)
+    {
+        long[][] packedGenotypes = new long[strainChromosomes.length][];
+        for(int i = 0; i < strainChromosomes.length; i++)
+        {
+            packedGenotypes[i] = strainChromosomes[i].getPackedSnpTypes();
+        }
+        long[] positions = strainChromosomes[0].getPositionsInBasePairs();
+        
+        this.snpPositionsByChromosome.put(chromosomeNumber, positions);
+        this.packedGenotypesByChromosome.put(chromosomeNumber, packedGenotypes);
+        this.strainCount = strainChromosomes.length;
+        this.snpCount += positions.length;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void haplotypeBlocksGenerated(
+            int chromosomeNumber,
+            List<MultiPartitionedInterval> haplotypeBlocks)
+    {
+        // the workloads work these out for themselves
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void ibsIntervalsGenerated(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            List<BasePairInterval> ibsIntervals)
+    {
+        // the workloads work these out for themselves
+    }
+    
+    /**
+     * Getter for the SNP positions of every chromosome
+     * @return the positions
+     */
+    public Map<Integer, long[]> getSnpPositionsByChromosome()
+    {
+        return Collections.unmodifiableMap(this.snpPositionsByChromosome);
+    }
+    
+    /**
+     * Getter for the packed genotypes of a chromosome
+     * @param chromosomeNumber
+     *          the chromosome
+     * @return
+     *          the packed genotypes indexed by strain
+     */
+    public long[][] getPackedGenotypes(int chromosomeNumber)
+    {
+        return this.packedGenotypesByChromosome.get(chromosomeNumber);
+    }
+    
+    /**
+     * Getter for the number of strains
+     * @return the strain count
+     */
+    public int getStrainCount()
+    {
+        return this.strainCount;
+    }
+    
+    /**
+     * Getter for the number of SNPs over all chromosomes
+     * @return the SNP count
+     */
+    public long getSnpCount()
+    {
+        return this.snpCount;
+    }
+    
+    /**
+     * Get the 2 bit allele of a SNP
+     * @param packedGenotypes
+     *          a strain's packed genotypes
+     * @param snpIndex
+     *          the SNP index
+     * @return
+     *          the allele
+     */
+    static int getAllele(long[] packedGenotypes, int snpIndex)
+    {
+        return (int)(packedGenotypes[snpIndex >>> 5] >>> ((snpIndex & 31) << 1)) & 0x3;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures hashing and equality of {@link PartitionedInterval}s and
+ * {@link MultiPartitionedInterval}s, both directly and through a
+ * {@link HashSet} which is how the haplotype code dedups partitions. The
+ * equality benchmarks compare each interval against an equal copy so that
+ * the full strain comparison runs
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionedIntervalHashBenchmark
+{
+    private static final int INTERVAL_COUNT = 4096;
+    
+    private static final int GROUP_COUNT = 8;
+    
+    /**
+     * the number of strains in each partition
+     */
+    @Param({"16", "100"})
+    public int strainCount;
+    
+    private PartitionedInterval[] partitionedIntervals;
+    
+    private PartitionedInterval[] partitionedIntervalCopies;
+    
+    private MultiPartitionedInterval[] multiPartitionedIntervals;
+    
+    private MultiPartitionedInterval[] multiPartitionedIntervalCopies;
+    
+    /**
+     * Build the fixtures
+     */
+    @Setup
+    public void setup()
+    {
+        this.partitionedIntervals = BenchmarkIntervals.createPartitionedIntervals(
+                new Random(BenchmarkIntervals.SEED),
+                INTERVAL_COUNT,
+                this.strainCount);
+        this.partitionedIntervalCopies = BenchmarkIntervals.createPartitionedIntervals(
+                new Random(BenchmarkIntervals.SEED),
+                INTERVAL_COUNT,
+                this.strainCount);
+        this.multiPartitionedIntervals = BenchmarkIntervals.createMultiPartitionedIntervals(
+                new Random(BenchmarkIntervals.SEED),
+                INTERVAL_COUNT,
+                this.strainCount,
+                GROUP_COUNT);
+        this.multiPartitionedIntervalCopies = BenchmarkIntervals.createMultiPartitionedIntervals(
+                new Random(BenchmarkIntervals.SEED),
+                INTERVAL_COUNT,
+                this.strainCount,
+                GROUP_COUNT);
+    }
+    
+    /**
+     * {@link PartitionedInterval#hashCode()}
+     * @return the combined hash so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int partitionedHashCode()
+    {
+        int hash = 0;
+        for(PartitionedInterval interval: this.partitionedIntervals)
+        {
+            hash += interval.hashCode();
+        }
+        return hash;
+    }
+    
+    /**
+     * {@link MultiPartitionedInterval#hashCode()}
+     * @return the combined hash so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int multiPartitionedHashCode()
+    {
+        int hash = 0;
+        for(MultiPartitionedInterval interval: this.multiPartitionedIntervals)
+        {
+            hash += interval.hashCode();
+        }
+        return hash;
+    }
+    
+    /**
+     * {@link PartitionedInterval#equals(Object)}
+     * @return the equal count so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int partitionedEquals()
+    {
+        int count = 0;
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            if(this.partitionedIntervals[i].equals(this.partitionedIntervalCopies[i]))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * {@link MultiPartitionedInterval#equals(Object)}
+     * @return the equal count so the calls aren't eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(INTERVAL_COUNT)
+    public int multiPartitionedEquals()
+    {
+        int count = 0;
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            if(this.multiPartitionedIntervals[i].equals(this.multiPartitionedIntervalCopies[i]))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Add every {@link PartitionedInterval} and then every copy to a set
+     * @return the set
+     */
+    @Benchmark
+    public Set<PartitionedInterval> partitionedHashSet()
+    {
+        Set<PartitionedInterval> set = new HashSet<PartitionedInterval>(
+                2 * INTERVAL_COUNT);
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            set.add(this.partitionedIntervals[i]);
+            set.add(this.partitionedIntervalCopies[i]);
+        }
+        return set;
+    }
+    
+    /**
+     * Add every {@link MultiPartitionedInterval} and then every copy to a set
+     * @return the set
+     */
+    @Benchmark
+    public Set<MultiPartitionedInterval> multiPartitionedHashSet()
+    {
+        Set<MultiPartitionedInterval> set = new HashSet<MultiPartitionedInterval>(
+                2 * INTERVAL_COUNT);
+        for(int i = 0; i < INTERVAL_COUNT; i++)
+        {
+            set.add(this.multiPartitionedIntervals[i]);
+            set.add(this.multiPartitionedIntervalCopies[i]);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.benchmark;
+
+import java.util.concurrent.ExecutorService;
+
+import org.jax.geneticutil.analysis.GenomeScanScheduler;
+
+/**
+ * A genome scan measured by the {@link GenomeScanHarness}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+interface ScanWorkload
+{
+    /**
+     * Getter for the name used on the command line and in the results
+     * @return the name
+     */
+    public String getName();
+    
+    /**
+     * Run the scan over the whole panel
+     * @param panel
+     *          the panel
+     * @param scheduler
+     *          the scheduler that has the panel's chunks
+     * @param executor
+     *          the executor to run the chunks on
+     * @return
+     *          a count of the results (eg: the number of intervals found)
+     *          which is reported so that runs can be sanity checked
+     * @throws Exception
+     *          if the scan fails
+     */
+    public long run(
+            PackedPanel panel,
+            GenomeScanScheduler scheduler,
+            ExecutorService executor)
+            throws Exception;
+}
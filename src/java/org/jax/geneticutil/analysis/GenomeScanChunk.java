@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+/**
+ * A contiguous run of SNPs on one chromosome that is scanned as a single
+ * unit of work. Each chunk has a core range of SNPs that it is responsible
+ * for and a padded range which adds SNPs from the neighboring chunks so
+ * that runs and windows crossing the chunk edges can be seen in full. The
+ * core base pair ranges of a chromosome's chunks tile the chromosome from
+ * its first SNP to its last.
+ * @see GenomeScanScheduler
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomeScanChunk
+{
+    private final int chunkIndex;
+    
+    private final int chromosomeNumber;
+    
+    private final long[] snpPositionsInBasePairs;
+    
+    private final int coreStartIndex;
+    
+    private final int coreEndIndex;
+    
+    private final int paddedStartIndex;
+    
+    private final int paddedEndIndex;
+    
+    private final long coreStartInBasePairs;
+    
+    private final long coreEndInBasePairs;
+    
+    /**
+     * Constructor
+     * @param chunkIndex
+     *          see {@link #getChunkIndex()}
+     * @param chromosomeNumber
+     *          see {@link #getChromosomeNumber()}
+     * @param snpPositionsInBasePairs
+     *          see {@link #getSnpPositionsInBasePairs()}
+     * @param coreStartIndex
+     *          see {@link #getCoreStartIndex()}
+     * @param coreEndIndex
+     *          see {@link #getCoreEndIndex()}
+     * @param paddedStartIndex
+     *          see {@link #getPaddedStartIndex()}
+     * @param paddedEndIndex
+     *          see {@link #getPaddedEndIndex()}
+     * @param coreStartInBasePairs
+     *          see {@link #getCoreStartInBasePairs()}
+     * @param coreEndInBasePairs
+     *          see {@link #getCoreEndInBasePairs()}
+     */
+    public GenomeScanChunk(
+            int chunkIndex,
+            int chromosomeNumber,
+            long[] snpPositionsInBasePairs,
+            int coreStartIndex,
+            int coreEndIndex,
+            int paddedStartIndex,
+            int paddedEndIndex,
+            long coreStartInBasePairs,
+            long coreEndInBasePairs)
+    {
+        this.chunkIndex = chunkIndex;
+        this.chromosomeNumber = chromosomeNumber;
+        this.snpPositionsInBasePairs = snpPositionsInBasePairs;
+        this.coreStartIndex = coreStartIndex;
+        this.coreEndIndex = coreEndIndex;
+        this.paddedStartIndex = paddedStartIndex;
+        this.paddedEndIndex = paddedEndIndex;
+        this.coreStartInBasePairs = coreStartInBasePairs;
+        this.coreEndInBasePairs = coreEndInBasePairs;
+    }
+    
+    /**
+     * Getter for the position of this chunk in genomic order
+     * @return the chunk index
+     */
+    public int getChunkIndex()
+    {
+        return this.chunkIndex;
+    }
+    
+    /**
+     * Getter for the chromosome that this chunk is on
+     * @return the chromosome number
+     */
+    public int getChromosomeNumber()
+    {
+        return this.chromosomeNumber;
+    }
+    
+    /**
+     * Getter for all of the chromosome's SNP positions. The chunk's SNPs
+     * are a range of this array which is shared by every chunk on the
+     * chromosome and must not be modified
+     * @return the SNP positions
+     */
+    public long[] getSnpPositionsInBasePairs()
+    {
+        return this.snpPositionsInBasePairs;
+    }
+    
+    /**
+     * Getter for the index of the first core SNP
+     * @return the core start index
+     */
+    public int getCoreStartIndex()
+    {
+        return this.coreStartIndex;
+    }
+    
+    /**
+     * Getter for the index one past the last core SNP
+     * @return the core end index
+     */
+    public int getCoreEndIndex()
+    {
+        return this.coreEndIndex;
+    }
+    
+    /**
+     * Getter for the index of the first padded SNP
+     * @return the padded start index
+     */
+    public int getPaddedStartIndex()
+    {
+        return this.paddedStartIndex;
+    }
+    
+    /**
+     * Getter for the index one past the last padded SNP
+     * @return the padded end index
+     */
+    public int getPaddedEndIndex()
+    {
+        return this.paddedEndIndex;
+    }
+    
+    /**
+     * Getter for the number of core SNPs, which is the cost used to
+     * balance chunks
+     * @return the core SNP count
+     */
+    public int getCoreSnpCount()
+    {
+        return this.coreEndIndex - this.coreStartIndex;
+    }
+    
+    /**
+     * Getter for the start of the core base pair range
+     * @return the core start
+     */
+    public long getCoreStartInBasePairs()
+    {
+        return this.coreStartInBasePairs;
+    }
+    
+    /**
+     * Getter for the (inclusive) end of the core base pair range
+     * @return the core end
+     */
+    public long getCoreEndInBasePairs()
+    {
+        return this.coreEndInBasePairs;
+    }
+    
+    /**
+     * Determine if the given position is in this chunk's core range. A
+     * task can use this to decide which results it owns
+     * @param positionInBasePairs
+     *          the position
+     * @return
+     *          true if the position is in the core range
+     */
+    public boolean coreContains(long positionInBasePairs)
+    {
+        return positionInBasePairs >= this.coreStartInBasePairs &&
+               positionInBasePairs <= this.coreEndInBasePairs;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "chunk " + this.chunkIndex +
+               ": chromosome=" + this.chromosomeNumber +
+               ", core=[" + this.coreStartInBasePairs +
+               ", " + this.coreEndInBasePairs +
+               "], coreSnps=" + this.getCoreSnpCount();
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.metrics.Counter;
+import org.jax.geneticutil.metrics.MetricRegistry;
+import org.jax.geneticutil.metrics.Timer;
+
+/**
+ * Splits a genome wide scan into chunks of roughly equal cost and runs them
+ * in parallel. Cost is measured in SNPs, so large chromosomes are cut into
+ * more chunks than small ones and no core sits idle waiting on the largest
+ * chromosome. Chunks never cross chromosomes. Each chunk is padded with SNPs
+ * from its neighbors (see {@link GenomeScanChunk}) so that runs crossing a
+ * chunk edge can be handled, and the chunk results are returned in genomic
+ * order whatever order they finish in.
+ * <p>
+ * Any {@link ExecutorService} can run the scan. A
+ * {@link java.util.concurrent.ForkJoinPool} is a good fit and so is a
+ * virtual thread per task executor on JDKs that have one.
+ * </p>
+ * <p>
+ * Scans report chunk and SNP counts, queued and running chunk counts and
+ * per chromosome chunk timings to the
+ * {@link MetricRegistry#getDefault() default metric registry}.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomeScanScheduler
+{
+    private static final MetricRegistry METRICS = MetricRegistry.getDefault();
+    
+    private static final Counter CHUNKS_SCANNED = METRICS.counter(
+            "genomeScan.chunksScanned");
+    
+    private static final Counter SNPS_SCANNED = METRICS.counter(
+            "genomeScan.snpsScanned");
+    
+    private static final Counter QUEUED_CHUNKS = METRICS.counter(
+            "genomeScan.queuedChunks");
+    
+    private static final Counter RUNNING_CHUNKS = METRICS.counter(
+            "genomeScan.runningChunks");
+    
+    private static final Timer CHUNK_TIMER = METRICS.timer(
+            "genomeScan.chunkTime");
+    
+    private final List<GenomeScanChunk> chunks;
+    
+    /**
+     * Constructor
+     * @param snpPositionsByChromosome
+     *          the sorted SNP positions of each chromosome
+     * @param targetChunkCount
+     *          the number of chunks to aim for. a few chunks per core
+     *          gives the executor room to balance
+     * @param overlapSnpCount
+     *          the number of SNPs to pad each side of a chunk with
+     * @throws IllegalArgumentException
+     *          if the chunk count isn't positive or the overlap is negative
+     */
+    public GenomeScanScheduler(
+            Map<Integer, long[]> snpPositionsByChromosome,
+            int targetChunkCount,
+            int overlapSnpCount)
+            throws IllegalArgumentException
+    {
+        if(targetChunkCount <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "the target chunk count must be positive");
+        }
+        if(overlapSnpCount < 0)
+        {
+            throw new IllegalArgumentException(
+                    "the overlap SNP count must not be negative");
+        }
+        
+        SortedMap<Integer, long[]> sortedPositions =
+            new TreeMap<Integer, long[]>(snpPositionsByChromosome);
+        long totalSnpCount = 0L;
+        for(long[] positions: sortedPositions.values())
+        {
+            totalSnpCount += positions.length;
+        }
+        long targetChunkSnpCount = Math.max(
+                1L,
+                (totalSnpCount + targetChunkCount - 1) / targetChunkCount);
+        
+        List<GenomeScanChunk> chunks = new ArrayList<GenomeScanChunk>();
+        for(Map.Entry<Integer, long[]> entry: sortedPositions.entrySet())
+        {
+            long[] positions = entry.getValue();
+            int snpCount = positions.length;
+            if(snpCount == 0)
+            {
+                continue;
+            }
+            
+            int chromosomeChunkCount =
+                (int)((snpCount + targetChunkSnpCount - 1) / targetChunkSnpCount);
+            for(int i = 0; i < chromosomeChunkCount; i++)
+            {
+                int coreStartIndex = (int)((long)snpCount * i / chromosomeChunkCount);
+                int coreEndIndex = (int)((long)snpCount * (i + 1) / chromosomeChunkCount);
+                
+                // the cores tile the chromosome with the boundary between
+                // two chunks falling just before the next chunk's first SNP
+                long coreStartInBasePairs = positions[coreStartIndex];
+                long coreEndInBasePairs = coreEndIndex == snpCount ?
+                        positions[snpCount - 1] :
+                        positions[coreEndIndex] - 1;
+                
+                chunks.add(new GenomeScanChunk(
+                        chunks.size(),
+                        entry.getKey(),
+                        positions,
+                        coreStartIndex,
+                        coreEndIndex,
+                        Math.max(0, coreStartIndex - overlapSnpCount),
+                        (int)Math.min(snpCount, (long)coreEndIndex + overlapSnpCount),
+                        coreStartInBasePairs,
+                        coreEndInBasePairs));
+            }
+        }
+        this.chunks = Collections.unmodifiableList(chunks);
+    }
+    
+    /**
+     * Getter for the chunks in genomic order
+     * @return the chunks
+     */
+    public List<GenomeScanChunk> getChunks()
+    {
+        return this.chunks;
+    }
+    
+    /**
+     * Run the scan
+     * @param <R>
+     *          the chunk result type
+     * @param task
+     *          the task to run on each chunk
+     * @param executor
+     *          the executor to run the chunks on
+     * @return
+     *          the chunk results in genomic order (the same order as
+     *          {@link #getChunks()})
+     * @throws ExecutionException
+     *          if any chunk fails. this is thrown as soon as the first
+     *          failing chunk finishes and the chunks that haven't finished
+     *          yet are cancelled
+     * @throws InterruptedException
+     *          if we're interrupted while waiting on the chunks
+     * @throws RejectedExecutionException
+     *          if the executor rejects a chunk. the chunks that were
+     *          already submitted are cancelled
+     */
+    public <R> List<R> scan(
+            final GenomeScanTask<? extends R> task,
+            ExecutorService executor)
+            throws ExecutionException, InterruptedException, RejectedExecutionException
+    {
+        int chunkCount = this.chunks.size();
+        CompletionService<R> completionService =
+            new ExecutorCompletionService<R>(executor);
+        List<Future<R>> futuresByChunk = new ArrayList<Future<R>>(
+                Collections.<Future<R>>nCopies(chunkCount, null));
+        Map<Future<R>, Integer> chunkIndicesByFuture =
+            new IdentityHashMap<Future<R>, Integer>(2 * chunkCount);
+        
+        // lets the queued chunk count be decremented exactly once per chunk
+        // whether the chunk runs, is rejected or is cancelled before it
+        // starts
+        final AtomicBoolean[] dequeuedByChunk = new AtomicBoolean[chunkCount];
+        for(int i = 0; i < dequeuedByChunk.length; i++)
+        {
+            dequeuedByChunk[i] = new AtomicBoolean();
+        }
+        
+        try
+        {
+            // submit the biggest chunks first so that the small ones fill
+            // in the gaps at the end of the scan
+            List<GenomeScanChunk> costOrderedChunks =
+                new ArrayList<GenomeScanChunk>(this.chunks);
+            Collections.sort(costOrderedChunks, new Comparator<GenomeScanChunk>()
+            {
+                public int compare(GenomeScanChunk chunk1, GenomeScanChunk chunk2)
+                {
+                    return chunk2.getCoreSnpCount() - chunk1.getCoreSnpCount();
+                }
+            });
+            
+            for(final GenomeScanChunk chunk: costOrderedChunks)
+            {
+                final AtomicBoolean dequeued = dequeuedByChunk[chunk.getChunkIndex()];
+                QUEUED_CHUNKS.increment();
+                Future<R> future;
+                try
+                {
+                    future = completionService.submit(new Callable<R>()
+                    {
+                        public R call() throws Exception
+                        {
+                            if(dequeued.compareAndSet(false, true))
+                            {
+                                QUEUED_CHUNKS.add(-1L);
+                            }
+                            RUNNING_CHUNKS.increment();
+                            long startNanos = CHUNK_TIMER.start();
+                            try
+                            {
+                                return task.scanChunk(chunk);
+                            }
+                            finally
+                            {
+                                RUNNING_CHUNKS.add(-1L);
+                                if(METRICS.isEnabled())
+                                {
+                                    long elapsedNanos =
+                                        System.nanoTime() - startNanos;
+                                    CHUNK_TIMER.record(elapsedNanos);
+                                    METRICS.timer(
+                                            "genomeScan.chromosome" +
+                                            chunk.getChromosomeNumber() +
+                                            ".chunkTime").record(elapsedNanos);
+                                    CHUNKS_SCANNED.increment();
+                                    SNPS_SCANNED.add(chunk.getCoreSnpCount());
+                                }
+                            }
+                        }
+                    });
+                }
+                catch(RejectedExecutionException ex)
+                {
+                    // the chunk was never queued. the chunks that were
+                    // are cancelled below
+                    if(dequeued.compareAndSet(false, true))
+                    {
+                        QUEUED_CHUNKS.add(-1L);
+                    }
+                    throw ex;
+                }
+                futuresByChunk.set(chunk.getChunkIndex(), future);
+                chunkIndicesByFuture.put(future, chunk.getChunkIndex());
+            }
+            
+            // take the chunks in the order they finish so that the first
+            // failure is reported as soon as it happens and then put the
+            // results back in genomic order
+            List<R> results = new ArrayList<R>(Collections.<R>nCopies(chunkCount, null));
+            for(int i = 0; i < chunkCount; i++)
+            {
+                Future<R> future = completionService.take();
+                results.set(chunkIndicesByFuture.get(future), future.get());
+            }
+            return results;
+        }
+        finally
+        {
+            // this is a no-op for the futures that completed
+            for(int i = 0; i < futuresByChunk.size(); i++)
+            {
+                Future<R> future = futuresByChunk.get(i);
+                if(future != null)
+                {
+                    future.cancel(true);
+                    if(dequeuedByChunk[i].compareAndSet(false, true))
+                    {
+                        QUEUED_CHUNKS.add(-1L);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stitch per chunk interval results back together. This concatenates
+     * the chunk results in order and joins a chunk's last interval to the
+     * next chunk's first interval only when they meet exactly at the
+     * boundary between the two chunk cores: the first must end at
+     * {@link GenomeScanChunk#getCoreEndInBasePairs()} and the second must
+     * start at the next chunk's
+     * {@link GenomeScanChunk#getCoreStartInBasePairs()}. Intervals that
+     * touch or overlap anywhere else are separate results and are left
+     * alone, and intervals that aren't joined are returned as they are.
+     * For this to reconnect a run which crosses chunks, each task should use
+     * its padding to see that the run continues past its core and clip the
+     * run to the core on that side
+     * @param chunkResults
+     *          the chunk results in genomic order (the same order as
+     *          {@link #getChunks()}). each chunk's intervals should be
+     *          sorted
+     * @return
+     *          the stitched intervals. joined runs are
+     *          {@link SimpleBasePairInterval}s
+     * @throws IllegalArgumentException
+     *          if there isn't one result per chunk
+     */
+    public List<BasePairInterval> stitchIntervals(
+            List<? extends List<? extends BasePairInterval>> chunkResults)
+            throws IllegalArgumentException
+    {
+        int chunkCount = this.chunks.size();
+        if(chunkResults.size() != chunkCount)
+        {
+            throw new IllegalArgumentException(
+                    "expected " + chunkCount + " chunk results but got " +
+                    chunkResults.size());
+        }
+        
+        List<BasePairInterval> stitchedIntervals = new ArrayList<BasePairInterval>();
+        
+        // the last interval seen, held back in case the next chunk continues
+        // it, and the index of the chunk whose core it ends in
+        BasePairInterval pendingInterval = null;
+        int pendingChunkIndex = -1;
+        for(int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++)
+        {
+            GenomeScanChunk chunk = this.chunks.get(chunkIndex);
+            List<? extends BasePairInterval> chunkResult = chunkResults.get(chunkIndex);
+            for(int i = 0; i < chunkResult.size(); i++)
+            {
+                BasePairInterval interval = chunkResult.get(i);
+                boolean continuesPending =
+                    i == 0 &&
+                    pendingInterval != null &&
+                    this.continuesAcrossBoundary(
+                            pendingInterval,
+                            pendingChunkIndex,
+                            interval,
+                            chunk);
+                if(continuesPending)
+                {
+                    long startInBasePairs = pendingInterval.getStartInBasePairs();
+                    long endInBasePairs = interval.getEndInBasePairs();
+                    pendingInterval = new SimpleBasePairInterval(
+                            interval.getChromosomeNumber(),
+                            startInBasePairs,
+                            endInBasePairs - startInBasePairs + 1);
+                }
+                else
+                {
+                    if(pendingInterval != null)
+                    {
+                        stitchedIntervals.add(pendingInterval);
+                    }
+                    pendingInterval = interval;
+                }
+                pendingChunkIndex = chunkIndex;
+            }
+        }
+        
+        if(pendingInterval != null)
+        {
+            stitchedIntervals.add(pendingInterval);
+        }
+        
+        return stitchedIntervals;
+    }
+    
+    /**
+     * Determine if an interval that ends in one chunk is continued by the
+     * first interval of the next chunk
+     * @param interval
+     *          the earlier interval
+     * @param chunkIndex
+     *          the index of the chunk the earlier interval ends in
+     * @param nextInterval
+     *          the first interval of the later chunk
+     * @param nextChunk
+     *          the later chunk
+     * @return
+     *          true if the chunks are neighbors on one chromosome and the
+     *          intervals meet exactly at the boundary between their cores
+     */
+    private boolean continuesAcrossBoundary(
+            BasePairInterval interval,
+            int chunkIndex,
+            BasePairInterval nextInterval,
+            GenomeScanChunk nextChunk)
+    {
+        if(chunkIndex != nextChunk.getChunkIndex() - 1)
+        {
+            return false;
+        }
+        
+        GenomeScanChunk chunk = this.chunks.get(chunkIndex);
+        return chunk.getChromosomeNumber() == nextChunk.getChromosomeNumber() &&
+               interval.getChromosomeNumber() == nextInterval.getChromosomeNumber() &&
+               interval.getEndInBasePairs() == chunk.getCoreEndInBasePairs() &&
+               nextInterval.getStartInBasePairs() == nextChunk.getCoreStartInBasePairs();
+    }
+}
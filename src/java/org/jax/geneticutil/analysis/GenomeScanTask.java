@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+/**
+ * The work done for a single chunk of a genome scan
+ * @see GenomeScanScheduler
+ * @param <R>   the chunk result type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface GenomeScanTask<R>
+{
+    /**
+     * Scan a chunk. The task may read SNPs anywhere in the chunk's padded
+     * range but should only report results in its core range so that
+     * neighboring chunks don't report the same result twice
+     * @param chunk
+     *          the chunk to scan
+     * @return
+     *          the result for the chunk
+     * @throws Exception
+     *          if the scan fails
+     */
+    public R scanChunk(GenomeScanChunk chunk) throws Exception;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import org.jax.geneticutil.data.StrainPair;
+
+/**
+ * Maps the keys of a {@link org.jax.geneticutil.data.SnpIntervalListGroup}
+ * to the strain pairs that they hold results for
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface StrainPairKeyMapper
+{
+    /**
+     * Get the strain pair for the given key
+     * @param key
+     *          the group key
+     * @return
+     *          the strain pair or null if the key isn't a strain pair result
+     *          and should be skipped
+     */
+    public StrainPair toStrainPair(String key);
+}
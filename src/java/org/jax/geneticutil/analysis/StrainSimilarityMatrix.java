@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A symmetric strain by strain matrix of doubles. Only the lower triangle
+ * (including the diagonal) is stored, packed into a single primitive array.
+ * This class is not thread safe
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class StrainSimilarityMatrix implements Serializable
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = -4338212659061094626L;
+    
+    private final String[] strainNames;
+    
+    private final Map<String, Integer> strainIndices;
+    
+    private final double[] packedValues;
+    
+    /**
+     * Constructor for a matrix of zeros
+     * @param strainNames
+     *          the strain names in matrix order
+     * @throws IllegalArgumentException
+     *          if a strain name is repeated
+     */
+    public StrainSimilarityMatrix(List<String> strainNames)
+            throws IllegalArgumentException
+    {
+        this.strainNames = strainNames.toArray(new String[strainNames.size()]);
+        this.strainIndices = new HashMap<String, Integer>(this.strainNames.length * 2);
+        for(int i = 0; i < this.strainNames.length; i++)
+        {
+            if(this.strainIndices.put(this.strainNames[i], i) != null)
+            {
+                throw new IllegalArgumentException(
+                        "duplicate strain name: " + this.strainNames[i]);
+            }
+        }
+        
+        long n = this.strainNames.length;
+        long packedLength = n * (n + 1) / 2;
+        if(packedLength > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(
+                    "too many strains for a packed matrix: " + n);
+        }
+        this.packedValues = new double[(int)packedLength];
+    }
+    
+    private static int packedIndex(int strainIndex1, int strainIndex2)
+    {
+        if(strainIndex1 > strainIndex2)
+        {
+            return strainIndex1 * (strainIndex1 + 1) / 2 + strainIndex2;
+        }
+        else
+        {
+            return strainIndex2 * (strainIndex2 + 1) / 2 + strainIndex1;
+        }
+    }
+    
+    /**
+     * Getter for the number of strains (rows and columns)
+     * @return the strain count
+     */
+    public int getStrainCount()
+    {
+        return this.strainNames.length;
+    }
+    
+    /**
+     * Getter for the strain names in matrix order
+     * @return the strain names
+     */
+    public List<String> getStrainNames()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.strainNames));
+    }
+    
+    /**
+     * Get the matrix index of the given strain
+     * @param strainName
+     *          the strain name
+     * @return
+     *          the index or -1 if the strain isn't in this matrix
+     */
+    public int getStrainIndex(String strainName)
+    {
+        Integer strainIndex = this.strainIndices.get(strainName);
+        return strainIndex == null ? -1 : strainIndex.intValue();
+    }
+    
+    /**
+     * Get the value for a pair of strains
+     * @param strainIndex1
+     *          the index of the 1st strain
+     * @param strainIndex2
+     *          the index of the 2nd strain
+     * @return
+     *          the value
+     */
+    public double getValue(int strainIndex1, int strainIndex2)
+    {
+        return this.packedValues[packedIndex(strainIndex1, strainIndex2)];
+    }
+    
+    /**
+     * Get the value for a pair of strains
+     * @param strainName1
+     *          the 1st strain
+     * @param strainName2
+     *          the 2nd strain
+     * @return
+     *          the value
+     * @throws IllegalArgumentException
+     *          if either strain isn't in this matrix
+     */
+    public double getValue(String strainName1, String strainName2)
+            throws IllegalArgumentException
+    {
+        return this.getValue(
+                this.getRequiredStrainIndex(strainName1),
+                this.getRequiredStrainIndex(strainName2));
+    }
+    
+    private int getRequiredStrainIndex(String strainName)
+    {
+        Integer strainIndex = this.strainIndices.get(strainName);
+        if(strainIndex == null)
+        {
+            throw new IllegalArgumentException("unknown strain: " + strainName);
+        }
+        return strainIndex.intValue();
+    }
+    
+    /**
+     * Set the value for a pair of strains. Since the matrix is symmetric
+     * this sets both (1, 2) and (2, 1)
+     * @param strainIndex1
+     *          the index of the 1st strain
+     * @param strainIndex2
+     *          the index of the 2nd strain
+     * @param value
+     *          the new value
+     */
+    public void setValue(int strainIndex1, int strainIndex2, double value)
+    {
+        this.packedValues[packedIndex(strainIndex1, strainIndex2)] = value;
+    }
+    
+    /**
+     * Add to the value for a pair of strains
+     * @param strainIndex1
+     *          the index of the 1st strain
+     * @param strainIndex2
+     *          the index of the 2nd strain
+     * @param value
+     *          the value to add
+     */
+    public void addValue(int strainIndex1, int strainIndex2, double value)
+    {
+        this.packedValues[packedIndex(strainIndex1, strainIndex2)] += value;
+    }
+    
+    /**
+     * Expand this matrix into a full square array
+     * @return
+     *          a new array indexed by [row][column]
+     */
+    public double[][] toArray()
+    {
+        int n = this.strainNames.length;
+        double[][] values = new double[n][n];
+        for(int i = 0; i < n; i++)
+        {
+            for(int j = 0; j <= i; j++)
+            {
+                double value = this.packedValues[packedIndex(i, j)];
+                values[i][j] = value;
+                values[j][i] = value;
+            }
+        }
+        return values;
+    }
+}
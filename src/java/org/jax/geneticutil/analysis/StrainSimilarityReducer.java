@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+import org.jax.geneticutil.data.StrainPair;
+import org.jax.geneticutil.metrics.Counter;
+import org.jax.geneticutil.metrics.MetricRegistry;
+
+/**
+ * Reduces pairwise IBS results into strain similarity matrices. For every
+ * strain pair the shared intervals from all of the groups are merged where
+ * they overlap, so that sharing is never counted twice, and then weighed
+ * and summed per chromosome. Pairs are reduced in parallel on the given
+ * executor and the totals are written into the matrices by the calling
+ * thread.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class StrainSimilarityReducer
+{
+    private static final Counter PAIRS_REDUCED = MetricRegistry.getDefault().counter(
+            "similarityReducer.pairsReduced");
+    
+    private static final Counter INTERVALS_REDUCED = MetricRegistry.getDefault().counter(
+            "similarityReducer.intervalsReduced");
+    
+    /**
+     * Weighs an interval by its extent so that matrix values are shared
+     * base pairs
+     */
+    public static final IntervalWeighting BASE_PAIR_WEIGHTING = new IntervalWeighting()
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public double weigh(
+                int chromosomeNumber,
+                long startInBasePairs,
+                long extentInBasePairs)
+        {
+            return extentInBasePairs;
+        }
+    };
+    
+    /**
+     * the number of strain pairs that each parallel task reduces
+     */
+    private static final int PAIRS_PER_TASK = 32;
+    
+    private final List<String> strainNames;
+    
+    private final Set<String> strainNameSet;
+    
+    private final StrainPairKeyMapper keyMapper;
+    
+    private final IntervalWeighting weighting;
+    
+    private final ExecutorService executor;
+    
+    /**
+     * Constructor
+     * @param strainNames
+     *          the strains in matrix order. pairs involving any other
+     *          strain are skipped
+     * @param keyMapper
+     *          maps group keys to strain pairs
+     * @param weighting
+     *          the interval weighting or null to use
+     *          {@link #BASE_PAIR_WEIGHTING}
+     * @param executor
+     *          the executor that pairs are reduced on
+     */
+    public StrainSimilarityReducer(
+            List<String> strainNames,
+            StrainPairKeyMapper keyMapper,
+            IntervalWeighting weighting,
+            ExecutorService executor)
+    {
+        this.strainNames = Collections.unmodifiableList(
+                new ArrayList<String>(strainNames));
+        this.strainNameSet = new HashSet<String>(strainNames);
+        this.keyMapper = keyMapper;
+        this.weighting = weighting == null ? BASE_PAIR_WEIGHTING : weighting;
+        this.executor = executor;
+    }
+    
+    /**
+     * Create a key mapper for keys made of two strain names joined by the
+     * given separator (eg: "C57BL/6J|DBA/2J" with a "|" separator)
+     * @param separator
+     *          the separator
+     * @return
+     *          the mapper. keys without the separator are skipped
+     */
+    public static StrainPairKeyMapper createSeparatorKeyMapper(final String separator)
+    {
+        return new StrainPairKeyMapper()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public StrainPair toStrainPair(String key)
+            {
+                int separatorIndex = key.indexOf(separator);
+                if(separatorIndex == -1)
+                {
+                    return null;
+                }
+                else
+                {
+                    return new StrainPair(
+                            key.substring(0, separatorIndex),
+                            key.substring(separatorIndex + separator.length()));
+                }
+            }
+        };
+    }
+    
+    /**
+     * Reduce the given groups into similarity matrices. A strain pair that
+     * has results in more than one group is reduced over the union of its
+     * results
+     * @param groups
+     *          the groups to reduce
+     * @return
+     *          the matrices
+     * @throws ExecutionException
+     *          if reducing a pair fails
+     * @throws InterruptedException
+     *          if we're interrupted waiting on the executor
+     */
+    public StrainSimilarityReduction reduce(
+            Collection<? extends SnpIntervalListGroup> groups)
+            throws ExecutionException, InterruptedException
+    {
+        Map<StrainPair, List<List<BasePairInterval>>> pairIntervalLists =
+            new LinkedHashMap<StrainPair, List<List<BasePairInterval>>>();
+        for(SnpIntervalListGroup group: groups)
+        {
+            for(Map.Entry<String, List<BasePairInterval>> entry:
+                group.getSnpBlocksMap().entrySet())
+            {
+                StrainPair strainPair = this.keyMapper.toStrainPair(entry.getKey());
+                if(strainPair != null && this.containsStrains(strainPair))
+                {
+                    List<List<BasePairInterval>> intervalLists =
+                        pairIntervalLists.get(strainPair);
+                    if(intervalLists == null)
+                    {
+                        intervalLists = new ArrayList<List<BasePairInterval>>();
+                        pairIntervalLists.put(strainPair, intervalLists);
+                    }
+                    intervalLists.add(entry.getValue());
+                }
+            }
+        }
+        
+        List<Future<List<PairTotals>>> futures =
+            new ArrayList<Future<List<PairTotals>>>();
+        List<Map.Entry<StrainPair, List<List<BasePairInterval>>>> pairEntries =
+            new ArrayList<Map.Entry<StrainPair, List<List<BasePairInterval>>>>(
+                    pairIntervalLists.entrySet());
+        for(int i = 0; i < pairEntries.size(); i += PAIRS_PER_TASK)
+        {
+            final List<Map.Entry<StrainPair, List<List<BasePairInterval>>>> taskEntries =
+                pairEntries.subList(i, Math.min(i + PAIRS_PER_TASK, pairEntries.size()));
+            futures.add(this.executor.submit(new Callable<List<PairTotals>>()
+            {
+                public List<PairTotals> call()
+                {
+                    List<PairTotals> taskTotals =
+                        new ArrayList<PairTotals>(taskEntries.size());
+                    for(Map.Entry<StrainPair, List<List<BasePairInterval>>> entry:
+                        taskEntries)
+                    {
+                        taskTotals.add(StrainSimilarityReducer.this.computePairTotals(
+                                entry.getKey(),
+                                entry.getValue()));
+                    }
+                    return taskTotals;
+                }
+            }));
+        }
+        
+        StrainSimilarityReduction reduction =
+            new StrainSimilarityReduction(this.strainNames);
+        try
+        {
+            for(Future<List<PairTotals>> future: futures)
+            {
+                for(PairTotals pairTotals: future.get())
+                {
+                    this.setPairTotals(reduction, pairTotals);
+                }
+            }
+        }
+        finally
+        {
+            for(Future<List<PairTotals>> future: futures)
+            {
+                future.cancel(true);
+            }
+        }
+        
+        return reduction;
+    }
+    
+    /**
+     * Replace a single strain pair's values in an existing reduction. This
+     * is much cheaper than a new reduction when only one pair's IBS result
+     * has changed
+     * @param reduction
+     *          the reduction to update
+     * @param strainPair
+     *          the strain pair
+     * @param ibsIntervals
+     *          the pair's complete new result. overlapping intervals are
+     *          merged just as they are in {@link #reduce(Collection)}
+     * @throws IllegalArgumentException
+     *          if either strain isn't in the matrices
+     */
+    public void updatePair(
+            StrainSimilarityReduction reduction,
+            StrainPair strainPair,
+            List<? extends BasePairInterval> ibsIntervals)
+            throws IllegalArgumentException
+    {
+        if(!this.containsStrains(strainPair))
+        {
+            throw new IllegalArgumentException(
+                    "the matrices don't contain both strains of " + strainPair);
+        }
+        
+        this.setPairTotals(
+                reduction,
+                this.computePairTotals(
+                        strainPair,
+                        Collections.singletonList(ibsIntervals)));
+    }
+    
+    private boolean containsStrains(StrainPair strainPair)
+    {
+        return this.strainNameSet.contains(strainPair.getFirstStrainName()) &&
+               this.strainNameSet.contains(strainPair.getSecondStrainName());
+    }
+    
+    private void setPairTotals(
+            StrainSimilarityReduction reduction,
+            PairTotals pairTotals)
+    {
+        StrainSimilarityMatrix genomeMatrix = reduction.getGenomeMatrix();
+        reduction.setPairTotals(
+                genomeMatrix.getStrainIndex(pairTotals.strainPair.getFirstStrainName()),
+                genomeMatrix.getStrainIndex(pairTotals.strainPair.getSecondStrainName()),
+                pairTotals.chromosomeNumbers,
+                pairTotals.chromosomeTotals);
+    }
+    
+    /**
+     * Merge the overlapping intervals of a pair and sum their weights per
+     * chromosome
+     * @param strainPair
+     *          the pair
+     * @param intervalLists
+     *          all of the pair's intervals
+     * @return
+     *          the totals
+     */
+    private PairTotals computePairTotals(
+            StrainPair strainPair,
+            List<? extends List<? extends BasePairInterval>> intervalLists)
+    {
+        List<BasePairInterval> sortedIntervals = new ArrayList<BasePairInterval>();
+        for(List<? extends BasePairInterval> intervals: intervalLists)
+        {
+            sortedIntervals.addAll(intervals);
+        }
+        Collections.sort(
+                sortedIntervals,
+                SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        PAIRS_REDUCED.increment();
+        INTERVALS_REDUCED.add(sortedIntervals.size());
+        
+        int[] chromosomeNumbers = new int[4];
+        double[] chromosomeTotals = new double[4];
+        int chromosomeCount = 0;
+        
+        int size = sortedIntervals.size();
+        int i = 0;
+        while(i < size)
+        {
+            BasePairInterval interval = sortedIntervals.get(i);
+            int chromosomeNumber = interval.getChromosomeNumber();
+            long mergedStart = interval.getStartInBasePairs();
+            long mergedEnd = interval.getEndInBasePairs();
+            for(i++; i < size; i++)
+            {
+                BasePairInterval nextInterval = sortedIntervals.get(i);
+                if(nextInterval.getChromosomeNumber() != chromosomeNumber ||
+                   nextInterval.getStartInBasePairs() > mergedEnd)
+                {
+                    break;
+                }
+                mergedEnd = Math.max(mergedEnd, nextInterval.getEndInBasePairs());
+            }
+            
+            double weight = this.weighting.weigh(
+                    chromosomeNumber,
+                    mergedStart,
+                    mergedEnd - mergedStart + 1);
+            if(chromosomeCount == 0 ||
+               chromosomeNumbers[chromosomeCount - 1] != chromosomeNumber)
+            {
+                if(chromosomeCount == chromosomeNumbers.length)
+                {
+                    chromosomeNumbers = Arrays.copyOf(
+                            chromosomeNumbers,
+                            chromosomeCount * 2);
+                    chromosomeTotals = Arrays.copyOf(
+                            chromosomeTotals,
+                            chromosomeCount * 2);
+                }
+                chromosomeNumbers[chromosomeCount] = chromosomeNumber;
+                chromosomeTotals[chromosomeCount] = weight;
+                chromosomeCount++;
+            }
+            else
+            {
+                chromosomeTotals[chromosomeCount - 1] += weight;
+            }
+        }
+        
+        return new PairTotals(
+                strainPair,
+                Arrays.copyOf(chromosomeNumbers, chromosomeCount),
+                Arrays.copyOf(chromosomeTotals, chromosomeCount));
+    }
+    
+    /**
+     * The per chromosome totals for one strain pair
+     */
+    private static final class PairTotals
+    {
+        final StrainPair strainPair;
+        
+        final int[] chromosomeNumbers;
+        
+        final double[] chromosomeTotals;
+        
+        PairTotals(
+                StrainPair strainPair,
+                int[] chromosomeNumbers,
+                double[] chromosomeTotals)
+        {
+            this.strainPair = strainPair;
+            this.chromosomeNumbers = chromosomeNumbers;
+            this.chromosomeTotals = chromosomeTotals;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The per chromosome and genome wide strain similarity matrices produced by
+ * a {@link StrainSimilarityReducer}. The genome wide value for a pair is
+ * always the sum of the pair's chromosome values
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class StrainSimilarityReduction
+{
+    private final List<String> strainNames;
+    
+    private final SortedMap<Integer, StrainSimilarityMatrix> chromosomeMatrices =
+        new TreeMap<Integer, StrainSimilarityMatrix>();
+    
+    private final StrainSimilarityMatrix genomeMatrix;
+    
+    /**
+     * Constructor
+     * @param strainNames
+     *          the strain names in matrix order
+     */
+    StrainSimilarityReduction(List<String> strainNames)
+    {
+        this.strainNames = strainNames;
+        this.genomeMatrix = new StrainSimilarityMatrix(strainNames);
+    }
+    
+    /**
+     * Getter for the genome wide matrix
+     * @return the genome matrix
+     */
+    public StrainSimilarityMatrix getGenomeMatrix()
+    {
+        return this.genomeMatrix;
+    }
+    
+    /**
+     * Getter for the matrix of a single chromosome
+     * @param chromosomeNumber
+     *          the chromosome
+     * @return
+     *          the matrix or null if no shared intervals were seen on the
+     *          chromosome
+     */
+    public StrainSimilarityMatrix getChromosomeMatrix(int chromosomeNumber)
+    {
+        return this.chromosomeMatrices.get(chromosomeNumber);
+    }
+    
+    /**
+     * Getter for all of the chromosome matrices
+     * @return
+     *          an unmodifiable map from chromosome number to matrix
+     */
+    public SortedMap<Integer, StrainSimilarityMatrix> getChromosomeMatrices()
+    {
+        return Collections.unmodifiableSortedMap(this.chromosomeMatrices);
+    }
+    
+    /**
+     * Replace all of the values for one strain pair
+     * @param strainIndex1
+     *          the index of the 1st strain
+     * @param strainIndex2
+     *          the index of the 2nd strain
+     * @param chromosomeNumbers
+     *          the chromosomes that the pair has values on
+     * @param chromosomeTotals
+     *          the values matching chromosomeNumbers
+     */
+    synchronized void setPairTotals(
+            int strainIndex1,
+            int strainIndex2,
+            int[] chromosomeNumbers,
+            double[] chromosomeTotals)
+    {
+        for(StrainSimilarityMatrix chromosomeMatrix: this.chromosomeMatrices.values())
+        {
+            chromosomeMatrix.setValue(strainIndex1, strainIndex2, 0.0);
+        }
+        
+        double genomeTotal = 0.0;
+        for(int i = 0; i < chromosomeNumbers.length; i++)
+        {
+            StrainSimilarityMatrix chromosomeMatrix =
+                this.chromosomeMatrices.get(chromosomeNumbers[i]);
+            if(chromosomeMatrix == null)
+            {
+                chromosomeMatrix = new StrainSimilarityMatrix(this.strainNames);
+                this.chromosomeMatrices.put(chromosomeNumbers[i], chromosomeMatrix);
+            }
+            chromosomeMatrix.setValue(strainIndex1, strainIndex2, chromosomeTotals[i]);
+            genomeTotal += chromosomeTotals[i];
+        }
+        
+        this.genomeMatrix.setValue(strainIndex1, strainIndex2, genomeTotal);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+/**
+ * Receives the segments found by a {@link ThresholdSegmenter}. Segments are
+ * passed as primitives so that reporting them doesn't require any
+ * allocation.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface ThresholdSegmentListener
+{
+    /**
+     * Called once for every segment found
+     * @param chromosomeNumber
+     *          the chromosome that the segment is on
+     * @param startInBasePairs
+     *          the start of the segment's support interval
+     * @param extentInBasePairs
+     *          the extent of the segment's support interval
+     * @param peakStartInBasePairs
+     *          the start of the interval holding the peak value
+     * @param peakExtentInBasePairs
+     *          the extent of the interval holding the peak value
+     * @param peakValue
+     *          the peak value
+     */
+    public void segmentFound(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs,
+            long peakStartInBasePairs,
+            long peakExtentInBasePairs,
+            double peakValue);
+}
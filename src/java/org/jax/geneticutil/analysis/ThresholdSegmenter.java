@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.RealValuedBasePairIntervalArray;
+import org.jax.geneticutil.metrics.Counter;
+import org.jax.geneticutil.metrics.MetricRegistry;
+
+/**
+ * A streaming segmenter which finds the contiguous regions where a score
+ * track meets a threshold. Intervals are fed in genomic order and every
+ * time a segment is closed it is reported to a
+ * {@link ThresholdSegmentListener} along with its peak. Above threshold
+ * intervals which are separated by no more than the max gap are merged
+ * into the same segment. The segmenter only holds the state of the
+ * current segment so memory use is constant and no objects are allocated
+ * per input interval. Interval and segment counts are reported to the
+ * {@link MetricRegistry#getDefault() default metric registry} once per
+ * segment rather than once per interval.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ThresholdSegmenter
+{
+    private static final Counter INTERVALS_SEGMENTED =
+        MetricRegistry.getDefault().counter("thresholdSegmenter.intervals");
+    
+    private static final Counter SEGMENTS_FOUND =
+        MetricRegistry.getDefault().counter("thresholdSegmenter.segments");
+    
+    private final double threshold;
+    
+    private final long maxGapInBasePairs;
+    
+    private final ThresholdSegmentListener listener;
+    
+    private boolean inSegment = false;
+    
+    private int previousChromosomeNumber = Integer.MIN_VALUE;
+    
+    private long previousStartInBasePairs = Long.MIN_VALUE;
+    
+    private int segmentChromosomeNumber;
+    
+    private long segmentStartInBasePairs;
+    
+    private long segmentEndInBasePairs;
+    
+    private long peakStartInBasePairs;
+    
+    private long peakExtentInBasePairs;
+    
+    private double peakValue;
+    
+    /**
+     * intervals added since the count was last pushed to
+     * {@link #INTERVALS_SEGMENTED}
+     */
+    private long unreportedIntervalCount = 0L;
+    
+    /**
+     * Constructor
+     * @param threshold
+     *          intervals with a value greater than or equal to this
+     *          threshold are part of a segment
+     * @param maxGapInBasePairs
+     *          the largest number of base pairs that can separate two
+     *          above threshold intervals without splitting the segment
+     * @param listener
+     *          the listener that segments are reported to
+     */
+    public ThresholdSegmenter(
+            double threshold,
+            long maxGapInBasePairs,
+            ThresholdSegmentListener listener)
+    {
+        this.threshold = threshold;
+        this.maxGapInBasePairs = maxGapInBasePairs;
+        this.listener = listener;
+    }
+    
+    /**
+     * Getter for the threshold
+     * @return the threshold
+     */
+    public double getThreshold()
+    {
+        return this.threshold;
+    }
+    
+    /**
+     * Getter for the max gap that can be merged over
+     * @return the max gap in base pairs
+     */
+    public long getMaxGapInBasePairs()
+    {
+        return this.maxGapInBasePairs;
+    }
+    
+    /**
+     * Add the next interval to the stream
+     * @param interval
+     *          the interval
+     * @throws IllegalArgumentException
+     *          if the interval is out of order
+     */
+    public void addInterval(RealValuedBasePairInterval interval)
+            throws IllegalArgumentException
+    {
+        this.addInterval(
+                interval.getChromosomeNumber(),
+                interval.getStartInBasePairs(),
+                interval.getExtentInBasePairs(),
+                interval.getRealValue());
+    }
+    
+    /**
+     * Add all of the intervals in the given array to the stream
+     * @param intervals
+     *          the intervals
+     * @throws IllegalArgumentException
+     *          if the intervals are out of order
+     */
+    public void addIntervals(RealValuedBasePairIntervalArray intervals)
+            throws IllegalArgumentException
+    {
+        int[] chromosomeNumbers = intervals.getChromosomeNumbers();
+        long[] startsInBasePairs = intervals.getStartsInBasePairs();
+        long[] extentsInBasePairs = intervals.getExtentsInBasePairs();
+        double[] realValues = intervals.getRealValues();
+        int size = intervals.size();
+        for(int i = 0; i < size; i++)
+        {
+            this.addInterval(
+                    chromosomeNumbers[i],
+                    startsInBasePairs[i],
+                    extentsInBasePairs[i],
+                    realValues[i]);
+        }
+    }
+    
+    /**
+     * Add the next interval to the stream. Intervals must be ordered by
+     * chromosome and then by start position
+     * @param chromosomeNumber
+     *          the interval's chromosome
+     * @param startInBasePairs
+     *          the interval's start
+     * @param extentInBasePairs
+     *          the interval's extent
+     * @param realValue
+     *          the interval's score
+     * @throws IllegalArgumentException
+     *          if the interval is out of order
+     */
+    public void addInterval(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs,
+            double realValue)
+            throws IllegalArgumentException
+    {
+        if(chromosomeNumber == this.previousChromosomeNumber)
+        {
+            if(startInBasePairs < this.previousStartInBasePairs)
+            {
+                throw new IllegalArgumentException(
+                        "intervals must be in genomic order but an interval " +
+                        "starting at " + startInBasePairs + " followed one " +
+                        "starting at " + this.previousStartInBasePairs);
+            }
+        }
+        else if(chromosomeNumber < this.previousChromosomeNumber)
+        {
+            throw new IllegalArgumentException(
+                    "intervals must be in genomic order but chromosome " +
+                    chromosomeNumber + " followed chromosome " +
+                    this.previousChromosomeNumber);
+        }
+        this.previousChromosomeNumber = chromosomeNumber;
+        this.previousStartInBasePairs = startInBasePairs;
+        this.unreportedIntervalCount++;
+        
+        if(realValue >= this.threshold)
+        {
+            long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+            if(this.inSegment &&
+               this.segmentChromosomeNumber == chromosomeNumber &&
+               startInBasePairs - this.segmentEndInBasePairs - 1 <= this.maxGapInBasePairs)
+            {
+                this.segmentEndInBasePairs = Math.max(
+                        this.segmentEndInBasePairs,
+                        endInBasePairs);
+                if(realValue > this.peakValue)
+                {
+                    this.peakStartInBasePairs = startInBasePairs;
+                    this.peakExtentInBasePairs = extentInBasePairs;
+                    this.peakValue = realValue;
+                }
+            }
+            else
+            {
+                this.flush();
+                
+                this.inSegment = true;
+                this.segmentChromosomeNumber = chromosomeNumber;
+                this.segmentStartInBasePairs = startInBasePairs;
+                this.segmentEndInBasePairs = endInBasePairs;
+                this.peakStartInBasePairs = startInBasePairs;
+                this.peakExtentInBasePairs = extentInBasePairs;
+                this.peakValue = realValue;
+            }
+        }
+    }
+    
+    /**
+     * Report the segment in progress (if any). This should be called once
+     * after the last interval has been added
+     */
+    public void flush()
+    {
+        if(this.unreportedIntervalCount != 0L)
+        {
+            INTERVALS_SEGMENTED.add(this.unreportedIntervalCount);
+            this.unreportedIntervalCount = 0L;
+        }
+        
+        if(this.inSegment)
+        {
+            this.inSegment = false;
+            SEGMENTS_FOUND.increment();
+            this.listener.segmentFound(
+                    this.segmentChromosomeNumber,
+                    this.segmentStartInBasePairs,
+                    1L + this.segmentEndInBasePairs - this.segmentStartInBasePairs,
+                    this.peakStartInBasePairs,
+                    this.peakExtentInBasePairs,
+                    this.peakValue);
+        }
+    }
+}
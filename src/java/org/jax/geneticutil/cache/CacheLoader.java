@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+/**
+ * Loads the value for a cache key on a cache miss
+ * @param <K>   the key type
+ * @param <V>   the value type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface CacheLoader<K, V>
+{
+    /**
+     * Load the value for the given key
+     * @param key
+     *          the key
+     * @return
+     *          the value which must not be null
+     * @throws Exception
+     *          if the load fails. the exception is passed to every caller
+     *          that was waiting on this load wrapped in a
+     *          {@link java.util.concurrent.ExecutionException}
+     */
+    public V load(K key) throws Exception;
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+/**
+ * An immutable snapshot of the counters kept by a
+ * {@link WeightedLoadingCache}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class CacheStatistics
+{
+    private final long hitCount;
+    
+    private final long softHitCount;
+    
+    private final long missCount;
+    
+    private final long coalescedLoadCount;
+    
+    private final long loadSuccessCount;
+    
+    private final long loadFailureCount;
+    
+    private final long totalLoadTimeNanos;
+    
+    private final long evictionCount;
+    
+    private final long evictionWeight;
+    
+    private final int entryCount;
+    
+    private final long weight;
+    
+    /**
+     * Constructor
+     * @param hitCount
+     *          see {@link #getHitCount()}
+     * @param softHitCount
+     *          see {@link #getSoftHitCount()}
+     * @param missCount
+     *          see {@link #getMissCount()}
+     * @param coalescedLoadCount
+     *          see {@link #getCoalescedLoadCount()}
+     * @param loadSuccessCount
+     *          see {@link #getLoadSuccessCount()}
+     * @param loadFailureCount
+     *          see {@link #getLoadFailureCount()}
+     * @param totalLoadTimeNanos
+     *          see {@link #getTotalLoadTimeNanos()}
+     * @param evictionCount
+     *          see {@link #getEvictionCount()}
+     * @param evictionWeight
+     *          see {@link #getEvictionWeight()}
+     * @param entryCount
+     *          see {@link #getEntryCount()}
+     * @param weight
+     *          see {@link #getWeight()}
+     */
+    public CacheStatistics(
+            long hitCount,
+            long softHitCount,
+            long missCount,
+            long coalescedLoadCount,
+            long loadSuccessCount,
+            long loadFailureCount,
+            long totalLoadTimeNanos,
+            long evictionCount,
+            long evictionWeight,
+            int entryCount,
+            long weight)
+    {
+        this.hitCount = hitCount;
+        this.softHitCount = softHitCount;
+        this.missCount = missCount;
+        this.coalescedLoadCount = coalescedLoadCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeNanos = totalLoadTimeNanos;
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+        this.entryCount = entryCount;
+        this.weight = weight;
+    }
+    
+    /**
+     * Getter for the number of lookups that found a resident value. This
+     * includes {@link #getSoftHitCount() soft hits}
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return this.hitCount;
+    }
+    
+    /**
+     * Getter for the number of lookups that found an evicted value which
+     * the garbage collector had not reclaimed yet
+     * @return the soft hit count
+     */
+    public long getSoftHitCount()
+    {
+        return this.softHitCount;
+    }
+    
+    /**
+     * Getter for the number of lookups that had to wait on a load. This
+     * includes {@link #getCoalescedLoadCount() coalesced loads}
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return this.missCount;
+    }
+    
+    /**
+     * Getter for the number of misses that waited on a load which another
+     * thread had already started rather than starting their own
+     * @return the coalesced load count
+     */
+    public long getCoalescedLoadCount()
+    {
+        return this.coalescedLoadCount;
+    }
+    
+    /**
+     * Getter for the number of loads that succeeded
+     * @return the load success count
+     */
+    public long getLoadSuccessCount()
+    {
+        return this.loadSuccessCount;
+    }
+    
+    /**
+     * Getter for the number of loads that threw an exception
+     * @return the load failure count
+     */
+    public long getLoadFailureCount()
+    {
+        return this.loadFailureCount;
+    }
+    
+    /**
+     * Getter for the total time spent in loads
+     * @return the load time in nanoseconds
+     */
+    public long getTotalLoadTimeNanos()
+    {
+        return this.totalLoadTimeNanos;
+    }
+    
+    /**
+     * Getter for the number of entries evicted to stay under the weight
+     * bound
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount;
+    }
+    
+    /**
+     * Getter for the total weight of the evicted entries
+     * @return the eviction weight
+     */
+    public long getEvictionWeight()
+    {
+        return this.evictionWeight;
+    }
+    
+    /**
+     * Getter for the number of resident entries
+     * @return the entry count
+     */
+    public int getEntryCount()
+    {
+        return this.entryCount;
+    }
+    
+    /**
+     * Getter for the total weight of the resident entries
+     * @return the weight
+     */
+    public long getWeight()
+    {
+        return this.weight;
+    }
+    
+    /**
+     * Getter for the fraction of lookups that were hits
+     * @return
+     *          the hit rate or 1 if there have been no lookups
+     */
+    public double getHitRate()
+    {
+        long requestCount = this.hitCount + this.missCount;
+        return requestCount == 0L ? 1.0 : (double)this.hitCount / requestCount;
+    }
+    
+    /**
+     * Getter for the mean time taken by a load
+     * @return
+     *          the mean load time in nanoseconds or 0 if nothing has been
+     *          loaded
+     */
+    public double getAverageLoadTimeNanos()
+    {
+        long loadCount = this.loadSuccessCount + this.loadFailureCount;
+        return loadCount == 0L ? 0.0 : (double)this.totalLoadTimeNanos / loadCount;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "hits=" + this.hitCount +
+               ", softHits=" + this.softHitCount +
+               ", misses=" + this.missCount +
+               ", coalescedLoads=" + this.coalescedLoadCount +
+               ", loadSuccesses=" + this.loadSuccessCount +
+               ", loadFailures=" + this.loadFailureCount +
+               ", evictions=" + this.evictionCount +
+               ", entries=" + this.entryCount +
+               ", weight=" + this.weight;
+    }
+}
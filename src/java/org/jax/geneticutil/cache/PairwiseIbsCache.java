@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.HeapFootprintEstimator;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.StrainPair;
+import org.jax.geneticutil.io.CompactIntervalCodec;
+import org.jax.geneticutil.metrics.MetricRegistry;
+
+/**
+ * A memoizing cache in front of a {@link PairwiseIbsComputation}. Results
+ * are whole chromosome IBS interval arrays keyed by strain pair, chromosome
+ * and SNP panel version so that a new panel never sees stale results.
+ * Region queries are answered from the cached chromosome by binary search.
+ * <p>
+ * The in memory tier is bounded by the estimated size of the cached
+ * arrays. If a spill directory is given then every computed result is also
+ * written there in the compact interval format, and results that have been
+ * evicted from memory are read back from disk rather than recomputed.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PairwiseIbsCache
+{
+    private static final Logger LOG = Logger.getLogger(
+            PairwiseIbsCache.class.getName());
+    
+    private static final HeapFootprintEstimator FOOTPRINT_ESTIMATOR =
+        HeapFootprintEstimator.getDefault();
+    
+    /**
+     * estimated bytes of bookkeeping per entry: the key and its strain
+     * pair, the cache's linked map entry and its weighed value holder. The
+     * strain names and panel version are shared so they aren't counted
+     */
+    private static final long BYTES_PER_ENTRY =
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(2, 4) +
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(2, 0) +
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(5, 4) +
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(1, 8);
+    
+    private static final String SPILL_FILE_EXTENSION = ".ibs";
+    
+    private static final Weigher<PairwiseIbsKey, BasePairIntervalArray> WEIGHER =
+        new Weigher<PairwiseIbsKey, BasePairIntervalArray>()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public long weigh(PairwiseIbsKey key, BasePairIntervalArray value)
+            {
+                return BYTES_PER_ENTRY + FOOTPRINT_ESTIMATOR.estimateBytes(value);
+            }
+        };
+    
+    private final PairwiseIbsComputation computation;
+    
+    private final File spillDirectory;
+    
+    private final WeightedLoadingCache<PairwiseIbsKey, BasePairIntervalArray> cache;
+    
+    private final AtomicLong computationCount = new AtomicLong();
+    
+    private final AtomicLong spillReadCount = new AtomicLong();
+    
+    /**
+     * Constructor for a memory only cache
+     * @param computation
+     *          the IBS computation to memoize
+     * @param maximumBytes
+     *          the memory budget for cached results
+     */
+    public PairwiseIbsCache(
+            PairwiseIbsComputation computation,
+            long maximumBytes)
+    {
+        this(computation, maximumBytes, null);
+    }
+    
+    /**
+     * Constructor
+     * @param computation
+     *          the IBS computation to memoize
+     * @param maximumBytes
+     *          the memory budget for cached results
+     * @param spillDirectory
+     *          the directory used for the disk tier or null for a memory
+     *          only cache. it is created if it doesn't exist
+     */
+    public PairwiseIbsCache(
+            PairwiseIbsComputation computation,
+            long maximumBytes,
+            File spillDirectory)
+    {
+        this.computation = computation;
+        this.spillDirectory = spillDirectory;
+        if(spillDirectory != null && !spillDirectory.isDirectory() &&
+           !spillDirectory.mkdirs())
+        {
+            throw new IllegalArgumentException(
+                    "failed to create spill directory " + spillDirectory);
+        }
+        
+        this.cache = new WeightedLoadingCache<PairwiseIbsKey, BasePairIntervalArray>(
+                maximumBytes,
+                WEIGHER,
+                new CacheLoader<PairwiseIbsKey, BasePairIntervalArray>()
+                {
+                    /**
+                     * {@inheritDoc}
+                     */
+                    public BasePairIntervalArray load(PairwiseIbsKey key)
+                            throws Exception
+                    {
+                        return PairwiseIbsCache.this.load(key);
+                    }
+                },
+                false);
+    }
+    
+    /**
+     * Get the IBS intervals for a whole chromosome
+     * @param strainPair
+     *          the strain pair
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param panelVersion
+     *          the SNP panel version
+     * @return
+     *          the IBS intervals sorted by start position
+     * @throws ExecutionException
+     *          if the computation fails
+     * @throws InterruptedException
+     *          if we're interrupted while waiting on another thread's
+     *          computation of the same result
+     */
+    public BasePairIntervalArray getIbsIntervals(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            String panelVersion)
+            throws ExecutionException, InterruptedException
+    {
+        return this.cache.get(new PairwiseIbsKey(
+                strainPair,
+                chromosomeNumber,
+                panelVersion));
+    }
+    
+    /**
+     * Get the IBS intervals that intersect the given region. The whole
+     * chromosome result is cached and the region is found by binary search
+     * @param strainPair
+     *          the strain pair
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param panelVersion
+     *          the SNP panel version
+     * @param startInBasePairs
+     *          the start of the region
+     * @param extentInBasePairs
+     *          the extent of the region
+     * @return
+     *          an unmodifiable view of the intersecting intervals
+     * @throws ExecutionException
+     *          if the computation fails
+     * @throws InterruptedException
+     *          if we're interrupted while waiting on another thread's
+     *          computation of the same result
+     */
+    public List<BasePairInterval> getIbsIntervals(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            String panelVersion,
+            long startInBasePairs,
+            long extentInBasePairs)
+            throws ExecutionException, InterruptedException
+    {
+        BasePairIntervalArray intervals = this.getIbsIntervals(
+                strainPair,
+                chromosomeNumber,
+                panelVersion);
+        long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+        
+        // loading rejects overlapping intervals so their ends are sorted too
+        int fromIndex = firstEndOnOrAfter(intervals, startInBasePairs);
+        int toIndex = firstStartAfter(intervals, endInBasePairs);
+        if(fromIndex >= toIndex)
+        {
+            return Collections.emptyList();
+        }
+        else
+        {
+            return intervals.asList().subList(fromIndex, toIndex);
+        }
+    }
+    
+    private static int firstEndOnOrAfter(
+            BasePairIntervalArray intervals,
+            long positionInBasePairs)
+    {
+        int low = 0;
+        int high = intervals.size();
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(intervals.getEndInBasePairs(mid) < positionInBasePairs)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int firstStartAfter(
+            BasePairIntervalArray intervals,
+            long positionInBasePairs)
+    {
+        long[] startsInBasePairs = intervals.getStartsInBasePairs();
+        int low = 0;
+        int high = startsInBasePairs.length;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(startsInBasePairs[mid] <= positionInBasePairs)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Make sure that no two of the sorted intervals overlap. The region
+     * search depends on the interval ends being sorted like their starts
+     * @param key
+     *          the key the intervals were computed for
+     * @param intervals
+     *          the intervals sorted by start
+     * @throws IllegalStateException
+     *          if any intervals overlap
+     */
+    private static void checkNonOverlapping(
+            PairwiseIbsKey key,
+            BasePairIntervalArray intervals)
+            throws IllegalStateException
+    {
+        for(int i = 1; i < intervals.size(); i++)
+        {
+            if(intervals.getStartInBasePairs(i) <= intervals.getEndInBasePairs(i - 1))
+            {
+                throw new IllegalStateException(
+                        "IBS computation returned overlapping intervals " +
+                        intervals.get(i - 1) + " and " + intervals.get(i) +
+                        " for " + key.strainPair +
+                        " on chromosome " + key.chromosomeNumber);
+            }
+        }
+    }
+    
+    private BasePairIntervalArray load(PairwiseIbsKey key) throws Exception
+    {
+        File spillFile = this.getSpillFile(key);
+        if(spillFile != null && spillFile.isFile())
+        {
+            try
+            {
+                InputStream in = new BufferedInputStream(new FileInputStream(spillFile));
+                try
+                {
+                    BasePairIntervalArray intervals = BasePairIntervalArray.fromIntervals(
+                            CompactIntervalCodec.readIntervals(in));
+                    this.spillReadCount.incrementAndGet();
+                    return intervals;
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            catch(IOException ex)
+            {
+                LOG.log(Level.WARNING,
+                        "Failed to read spilled IBS result. Recomputing " + key,
+                        ex);
+                spillFile.delete();
+            }
+        }
+        
+        List<BasePairInterval> sortedIntervals = new ArrayList<BasePairInterval>(
+                this.computation.computeIbsIntervals(
+                        key.strainPair,
+                        key.chromosomeNumber,
+                        key.panelVersion));
+        this.computationCount.incrementAndGet();
+        Collections.sort(
+                sortedIntervals,
+                SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        BasePairIntervalArray intervals =
+            BasePairIntervalArray.fromIntervals(sortedIntervals);
+        checkNonOverlapping(key, intervals);
+        
+        if(spillFile != null)
+        {
+            this.spill(intervals, spillFile);
+        }
+        
+        return intervals;
+    }
+    
+    /**
+     * Write a result to the disk tier. The result is written to a temporary
+     * file first so that readers never see a partially written file
+     * @param intervals
+     *          the result
+     * @param spillFile
+     *          the file to write
+     */
+    private void spill(BasePairIntervalArray intervals, File spillFile)
+    {
+        try
+        {
+            File tempFile = File.createTempFile(
+                    "spill",
+                    SPILL_FILE_EXTENSION + ".tmp",
+                    this.spillDirectory);
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try
+            {
+                CompactIntervalCodec.writeIntervals(intervals.asList(), out);
+            }
+            finally
+            {
+                out.close();
+            }
+            
+            if(!tempFile.renameTo(spillFile))
+            {
+                tempFile.delete();
+            }
+        }
+        catch(IOException ex)
+        {
+            // the disk tier is only an optimization so a failed spill
+            // shouldn't fail the query
+            LOG.log(Level.WARNING,
+                    "Failed to spill IBS result to " + spillFile,
+                    ex);
+        }
+    }
+    
+    /**
+     * Get the disk tier file for the given key. The strain names and panel
+     * version are hex encoded so that any name gives a legal file name
+     * @param key
+     *          the key
+     * @return
+     *          the file or null if there is no disk tier
+     */
+    private File getSpillFile(PairwiseIbsKey key)
+    {
+        if(this.spillDirectory == null)
+        {
+            return null;
+        }
+        else
+        {
+            StringBuilder fileName = new StringBuilder();
+            appendHex(fileName, key.panelVersion);
+            fileName.append('-');
+            appendHex(fileName, key.strainPair.getFirstStrainName());
+            fileName.append('-');
+            appendHex(fileName, key.strainPair.getSecondStrainName());
+            fileName.append("-chr");
+            fileName.append(key.chromosomeNumber);
+            fileName.append(SPILL_FILE_EXTENSION);
+            return new File(this.spillDirectory, fileName.toString());
+        }
+    }
+    
+    private static void appendHex(StringBuilder builder, String string)
+    {
+        for(int i = 0; i < string.length(); i++)
+        {
+            String hexChar = Integer.toHexString(string.charAt(i));
+            for(int j = hexChar.length(); j < 4; j++)
+            {
+                builder.append('0');
+            }
+            builder.append(hexChar);
+        }
+    }
+    
+    /**
+     * Drop every result from the memory tier. The disk tier is left alone
+     */
+    public void invalidateAll()
+    {
+        this.cache.invalidateAll();
+    }
+    
+    /**
+     * Get a snapshot of the memory tier counters. Weights are estimated
+     * sizes in bytes
+     * @return the statistics
+     */
+    public CacheStatistics getStatistics()
+    {
+        return this.cache.getStatistics();
+    }
+    
+    /**
+     * Expose the memory tier statistics as gauges
+     * @param registry
+     *          the registry to register with
+     * @param prefix
+     *          the metric name prefix
+     * @see WeightedLoadingCache#registerMetrics(MetricRegistry, String)
+     */
+    public void registerMetrics(MetricRegistry registry, String prefix)
+    {
+        this.cache.registerMetrics(registry, prefix);
+    }
+    
+    /**
+     * Getter for the number of times the underlying computation has run
+     * @return the computation count
+     */
+    public long getComputationCount()
+    {
+        return this.computationCount.get();
+    }
+    
+    /**
+     * Getter for the number of results that were read back from the disk
+     * tier rather than computed
+     * @return the spill read count
+     */
+    public long getSpillReadCount()
+    {
+        return this.spillReadCount.get();
+    }
+    
+    /**
+     * The (strain pair, chromosome, panel version) cache key
+     */
+    private static final class PairwiseIbsKey
+    {
+        final StrainPair strainPair;
+        
+        final int chromosomeNumber;
+        
+        final String panelVersion;
+        
+        PairwiseIbsKey(
+                StrainPair strainPair,
+                int chromosomeNumber,
+                String panelVersion)
+        {
+            this.strainPair = strainPair;
+            this.chromosomeNumber = chromosomeNumber;
+            this.panelVersion = panelVersion;
+        }
+        
+        @Override
+        public boolean equals(Object other)
+        {
+            if(other instanceof PairwiseIbsKey)
+            {
+                PairwiseIbsKey otherKey = (PairwiseIbsKey)other;
+                return this.chromosomeNumber == otherKey.chromosomeNumber &&
+                       this.strainPair.equals(otherKey.strainPair) &&
+                       this.panelVersion.equals(otherKey.panelVersion);
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return (this.strainPair.hashCode() * 31 + this.chromosomeNumber) * 31 +
+                   this.panelVersion.hashCode();
+        }
+        
+        @Override
+        public String toString()
+        {
+            return this.strainPair + " chromosome " + this.chromosomeNumber +
+                   " panel " + this.panelVersion;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.StrainPair;
+
+/**
+ * Computes the intervals over which two strains are identical by state
+ * @see PairwiseIbsCache
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface PairwiseIbsComputation
+{
+    /**
+     * Compute the IBS intervals for a strain pair on one chromosome
+     * @param strainPair
+     *          the strain pair
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param panelVersion
+     *          the version of the SNP panel to compute against
+     * @return
+     *          the IBS intervals. these must not overlap
+     * @throws Exception
+     *          if the computation fails. {@link PairwiseIbsCache} also
+     *          fails the lookup if the intervals overlap
+     */
+    public List<? extends BasePairInterval> computeIbsIntervals(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            String panelVersion)
+            throws Exception;
+}
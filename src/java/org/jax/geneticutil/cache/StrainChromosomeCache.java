@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import java.util.concurrent.ExecutionException;
+
+import org.jax.geneticutil.data.HeapFootprintEstimator;
+import org.jax.geneticutil.data.StrainChromosome;
+import org.jax.geneticutil.metrics.MetricRegistry;
+
+/**
+ * A memory bounded cache of {@link StrainChromosome}s keyed by strain name
+ * and chromosome number. Concurrent requests for the same chromosome share
+ * a single load and the least recently used chromosomes are evicted once
+ * the estimated size of the cached SNP data exceeds the bound.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class StrainChromosomeCache
+{
+    private static final HeapFootprintEstimator FOOTPRINT_ESTIMATOR =
+        HeapFootprintEstimator.getDefault();
+    
+    /**
+     * Estimated bytes of bookkeeping per entry: the key, the cache's linked
+     * map entry and its weighed value holder. The key's strain name is
+     * shared with the chromosome so it isn't counted again
+     */
+    private static final long BYTES_PER_ENTRY =
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(1, 4) +
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(5, 4) +
+        FOOTPRINT_ESTIMATOR.estimateObjectBytes(1, 8);
+    
+    private static final Weigher<StrainChromosomeKey, StrainChromosome> WEIGHER =
+        new Weigher<StrainChromosomeKey, StrainChromosome>()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public long weigh(StrainChromosomeKey key, StrainChromosome value)
+            {
+                return BYTES_PER_ENTRY + FOOTPRINT_ESTIMATOR.estimateBytes(value);
+            }
+        };
+    
+    private final WeightedLoadingCache<StrainChromosomeKey, StrainChromosome> cache;
+    
+    /**
+     * Constructor
+     * @param loader
+     *          the loader used on cache misses
+     * @param maximumBytes
+     *          the bound on the estimated size of the cached chromosomes
+     */
+    public StrainChromosomeCache(
+            final StrainChromosomeLoader loader,
+            long maximumBytes)
+    {
+        this.cache = new WeightedLoadingCache<StrainChromosomeKey, StrainChromosome>(
+                maximumBytes,
+                WEIGHER,
+                new CacheLoader<StrainChromosomeKey, StrainChromosome>()
+                {
+                    /**
+                     * {@inheritDoc}
+                     */
+                    public StrainChromosome load(StrainChromosomeKey key)
+                            throws Exception
+                    {
+                        return loader.loadStrainChromosome(
+                                key.strainName,
+                                key.chromosomeNumber);
+                    }
+                },
+                true);
+    }
+    
+    /**
+     * Get the given strain chromosome, loading it if it isn't cached
+     * @param strainName
+     *          the strain name
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @return
+     *          the chromosome
+     * @throws ExecutionException
+     *          if the load fails
+     * @throws InterruptedException
+     *          if we're interrupted while waiting on another thread's load
+     *          of the same chromosome
+     */
+    public StrainChromosome getStrainChromosome(
+            String strainName,
+            int chromosomeNumber)
+            throws ExecutionException, InterruptedException
+    {
+        return this.cache.get(new StrainChromosomeKey(strainName, chromosomeNumber));
+    }
+    
+    /**
+     * Remove the given strain chromosome from the cache
+     * @param strainName
+     *          the strain name
+     * @param chromosomeNumber
+     *          the chromosome number
+     */
+    public void invalidate(String strainName, int chromosomeNumber)
+    {
+        this.cache.invalidate(new StrainChromosomeKey(strainName, chromosomeNumber));
+    }
+    
+    /**
+     * Remove every chromosome from the cache
+     */
+    public void invalidateAll()
+    {
+        this.cache.invalidateAll();
+    }
+    
+    /**
+     * Get a snapshot of the cache counters. The weights are estimated
+     * sizes in bytes
+     * @return the statistics
+     */
+    public CacheStatistics getStatistics()
+    {
+        return this.cache.getStatistics();
+    }
+    
+    /**
+     * Expose the cache statistics as gauges
+     * @param registry
+     *          the registry to register with
+     * @param prefix
+     *          the metric name prefix
+     * @see WeightedLoadingCache#registerMetrics(MetricRegistry, String)
+     */
+    public void registerMetrics(MetricRegistry registry, String prefix)
+    {
+        this.cache.registerMetrics(registry, prefix);
+    }
+    
+    /**
+     * The (strain, chromosome) cache key
+     */
+    private static final class StrainChromosomeKey
+    {
+        final String strainName;
+        
+        final int chromosomeNumber;
+        
+        StrainChromosomeKey(String strainName, int chromosomeNumber)
+        {
+            this.strainName = strainName;
+            this.chromosomeNumber = chromosomeNumber;
+        }
+        
+        @Override
+        public boolean equals(Object other)
+        {
+            if(other instanceof StrainChromosomeKey)
+            {
+                StrainChromosomeKey otherKey = (StrainChromosomeKey)other;
+                return this.chromosomeNumber == otherKey.chromosomeNumber &&
+                       this.strainName.equals(otherKey.strainName);
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return this.strainName.hashCode() * 31 + this.chromosomeNumber;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return this.strainName + " chromosome " + this.chromosomeNumber;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import org.jax.geneticutil.data.StrainChromosome;
+
+/**
+ * Loads the SNP data for a single strain chromosome
+ * @see StrainChromosomeCache
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface StrainChromosomeLoader
+{
+    /**
+     * Load the given strain chromosome including its SNPs
+     * @param strainName
+     *          the strain name
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @return
+     *          the chromosome
+     * @throws Exception
+     *          if the load fails
+     */
+    public StrainChromosome loadStrainChromosome(
+            String strainName,
+            int chromosomeNumber)
+            throws Exception;
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+/**
+ * Calculates the weight of a cache entry. For caches that are bounded by
+ * memory the weight should be an estimate of the entry size in bytes
+ * @param <K>   the key type
+ * @param <V>   the value type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface Weigher<K, V>
+{
+    /**
+     * Get the weight of the given entry
+     * @param key
+     *          the key
+     * @param value
+     *          the value
+     * @return
+     *          the weight which must not be negative
+     */
+    public long weigh(K key, V value);
+}
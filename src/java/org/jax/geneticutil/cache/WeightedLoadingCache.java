@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.jax.geneticutil.metrics.Gauge;
+import org.jax.geneticutil.metrics.MetricRegistry;
+
+/**
+ * A thread safe loading cache that is bounded by the total weight of its
+ * entries. When the bound is exceeded the least recently used entries are
+ * evicted. Concurrent lookups of a key that isn't resident share a single
+ * load: the first caller runs the {@link CacheLoader} and the rest wait for
+ * its result. A loader must not look up the key that it is loading since
+ * it would wait on itself. This is detected and reported as an
+ * {@link IllegalStateException}. Invalidating a key while it loads
+ * detaches the load: its callers still get the loaded value but it isn't
+ * cached, since it may predate whatever change prompted the invalidation.
+ * <p>
+ * Evicted values can optionally be kept in a soft reference tier. They are
+ * brought back without a load if they are looked up again before the
+ * garbage collector needs their memory.
+ * </p>
+ * @param <K>   the key type
+ * @param <V>   the value type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class WeightedLoadingCache<K, V>
+{
+    private final long maximumWeight;
+    
+    private final Weigher<? super K, ? super V> weigher;
+    
+    private final CacheLoader<? super K, ? extends V> loader;
+    
+    private final boolean softlyRetainEvicted;
+    
+    /**
+     * guards all of the mutable state below
+     */
+    private final Object lock = new Object();
+    
+    /**
+     * resident entries in least recently used first order
+     */
+    private final LinkedHashMap<K, WeightedValue<V>> residentEntries =
+        new LinkedHashMap<K, WeightedValue<V>>(16, 0.75f, true);
+    
+    /**
+     * the loads in progress. {@link #invalidate(Object)} removes a load
+     * from here, which is how the load knows not to publish its value
+     */
+    private final Map<K, InFlightLoad> inFlightLoads =
+        new HashMap<K, InFlightLoad>();
+    
+    private final Map<K, KeyedSoftReference<K, V>> softEntries =
+        new HashMap<K, KeyedSoftReference<K, V>>();
+    
+    private final ReferenceQueue<V> softReferenceQueue = new ReferenceQueue<V>();
+    
+    /**
+     * the keys that the current thread is loading. Used to catch a loader
+     * that looks up its own key
+     */
+    private final ThreadLocal<Set<K>> keysLoadingInThread =
+        new ThreadLocal<Set<K>>()
+        {
+            @Override
+            protected Set<K> initialValue()
+            {
+                return new HashSet<K>();
+            }
+        };
+    
+    private long weight = 0L;
+    
+    private long hitCount = 0L;
+    
+    private long softHitCount = 0L;
+    
+    private long missCount = 0L;
+    
+    private long coalescedLoadCount = 0L;
+    
+    private long loadSuccessCount = 0L;
+    
+    private long loadFailureCount = 0L;
+    
+    private long totalLoadTimeNanos = 0L;
+    
+    private long evictionCount = 0L;
+    
+    private long evictionWeight = 0L;
+    
+    /**
+     * Constructor
+     * @param maximumWeight
+     *          the maximum total weight of the resident entries
+     * @param weigher
+     *          calculates entry weights
+     * @param loader
+     *          loads values on a miss
+     * @param softlyRetainEvicted
+     *          if true evicted values are kept in a soft reference tier
+     */
+    public WeightedLoadingCache(
+            long maximumWeight,
+            Weigher<? super K, ? super V> weigher,
+            CacheLoader<? super K, ? extends V> loader,
+            boolean softlyRetainEvicted)
+    {
+        if(maximumWeight < 0L)
+        {
+            throw new IllegalArgumentException(
+                    "the maximum weight must not be negative");
+        }
+        
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.loader = loader;
+        this.softlyRetainEvicted = softlyRetainEvicted;
+    }
+    
+    /**
+     * Get the value for the given key, loading it if it isn't resident
+     * @param key
+     *          the key
+     * @return
+     *          the value
+     * @throws ExecutionException
+     *          if the load fails
+     * @throws InterruptedException
+     *          if we're interrupted waiting on another thread's load
+     * @throws IllegalStateException
+     *          if this is called from the loader of the same key
+     */
+    public V get(K key)
+            throws ExecutionException, InterruptedException, IllegalStateException
+    {
+        Set<K> keysLoadingInThread = this.keysLoadingInThread.get();
+        if(keysLoadingInThread.contains(key))
+        {
+            throw new IllegalStateException(
+                    "the cache loader for " + key + " looked up its own key");
+        }
+        
+        InFlightLoad load;
+        boolean ownsLoad = false;
+        synchronized(this.lock)
+        {
+            V value = this.getIfPresentInternal(key);
+            if(value != null)
+            {
+                return value;
+            }
+            
+            this.missCount++;
+            load = this.inFlightLoads.get(key);
+            if(load == null)
+            {
+                load = new InFlightLoad(key);
+                this.inFlightLoads.put(key, load);
+                ownsLoad = true;
+            }
+            else
+            {
+                this.coalescedLoadCount++;
+            }
+        }
+        
+        if(ownsLoad)
+        {
+            // the load runs in the calling thread outside of the lock
+            keysLoadingInThread.add(key);
+            try
+            {
+                load.task.run();
+            }
+            finally
+            {
+                keysLoadingInThread.remove(key);
+            }
+        }
+        
+        return load.task.get();
+    }
+    
+    private V load(InFlightLoad load) throws Exception
+    {
+        K key = load.key;
+        long startNanos = System.nanoTime();
+        V value = null;
+        try
+        {
+            value = this.loader.load(key);
+            if(value == null)
+            {
+                throw new NullPointerException(
+                        "the cache loader returned null for " + key);
+            }
+            return value;
+        }
+        finally
+        {
+            long loadTimeNanos = System.nanoTime() - startNanos;
+            synchronized(this.lock)
+            {
+                // if the key was invalidated while we were loading, the
+                // load is no longer in flight and the value isn't published
+                boolean current = this.inFlightLoads.get(key) == load;
+                if(current)
+                {
+                    this.inFlightLoads.remove(key);
+                }
+                
+                this.totalLoadTimeNanos += loadTimeNanos;
+                if(value == null)
+                {
+                    this.loadFailureCount++;
+                }
+                else
+                {
+                    this.loadSuccessCount++;
+                    if(current)
+                    {
+                        this.putInternal(key, value);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the value for the given key if it is resident or can be
+     * recovered from the soft reference tier. This never loads
+     * @param key
+     *          the key
+     * @return
+     *          the value or null
+     */
+    public V getIfPresent(K key)
+    {
+        synchronized(this.lock)
+        {
+            V value = this.getIfPresentInternal(key);
+            if(value == null)
+            {
+                this.missCount++;
+            }
+            return value;
+        }
+    }
+    
+    private V getIfPresentInternal(K key)
+    {
+        WeightedValue<V> weightedValue = this.residentEntries.get(key);
+        if(weightedValue != null)
+        {
+            this.hitCount++;
+            return weightedValue.value;
+        }
+        
+        if(this.softlyRetainEvicted)
+        {
+            this.purgeClearedSoftReferences();
+            KeyedSoftReference<K, V> softReference = this.softEntries.remove(key);
+            if(softReference != null)
+            {
+                V value = softReference.get();
+                if(value != null)
+                {
+                    this.hitCount++;
+                    this.softHitCount++;
+                    this.putInternal(key, value);
+                    return value;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Put a value in the cache replacing any existing value for the key
+     * @param key
+     *          the key
+     * @param value
+     *          the value
+     */
+    public void put(K key, V value)
+    {
+        if(value == null)
+        {
+            throw new NullPointerException("cache values must not be null");
+        }
+        
+        synchronized(this.lock)
+        {
+            this.putInternal(key, value);
+        }
+    }
+    
+    private void putInternal(K key, V value)
+    {
+        long valueWeight = this.weigher.weigh(key, value);
+        WeightedValue<V> oldValue = this.residentEntries.put(
+                key,
+                new WeightedValue<V>(value, valueWeight));
+        if(oldValue != null)
+        {
+            this.weight -= oldValue.weight;
+        }
+        this.softEntries.remove(key);
+        this.weight += valueWeight;
+        this.evictToMaximumWeight();
+    }
+    
+    private void evictToMaximumWeight()
+    {
+        Iterator<Map.Entry<K, WeightedValue<V>>> iter =
+            this.residentEntries.entrySet().iterator();
+        while(this.weight > this.maximumWeight && iter.hasNext())
+        {
+            Map.Entry<K, WeightedValue<V>> eldestEntry = iter.next();
+            iter.remove();
+            
+            WeightedValue<V> evictedValue = eldestEntry.getValue();
+            this.weight -= evictedValue.weight;
+            this.evictionCount++;
+            this.evictionWeight += evictedValue.weight;
+            
+            if(this.softlyRetainEvicted)
+            {
+                this.softEntries.put(
+                        eldestEntry.getKey(),
+                        new KeyedSoftReference<K, V>(
+                                eldestEntry.getKey(),
+                                evictedValue.value,
+                                this.softReferenceQueue));
+            }
+        }
+    }
+    
+    private void purgeClearedSoftReferences()
+    {
+        Reference<? extends V> reference;
+        while((reference = this.softReferenceQueue.poll()) != null)
+        {
+            // only KeyedSoftReferences are ever registered with our queue
+            @SuppressWarnings("unchecked")
+            KeyedSoftReference<K, V> clearedReference =
+                (KeyedSoftReference<K, V>)reference;
+            if(this.softEntries.get(clearedReference.key) == clearedReference)
+            {
+                this.softEntries.remove(clearedReference.key);
+            }
+        }
+    }
+    
+    /**
+     * Remove the given key from the cache. A load that is already in
+     * progress for the key is not cancelled, but its value won't be cached
+     * and later lookups start a new load
+     * @param key
+     *          the key
+     */
+    public void invalidate(K key)
+    {
+        synchronized(this.lock)
+        {
+            this.inFlightLoads.remove(key);
+            WeightedValue<V> oldValue = this.residentEntries.remove(key);
+            if(oldValue != null)
+            {
+                this.weight -= oldValue.weight;
+            }
+            this.softEntries.remove(key);
+        }
+    }
+    
+    /**
+     * Remove every entry from the cache. Loads in progress are detached as
+     * they are by {@link #invalidate(Object)}
+     */
+    public void invalidateAll()
+    {
+        synchronized(this.lock)
+        {
+            this.inFlightLoads.clear();
+            this.residentEntries.clear();
+            this.softEntries.clear();
+            this.weight = 0L;
+        }
+    }
+    
+    /**
+     * Getter for the maximum total weight of the resident entries
+     * @return the maximum weight
+     */
+    public long getMaximumWeight()
+    {
+        return this.maximumWeight;
+    }
+    
+    /**
+     * Get a snapshot of this cache's counters
+     * @return the statistics
+     */
+    public CacheStatistics getStatistics()
+    {
+        synchronized(this.lock)
+        {
+            return new CacheStatistics(
+                    this.hitCount,
+                    this.softHitCount,
+                    this.missCount,
+                    this.coalescedLoadCount,
+                    this.loadSuccessCount,
+                    this.loadFailureCount,
+                    this.totalLoadTimeNanos,
+                    this.evictionCount,
+                    this.evictionWeight,
+                    this.residentEntries.size(),
+                    this.weight);
+        }
+    }
+    
+    /**
+     * Expose this cache's hit rate, counts and weight as gauges named
+     * <code>prefix.hitRate</code>, <code>prefix.hits</code> and so on.
+     * Each gauge takes a {@link #getStatistics() statistics} snapshot
+     * when it is read so nothing is added to the lookup path
+     * @param registry
+     *          the registry to register with
+     * @param prefix
+     *          the metric name prefix
+     */
+    public void registerMetrics(MetricRegistry registry, String prefix)
+    {
+        registry.registerGauge(prefix + ".hits", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getHitCount();
+            }
+        });
+        registry.registerGauge(prefix + ".softHits", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getSoftHitCount();
+            }
+        });
+        registry.registerGauge(prefix + ".misses", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getMissCount();
+            }
+        });
+        registry.registerGauge(prefix + ".hitRate", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getHitRate();
+            }
+        });
+        registry.registerGauge(prefix + ".evictions", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getEvictionCount();
+            }
+        });
+        registry.registerGauge(prefix + ".entries", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getEntryCount();
+            }
+        });
+        registry.registerGauge(prefix + ".weight", new Gauge()
+        {
+            public double getValue()
+            {
+                return WeightedLoadingCache.this.getStatistics().getWeight();
+            }
+        });
+    }
+    
+    /**
+     * A load of one key that concurrent lookups of the key wait on
+     */
+    private final class InFlightLoad implements Callable<V>
+    {
+        final K key;
+        
+        final FutureTask<V> task = new FutureTask<V>(this);
+        
+        InFlightLoad(K key)
+        {
+            this.key = key;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public V call() throws Exception
+        {
+            return WeightedLoadingCache.this.load(this);
+        }
+    }
+    
+    /**
+     * A value along with the weight it had when it was cached
+     */
+    private static final class WeightedValue<V>
+    {
+        final V value;
+        
+        final long weight;
+        
+        WeightedValue(V value, long weight)
+        {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+    
+    /**
+     * A soft reference that remembers its key so that it can be removed
+     * from the soft tier once it is cleared
+     */
+    private static final class KeyedSoftReference<K, V> extends SoftReference<V>
+    {
+        final K key;
+        
+        KeyedSoftReference(K key, V value, ReferenceQueue<? super V> queue)
+        {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A columnar store of base pair intervals. Rather than holding one object
+ * per interval this class holds one primitive array per interval field so
+ * that scans over a large number of intervals are tight loops over arrays.
+ * The column arrays are shared with callers for speed and must not be
+ * modified.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class BasePairIntervalArray implements Serializable
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = -5040361337154928815L;
+    
+    /**
+     * @see #getChromosomeNumbers()
+     */
+    protected final int[] chromosomeNumbers;
+    
+    /**
+     * @see #getStartsInBasePairs()
+     */
+    protected final long[] startsInBasePairs;
+    
+    /**
+     * @see #getExtentsInBasePairs()
+     */
+    protected final long[] extentsInBasePairs;
+    
+    /**
+     * Constructor
+     * @param chromosomeNumbers
+     *          the chromosome column
+     * @param startsInBasePairs
+     *          the start position column
+     * @param extentsInBasePairs
+     *          the extent column
+     * @throws IllegalArgumentException
+     *          if the columns aren't all the same length
+     */
+    public BasePairIntervalArray(
+            int[] chromosomeNumbers,
+            long[] startsInBasePairs,
+            long[] extentsInBasePairs)
+            throws IllegalArgumentException
+    {
+        if(chromosomeNumbers.length != startsInBasePairs.length ||
+           chromosomeNumbers.length != extentsInBasePairs.length)
+        {
+            throw new IllegalArgumentException(
+                    "all interval columns must have the same length");
+        }
+        
+        this.chromosomeNumbers = chromosomeNumbers;
+        this.startsInBasePairs = startsInBasePairs;
+        this.extentsInBasePairs = extentsInBasePairs;
+    }
+    
+    /**
+     * Create a columnar copy of the given intervals
+     * @param intervals
+     *          the intervals to copy
+     * @return
+     *          the array
+     */
+    public static BasePairIntervalArray fromIntervals(
+            Collection<? extends BasePairInterval> intervals)
+    {
+        int size = intervals.size();
+        int[] chromosomeNumbers = new int[size];
+        long[] startsInBasePairs = new long[size];
+        long[] extentsInBasePairs = new long[size];
+        
+        int i = 0;
+        for(BasePairInterval currInterval: intervals)
+        {
+            chromosomeNumbers[i] = currInterval.getChromosomeNumber();
+            startsInBasePairs[i] = currInterval.getStartInBasePairs();
+            extentsInBasePairs[i] = currInterval.getExtentInBasePairs();
+            i++;
+        }
+        
+        return new BasePairIntervalArray(
+                chromosomeNumbers,
+                startsInBasePairs,
+                extentsInBasePairs);
+    }
+    
+    /**
+     * Getter for the number of intervals
+     * @return the size
+     */
+    public int size()
+    {
+        return this.startsInBasePairs.length;
+    }
+    
+    /**
+     * Getter for the chromosome number of the given interval
+     * @param index
+     *          the interval index
+     * @return
+     *          the chromosome number
+     */
+    public int getChromosomeNumber(int index)
+    {
+        return this.chromosomeNumbers[index];
+    }
+    
+    /**
+     * Getter for the start of the given interval
+     * @param index
+     *          the interval index
+     * @return
+     *          the start in base pairs
+     */
+    public long getStartInBasePairs(int index)
+    {
+        return this.startsInBasePairs[index];
+    }
+    
+    /**
+     * Getter for the extent of the given interval
+     * @param index
+     *          the interval index
+     * @return
+     *          the extent in base pairs
+     */
+    public long getExtentInBasePairs(int index)
+    {
+        return this.extentsInBasePairs[index];
+    }
+    
+    /**
+     * Getter for the (inclusive) end of the given interval
+     * @param index
+     *          the interval index
+     * @return
+     *          the end in base pairs
+     */
+    public long getEndInBasePairs(int index)
+    {
+        return this.startsInBasePairs[index] + this.extentsInBasePairs[index] - 1;
+    }
+    
+    /**
+     * Getter for the chromosome column. This is the backing array and
+     * must not be modified
+     * @return the chromosome numbers
+     */
+    public int[] getChromosomeNumbers()
+    {
+        return this.chromosomeNumbers;
+    }
+    
+    /**
+     * Getter for the start position column. This is the backing array and
+     * must not be modified
+     * @return the starts in base pairs
+     */
+    public long[] getStartsInBasePairs()
+    {
+        return this.startsInBasePairs;
+    }
+    
+    /**
+     * Getter for the extent column. This is the backing array and
+     * must not be modified
+     * @return the extents in base pairs
+     */
+    public long[] getExtentsInBasePairs()
+    {
+        return this.extentsInBasePairs;
+    }
+    
+    /**
+     * Create an interval object for the given index
+     * @param index
+     *          the interval index
+     * @return
+     *          the interval
+     */
+    public BasePairInterval get(int index)
+    {
+        return new SimpleBasePairInterval(
+                this.chromosomeNumbers[index],
+                this.startsInBasePairs[index],
+                this.extentsInBasePairs[index]);
+    }
+    
+    /**
+     * Get an unmodifiable list view of this array. Interval objects are
+     * created on demand by {@link List#get(int)}
+     * @return
+     *          the list view
+     */
+    public List<BasePairInterval> asList()
+    {
+        return new IntervalListView();
+    }
+    
+    /**
+     * the list view returned by {@link BasePairIntervalArray#asList()}
+     */
+    class IntervalListView
+    extends AbstractList<BasePairInterval>
+    implements RandomAccess
+    {
+        /**
+         * Getter for the array that backs this view
+         * @return the array
+         */
+        BasePairIntervalArray getArray()
+        {
+            return BasePairIntervalArray.this;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public BasePairInterval get(int index)
+        {
+            return BasePairIntervalArray.this.get(index);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size()
+        {
+            return BasePairIntervalArray.this.size();
+        }
+    }
+}
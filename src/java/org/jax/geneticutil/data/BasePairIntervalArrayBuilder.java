@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.Arrays;
+
+/**
+ * A growable builder for {@link BasePairIntervalArray}s and
+ * {@link RealValuedBasePairIntervalArray}s, used when the number of
+ * intervals isn't known up front (eg: when reading a file)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class BasePairIntervalArrayBuilder
+{
+    private int[] chromosomeNumbers;
+    
+    private long[] startsInBasePairs;
+    
+    private long[] extentsInBasePairs;
+    
+    private double[] realValues;
+    
+    private int size = 0;
+    
+    /**
+     * Constructor
+     */
+    public BasePairIntervalArrayBuilder()
+    {
+        this(1024);
+    }
+    
+    /**
+     * Constructor
+     * @param initialCapacity
+     *          the number of intervals to allocate space for
+     */
+    public BasePairIntervalArrayBuilder(int initialCapacity)
+    {
+        initialCapacity = Math.max(1, initialCapacity);
+        this.chromosomeNumbers = new int[initialCapacity];
+        this.startsInBasePairs = new long[initialCapacity];
+        this.extentsInBasePairs = new long[initialCapacity];
+        this.realValues = new double[initialCapacity];
+    }
+    
+    /**
+     * Getter for the number of intervals added so far
+     * @return the size
+     */
+    public int size()
+    {
+        return this.size;
+    }
+    
+    private void ensureCapacity()
+    {
+        if(this.size == this.startsInBasePairs.length)
+        {
+            int newCapacity = 2 * this.size;
+            this.chromosomeNumbers = Arrays.copyOf(this.chromosomeNumbers, newCapacity);
+            this.startsInBasePairs = Arrays.copyOf(this.startsInBasePairs, newCapacity);
+            this.extentsInBasePairs = Arrays.copyOf(this.extentsInBasePairs, newCapacity);
+            this.realValues = Arrays.copyOf(this.realValues, newCapacity);
+        }
+    }
+    
+    /**
+     * Add an interval without a real value (its value will be NaN if a
+     * real valued array is built)
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @param startInBasePairs
+     *          the start
+     * @param extentInBasePairs
+     *          the extent
+     */
+    public void add(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        this.add(chromosomeNumber, startInBasePairs, extentInBasePairs, Double.NaN);
+    }
+    
+    /**
+     * Add a real valued interval
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @param startInBasePairs
+     *          the start
+     * @param extentInBasePairs
+     *          the extent
+     * @param realValue
+     *          the value
+     */
+    public void add(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs,
+            double realValue)
+    {
+        this.ensureCapacity();
+        this.chromosomeNumbers[this.size] = chromosomeNumber;
+        this.startsInBasePairs[this.size] = startInBasePairs;
+        this.extentsInBasePairs[this.size] = extentInBasePairs;
+        this.realValues[this.size] = realValue;
+        this.size++;
+    }
+    
+    /**
+     * Add the given interval
+     * @param interval
+     *          the interval. If it's a {@link RealValuedBasePairInterval}
+     *          then its value is kept
+     */
+    public void add(BasePairInterval interval)
+    {
+        this.add(
+                interval.getChromosomeNumber(),
+                interval.getStartInBasePairs(),
+                interval.getExtentInBasePairs(),
+                interval instanceof RealValuedBasePairInterval ?
+                        ((RealValuedBasePairInterval)interval).getRealValue() :
+                        Double.NaN);
+    }
+    
+    /**
+     * Build an array from the intervals added so far
+     * @return
+     *          the array
+     */
+    public BasePairIntervalArray build()
+    {
+        return new BasePairIntervalArray(
+                Arrays.copyOf(this.chromosomeNumbers, this.size),
+                Arrays.copyOf(this.startsInBasePairs, this.size),
+                Arrays.copyOf(this.extentsInBasePairs, this.size));
+    }
+    
+    /**
+     * Build a real valued array from the intervals added so far
+     * @return
+     *          the array
+     */
+    public RealValuedBasePairIntervalArray buildRealValued()
+    {
+        return new RealValuedBasePairIntervalArray(
+                Arrays.copyOf(this.chromosomeNumbers, this.size),
+                Arrays.copyOf(this.startsInBasePairs, this.size),
+                Arrays.copyOf(this.extentsInBasePairs, this.size),
+                Arrays.copyOf(this.realValues, this.size));
+    }
+}
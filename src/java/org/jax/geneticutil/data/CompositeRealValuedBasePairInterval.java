@@ -163,25 +163,24 @@ implements RealValuedBasePairInterval
      * @param otherInterval
      *          the interval we are comparing ourselves to
      * @return
-     *          a total ordering based on
-     *          {@link BasePairInterval#compareTo(BasePairInterval)} followed
-     *          by {@link #getRealValue()}
+     *          a total ordering based on the positional ordering of
+     *          {@link SimpleBasePairInterval#SNP_INTERVAL_COMPARATOR}
+     *          followed by {@link #getRealValue()} if the other interval is
+     *          also real valued
      */
     public int compareTo(BasePairInterval otherInterval)
     {
-        CompositeRealValuedBasePairInterval otherCompositeRealValuedInterval =
-            (CompositeRealValuedBasePairInterval)otherInterval;
-        int intervalComparison = this.delegateInterval.compareTo(
-                otherCompositeRealValuedInterval.getDelegateInterval());
-        if(intervalComparison != 0)
+        if(otherInterval instanceof RealValuedBasePairInterval)
         {
-            return intervalComparison;
+            return SimpleRealValuedBasePairInterval.POSITION_THEN_VALUE_COMPARATOR.compare(
+                    this,
+                    (RealValuedBasePairInterval)otherInterval);
         }
         else
         {
-            return Double.compare(
-                    this.getRealValue(),
-                    otherCompositeRealValuedInterval.getRealValue());
+            return SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR.compare(
+                    this,
+                    otherInterval);
         }
     }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects {@link SnpIntervalList} results from many threads into a
+ * {@link SnpIntervalListGroup}. Results are added without any global lock
+ * and the group's bounds are maintained as they arrive using atomic min and
+ * max updates, so {@link #build()} doesn't need to rescan the lists. Once
+ * built, the builder is frozen and any further additions fail.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ConcurrentSnpIntervalListGroupBuilder
+{
+    private final ConcurrentMap<String, List<BasePairInterval>> snpBlocksMap =
+        new ConcurrentHashMap<String, List<BasePairInterval>>();
+    
+    private final AtomicLong minStartInBasePairs = new AtomicLong(Long.MAX_VALUE);
+    
+    /**
+     * the maximum of start + extent, ie. one past the end
+     */
+    private final AtomicLong maxEndInBasePairs = new AtomicLong(Long.MIN_VALUE);
+    
+    private final AtomicBoolean frozen = new AtomicBoolean(false);
+    
+    /**
+     * the number of threads that are in the middle of an add. build waits
+     * for these to finish after freezing
+     */
+    private final AtomicInteger activeAddCount = new AtomicInteger(0);
+    
+    /**
+     * Add the result for a key. This can be called concurrently from any
+     * number of threads
+     * @param key
+     *          the key
+     * @param snpIntervalList
+     *          the result for the key
+     * @throws IllegalArgumentException
+     *          if the key has already been added
+     * @throws IllegalStateException
+     *          if {@link #build()} has already been called
+     */
+    public void add(String key, SnpIntervalList snpIntervalList)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        this.activeAddCount.incrementAndGet();
+        try
+        {
+            if(this.frozen.get())
+            {
+                throw new IllegalStateException(
+                        "can't add to a builder after it has been built");
+            }
+            
+            List<BasePairInterval> existingSnpBlocks = this.snpBlocksMap.putIfAbsent(
+                    key,
+                    Collections.unmodifiableList(snpIntervalList.getSnpBlocks()));
+            if(existingSnpBlocks != null)
+            {
+                throw new IllegalArgumentException(
+                        "a result has already been added for " + key);
+            }
+            
+            long startInBasePairs = snpIntervalList.getStartInBasePairs();
+            updateMinimum(this.minStartInBasePairs, startInBasePairs);
+            updateMaximum(
+                    this.maxEndInBasePairs,
+                    startInBasePairs + snpIntervalList.getExtentInBasePairs());
+        }
+        finally
+        {
+            this.activeAddCount.decrementAndGet();
+        }
+    }
+    
+    private static void updateMinimum(AtomicLong minimum, long value)
+    {
+        long currMinimum = minimum.get();
+        while(value < currMinimum && !minimum.compareAndSet(currMinimum, value))
+        {
+            currMinimum = minimum.get();
+        }
+    }
+    
+    private static void updateMaximum(AtomicLong maximum, long value)
+    {
+        long currMaximum = maximum.get();
+        while(value > currMaximum && !maximum.compareAndSet(currMaximum, value))
+        {
+            currMaximum = maximum.get();
+        }
+    }
+    
+    /**
+     * Getter for the number of keys added so far
+     * @return the key count
+     */
+    public int getKeyCount()
+    {
+        return this.snpBlocksMap.size();
+    }
+    
+    /**
+     * Freeze this builder and create the group. Adds that are already in
+     * progress when this is called are allowed to finish and are included
+     * in the group. If nothing was added the group has a start and extent
+     * of 0
+     * @return
+     *          an unmodifiable group
+     * @throws IllegalStateException
+     *          if this builder has already been built
+     */
+    public SnpIntervalListGroup build() throws IllegalStateException
+    {
+        if(!this.frozen.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("this builder has already been built");
+        }
+        
+        while(this.activeAddCount.get() != 0)
+        {
+            Thread.yield();
+        }
+        
+        Map<String, List<BasePairInterval>> frozenSnpBlocksMap =
+            Collections.unmodifiableMap(
+                    new HashMap<String, List<BasePairInterval>>(this.snpBlocksMap));
+        if(frozenSnpBlocksMap.isEmpty())
+        {
+            return new SnpIntervalListGroup(frozenSnpBlocksMap, 0L, 0L);
+        }
+        else
+        {
+            long startInBasePairs = this.minStartInBasePairs.get();
+            return new SnpIntervalListGroup(
+                    frozenSnpBlocksMap,
+                    startInBasePairs,
+                    this.maxEndInBasePairs.get() - startInBasePairs);
+        }
+    }
+}
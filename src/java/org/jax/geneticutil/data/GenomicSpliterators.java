@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Factory methods for {@link Spliterator}s over SNP and interval data which
+ * know about its genomic layout. Spliterators over
+ * {@link ImmutableStrainChromosome}s and columnar interval arrays are
+ * {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED},
+ * {@link Spliterator#ORDERED}, {@link Spliterator#IMMUTABLE} and
+ * {@link Spliterator#NONNULL}. Spliterators over other interval lists are
+ * only {@link #LIST_CHARACTERISTICS sized and ordered} since we can't vouch
+ * for the list's contents. Interval spliterators prefer to split where
+ * the chromosome changes so that each half of a parallel stream works on
+ * whole chromosomes. When there is no chromosome boundary near the middle
+ * of a range (and for SNPs, which all share one chromosome) splits are
+ * aligned to {@link #BLOCK_SIZE} elements. The primitive variants stream
+ * positions and indices without boxing.
+ * <p>
+ * The underlying data must not be modified while a spliterator over it is
+ * in use.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public final class GenomicSpliterators
+{
+    /**
+     * splits that don't fall on a chromosome boundary are aligned to
+     * multiples of this many elements
+     */
+    public static final int BLOCK_SIZE = 1024;
+    
+    /**
+     * the characteristics of the spliterators over SNPs and columnar
+     * interval arrays
+     */
+    public static final int CHARACTERISTICS =
+        Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED |
+        Spliterator.IMMUTABLE | Spliterator.NONNULL;
+    
+    /**
+     * the characteristics of the spliterators over other interval lists
+     */
+    public static final int LIST_CHARACTERISTICS =
+        Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED;
+    
+    /**
+     * don't split ranges smaller than this
+     */
+    private static final int MINIMUM_SPLIT_SIZE = 2;
+    
+    /**
+     * private constructor. this class is only static factory methods
+     */
+    private GenomicSpliterators()
+    {
+        // no instances
+    }
+    
+    /**
+     * Create a spliterator over the SNPs of a chromosome
+     * @param strainChromosome
+     *          the chromosome
+     * @return
+     *          the spliterator
+     */
+    public static Spliterator<SingleNucleotidePolymorphism> snps(
+            final ImmutableStrainChromosome strainChromosome)
+    {
+        return new ElementSpliterator<SingleNucleotidePolymorphism>(
+                new ElementSource<SingleNucleotidePolymorphism>()
+                {
+                    public SingleNucleotidePolymorphism get(int index)
+                    {
+                        return strainChromosome.getSnp(index);
+                    }
+                },
+                null,
+                0,
+                strainChromosome.getSnpCount(),
+                CHARACTERISTICS);
+    }
+    
+    /**
+     * Create a primitive spliterator over the SNP positions of a chromosome
+     * @param strainChromosome
+     *          the chromosome
+     * @return
+     *          the spliterator
+     */
+    public static Spliterator.OfLong snpPositions(
+            ImmutableStrainChromosome strainChromosome)
+    {
+        long[] positionsInBasePairs = strainChromosome.getPositionsInBasePairs();
+        return new LongElementSpliterator(
+                positionsInBasePairs,
+                null,
+                0,
+                positionsInBasePairs.length);
+    }
+    
+    /**
+     * Create a primitive spliterator over the SNP indices of a chromosome
+     * @param strainChromosome
+     *          the chromosome
+     * @return
+     *          the spliterator
+     */
+    public static Spliterator.OfInt snpIndices(
+            ImmutableStrainChromosome strainChromosome)
+    {
+        return new IndexSpliterator(null, 0, strainChromosome.getSnpCount());
+    }
+    
+    /**
+     * Create a spliterator over the intervals in a columnar array
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the spliterator
+     */
+    public static Spliterator<BasePairInterval> intervals(
+            final BasePairIntervalArray intervals)
+    {
+        return new ElementSpliterator<BasePairInterval>(
+                new ElementSource<BasePairInterval>()
+                {
+                    public BasePairInterval get(int index)
+                    {
+                        return intervals.get(index);
+                    }
+                },
+                new ArrayChromosomeLookup(intervals.getChromosomeNumbers()),
+                0,
+                intervals.size(),
+                CHARACTERISTICS);
+    }
+    
+    /**
+     * Create a primitive spliterator over the start positions of the
+     * intervals in a columnar array
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the spliterator
+     */
+    public static Spliterator.OfLong intervalStarts(BasePairIntervalArray intervals)
+    {
+        return new LongElementSpliterator(
+                intervals.getStartsInBasePairs(),
+                new ArrayChromosomeLookup(intervals.getChromosomeNumbers()),
+                0,
+                intervals.size());
+    }
+    
+    /**
+     * Create a primitive spliterator over the indices of the intervals in a
+     * columnar array. This is the cheapest way to stream over all of the
+     * interval columns at once
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the spliterator
+     */
+    public static Spliterator.OfInt intervalIndices(BasePairIntervalArray intervals)
+    {
+        return new IndexSpliterator(
+                new ArrayChromosomeLookup(intervals.getChromosomeNumbers()),
+                0,
+                intervals.size());
+    }
+    
+    /**
+     * Create a spliterator over a random access interval list such as the
+     * region views of {@link SnpIntervalListGroupRegionIndex}. List views of
+     * the columnar interval arrays get the same spliterator as the arrays
+     * themselves. Any other list gets a spliterator with
+     * {@link #LIST_CHARACTERISTICS}
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the spliterator
+     * @throws IllegalArgumentException
+     *          if the list doesn't support fast random access
+     */
+    public static Spliterator<BasePairInterval> intervals(
+            final List<? extends BasePairInterval> intervals)
+            throws IllegalArgumentException
+    {
+        if(intervals instanceof BasePairIntervalArray.IntervalListView)
+        {
+            return intervals(
+                    ((BasePairIntervalArray.IntervalListView)intervals).getArray());
+        }
+        else if(intervals instanceof RealValuedBasePairIntervalArray.RealValuedIntervalListView)
+        {
+            return intervals(
+                    ((RealValuedBasePairIntervalArray.RealValuedIntervalListView)intervals).getArray());
+        }
+        else if(!(intervals instanceof RandomAccess))
+        {
+            throw new IllegalArgumentException(
+                    "interval spliterators need a random access list");
+        }
+        
+        return new ElementSpliterator<BasePairInterval>(
+                new ElementSource<BasePairInterval>()
+                {
+                    public BasePairInterval get(int index)
+                    {
+                        return intervals.get(index);
+                    }
+                },
+                new ChromosomeLookup()
+                {
+                    public int getChromosomeNumber(int index)
+                    {
+                        return intervals.get(index).getChromosomeNumber();
+                    }
+                },
+                0,
+                intervals.size(),
+                LIST_CHARACTERISTICS);
+    }
+    
+    /**
+     * Choose where to split the range [origin, fence). We look for the
+     * chromosome boundary closest to the middle using binary search, which
+     * finds the exact boundary when the elements are grouped by chromosome
+     * in sorted order. Any other ordering still gives a valid (if less well
+     * placed) split. Boundaries outside of the middle half of the range are
+     * rejected in favor of a block aligned split so that the halves stay
+     * balanced
+     * @param chromosomeLookup
+     *          the chromosome lookup or null if there is only one chromosome
+     * @param origin
+     *          the start of the range
+     * @param fence
+     *          one past the end of the range
+     * @return
+     *          the split index or -1 if the range shouldn't be split
+     */
+    static int findSplitIndex(
+            ChromosomeLookup chromosomeLookup,
+            int origin,
+            int fence)
+    {
+        int size = fence - origin;
+        if(size < MINIMUM_SPLIT_SIZE)
+        {
+            return -1;
+        }
+        
+        int middle = (origin + fence) >>> 1;
+        int lowLimit = origin + size / 4;
+        int highLimit = fence - size / 4;
+        
+        if(chromosomeLookup != null)
+        {
+            int middleChromosome = chromosomeLookup.getChromosomeNumber(middle);
+            
+            // first index in the middle chromosome's run
+            int low = origin;
+            int high = middle;
+            while(low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if(chromosomeLookup.getChromosomeNumber(mid) < middleChromosome)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            int runStart = low;
+            
+            // one past the last index in the middle chromosome's run
+            low = middle + 1;
+            high = fence;
+            while(low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if(chromosomeLookup.getChromosomeNumber(mid) <= middleChromosome)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            int runEnd = low;
+            
+            boolean runStartOk = runStart > origin && runStart >= lowLimit;
+            boolean runEndOk = runEnd < fence && runEnd <= highLimit;
+            if(runStartOk && (!runEndOk || middle - runStart <= runEnd - middle))
+            {
+                return runStart;
+            }
+            else if(runEndOk)
+            {
+                return runEnd;
+            }
+        }
+        
+        int alignedMiddle = middle - middle % BLOCK_SIZE;
+        if(alignedMiddle > origin && alignedMiddle >= lowLimit)
+        {
+            return alignedMiddle;
+        }
+        else
+        {
+            return middle;
+        }
+    }
+    
+    /**
+     * Looks up the chromosome of an element
+     */
+    interface ChromosomeLookup
+    {
+        /**
+         * Get the chromosome of the given element
+         * @param index
+         *          the element index
+         * @return
+         *          the chromosome number
+         */
+        public int getChromosomeNumber(int index);
+    }
+    
+    /**
+     * Looks up elements by index
+     * @param <T>   the element type
+     */
+    private interface ElementSource<T>
+    {
+        public T get(int index);
+    }
+    
+    /**
+     * A chromosome lookup over a chromosome column
+     */
+    private static final class ArrayChromosomeLookup implements ChromosomeLookup
+    {
+        private final int[] chromosomeNumbers;
+        
+        ArrayChromosomeLookup(int[] chromosomeNumbers)
+        {
+            this.chromosomeNumbers = chromosomeNumbers;
+        }
+        
+        public int getChromosomeNumber(int index)
+        {
+            return this.chromosomeNumbers[index];
+        }
+    }
+    
+    /**
+     * A spliterator over objects
+     * @param <T>   the element type
+     */
+    private static final class ElementSpliterator<T> implements Spliterator<T>
+    {
+        private final ElementSource<T> elementSource;
+        
+        private final ChromosomeLookup chromosomeLookup;
+        
+        private int index;
+        
+        private final int fence;
+        
+        private final int characteristics;
+        
+        ElementSpliterator(
+                ElementSource<T> elementSource,
+                ChromosomeLookup chromosomeLookup,
+                int origin,
+                int fence,
+                int characteristics)
+        {
+            this.elementSource = elementSource;
+            this.chromosomeLookup = chromosomeLookup;
+            this.index = origin;
+            this.fence = fence;
+            this.characteristics = characteristics;
+        }
+        
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            if(this.index < this.fence)
+            {
+                action.accept(this.elementSource.get(this.index));
+                this.index++;
+                return true;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        @Override
+        public void forEachRemaining(Consumer<? super T> action)
+        {
+            int fence = this.fence;
+            for(int i = this.index; i < fence; i++)
+            {
+                action.accept(this.elementSource.get(i));
+            }
+            this.index = fence;
+        }
+        
+        public Spliterator<T> trySplit()
+        {
+            int splitIndex = findSplitIndex(this.chromosomeLookup, this.index, this.fence);
+            if(splitIndex == -1)
+            {
+                return null;
+            }
+            else
+            {
+                Spliterator<T> prefix = new ElementSpliterator<T>(
+                        this.elementSource,
+                        this.chromosomeLookup,
+                        this.index,
+                        splitIndex,
+                        this.characteristics);
+                this.index = splitIndex;
+                return prefix;
+            }
+        }
+        
+        public long estimateSize()
+        {
+            return this.fence - this.index;
+        }
+        
+        public int characteristics()
+        {
+            return this.characteristics;
+        }
+    }
+    
+    /**
+     * A spliterator over a long column
+     */
+    private static final class LongElementSpliterator implements Spliterator.OfLong
+    {
+        private final long[] values;
+        
+        private final ChromosomeLookup chromosomeLookup;
+        
+        private int index;
+        
+        private final int fence;
+        
+        LongElementSpliterator(
+                long[] values,
+                ChromosomeLookup chromosomeLookup,
+                int origin,
+                int fence)
+        {
+            this.values = values;
+            this.chromosomeLookup = chromosomeLookup;
+            this.index = origin;
+            this.fence = fence;
+        }
+        
+        public boolean tryAdvance(LongConsumer action)
+        {
+            if(this.index < this.fence)
+            {
+                action.accept(this.values[this.index]);
+                this.index++;
+                return true;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        @Override
+        public void forEachRemaining(LongConsumer action)
+        {
+            long[] values = this.values;
+            int fence = this.fence;
+            for(int i = this.index; i < fence; i++)
+            {
+                action.accept(values[i]);
+            }
+            this.index = fence;
+        }
+        
+        public Spliterator.OfLong trySplit()
+        {
+            int splitIndex = findSplitIndex(this.chromosomeLookup, this.index, this.fence);
+            if(splitIndex == -1)
+            {
+                return null;
+            }
+            else
+            {
+                Spliterator.OfLong prefix = new LongElementSpliterator(
+                        this.values,
+                        this.chromosomeLookup,
+                        this.index,
+                        splitIndex);
+                this.index = splitIndex;
+                return prefix;
+            }
+        }
+        
+        public long estimateSize()
+        {
+            return this.fence - this.index;
+        }
+        
+        public int characteristics()
+        {
+            return CHARACTERISTICS;
+        }
+    }
+    
+    /**
+     * A spliterator over element indices
+     */
+    private static final class IndexSpliterator implements Spliterator.OfInt
+    {
+        private final ChromosomeLookup chromosomeLookup;
+        
+        private int index;
+        
+        private final int fence;
+        
+        IndexSpliterator(
+                ChromosomeLookup chromosomeLookup,
+                int origin,
+                int fence)
+        {
+            this.chromosomeLookup = chromosomeLookup;
+            this.index = origin;
+            this.fence = fence;
+        }
+        
+        public boolean tryAdvance(IntConsumer action)
+        {
+            if(this.index < this.fence)
+            {
+                action.accept(this.index);
+                this.index++;
+                return true;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        @Override
+        public void forEachRemaining(IntConsumer action)
+        {
+            int fence = this.fence;
+            for(int i = this.index; i < fence; i++)
+            {
+                action.accept(i);
+            }
+            this.index = fence;
+        }
+        
+        public Spliterator.OfInt trySplit()
+        {
+            int splitIndex = findSplitIndex(this.chromosomeLookup, this.index, this.fence);
+            if(splitIndex == -1)
+            {
+                return null;
+            }
+            else
+            {
+                Spliterator.OfInt prefix = new IndexSpliterator(
+                        this.chromosomeLookup,
+                        this.index,
+                        splitIndex);
+                this.index = splitIndex;
+                return prefix;
+            }
+        }
+        
+        public long estimateSize()
+        {
+            return this.fence - this.index;
+        }
+        
+        public int characteristics()
+        {
+            return CHARACTERISTICS;
+        }
+    }
+}
@@ -0,0 +1,636 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.PlatformManagedObject;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * Estimates the retained heap size of the genetic data structures. The
+ * estimates are computed from element counts and a model of the HotSpot
+ * object layout (header size, reference size and 8 byte alignment), so
+ * they are cheap enough to make before or while loading a data set and
+ * no heap walk or instrumentation agent is needed.
+ * </p>
+ * <p>
+ * The estimates count everything reachable from the given structure as
+ * if it were not shared, with the exception of columns that are
+ * documented as shared with another structure (eg: the start and value
+ * columns of a {@link RealValuedIntervalIndex}). The list views returned
+ * by {@link BasePairIntervalArray#asList()} and
+ * {@link RealValuedBasePairIntervalArray#asRealValuedList()} are estimated
+ * as their backing columns since their interval objects are only created
+ * on demand. Any other interval list is modeled as an {@link ArrayList}
+ * whose intervals are estimated from a sample of at most
+ * {@link #LIST_SAMPLE_SIZE} of them, and maps are modeled as
+ * {@link java.util.HashMap}s.
+ * </p>
+ * <p>
+ * The layout of the running JVM is read from the HotSpot diagnostic bean
+ * when there is one. It is looked up reflectively so that other JVMs fall
+ * back on a rule based on the heap size.
+ * </p>
+ * <p>
+ * A {@link org.jax.geneticutil.io.MappedSnpIntervalListGroup} should be
+ * estimated with its own
+ * {@link org.jax.geneticutil.io.MappedSnpIntervalListGroup#estimateHeapBytes(HeapFootprintEstimator)}
+ * since {@link #estimateBytes(SnpIntervalListGroup)} would materialize
+ * every one of its interval lists and count them as heap resident.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class HeapFootprintEstimator
+{
+    /**
+     * the fraction of the maximum heap that
+     * {@link #fitsInAvailableHeap(long)} holds back for everything else
+     */
+    public static final double DEFAULT_HEAP_HEADROOM_FRACTION = 0.1;
+    
+    /**
+     * the most intervals that are estimated individually when estimating
+     * an interval list. Longer lists are extrapolated from this many
+     */
+    public static final int LIST_SAMPLE_SIZE = 64;
+    
+    private static final String HOTSPOT_DIAGNOSTIC_BEAN_CLASS_NAME =
+        "com.sun.management.HotSpotDiagnosticMXBean";
+    
+    private static final int OBJECT_ALIGNMENT = 8;
+    
+    private static final long COMPRESSED_OOPS_HEAP_LIMIT = 32L << 30;
+    
+    private static final HeapFootprintEstimator DEFAULT_ESTIMATOR =
+        new HeapFootprintEstimator(detectCompressedOops());
+    
+    private final int referenceSize;
+    
+    private final int objectHeaderSize;
+    
+    private final int arrayHeaderSize;
+    
+    private final boolean compactStrings;
+    
+    /**
+     * Constructor which models the string layout of the running JVM (see
+     * {@link #HeapFootprintEstimator(boolean, boolean)})
+     * @param compressedOops
+     *          true to model a heap with 4 byte references and compressed
+     *          class pointers, false to model 8 byte references and full
+     *          class pointers
+     */
+    public HeapFootprintEstimator(boolean compressedOops)
+    {
+        this(compressedOops, detectCompactStrings());
+    }
+    
+    /**
+     * Constructor
+     * @param compressedOops
+     *          true to model a heap with 4 byte references and compressed
+     *          class pointers, false to model 8 byte references and full
+     *          class pointers
+     * @param compactStrings
+     *          true to model the compact strings of Java 9 and later which
+     *          hold latin-1 text in a byte array at one byte per character,
+     *          false to model the char array strings of Java 8 and earlier
+     *          (or a later JVM run with -XX:-CompactStrings) which always
+     *          use two bytes per character
+     */
+    public HeapFootprintEstimator(boolean compressedOops, boolean compactStrings)
+    {
+        this.referenceSize = compressedOops ? 4 : 8;
+        this.objectHeaderSize = compressedOops ? 12 : 16;
+        this.arrayHeaderSize = align(this.objectHeaderSize + 4);
+        this.compactStrings = compactStrings;
+    }
+    
+    /**
+     * Getter for an estimator that matches the running JVM
+     * @return the estimator
+     */
+    public static HeapFootprintEstimator getDefault()
+    {
+        return DEFAULT_ESTIMATOR;
+    }
+    
+    private static boolean detectCompressedOops()
+    {
+        String useCompressedOops = getVMOption("UseCompressedOops");
+        if(useCompressedOops != null)
+        {
+            return Boolean.parseBoolean(useCompressedOops);
+        }
+        else
+        {
+            return Runtime.getRuntime().maxMemory() < COMPRESSED_OOPS_HEAP_LIMIT;
+        }
+    }
+    
+    private static boolean detectCompactStrings()
+    {
+        // java 8 and earlier report their version as "1.x" and only have
+        // char array strings
+        String specificationVersion = System.getProperty("java.specification.version");
+        if(specificationVersion == null || specificationVersion.startsWith("1."))
+        {
+            return false;
+        }
+        
+        String compactStrings = getVMOption("CompactStrings");
+        return compactStrings == null || Boolean.parseBoolean(compactStrings);
+    }
+    
+    /**
+     * Read a VM option from the HotSpot diagnostic bean. The bean's class
+     * is only in HotSpot based JDKs so it is looked up reflectively
+     * @param optionName
+     *          the option name
+     * @return
+     *          the option's value or null if it can't be read
+     */
+    private static String getVMOption(String optionName)
+    {
+        try
+        {
+            Class<? extends PlatformManagedObject> beanClass = Class.forName(
+                    HOTSPOT_DIAGNOSTIC_BEAN_CLASS_NAME).asSubclass(
+                    PlatformManagedObject.class);
+            Object diagnosticBean = ManagementFactory.getPlatformMXBean(beanClass);
+            if(diagnosticBean != null)
+            {
+                Object vmOption = beanClass.getMethod("getVMOption", String.class).invoke(
+                        diagnosticBean,
+                        optionName);
+                return (String)vmOption.getClass().getMethod("getValue").invoke(vmOption);
+            }
+        }
+        catch(Exception ex)
+        {
+            // not a HotSpot VM or it doesn't know the option
+        }
+        catch(LinkageError ex)
+        {
+            // the management classes aren't all available
+        }
+        
+        return null;
+    }
+    
+    private static long align(long size)
+    {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+    
+    private static int align(int size)
+    {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+    
+    /**
+     * Getter for the size of a reference
+     * @return the reference size in bytes
+     */
+    public int getReferenceSize()
+    {
+        return this.referenceSize;
+    }
+    
+    /**
+     * Estimate the size of a plain object
+     * @param referenceFieldCount
+     *          the number of reference fields including inherited ones
+     * @param primitiveFieldBytes
+     *          the total size of the primitive fields including inherited
+     *          ones
+     * @return
+     *          the shallow object size in bytes
+     */
+    public long estimateObjectBytes(
+            int referenceFieldCount,
+            int primitiveFieldBytes)
+    {
+        return align(
+                (long)this.objectHeaderSize +
+                (long)referenceFieldCount * this.referenceSize +
+                primitiveFieldBytes);
+    }
+    
+    /**
+     * Estimate the size of an array
+     * @param elementSize
+     *          the element size in bytes
+     * @param length
+     *          the array length
+     * @return
+     *          the array size in bytes
+     */
+    public long estimateArrayBytes(int elementSize, long length)
+    {
+        return align(this.arrayHeaderSize + elementSize * length);
+    }
+    
+    /**
+     * Estimate the size of a reference array not including the objects it
+     * refers to
+     * @param length
+     *          the array length
+     * @return
+     *          the array size in bytes
+     */
+    public long estimateReferenceArrayBytes(long length)
+    {
+        return this.estimateArrayBytes(this.referenceSize, length);
+    }
+    
+    /**
+     * Estimate the size of a string including its character array. With
+     * compact strings (see {@link #HeapFootprintEstimator(boolean, boolean)})
+     * this is a byte array at one byte per character for latin-1 text and
+     * two otherwise, and without them it is always a char array at two
+     * bytes per character
+     * @param string
+     *          the string or null
+     * @return
+     *          the size in bytes or 0 for null
+     */
+    public long estimateBytes(String string)
+    {
+        if(string == null)
+        {
+            return 0L;
+        }
+        
+        if(!this.compactStrings)
+        {
+            // value array and hash
+            return this.estimateObjectBytes(1, 4) +
+                   this.estimateArrayBytes(2, string.length());
+        }
+        
+        int bytesPerChar = 1;
+        for(int i = 0; i < string.length() && bytesPerChar == 1; i++)
+        {
+            if(string.charAt(i) > 0xFF)
+            {
+                bytesPerChar = 2;
+            }
+        }
+        
+        // value array, hash, coder and hash is zero flag
+        return this.estimateObjectBytes(1, 4 + 1 + 1) +
+               this.estimateArrayBytes(bytesPerChar, string.length());
+    }
+    
+    /**
+     * Estimate the size of a chromosome including its SNPs
+     * @param strainChromosome
+     *          the chromosome
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(StrainChromosome strainChromosome)
+    {
+        long bytes = this.estimateBytes(strainChromosome.getStrainName());
+        bytes += this.estimateObjectBytes(2, 4);
+        SingleNucleotidePolymorphism[] snps =
+            strainChromosome.getSingleNucleotidePolymorphisms();
+        if(snps != null)
+        {
+            bytes += this.estimateSnpArrayBytes(snps.length);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Estimate the size of an immutable chromosome including its SNPs and
+     * any columns it has built
+     * @param strainChromosome
+     *          the chromosome
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(ImmutableStrainChromosome strainChromosome)
+    {
+        long bytes = this.estimateBytes(strainChromosome.getStrainName());
+        bytes += this.estimateObjectBytes(4, 4);
+        bytes += this.estimateSnpArrayBytes(strainChromosome.getSnpCount());
+        
+        long[] positions = strainChromosome.getCachedPositionsInBasePairs();
+        if(positions != null)
+        {
+            bytes += this.estimateArrayBytes(8, positions.length);
+        }
+        
+        long[] packedTypes = strainChromosome.getCachedPackedSnpTypes();
+        if(packedTypes != null)
+        {
+            bytes += this.estimateArrayBytes(8, packedTypes.length);
+        }
+        return bytes;
+    }
+    
+    private long estimateSnpArrayBytes(int snpCount)
+    {
+        return this.estimateReferenceArrayBytes(snpCount) +
+               snpCount * this.estimateObjectBytes(0, 1 + 8);
+    }
+    
+    /**
+     * Estimate the size of an interval. The concrete interval types in
+     * this package are recognized and any other type is estimated as a
+     * {@link SimpleBasePairInterval}
+     * @param interval
+     *          the interval
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(BasePairInterval interval)
+    {
+        if(interval instanceof SimpleRealValuedBasePairInterval)
+        {
+            return this.estimateObjectBytes(0, 8 + 8 + 4 + 8);
+        }
+        else if(interval instanceof PartitionedInterval)
+        {
+            BitSet strainBitSet = ((PartitionedInterval)interval).getStrainBitSet();
+            return this.estimateObjectBytes(1, 8 + 8 + 4) +
+                   this.estimateObjectBytes(1, 4 + 1) +
+                   this.estimateArrayBytes(8, strainBitSet.size() / Long.SIZE);
+        }
+        else if(interval instanceof MultiPartitionedInterval)
+        {
+            short[] strainGroups = ((MultiPartitionedInterval)interval).getStrainGroups();
+            return this.estimateObjectBytes(1, 8 + 8 + 4) +
+                   this.estimateArrayBytes(2, strainGroups.length);
+        }
+        else if(interval instanceof CompositeRealValuedBasePairInterval)
+        {
+            return this.estimateObjectBytes(1, 8) + this.estimateBytes(
+                    ((CompositeRealValuedBasePairInterval)interval).getDelegateInterval());
+        }
+        else
+        {
+            return this.estimateObjectBytes(0, 8 + 8 + 4);
+        }
+    }
+    
+    /**
+     * Estimate the size of an interval list including its intervals. The
+     * list views of {@link BasePairIntervalArray}s are estimated as the
+     * view plus its backing array and any other list as an
+     * {@link ArrayList}. Only {@link #LIST_SAMPLE_SIZE} of the intervals of
+     * a longer list are estimated: evenly spaced ones for a random access
+     * list and the first ones otherwise
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(List<? extends BasePairInterval> intervals)
+    {
+        // a view holds its outer array and the modification count that it
+        // inherits from AbstractList
+        if(intervals instanceof BasePairIntervalArray.IntervalListView)
+        {
+            return this.estimateObjectBytes(1, 4) + this.estimateBytes(
+                    ((BasePairIntervalArray.IntervalListView)intervals).getArray());
+        }
+        else if(intervals instanceof RealValuedBasePairIntervalArray.RealValuedIntervalListView)
+        {
+            return this.estimateObjectBytes(1, 4) + this.estimateBytes(
+                    ((RealValuedBasePairIntervalArray.RealValuedIntervalListView)intervals).getArray());
+        }
+        
+        int size = intervals.size();
+        long bytes =
+            this.estimateObjectBytes(1, 4 + 4) +
+            this.estimateReferenceArrayBytes(size);
+        int sampleSize = Math.min(size, LIST_SAMPLE_SIZE);
+        long sampleBytes = 0L;
+        if(intervals instanceof RandomAccess)
+        {
+            for(int i = 0; i < sampleSize; i++)
+            {
+                sampleBytes += this.estimateBytes(
+                        intervals.get((int)((long)i * size / sampleSize)));
+            }
+        }
+        else
+        {
+            Iterator<? extends BasePairInterval> intervalIter = intervals.iterator();
+            for(int i = 0; i < sampleSize; i++)
+            {
+                sampleBytes += this.estimateBytes(intervalIter.next());
+            }
+        }
+        
+        if(sampleSize > 0)
+        {
+            bytes += sampleBytes * size / sampleSize;
+        }
+        return bytes;
+    }
+    
+    /**
+     * Estimate the size of a list of SNP intervals
+     * @param snpIntervalList
+     *          the list
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(SnpIntervalList snpIntervalList)
+    {
+        return this.estimateObjectBytes(1, 8 + 8) +
+               this.estimateBytes(snpIntervalList.getSnpBlocks());
+    }
+    
+    /**
+     * Estimate the size of a group including its keys and interval lists.
+     * See the class comment for mapped groups
+     * @param snpIntervalListGroup
+     *          the group
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(SnpIntervalListGroup snpIntervalListGroup)
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            snpIntervalListGroup.getSnpBlocksMap();
+        long bytes =
+            this.estimateObjectBytes(1, 8 + 8) +
+            this.estimateHashMapBytes(snpBlocksMap.size());
+        for(Map.Entry<String, List<BasePairInterval>> entry: snpBlocksMap.entrySet())
+        {
+            bytes += this.estimateBytes(entry.getKey());
+            bytes += this.estimateBytes(entry.getValue());
+        }
+        return bytes;
+    }
+    
+    /**
+     * Estimate the size of a hash map's own structure (its table and
+     * entries) not including the keys and values
+     * @param size
+     *          the number of entries
+     * @return
+     *          the size in bytes
+     */
+    public long estimateHashMapBytes(int size)
+    {
+        int tableLength = 0;
+        if(size > 0)
+        {
+            tableLength = 1;
+            while(tableLength * 0.75 < size)
+            {
+                tableLength <<= 1;
+            }
+        }
+        
+        return this.estimateObjectBytes(4, 4 + 4 + 4 + 4) +
+               (tableLength == 0 ? 0L : this.estimateReferenceArrayBytes(tableLength)) +
+               size * this.estimateObjectBytes(3, 4);
+    }
+    
+    /**
+     * Estimate the size of a columnar interval array including its
+     * columns
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(BasePairIntervalArray intervals)
+    {
+        int size = intervals.size();
+        long bytes =
+            this.estimateArrayBytes(4, size) +
+            2L * this.estimateArrayBytes(8, size);
+        if(intervals instanceof RealValuedBasePairIntervalArray)
+        {
+            bytes += this.estimateObjectBytes(4, 0);
+            bytes += this.estimateArrayBytes(8, size);
+        }
+        else
+        {
+            bytes += this.estimateObjectBytes(3, 0);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Estimate the size of an index. The start and value columns are
+     * shared with the array that the index was built from so they are not
+     * counted
+     * @param index
+     *          the index
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(RealValuedIntervalIndex index)
+    {
+        int intervalCount = index.getIntervalCount();
+        long leafCount = 1L;
+        while(leafCount < intervalCount)
+        {
+            leafCount <<= 1;
+        }
+        
+        return this.estimateObjectBytes(7, 4 + 4) +
+               this.estimateArrayBytes(8, intervalCount) +
+               3L * this.estimateArrayBytes(8, 2L * leafCount) +
+               this.estimateArrayBytes(4, 2L * leafCount);
+    }
+    
+    /**
+     * Estimate the size of a zoom pyramid including all of its levels
+     * @param pyramid
+     *          the pyramid
+     * @return
+     *          the size in bytes
+     */
+    public long estimateBytes(RealValuedZoomPyramid pyramid)
+    {
+        int levelCount = pyramid.getLevelCount();
+        long bytes =
+            this.estimateObjectBytes(4, 4 + 4) +
+            4L * this.estimateReferenceArrayBytes(levelCount);
+        for(int level = 0; level < levelCount; level++)
+        {
+            bytes += 4L * this.estimateArrayBytes(8, pyramid.getBinCount(level));
+        }
+        return bytes;
+    }
+    
+    /**
+     * Estimate the heap that is still available to allocate from. This is
+     * the maximum heap size less what is currently in use, so it
+     * understates what is available if there is garbage waiting to be
+     * collected
+     * @return
+     *          the available bytes
+     */
+    public static long getAvailableHeapBytes()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+    
+    /**
+     * Determine if a structure of the given estimated size can be loaded
+     * without exhausting the heap, holding back
+     * {@link #DEFAULT_HEAP_HEADROOM_FRACTION} of the maximum heap
+     * @param estimatedBytes
+     *          the estimated size of the structure
+     * @return
+     *          true if it fits
+     */
+    public static boolean fitsInAvailableHeap(long estimatedBytes)
+    {
+        return fitsInAvailableHeap(estimatedBytes, DEFAULT_HEAP_HEADROOM_FRACTION);
+    }
+    
+    /**
+     * Determine if a structure of the given estimated size can be loaded
+     * without exhausting the heap. Loaders can use this to refuse or spill
+     * a data set before running out of memory
+     * @param estimatedBytes
+     *          the estimated size of the structure
+     * @param headroomFraction
+     *          the fraction of the maximum heap to hold back for everything
+     *          else
+     * @return
+     *          true if it fits
+     */
+    public static boolean fitsInAvailableHeap(
+            long estimatedBytes,
+            double headroomFraction)
+    {
+        long headroomBytes =
+            (long)(Runtime.getRuntime().maxMemory() * headroomFraction);
+        return estimatedBytes <= getAvailableHeapBytes() - headroomBytes;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable counterpart to {@link StrainChromosome}. It is a separate
+ * type rather than a subclass so that it never has to refuse a setter, and
+ * {@link #copyOf(StrainChromosome)} and {@link #toStrainChromosome()}
+ * convert between the two. The SNPs are validated to be in position order
+ * when the chromosome is built and are held in a final field, so instances
+ * can be shared between threads without locking or defensive copies. Hot
+ * paths should read SNPs through {@link #getSnpCount()} and
+ * {@link #getSnp(int)}, which don't copy. Derived data (the position array
+ * and a packed 2 bit per SNP encoding) is computed lazily on first use.
+ * These computations are idempotent so threads racing to compute them are
+ * harmless.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public final class ImmutableStrainChromosome
+implements Comparable<ImmutableStrainChromosome>, Serializable
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = -6372468932512478395L;
+    
+    private static final int SNPS_PER_PACKED_LONG = Long.SIZE / 2;
+    
+    private final String strainName;
+    
+    private final int chromosomeNumber;
+    
+    private final SingleNucleotidePolymorphism[] snps;
+    
+    private transient volatile long[] positionsInBasePairs = null;
+    
+    private transient volatile long[] packedSnpTypes = null;
+    
+    private ImmutableStrainChromosome(
+            String strainName,
+            int chromosomeNumber,
+            SingleNucleotidePolymorphism[] snps)
+    {
+        this.strainName = strainName;
+        this.chromosomeNumber = chromosomeNumber;
+        this.snps = snps;
+    }
+    
+    /**
+     * Create an immutable copy of the given chromosome
+     * @param strainChromosome
+     *          the chromosome to copy
+     * @return
+     *          the copy
+     * @throws IllegalArgumentException
+     *          if the SNPs are not sorted by position
+     */
+    public static ImmutableStrainChromosome copyOf(StrainChromosome strainChromosome)
+            throws IllegalArgumentException
+    {
+        Builder builder = new Builder(
+                strainChromosome.getStrainName(),
+                strainChromosome.getChromosomeNumber());
+        SingleNucleotidePolymorphism[] snps =
+            strainChromosome.getSingleNucleotidePolymorphisms();
+        if(snps != null)
+        {
+            builder.addSnps(snps);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Create a mutable copy of this chromosome for code that takes a
+     * {@link StrainChromosome}
+     * @return
+     *          the copy, which gets its own SNP array
+     */
+    public StrainChromosome toStrainChromosome()
+    {
+        StrainChromosome strainChromosome = new StrainChromosome(
+                this.strainName,
+                this.chromosomeNumber);
+        strainChromosome.setSingleNucleotidePolymorphisms(this.snps.clone());
+        return strainChromosome;
+    }
+    
+    /**
+     * Get the name of the strain that this chromosome belongs to
+     * @return the strain name
+     */
+    public String getStrainName()
+    {
+        return this.strainName;
+    }
+    
+    /**
+     * Get the chromosome number
+     * @return the chromosome number
+     */
+    public int getChromosomeNumber()
+    {
+        return this.chromosomeNumber;
+    }
+    
+    /**
+     * Get a copy of the SNPs that make up this chromosome. Use
+     * {@link #getSnpCount()} and {@link #getSnp(int)} to avoid the copy
+     * @return
+     *          a new array holding the SNPs in position order
+     */
+    public SingleNucleotidePolymorphism[] getSingleNucleotidePolymorphisms()
+    {
+        return this.snps.clone();
+    }
+    
+    /**
+     * Getter for the number of SNPs
+     * @return the SNP count
+     */
+    public int getSnpCount()
+    {
+        return this.snps.length;
+    }
+    
+    /**
+     * Getter for a single SNP
+     * @param snpIndex
+     *          the index of the SNP in position order
+     * @return
+     *          the SNP
+     */
+    public SingleNucleotidePolymorphism getSnp(int snpIndex)
+    {
+        return this.snps[snpIndex];
+    }
+    
+    /**
+     * Getter for the SNP positions. This is a cached array and must not be
+     * modified
+     * @return
+     *          the positions in base pairs in sorted order
+     */
+    public long[] getPositionsInBasePairs()
+    {
+        long[] positions = this.positionsInBasePairs;
+        if(positions == null)
+        {
+            positions = new long[this.snps.length];
+            for(int i = 0; i < positions.length; i++)
+            {
+                positions[i] = this.snps[i].getPositionInBasePairs();
+            }
+            this.positionsInBasePairs = positions;
+        }
+        return positions;
+    }
+    
+    /**
+     * Getter for the position column if it has been built
+     * @return
+     *          the positions or null if {@link #getPositionsInBasePairs()}
+     *          hasn't been called yet
+     */
+    long[] getCachedPositionsInBasePairs()
+    {
+        return this.positionsInBasePairs;
+    }
+    
+    /**
+     * Find the SNP at the given position
+     * @param positionInBasePairs
+     *          the position
+     * @return
+     *          the SNP index if there is a SNP at the position otherwise
+     *          (-(insertion point) - 1) as in
+     *          {@link Arrays#binarySearch(long[], long)}
+     */
+    public int findSnpIndex(long positionInBasePairs)
+    {
+        return Arrays.binarySearch(this.getPositionsInBasePairs(), positionInBasePairs);
+    }
+    
+    /**
+     * Getter for the SNP types packed 2 bits per SNP by
+     * {@link SnpType#ordinal()}. SNP i is held in bits (2 * (i % 32)) and
+     * (2 * (i % 32) + 1) of element (i / 32). This is a cached array and must
+     * not be modified
+     * @return
+     *          the packed SNP types
+     */
+    public long[] getPackedSnpTypes()
+    {
+        long[] packedTypes = this.packedSnpTypes;
+        if(packedTypes == null)
+        {
+            packedTypes = new long[
+                (this.snps.length + SNPS_PER_PACKED_LONG - 1) / SNPS_PER_PACKED_LONG];
+            for(int i = 0; i < this.snps.length; i++)
+            {
+                long ordinal = this.snps[i].getSnpType().ordinal();
+                packedTypes[i / SNPS_PER_PACKED_LONG] |=
+                    ordinal << (2 * (i % SNPS_PER_PACKED_LONG));
+            }
+            this.packedSnpTypes = packedTypes;
+        }
+        return packedTypes;
+    }
+    
+    /**
+     * Getter for the packed SNP types if they have been built
+     * @return
+     *          the packed types or null if {@link #getPackedSnpTypes()}
+     *          hasn't been called yet
+     */
+    long[] getCachedPackedSnpTypes()
+    {
+        return this.packedSnpTypes;
+    }
+    
+    /**
+     * Getter for a SNP's type read from the packed encoding
+     * @param snpIndex
+     *          the SNP index
+     * @return
+     *          the SNP type
+     */
+    public SnpType getSnpType(int snpIndex)
+    {
+        if(snpIndex < 0 || snpIndex >= this.snps.length)
+        {
+            throw new IndexOutOfBoundsException(
+                    "index: " + snpIndex + ", size: " + this.snps.length);
+        }
+        
+        long packedTypes = this.getPackedSnpTypes()[snpIndex / SNPS_PER_PACKED_LONG];
+        int ordinal = (int)(packedTypes >>> (2 * (snpIndex % SNPS_PER_PACKED_LONG))) & 0x3;
+        return SnpType.ordinalToSNPEnum(ordinal);
+    }
+    
+    /**
+     * Equal if the strain name and chromosome number match, the same as
+     * {@link StrainChromosome#equals(StrainChromosome)}
+     * @param otherChromosomeObject
+     *          the object to compare with
+     * @return
+     *          true iff we're equal
+     */
+    @Override
+    public boolean equals(Object otherChromosomeObject)
+    {
+        return otherChromosomeObject instanceof ImmutableStrainChromosome &&
+               this.compareTo((ImmutableStrainChromosome)otherChromosomeObject) == 0;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return this.strainName.hashCode() + this.chromosomeNumber;
+    }
+    
+    /**
+     * Orders by strain name then chromosome number, ignoring the SNPs, the
+     * same as {@link StrainChromosome#compareTo(StrainChromosome)}
+     * @param otherChromosome
+     *          the chromosome that we're being compared to
+     * @return
+     *          see {@link java.lang.Comparable#compareTo(Object)}
+     */
+    public int compareTo(ImmutableStrainChromosome otherChromosome)
+    {
+        int strainCompare = this.strainName.compareTo(otherChromosome.strainName);
+        if(strainCompare == 0)
+        {
+            return this.chromosomeNumber - otherChromosome.chromosomeNumber;
+        }
+        else
+        {
+            return strainCompare;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "Chromosome Strain: " + this.strainName +
+               ", Chromosome #:" + this.chromosomeNumber;
+    }
+    
+    /**
+     * Builds {@link ImmutableStrainChromosome}s. A builder should only be
+     * used by one thread
+     */
+    public static final class Builder
+    {
+        private final String strainName;
+        
+        private final int chromosomeNumber;
+        
+        private final List<SingleNucleotidePolymorphism> snps =
+            new ArrayList<SingleNucleotidePolymorphism>();
+        
+        /**
+         * Constructor
+         * @param strainName
+         *          the strain name
+         * @param chromosomeNumber
+         *          the chromosome number
+         */
+        public Builder(String strainName, int chromosomeNumber)
+        {
+            this.strainName = strainName;
+            this.chromosomeNumber = chromosomeNumber;
+        }
+        
+        /**
+         * Add a SNP
+         * @param snp
+         *          the SNP
+         * @return
+         *          this builder
+         */
+        public Builder addSnp(SingleNucleotidePolymorphism snp)
+        {
+            if(snp == null)
+            {
+                throw new NullPointerException("SNPs must not be null");
+            }
+            this.snps.add(snp);
+            return this;
+        }
+        
+        /**
+         * Add a SNP
+         * @param snpType
+         *          the SNP type
+         * @param positionInBasePairs
+         *          the SNP position
+         * @return
+         *          this builder
+         */
+        public Builder addSnp(SnpType snpType, long positionInBasePairs)
+        {
+            return this.addSnp(new SingleNucleotidePolymorphism(
+                    snpType,
+                    positionInBasePairs));
+        }
+        
+        /**
+         * Add SNPs
+         * @param snps
+         *          the SNPs
+         * @return
+         *          this builder
+         */
+        public Builder addSnps(SingleNucleotidePolymorphism[] snps)
+        {
+            for(SingleNucleotidePolymorphism snp: snps)
+            {
+                this.addSnp(snp);
+            }
+            return this;
+        }
+        
+        /**
+         * Build the chromosome. The builder can keep being used afterwards
+         * without affecting the chromosome
+         * @return
+         *          the chromosome
+         * @throws IllegalArgumentException
+         *          if the SNPs were not added in position order
+         */
+        public ImmutableStrainChromosome build() throws IllegalArgumentException
+        {
+            SingleNucleotidePolymorphism[] snpArray = this.snps.toArray(
+                    new SingleNucleotidePolymorphism[this.snps.size()]);
+            for(int i = 1; i < snpArray.length; i++)
+            {
+                if(snpArray[i].getPositionInBasePairs() <
+                   snpArray[i - 1].getPositionInBasePairs())
+                {
+                    throw new IllegalArgumentException(
+                            "SNPs must be in position order but the SNP at " +
+                            snpArray[i].getPositionInBasePairs() +
+                            " follows the SNP at " +
+                            snpArray[i - 1].getPositionInBasePairs());
+                }
+            }
+            
+            return new ImmutableStrainChromosome(
+                    this.strainName,
+                    this.chromosomeNumber,
+                    snpArray);
+        }
+    }
+}
@@ -143,6 +143,27 @@ public class IndexedSnpInterval implements Comparable<IndexedSnpInterval>, Seria
                 extentBp);
     }
     
+    /**
+     * Convert this index interval into a base-pair interval. This reads
+     * the two end SNPs directly so it doesn't copy the chromosome's SNPs
+     * @param chromosome
+     *          the chromosome to use
+     * @return
+     *          the base-pair interval
+     */
+    public BasePairInterval toSnpInterval(
+            ImmutableStrainChromosome chromosome)
+    {
+        long startBp = chromosome.getSnp(this.startIndex).getPositionInBasePairs();
+        long endBp = chromosome.getSnp(this.getEndIndex()).getPositionInBasePairs();
+        long extentBp = (endBp - startBp) + 1;
+        
+        return new SimpleBasePairInterval(
+                chromosome.getChromosomeNumber(),
+                startBp,
+                extentBp);
+    }
+    
     /**
      * {@inheritDoc}
      */
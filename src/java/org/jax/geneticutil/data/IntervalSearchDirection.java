@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+/**
+ * The direction to search in for a nearest interval query. Intervals
+ * carry no strand so upstream always means toward the start of the
+ * chromosome and downstream toward the end. Callers searching relative to
+ * a reverse strand feature should swap the two.
+ * @see NearestIntervalIndex
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum IntervalSearchDirection
+{
+    /**
+     * search in both directions
+     */
+    ANY,
+    
+    /**
+     * only search toward lower positions
+     */
+    UPSTREAM,
+    
+    /**
+     * only search toward higher positions
+     */
+    DOWNSTREAM
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+/**
+ * Conversions between mouse chromosome numbers and the chromosome names
+ * used by genome browsers and file formats. The X, Y and mitochondrial
+ * chromosomes are numbered 20, 21 and 22.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class MouseChromosomes
+{
+    /**
+     * the chromosome number used for X
+     */
+    public static final int X_CHROMOSOME_NUMBER = 20;
+    
+    /**
+     * the chromosome number used for Y
+     */
+    public static final int Y_CHROMOSOME_NUMBER = 21;
+    
+    /**
+     * the chromosome number used for the mitochondria
+     */
+    public static final int MITOCHONDRIAL_CHROMOSOME_NUMBER = 22;
+    
+    /**
+     * private constructor. this class only has static functions
+     */
+    private MouseChromosomes()
+    {
+    }
+    
+    /**
+     * Convert a chromosome number to a chromosome name without any "chr"
+     * prefix
+     * @param chromosomeNumber
+     *          the number
+     * @return
+     *          the name (eg: "1", "X" or "M")
+     */
+    public static String toChromosomeName(int chromosomeNumber)
+    {
+        switch(chromosomeNumber)
+        {
+            case X_CHROMOSOME_NUMBER: return "X";
+            case Y_CHROMOSOME_NUMBER: return "Y";
+            case MITOCHONDRIAL_CHROMOSOME_NUMBER: return "M";
+            default: return Integer.toString(chromosomeNumber);
+        }
+    }
+    
+    /**
+     * Convert a chromosome name to a chromosome number. This is the inverse
+     * of {@link #toChromosomeName(int)} except that a case insensitive
+     * "chr" prefix and "MT" are also accepted
+     * @param chromosomeName
+     *          the name
+     * @return
+     *          the number
+     * @throws IllegalArgumentException
+     *          if the name isn't recognized
+     */
+    public static int parseChromosomeName(CharSequence chromosomeName)
+            throws IllegalArgumentException
+    {
+        int length = chromosomeName.length();
+        int offset = 0;
+        if(length > 3 &&
+           Character.toLowerCase(chromosomeName.charAt(0)) == 'c' &&
+           Character.toLowerCase(chromosomeName.charAt(1)) == 'h' &&
+           Character.toLowerCase(chromosomeName.charAt(2)) == 'r')
+        {
+            offset = 3;
+        }
+        
+        if(length - offset == 1 || length - offset == 2)
+        {
+            char firstChar = Character.toUpperCase(chromosomeName.charAt(offset));
+            char secondChar = length - offset == 2 ?
+                    Character.toUpperCase(chromosomeName.charAt(offset + 1)) :
+                    0;
+            if(secondChar == 0)
+            {
+                switch(firstChar)
+                {
+                    case 'X': return X_CHROMOSOME_NUMBER;
+                    case 'Y': return Y_CHROMOSOME_NUMBER;
+                    case 'M': return MITOCHONDRIAL_CHROMOSOME_NUMBER;
+                    default: break;
+                }
+            }
+            else if(firstChar == 'M' && secondChar == 'T')
+            {
+                return MITOCHONDRIAL_CHROMOSOME_NUMBER;
+            }
+            
+            int chromosomeNumber = 0;
+            for(int i = offset; i < length; i++)
+            {
+                char currChar = chromosomeName.charAt(i);
+                if(currChar < '0' || currChar > '9')
+                {
+                    chromosomeNumber = -1;
+                    break;
+                }
+                chromosomeNumber = 10 * chromosomeNumber + (currChar - '0');
+            }
+            
+            if(chromosomeNumber > 0)
+            {
+                return chromosomeNumber;
+            }
+        }
+        
+        throw new IllegalArgumentException(
+                "unrecognized chromosome name: \"" + chromosomeName + "\"");
+    }
+}
@@ -0,0 +1,617 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Answers nearest and k-nearest interval queries. For each chromosome
+ * the intervals are held in start order along with a running maximum of
+ * their ends, a segment tree of maximum ends and a second copy of their
+ * ends in sorted order. The candidates downstream of a query are then the
+ * intervals after a binary searched point in start order, the candidates
+ * upstream are the intervals before a binary searched point in end order
+ * and the intervals overlapping the query are found by descending the
+ * segment tree, so finding the k nearest intervals takes O(k log n) time
+ * even when long intervals span the query. The indexed intervals may
+ * overlap each other.
+ * </p>
+ * <p>
+ * The distance between two intervals is the distance between their
+ * closest bases, so it is 0 if they overlap and 1 if they touch.
+ * Overlapping intervals are nearest in every {@link IntervalSearchDirection}
+ * and ties are broken in favor of the upstream interval.
+ * </p>
+ * @param <T>   the indexed interval type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class NearestIntervalIndex<T extends BasePairInterval>
+{
+    private final Map<Integer, ChromosomeIndex<T>> chromosomeIndices;
+    
+    private final int size;
+    
+    /**
+     * Constructor
+     * @param intervals
+     *          the intervals to index. These can be in any order and on
+     *          any number of chromosomes
+     */
+    public NearestIntervalIndex(Collection<? extends T> intervals)
+    {
+        List<T> sortedIntervals = new ArrayList<T>(intervals);
+        Collections.sort(
+                sortedIntervals,
+                SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        
+        this.chromosomeIndices = new HashMap<Integer, ChromosomeIndex<T>>();
+        int chromosomeStart = 0;
+        while(chromosomeStart < sortedIntervals.size())
+        {
+            int chromosomeNumber =
+                sortedIntervals.get(chromosomeStart).getChromosomeNumber();
+            int chromosomeEnd = chromosomeStart + 1;
+            while(chromosomeEnd < sortedIntervals.size() &&
+                  sortedIntervals.get(chromosomeEnd).getChromosomeNumber() == chromosomeNumber)
+            {
+                chromosomeEnd++;
+            }
+            
+            this.chromosomeIndices.put(
+                    chromosomeNumber,
+                    new ChromosomeIndex<T>(sortedIntervals.subList(
+                            chromosomeStart,
+                            chromosomeEnd)));
+            chromosomeStart = chromosomeEnd;
+        }
+        this.size = sortedIntervals.size();
+    }
+    
+    /**
+     * Getter for the number of indexed intervals
+     * @return the size
+     */
+    public int size()
+    {
+        return this.size;
+    }
+    
+    /**
+     * Get the distance between two intervals
+     * @param interval1
+     *          the first interval
+     * @param interval2
+     *          the second interval
+     * @return
+     *          the distance between their closest bases which is 0 if they
+     *          overlap or {@link Long#MAX_VALUE} if they're on different
+     *          chromosomes
+     */
+    public static long getDistanceInBasePairs(
+            BasePairInterval interval1,
+            BasePairInterval interval2)
+    {
+        if(interval1.getChromosomeNumber() != interval2.getChromosomeNumber())
+        {
+            return Long.MAX_VALUE;
+        }
+        else if(interval2.getStartInBasePairs() > interval1.getEndInBasePairs())
+        {
+            return interval2.getStartInBasePairs() - interval1.getEndInBasePairs();
+        }
+        else if(interval1.getStartInBasePairs() > interval2.getEndInBasePairs())
+        {
+            return interval1.getStartInBasePairs() - interval2.getEndInBasePairs();
+        }
+        else
+        {
+            return 0L;
+        }
+    }
+    
+    /**
+     * Find the interval nearest to the query
+     * @param query
+     *          the query
+     * @param direction
+     *          the direction to search in
+     * @return
+     *          the nearest interval or null if there are no intervals in
+     *          the search direction on the query's chromosome
+     */
+    public T getNearest(
+            BasePairInterval query,
+            IntervalSearchDirection direction)
+    {
+        ChromosomeIndex<T> chromosomeIndex =
+            this.chromosomeIndices.get(query.getChromosomeNumber());
+        if(chromosomeIndex == null)
+        {
+            return null;
+        }
+        
+        List<T> nearestIntervals = new ArrayList<T>(1);
+        chromosomeIndex.addNearest(
+                query.getStartInBasePairs(),
+                query.getEndInBasePairs(),
+                1,
+                direction,
+                new SearchCursor(),
+                nearestIntervals);
+        return nearestIntervals.isEmpty() ? null : nearestIntervals.get(0);
+    }
+    
+    /**
+     * Find the k intervals nearest to the query
+     * @param query
+     *          the query
+     * @param k
+     *          the number of intervals to find
+     * @param direction
+     *          the direction to search in
+     * @return
+     *          up to k intervals ordered by their distance from the query.
+     *          Fewer are returned if there aren't enough intervals in the
+     *          search direction on the query's chromosome
+     */
+    public List<T> getNearest(
+            BasePairInterval query,
+            int k,
+            IntervalSearchDirection direction)
+    {
+        List<T> nearestIntervals = new ArrayList<T>(k);
+        ChromosomeIndex<T> chromosomeIndex =
+            this.chromosomeIndices.get(query.getChromosomeNumber());
+        if(chromosomeIndex != null)
+        {
+            chromosomeIndex.addNearest(
+                    query.getStartInBasePairs(),
+                    query.getEndInBasePairs(),
+                    k,
+                    direction,
+                    new SearchCursor(),
+                    nearestIntervals);
+        }
+        return nearestIntervals;
+    }
+    
+    /**
+     * Find the nearest interval for every query in one merge pass. The
+     * searches for each query pick up where the previous query's left off
+     * so a sorted batch costs much less than the same queries made one at
+     * a time
+     * @param sortedQueries
+     *          the queries sorted by chromosome and then by start
+     * @param direction
+     *          the direction to search in
+     * @return
+     *          the nearest interval for each query in query order, with
+     *          null for queries that have no interval in the search
+     *          direction
+     * @throws IllegalArgumentException
+     *          if the queries are out of order
+     */
+    public List<T> getNearestForSortedQueries(
+            List<? extends BasePairInterval> sortedQueries,
+            IntervalSearchDirection direction)
+            throws IllegalArgumentException
+    {
+        List<T> nearestIntervals = new ArrayList<T>(sortedQueries.size());
+        ChromosomeIndex<T> chromosomeIndex = null;
+        SearchCursor cursor = null;
+        int previousChromosomeNumber = Integer.MIN_VALUE;
+        long previousStartInBasePairs = Long.MIN_VALUE;
+        for(BasePairInterval query: sortedQueries)
+        {
+            int chromosomeNumber = query.getChromosomeNumber();
+            long startInBasePairs = query.getStartInBasePairs();
+            if(chromosomeNumber == previousChromosomeNumber)
+            {
+                if(startInBasePairs < previousStartInBasePairs)
+                {
+                    throw new IllegalArgumentException(
+                            "queries must be in genomic order but a query " +
+                            "starting at " + startInBasePairs + " followed one " +
+                            "starting at " + previousStartInBasePairs);
+                }
+            }
+            else if(chromosomeNumber < previousChromosomeNumber)
+            {
+                throw new IllegalArgumentException(
+                        "queries must be in genomic order but chromosome " +
+                        chromosomeNumber + " followed chromosome " +
+                        previousChromosomeNumber);
+            }
+            else
+            {
+                chromosomeIndex = this.chromosomeIndices.get(chromosomeNumber);
+                cursor = new SearchCursor();
+            }
+            previousChromosomeNumber = chromosomeNumber;
+            previousStartInBasePairs = startInBasePairs;
+            
+            int previousSize = nearestIntervals.size();
+            if(chromosomeIndex != null)
+            {
+                chromosomeIndex.addNearest(
+                        startInBasePairs,
+                        query.getEndInBasePairs(),
+                        1,
+                        direction,
+                        cursor,
+                        nearestIntervals);
+            }
+            if(nearestIntervals.size() == previousSize)
+            {
+                nearestIntervals.add(null);
+            }
+        }
+        return nearestIntervals;
+    }
+    
+    /**
+     * Count the values in a sorted array that are less than or equal to
+     * the given value. This gallops forward from a known lower bound so
+     * that a series of increasing searches is close to a linear merge
+     * while a single search is still logarithmic
+     * @param sortedValues
+     *          the sorted values
+     * @param value
+     *          the value to search for
+     * @param lowerBound
+     *          a count that the answer is known to be at least
+     * @return
+     *          the count
+     */
+    private static int countAtOrBelow(long[] sortedValues, long value, int lowerBound)
+    {
+        int length = sortedValues.length;
+        int low = lowerBound;
+        int step = 1;
+        while(low + step <= length && sortedValues[low + step - 1] <= value)
+        {
+            low += step;
+            step <<= 1;
+        }
+        
+        int high = Math.min(low + step, length + 1);
+        
+        // the answer is in [low, high)
+        while(high - low > 1)
+        {
+            int middle = (low + high) >>> 1;
+            if(sortedValues[middle - 1] <= value)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Search positions that only move forward over a batch of sorted
+     * queries. Each is a lower bound for the next query's search
+     */
+    private static final class SearchCursor
+    {
+        /**
+         * the number of intervals starting at or before the query start
+         */
+        int startCount = 0;
+        
+        /**
+         * the number of intervals ending before the query start
+         */
+        int endCount = 0;
+        
+        /**
+         * the number of intervals in start order whose running maximum end
+         * is before the query start
+         */
+        int maxEndCount = 0;
+    }
+    
+    /**
+     * The index for the intervals of a single chromosome
+     */
+    private static final class ChromosomeIndex<T extends BasePairInterval>
+    {
+        private final List<T> intervalsByStart;
+        
+        private final long[] startsInBasePairs;
+        
+        /**
+         * the ends in start order
+         */
+        private final long[] endsInBasePairs;
+        
+        /**
+         * element i is the maximum of the ends 0 through i in start order
+         */
+        private final long[] maxEndsInBasePairs;
+        
+        /**
+         * the number of leaves in {@link #treeMaxEndsInBasePairs} (a power
+         * of two >= the interval count)
+         */
+        private final int leafCount;
+        
+        /**
+         * a segment tree over the ends in start order where each node holds
+         * the maximum end below it. Node 1 is the root, the children of
+         * node n are 2n and 2n + 1 and interval i is leaf
+         * {@link #leafCount} + i
+         */
+        private final long[] treeMaxEndsInBasePairs;
+        
+        private final long[] sortedEndsInBasePairs;
+        
+        /**
+         * the start order position of each element of
+         * {@link #sortedEndsInBasePairs}
+         */
+        private final int[] sortedEndPositions;
+        
+        /**
+         * Constructor
+         * @param sortedIntervals
+         *          the intervals of one chromosome in start order
+         */
+        ChromosomeIndex(List<? extends T> sortedIntervals)
+        {
+            int size = sortedIntervals.size();
+            this.intervalsByStart = new ArrayList<T>(sortedIntervals);
+            this.startsInBasePairs = new long[size];
+            this.endsInBasePairs = new long[size];
+            this.maxEndsInBasePairs = new long[size];
+            long maxEnd = Long.MIN_VALUE;
+            for(int i = 0; i < size; i++)
+            {
+                BasePairInterval interval = sortedIntervals.get(i);
+                this.startsInBasePairs[i] = interval.getStartInBasePairs();
+                this.endsInBasePairs[i] = interval.getEndInBasePairs();
+                maxEnd = Math.max(maxEnd, this.endsInBasePairs[i]);
+                this.maxEndsInBasePairs[i] = maxEnd;
+            }
+            
+            int leaves = 1;
+            while(leaves < size)
+            {
+                leaves <<= 1;
+            }
+            this.leafCount = leaves;
+            this.treeMaxEndsInBasePairs = new long[2 * leaves];
+            Arrays.fill(this.treeMaxEndsInBasePairs, Long.MIN_VALUE);
+            System.arraycopy(
+                    this.endsInBasePairs,
+                    0,
+                    this.treeMaxEndsInBasePairs,
+                    leaves,
+                    size);
+            for(int node = leaves - 1; node >= 1; node--)
+            {
+                this.treeMaxEndsInBasePairs[node] = Math.max(
+                        this.treeMaxEndsInBasePairs[2 * node],
+                        this.treeMaxEndsInBasePairs[2 * node + 1]);
+            }
+            
+            Integer[] boxedOrder = new Integer[size];
+            for(int i = 0; i < size; i++)
+            {
+                boxedOrder[i] = i;
+            }
+            final long[] ends = this.endsInBasePairs;
+            Arrays.sort(boxedOrder, new Comparator<Integer>()
+            {
+                public int compare(Integer index1, Integer index2)
+                {
+                    long end1 = ends[index1];
+                    long end2 = ends[index2];
+                    return end1 < end2 ? -1 : (end1 == end2 ? 0 : 1);
+                }
+            });
+            
+            this.sortedEndsInBasePairs = new long[size];
+            this.sortedEndPositions = new int[size];
+            for(int i = 0; i < size; i++)
+            {
+                this.sortedEndPositions[i] = boxedOrder[i];
+                this.sortedEndsInBasePairs[i] = ends[boxedOrder[i]];
+            }
+        }
+        
+        /**
+         * Add the nearest intervals to the given list in distance order
+         * @param queryStartInBasePairs
+         *          the start of the query
+         * @param queryEndInBasePairs
+         *          the end of the query
+         * @param k
+         *          the maximum number of intervals to add
+         * @param direction
+         *          the direction to search in
+         * @param cursor
+         *          the search lower bounds which are advanced to this
+         *          query's start
+         * @param nearestIntervals
+         *          the list to add to
+         */
+        void addNearest(
+                long queryStartInBasePairs,
+                long queryEndInBasePairs,
+                int k,
+                IntervalSearchDirection direction,
+                SearchCursor cursor,
+                List<T> nearestIntervals)
+        {
+            int size = this.startsInBasePairs.length;
+            
+            cursor.startCount = countAtOrBelow(
+                    this.startsInBasePairs,
+                    queryStartInBasePairs,
+                    cursor.startCount);
+            cursor.endCount = countAtOrBelow(
+                    this.sortedEndsInBasePairs,
+                    queryStartInBasePairs - 1,
+                    cursor.endCount);
+            cursor.maxEndCount = countAtOrBelow(
+                    this.maxEndsInBasePairs,
+                    queryStartInBasePairs - 1,
+                    cursor.maxEndCount);
+            
+            // intervals [0, downstreamPosition) in start order start at or
+            // before the query end. the ones from maxEndCount on that end at
+            // or after the query start overlap it
+            int downstreamPosition = countAtOrBelow(
+                    this.startsInBasePairs,
+                    queryEndInBasePairs,
+                    cursor.startCount);
+            int addedCount = 0;
+            if(cursor.maxEndCount < downstreamPosition)
+            {
+                addedCount = this.addOverlapping(
+                        1,
+                        0,
+                        this.leafCount,
+                        cursor.maxEndCount,
+                        downstreamPosition,
+                        queryStartInBasePairs,
+                        k,
+                        nearestIntervals);
+            }
+            
+            // merge the upstream intervals in decreasing end order with the
+            // downstream intervals in increasing start order
+            boolean searchUpstream = direction != IntervalSearchDirection.DOWNSTREAM;
+            boolean searchDownstream = direction != IntervalSearchDirection.UPSTREAM;
+            int upstreamPosition = cursor.endCount - 1;
+            while(addedCount < k)
+            {
+                long upstreamDistance =
+                    searchUpstream && upstreamPosition >= 0 ?
+                    queryStartInBasePairs - this.sortedEndsInBasePairs[upstreamPosition] :
+                    Long.MAX_VALUE;
+                long downstreamDistance =
+                    searchDownstream && downstreamPosition < size ?
+                    this.startsInBasePairs[downstreamPosition] - queryEndInBasePairs :
+                    Long.MAX_VALUE;
+                
+                if(upstreamDistance == Long.MAX_VALUE &&
+                   downstreamDistance == Long.MAX_VALUE)
+                {
+                    break;
+                }
+                else if(upstreamDistance <= downstreamDistance)
+                {
+                    nearestIntervals.add(this.intervalsByStart.get(
+                            this.sortedEndPositions[upstreamPosition]));
+                    upstreamPosition--;
+                }
+                else
+                {
+                    nearestIntervals.add(this.intervalsByStart.get(downstreamPosition));
+                    downstreamPosition++;
+                }
+                addedCount++;
+            }
+        }
+        
+        /**
+         * Add the intervals below a tree node that are within a start order
+         * range and end at or after the given position, in start order.
+         * Only nodes whose maximum end reaches the position are visited, so
+         * finding m intervals costs O((m + 1) log n) however many
+         * intervals in the range end before the position
+         * @param node
+         *          the tree node
+         * @param nodeLow
+         *          the first start order position below the node
+         * @param nodeHigh
+         *          one past the last start order position below the node
+         * @param low
+         *          the first start order position in range
+         * @param high
+         *          one past the last start order position in range
+         * @param minimumEndInBasePairs
+         *          the position that the intervals must reach
+         * @param maxCount
+         *          the maximum number of intervals to add
+         * @param intervals
+         *          the list to add to
+         * @return
+         *          the number of intervals added
+         */
+        private int addOverlapping(
+                int node,
+                int nodeLow,
+                int nodeHigh,
+                int low,
+                int high,
+                long minimumEndInBasePairs,
+                int maxCount,
+                List<T> intervals)
+        {
+            if(maxCount <= 0 ||
+               nodeHigh <= low ||
+               nodeLow >= high ||
+               this.treeMaxEndsInBasePairs[node] < minimumEndInBasePairs)
+            {
+                return 0;
+            }
+            else if(node >= this.leafCount)
+            {
+                intervals.add(this.intervalsByStart.get(nodeLow));
+                return 1;
+            }
+            else
+            {
+                int nodeMiddle = (nodeLow + nodeHigh) >>> 1;
+                int addedCount = this.addOverlapping(
+                        2 * node,
+                        nodeLow,
+                        nodeMiddle,
+                        low,
+                        high,
+                        minimumEndInBasePairs,
+                        maxCount,
+                        intervals);
+                return addedCount + this.addOverlapping(
+                        2 * node + 1,
+                        nodeMiddle,
+                        nodeHigh,
+                        low,
+                        high,
+                        minimumEndInBasePairs,
+                        maxCount - addedCount,
+                        intervals);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A columnar store of {@link RealValuedBasePairInterval}s which adds a
+ * primitive real value column to {@link BasePairIntervalArray}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedBasePairIntervalArray extends BasePairIntervalArray
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = 6183921488612405557L;
+    
+    /**
+     * @see #getRealValues()
+     */
+    private final double[] realValues;
+    
+    /**
+     * Constructor
+     * @param chromosomeNumbers
+     *          the chromosome column
+     * @param startsInBasePairs
+     *          the start position column
+     * @param extentsInBasePairs
+     *          the extent column
+     * @param realValues
+     *          the real value column
+     * @throws IllegalArgumentException
+     *          if the columns aren't all the same length
+     */
+    public RealValuedBasePairIntervalArray(
+            int[] chromosomeNumbers,
+            long[] startsInBasePairs,
+            long[] extentsInBasePairs,
+            double[] realValues)
+            throws IllegalArgumentException
+    {
+        super(chromosomeNumbers, startsInBasePairs, extentsInBasePairs);
+        
+        if(realValues.length != startsInBasePairs.length)
+        {
+            throw new IllegalArgumentException(
+                    "all interval columns must have the same length");
+        }
+        
+        this.realValues = realValues;
+    }
+    
+    /**
+     * Create a columnar copy of the given intervals. This is the bulk
+     * adapter for lists of {@link CompositeRealValuedBasePairInterval}s
+     * @param intervals
+     *          the intervals to copy
+     * @return
+     *          the array
+     */
+    public static RealValuedBasePairIntervalArray fromRealValuedIntervals(
+            Collection<? extends RealValuedBasePairInterval> intervals)
+    {
+        int size = intervals.size();
+        int[] chromosomeNumbers = new int[size];
+        long[] startsInBasePairs = new long[size];
+        long[] extentsInBasePairs = new long[size];
+        double[] realValues = new double[size];
+        
+        int i = 0;
+        for(RealValuedBasePairInterval currInterval: intervals)
+        {
+            chromosomeNumbers[i] = currInterval.getChromosomeNumber();
+            startsInBasePairs[i] = currInterval.getStartInBasePairs();
+            extentsInBasePairs[i] = currInterval.getExtentInBasePairs();
+            realValues[i] = currInterval.getRealValue();
+            i++;
+        }
+        
+        return new RealValuedBasePairIntervalArray(
+                chromosomeNumbers,
+                startsInBasePairs,
+                extentsInBasePairs,
+                realValues);
+    }
+    
+    /**
+     * Getter for the real value of the given interval
+     * @param index
+     *          the interval index
+     * @return
+     *          the real value
+     */
+    public double getRealValue(int index)
+    {
+        return this.realValues[index];
+    }
+    
+    /**
+     * Getter for the real value column. This is the backing array and
+     * must not be modified
+     * @return the real values
+     */
+    public double[] getRealValues()
+    {
+        return this.realValues;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SimpleRealValuedBasePairInterval get(int index)
+    {
+        return new SimpleRealValuedBasePairInterval(
+                this.chromosomeNumbers[index],
+                this.startsInBasePairs[index],
+                this.extentsInBasePairs[index],
+                this.realValues[index]);
+    }
+    
+    /**
+     * Get an unmodifiable list view of this array. Interval objects are
+     * created on demand by {@link List#get(int)}
+     * @return
+     *          the list view
+     */
+    public List<RealValuedBasePairInterval> asRealValuedList()
+    {
+        return new RealValuedIntervalListView();
+    }
+    
+    /**
+     * Convert this array back into composite intervals for code that still
+     * expects {@link CompositeRealValuedBasePairInterval}s
+     * @return
+     *          a new list of composite intervals
+     */
+    public List<CompositeRealValuedBasePairInterval> toCompositeIntervals()
+    {
+        int size = this.size();
+        List<CompositeRealValuedBasePairInterval> compositeIntervals =
+            new ArrayList<CompositeRealValuedBasePairInterval>(size);
+        for(int i = 0; i < size; i++)
+        {
+            compositeIntervals.add(new CompositeRealValuedBasePairInterval(
+                    new SimpleBasePairInterval(
+                            this.chromosomeNumbers[i],
+                            this.startsInBasePairs[i],
+                            this.extentsInBasePairs[i]),
+                    this.realValues[i]));
+        }
+        return compositeIntervals;
+    }
+    
+    /**
+     * the list view returned by
+     * {@link RealValuedBasePairIntervalArray#asRealValuedList()}
+     */
+    class RealValuedIntervalListView
+    extends AbstractList<RealValuedBasePairInterval>
+    implements RandomAccess
+    {
+        /**
+         * Getter for the array that backs this view
+         * @return the array
+         */
+        RealValuedBasePairIntervalArray getArray()
+        {
+            return RealValuedBasePairIntervalArray.this;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public RealValuedBasePairInterval get(int index)
+        {
+            return RealValuedBasePairIntervalArray.this.get(index);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size()
+        {
+            return RealValuedBasePairIntervalArray.this.size();
+        }
+    }
+}
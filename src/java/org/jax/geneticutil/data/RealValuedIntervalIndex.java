@@ -0,0 +1,632 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A segment tree over the real values of a sorted, non-overlapping list of
+ * {@link RealValuedBasePairInterval}s from a single chromosome. Range
+ * aggregates (min, max, sum, mean) over a base pair range are answered in
+ * O(log n) and the top k intervals in a range in O(k log n).
+ * <p>
+ * Interval indices used by this class refer to positions in the list that
+ * the index was built from.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedIntervalIndex implements Serializable
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = -2291861127845402457L;
+    
+    /**
+     * @see #getChromosomeNumber()
+     */
+    private final int chromosomeNumber;
+    
+    private final long[] startsInBasePairs;
+    
+    private final long[] endsInBasePairs;
+    
+    private final double[] realValues;
+    
+    /**
+     * the number of leaves in the tree (a power of two >= the interval count)
+     */
+    private final int leafCount;
+    
+    private final double[] treeMinimums;
+    
+    private final double[] treeMaximums;
+    
+    private final double[] treeSums;
+    
+    /**
+     * for each tree node the interval index holding the node's maximum
+     */
+    private final int[] treeMaximumIndices;
+    
+    /**
+     * Constructor
+     * @param sortedIntervals
+     *          the intervals to index. These must all be on the same
+     *          chromosome, sorted by start position and non-overlapping
+     * @throws IllegalArgumentException
+     *          if the intervals are not sorted, overlap or span more than
+     *          one chromosome
+     */
+    public RealValuedIntervalIndex(
+            List<? extends RealValuedBasePairInterval> sortedIntervals)
+            throws IllegalArgumentException
+    {
+        this(RealValuedBasePairIntervalArray.fromRealValuedIntervals(sortedIntervals));
+    }
+    
+    /**
+     * Constructor
+     * @param sortedIntervals
+     *          the intervals to index. These must all be on the same
+     *          chromosome, sorted by start position and non-overlapping
+     * @throws IllegalArgumentException
+     *          if the intervals are not sorted, overlap or span more than
+     *          one chromosome
+     */
+    public RealValuedIntervalIndex(
+            RealValuedBasePairIntervalArray sortedIntervals)
+            throws IllegalArgumentException
+    {
+        int intervalCount = sortedIntervals.size();
+        int[] chromosomeNumbers = sortedIntervals.getChromosomeNumbers();
+        this.startsInBasePairs = sortedIntervals.getStartsInBasePairs();
+        this.endsInBasePairs = new long[intervalCount];
+        this.realValues = sortedIntervals.getRealValues();
+        this.chromosomeNumber = intervalCount == 0 ?
+                Integer.MAX_VALUE :
+                chromosomeNumbers[0];
+        
+        for(int i = 0; i < intervalCount; i++)
+        {
+            this.endsInBasePairs[i] = sortedIntervals.getEndInBasePairs(i);
+            
+            if(chromosomeNumbers[i] != this.chromosomeNumber)
+            {
+                throw new IllegalArgumentException(
+                        "all indexed intervals must be on chromosome " +
+                        this.chromosomeNumber + " but found an interval on " +
+                        "chromosome " + chromosomeNumbers[i]);
+            }
+            
+            if(i >= 1 && this.startsInBasePairs[i] <= this.endsInBasePairs[i - 1])
+            {
+                throw new IllegalArgumentException(
+                        "indexed intervals must be sorted and non-overlapping " +
+                        "but the interval at index " + i + " starts at " +
+                        this.startsInBasePairs[i] + " which is not after the " +
+                        "previous interval's end " + this.endsInBasePairs[i - 1]);
+            }
+        }
+        
+        int leaves = 1;
+        while(leaves < intervalCount)
+        {
+            leaves <<= 1;
+        }
+        this.leafCount = leaves;
+        
+        this.treeMinimums = new double[2 * leaves];
+        this.treeMaximums = new double[2 * leaves];
+        this.treeSums = new double[2 * leaves];
+        this.treeMaximumIndices = new int[2 * leaves];
+        
+        for(int leaf = 0; leaf < leaves; leaf++)
+        {
+            int node = leaves + leaf;
+            if(leaf < intervalCount)
+            {
+                this.treeMinimums[node] = this.realValues[leaf];
+                this.treeMaximums[node] = this.realValues[leaf];
+                this.treeSums[node] = this.realValues[leaf];
+                this.treeMaximumIndices[node] = leaf;
+            }
+            else
+            {
+                this.treeMinimums[node] = Double.POSITIVE_INFINITY;
+                this.treeMaximums[node] = Double.NEGATIVE_INFINITY;
+                this.treeSums[node] = 0.0;
+                this.treeMaximumIndices[node] = -1;
+            }
+        }
+        
+        for(int node = leaves - 1; node >= 1; node--)
+        {
+            int left = 2 * node;
+            int right = left + 1;
+            this.treeMinimums[node] = Math.min(
+                    this.treeMinimums[left],
+                    this.treeMinimums[right]);
+            this.treeSums[node] = this.treeSums[left] + this.treeSums[right];
+            if(this.treeMaximums[right] > this.treeMaximums[left])
+            {
+                this.treeMaximums[node] = this.treeMaximums[right];
+                this.treeMaximumIndices[node] = this.treeMaximumIndices[right];
+            }
+            else
+            {
+                this.treeMaximums[node] = this.treeMaximums[left];
+                this.treeMaximumIndices[node] = this.treeMaximumIndices[left];
+            }
+        }
+    }
+    
+    /**
+     * Build one index per chromosome in parallel. The given intervals do not
+     * need to be sorted but intervals on the same chromosome must not
+     * overlap.
+     * @param intervals
+     *          the intervals to index
+     * @param executor
+     *          the executor that the per-chromosome builds are submitted to
+     * @return
+     *          a mapping from chromosome number to index
+     * @throws InterruptedException
+     *          if we're interrupted while waiting on the builds
+     * @throws ExecutionException
+     *          if any of the builds fail (eg: because of overlapping
+     *          intervals)
+     */
+    public static Map<Integer, RealValuedIntervalIndex> buildPerChromosome(
+            Collection<? extends RealValuedBasePairInterval> intervals,
+            ExecutorService executor)
+            throws InterruptedException, ExecutionException
+    {
+        Map<Integer, List<RealValuedBasePairInterval>> chromosomeIntervals =
+            new HashMap<Integer, List<RealValuedBasePairInterval>>();
+        for(RealValuedBasePairInterval currInterval: intervals)
+        {
+            Integer chromosomeNumber = currInterval.getChromosomeNumber();
+            List<RealValuedBasePairInterval> currList =
+                chromosomeIntervals.get(chromosomeNumber);
+            if(currList == null)
+            {
+                currList = new ArrayList<RealValuedBasePairInterval>();
+                chromosomeIntervals.put(chromosomeNumber, currList);
+            }
+            currList.add(currInterval);
+        }
+        
+        Map<Integer, Future<RealValuedIntervalIndex>> futureIndices =
+            new HashMap<Integer, Future<RealValuedIntervalIndex>>();
+        for(Map.Entry<Integer, List<RealValuedBasePairInterval>> entry:
+            chromosomeIntervals.entrySet())
+        {
+            final List<RealValuedBasePairInterval> currList = entry.getValue();
+            futureIndices.put(
+                    entry.getKey(),
+                    executor.submit(new Callable<RealValuedIntervalIndex>()
+                    {
+                        public RealValuedIntervalIndex call()
+                        {
+                            Collections.sort(
+                                    currList,
+                                    SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+                            return new RealValuedIntervalIndex(currList);
+                        }
+                    }));
+        }
+        
+        Map<Integer, RealValuedIntervalIndex> indices =
+            new HashMap<Integer, RealValuedIntervalIndex>();
+        for(Map.Entry<Integer, Future<RealValuedIntervalIndex>> entry:
+            futureIndices.entrySet())
+        {
+            indices.put(entry.getKey(), entry.getValue().get());
+        }
+        
+        return indices;
+    }
+    
+    /**
+     * Getter for the chromosome number shared by all of the indexed
+     * intervals
+     * @return
+     *          the chromosome number
+     */
+    public int getChromosomeNumber()
+    {
+        return this.chromosomeNumber;
+    }
+    
+    /**
+     * Getter for the number of indexed intervals
+     * @return
+     *          the interval count
+     */
+    public int getIntervalCount()
+    {
+        return this.realValues.length;
+    }
+    
+    /**
+     * Getter for the start of the interval at the given index
+     * @param intervalIndex
+     *          the interval index
+     * @return
+     *          the start in base pairs
+     */
+    public long getStartInBasePairs(int intervalIndex)
+    {
+        return this.startsInBasePairs[intervalIndex];
+    }
+    
+    /**
+     * Getter for the end (inclusive) of the interval at the given index
+     * @param intervalIndex
+     *          the interval index
+     * @return
+     *          the end in base pairs
+     */
+    public long getEndInBasePairs(int intervalIndex)
+    {
+        return this.endsInBasePairs[intervalIndex];
+    }
+    
+    /**
+     * Getter for the real value of the interval at the given index
+     * @param intervalIndex
+     *          the interval index
+     * @return
+     *          the real value
+     */
+    public double getRealValue(int intervalIndex)
+    {
+        return this.realValues[intervalIndex];
+    }
+    
+    /**
+     * Find the index of the first interval that ends on or after the given
+     * position
+     * @param positionInBasePairs
+     *          the position
+     * @return
+     *          the index or {@link #getIntervalCount()} if there is no such
+     *          interval
+     */
+    private int firstIndexEndingOnOrAfter(long positionInBasePairs)
+    {
+        int low = 0;
+        int high = this.endsInBasePairs.length;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(this.endsInBasePairs[mid] < positionInBasePairs)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Find the index of the last interval that starts on or before the given
+     * position
+     * @param positionInBasePairs
+     *          the position
+     * @return
+     *          the index or -1 if there is no such interval
+     */
+    private int lastIndexStartingOnOrBefore(long positionInBasePairs)
+    {
+        int low = 0;
+        int high = this.startsInBasePairs.length;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(this.startsInBasePairs[mid] <= positionInBasePairs)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+    
+    /**
+     * Get the number of indexed intervals which intersect the given range
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @return
+     *          the count
+     */
+    public int getIntervalCount(long startInBasePairs, long extentInBasePairs)
+    {
+        int firstIndex = this.firstIndexEndingOnOrAfter(startInBasePairs);
+        int lastIndex = this.lastIndexStartingOnOrBefore(
+                startInBasePairs + extentInBasePairs - 1);
+        return Math.max(0, 1 + lastIndex - firstIndex);
+    }
+    
+    /**
+     * Get the minimum real value of the intervals intersecting the given range
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @return
+     *          the minimum or {@link Double#NaN} if no intervals intersect
+     */
+    public double getMinimumRealValue(
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        int firstIndex = this.firstIndexEndingOnOrAfter(startInBasePairs);
+        int lastIndex = this.lastIndexStartingOnOrBefore(
+                startInBasePairs + extentInBasePairs - 1);
+        if(firstIndex > lastIndex)
+        {
+            return Double.NaN;
+        }
+        
+        double minimum = Double.POSITIVE_INFINITY;
+        int left = firstIndex + this.leafCount;
+        int right = lastIndex + this.leafCount + 1;
+        while(left < right)
+        {
+            if((left & 1) == 1)
+            {
+                minimum = Math.min(minimum, this.treeMinimums[left++]);
+            }
+            if((right & 1) == 1)
+            {
+                minimum = Math.min(minimum, this.treeMinimums[--right]);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        return minimum;
+    }
+    
+    /**
+     * Get the maximum real value of the intervals intersecting the given range
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @return
+     *          the maximum or {@link Double#NaN} if no intervals intersect
+     */
+    public double getMaximumRealValue(
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        int maximumIndex = this.getMaximumIntervalIndex(
+                startInBasePairs,
+                extentInBasePairs);
+        return maximumIndex == -1 ? Double.NaN : this.realValues[maximumIndex];
+    }
+    
+    /**
+     * Get the index of the interval with the maximum real value among the
+     * intervals intersecting the given range
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @return
+     *          the interval index or -1 if no intervals intersect
+     */
+    public int getMaximumIntervalIndex(
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        int firstIndex = this.firstIndexEndingOnOrAfter(startInBasePairs);
+        int lastIndex = this.lastIndexStartingOnOrBefore(
+                startInBasePairs + extentInBasePairs - 1);
+        
+        int maximumIndex = -1;
+        int left = firstIndex + this.leafCount;
+        int right = lastIndex + this.leafCount + 1;
+        while(left < right)
+        {
+            if((left & 1) == 1)
+            {
+                maximumIndex = this.maxIndex(maximumIndex, left++);
+            }
+            if((right & 1) == 1)
+            {
+                maximumIndex = this.maxIndex(maximumIndex, --right);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        return maximumIndex;
+    }
+    
+    private int maxIndex(int currentMaximumIndex, int node)
+    {
+        int nodeMaximumIndex = this.treeMaximumIndices[node];
+        if(currentMaximumIndex == -1 ||
+           this.realValues[nodeMaximumIndex] > this.realValues[currentMaximumIndex])
+        {
+            return nodeMaximumIndex;
+        }
+        else
+        {
+            return currentMaximumIndex;
+        }
+    }
+    
+    /**
+     * Get the sum of the real values of the intervals intersecting the
+     * given range
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @return
+     *          the sum (0 if no intervals intersect)
+     */
+    public double getRealValueSum(
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        int firstIndex = this.firstIndexEndingOnOrAfter(startInBasePairs);
+        int lastIndex = this.lastIndexStartingOnOrBefore(
+                startInBasePairs + extentInBasePairs - 1);
+        
+        double sum = 0.0;
+        int left = firstIndex + this.leafCount;
+        int right = lastIndex + this.leafCount + 1;
+        while(left < right)
+        {
+            if((left & 1) == 1)
+            {
+                sum += this.treeSums[left++];
+            }
+            if((right & 1) == 1)
+            {
+                sum += this.treeSums[--right];
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        return sum;
+    }
+    
+    /**
+     * Get the mean of the real values of the intervals intersecting the
+     * given range. Every interval counts once regardless of its extent.
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @return
+     *          the mean or {@link Double#NaN} if no intervals intersect
+     */
+    public double getMeanRealValue(
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        int count = this.getIntervalCount(startInBasePairs, extentInBasePairs);
+        if(count == 0)
+        {
+            return Double.NaN;
+        }
+        else
+        {
+            return this.getRealValueSum(startInBasePairs, extentInBasePairs) / count;
+        }
+    }
+    
+    /**
+     * Get the indices of the intervals with the k largest real values among
+     * the intervals intersecting the given range
+     * @param startInBasePairs
+     *          the range start
+     * @param extentInBasePairs
+     *          the range extent
+     * @param k
+     *          the maximum number of intervals to return
+     * @return
+     *          the interval indices ordered from largest to smallest value
+     */
+    public int[] getTopIntervalIndices(
+            long startInBasePairs,
+            long extentInBasePairs,
+            int k)
+    {
+        int firstIndex = this.firstIndexEndingOnOrAfter(startInBasePairs);
+        int lastIndex = this.lastIndexStartingOnOrBefore(
+                startInBasePairs + extentInBasePairs - 1);
+        int resultSize = Math.max(0, Math.min(k, 1 + lastIndex - firstIndex));
+        int[] topIndices = new int[resultSize];
+        if(resultSize == 0)
+        {
+            return topIndices;
+        }
+        
+        // seed the queue with the canonical nodes covering the range. every
+        // node in the queue is then fully contained by the range so its
+        // children can be expanded without any further range checks
+        PriorityQueue<Integer> nodeQueue = new PriorityQueue<Integer>(
+                16,
+                new Comparator<Integer>()
+                {
+                    public int compare(Integer node1, Integer node2)
+                    {
+                        return Double.compare(
+                                RealValuedIntervalIndex.this.treeMaximums[node2],
+                                RealValuedIntervalIndex.this.treeMaximums[node1]);
+                    }
+                });
+        int left = firstIndex + this.leafCount;
+        int right = lastIndex + this.leafCount + 1;
+        while(left < right)
+        {
+            if((left & 1) == 1)
+            {
+                nodeQueue.add(left++);
+            }
+            if((right & 1) == 1)
+            {
+                nodeQueue.add(--right);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        
+        int found = 0;
+        while(found < resultSize)
+        {
+            int node = nodeQueue.poll();
+            if(node >= this.leafCount)
+            {
+                topIndices[found++] = node - this.leafCount;
+            }
+            else
+            {
+                nodeQueue.add(2 * node);
+                nodeQueue.add(2 * node + 1);
+            }
+        }
+        
+        return topIndices;
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A multi-resolution summary of a real valued track on a single chromosome
+ * (similar to the zoom levels in a bigWig file). Level 0 divides the
+ * chromosome into bins of {@link #getBaseBinSizeInBasePairs()} and every
+ * level after that doubles the bin size. Each bin holds the min, max,
+ * base pair weighted sum and covered base pair count of the intervals that
+ * touch it, so a region can be summarized at screen resolution with a cost
+ * that depends on the number of output bins rather than the number of
+ * intervals.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedZoomPyramid implements Serializable
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = 3166450431520473297L;
+    
+    /**
+     * the default size of the level 0 bins
+     */
+    public static final int DEFAULT_BASE_BIN_SIZE_IN_BASE_PAIRS = 1024;
+    
+    private static final int FORMAT_VERSION = 1;
+    
+    /**
+     * @see #getChromosomeNumber()
+     */
+    private final int chromosomeNumber;
+    
+    /**
+     * @see #getBaseBinSizeInBasePairs()
+     */
+    private final int baseBinSizeInBasePairs;
+    
+    private final double[][] levelMinimums;
+    
+    private final double[][] levelMaximums;
+    
+    private final double[][] levelWeightedSums;
+    
+    private final long[][] levelCoveredBasePairs;
+    
+    /**
+     * Constructor which uses {@link #DEFAULT_BASE_BIN_SIZE_IN_BASE_PAIRS}
+     * @param intervals
+     *          the intervals to summarize. These must all be on the
+     *          same chromosome but do not have to be sorted
+     */
+    public RealValuedZoomPyramid(
+            List<? extends RealValuedBasePairInterval> intervals)
+    {
+        this(intervals, DEFAULT_BASE_BIN_SIZE_IN_BASE_PAIRS);
+    }
+    
+    /**
+     * Constructor
+     * @param intervals
+     *          the intervals to summarize. These must all be on the
+     *          same chromosome but do not have to be sorted
+     * @param baseBinSizeInBasePairs
+     *          the bin size to use for level 0. Must be a power of two
+     * @throws IllegalArgumentException
+     *          if the bin size isn't a power of two or if the intervals
+     *          span more than one chromosome
+     */
+    public RealValuedZoomPyramid(
+            List<? extends RealValuedBasePairInterval> intervals,
+            int baseBinSizeInBasePairs)
+            throws IllegalArgumentException
+    {
+        if(baseBinSizeInBasePairs <= 0 || Integer.bitCount(baseBinSizeInBasePairs) != 1)
+        {
+            throw new IllegalArgumentException(
+                    "the base bin size must be a power of two: " +
+                    baseBinSizeInBasePairs);
+        }
+        
+        this.baseBinSizeInBasePairs = baseBinSizeInBasePairs;
+        this.chromosomeNumber = intervals.isEmpty() ?
+                Integer.MAX_VALUE :
+                intervals.get(0).getChromosomeNumber();
+        
+        long maxEndInBasePairs = 0L;
+        for(RealValuedBasePairInterval currInterval: intervals)
+        {
+            if(currInterval.getChromosomeNumber() != this.chromosomeNumber)
+            {
+                throw new IllegalArgumentException(
+                        "all summarized intervals must be on chromosome " +
+                        this.chromosomeNumber + " but found an interval on " +
+                        "chromosome " + currInterval.getChromosomeNumber());
+            }
+            maxEndInBasePairs = Math.max(
+                    maxEndInBasePairs,
+                    currInterval.getEndInBasePairs());
+        }
+        
+        int baseBinCount = (int)(maxEndInBasePairs / baseBinSizeInBasePairs) + 1;
+        int levelCount = 1;
+        for(int binCount = baseBinCount; binCount > 1; binCount = (binCount + 1) / 2)
+        {
+            levelCount++;
+        }
+        
+        this.levelMinimums = new double[levelCount][];
+        this.levelMaximums = new double[levelCount][];
+        this.levelWeightedSums = new double[levelCount][];
+        this.levelCoveredBasePairs = new long[levelCount][];
+        
+        double[] minimums = new double[baseBinCount];
+        double[] maximums = new double[baseBinCount];
+        double[] weightedSums = new double[baseBinCount];
+        long[] coveredBasePairs = new long[baseBinCount];
+        Arrays.fill(minimums, Double.NaN);
+        Arrays.fill(maximums, Double.NaN);
+        for(RealValuedBasePairInterval currInterval: intervals)
+        {
+            double value = currInterval.getRealValue();
+            long startBp = currInterval.getStartInBasePairs();
+            long endBp = currInterval.getEndInBasePairs();
+            int firstBin = (int)(startBp / baseBinSizeInBasePairs);
+            int lastBin = (int)(endBp / baseBinSizeInBasePairs);
+            for(int bin = firstBin; bin <= lastBin; bin++)
+            {
+                long binStartBp = (long)bin * baseBinSizeInBasePairs;
+                long overlapBp =
+                    1L + Math.min(endBp, binStartBp + baseBinSizeInBasePairs - 1) -
+                    Math.max(startBp, binStartBp);
+                
+                if(coveredBasePairs[bin] == 0L)
+                {
+                    minimums[bin] = value;
+                    maximums[bin] = value;
+                }
+                else
+                {
+                    minimums[bin] = Math.min(minimums[bin], value);
+                    maximums[bin] = Math.max(maximums[bin], value);
+                }
+                weightedSums[bin] += value * overlapBp;
+                coveredBasePairs[bin] += overlapBp;
+            }
+        }
+        
+        this.levelMinimums[0] = minimums;
+        this.levelMaximums[0] = maximums;
+        this.levelWeightedSums[0] = weightedSums;
+        this.levelCoveredBasePairs[0] = coveredBasePairs;
+        
+        for(int level = 1; level < levelCount; level++)
+        {
+            double[] childMinimums = this.levelMinimums[level - 1];
+            double[] childMaximums = this.levelMaximums[level - 1];
+            double[] childWeightedSums = this.levelWeightedSums[level - 1];
+            long[] childCoveredBasePairs = this.levelCoveredBasePairs[level - 1];
+            
+            int binCount = (childMinimums.length + 1) / 2;
+            minimums = new double[binCount];
+            maximums = new double[binCount];
+            weightedSums = new double[binCount];
+            coveredBasePairs = new long[binCount];
+            for(int bin = 0; bin < binCount; bin++)
+            {
+                int left = 2 * bin;
+                int right = left + 1;
+                if(right < childMinimums.length)
+                {
+                    minimums[bin] = nanMin(childMinimums[left], childMinimums[right]);
+                    maximums[bin] = nanMax(childMaximums[left], childMaximums[right]);
+                    weightedSums[bin] = childWeightedSums[left] + childWeightedSums[right];
+                    coveredBasePairs[bin] =
+                        childCoveredBasePairs[left] + childCoveredBasePairs[right];
+                }
+                else
+                {
+                    minimums[bin] = childMinimums[left];
+                    maximums[bin] = childMaximums[left];
+                    weightedSums[bin] = childWeightedSums[left];
+                    coveredBasePairs[bin] = childCoveredBasePairs[left];
+                }
+            }
+            
+            this.levelMinimums[level] = minimums;
+            this.levelMaximums[level] = maximums;
+            this.levelWeightedSums[level] = weightedSums;
+            this.levelCoveredBasePairs[level] = coveredBasePairs;
+        }
+    }
+    
+    /**
+     * Constructor used when reading a persisted pyramid
+     */
+    private RealValuedZoomPyramid(
+            int chromosomeNumber,
+            int baseBinSizeInBasePairs,
+            double[][] levelMinimums,
+            double[][] levelMaximums,
+            double[][] levelWeightedSums,
+            long[][] levelCoveredBasePairs)
+    {
+        this.chromosomeNumber = chromosomeNumber;
+        this.baseBinSizeInBasePairs = baseBinSizeInBasePairs;
+        this.levelMinimums = levelMinimums;
+        this.levelMaximums = levelMaximums;
+        this.levelWeightedSums = levelWeightedSums;
+        this.levelCoveredBasePairs = levelCoveredBasePairs;
+    }
+    
+    /**
+     * Like {@link Math#min(double, double)} except that NaN is treated as
+     * a missing value rather than being propagated
+     */
+    private static double nanMin(double value1, double value2)
+    {
+        if(Double.isNaN(value1))
+        {
+            return value2;
+        }
+        else if(Double.isNaN(value2))
+        {
+            return value1;
+        }
+        else
+        {
+            return Math.min(value1, value2);
+        }
+    }
+    
+    /**
+     * Like {@link Math#max(double, double)} except that NaN is treated as
+     * a missing value rather than being propagated
+     */
+    private static double nanMax(double value1, double value2)
+    {
+        if(Double.isNaN(value1))
+        {
+            return value2;
+        }
+        else if(Double.isNaN(value2))
+        {
+            return value1;
+        }
+        else
+        {
+            return Math.max(value1, value2);
+        }
+    }
+    
+    /**
+     * Getter for the chromosome that this pyramid summarizes
+     * @return the chromosome number
+     */
+    public int getChromosomeNumber()
+    {
+        return this.chromosomeNumber;
+    }
+    
+    /**
+     * Getter for the bin size used by level 0
+     * @return the base bin size in base pairs
+     */
+    public int getBaseBinSizeInBasePairs()
+    {
+        return this.baseBinSizeInBasePairs;
+    }
+    
+    /**
+     * Getter for the number of zoom levels
+     * @return the level count
+     */
+    public int getLevelCount()
+    {
+        return this.levelMinimums.length;
+    }
+    
+    /**
+     * Getter for the number of bins at the given level
+     * @param level
+     *          the level
+     * @return
+     *          the bin count
+     */
+    int getBinCount(int level)
+    {
+        return this.levelMinimums[level].length;
+    }
+    
+    /**
+     * Getter for the size of the bins at the given level
+     * @param level
+     *          the level
+     * @return
+     *          the bin size in base pairs
+     */
+    public long getBinSizeInBasePairs(int level)
+    {
+        return (long)this.baseBinSizeInBasePairs << level;
+    }
+    
+    /**
+     * Get the coarsest level whose bins are no bigger than the given
+     * resolution
+     * @param basePairsPerBin
+     *          the resolution that the caller will be displaying at
+     *          (eg: base pairs per pixel)
+     * @return
+     *          the level
+     */
+    public int getLevelForResolution(double basePairsPerBin)
+    {
+        int level = 0;
+        while(level + 1 < this.getLevelCount() &&
+              this.getBinSizeInBasePairs(level + 1) <= basePairsPerBin)
+        {
+            level++;
+        }
+        return level;
+    }
+    
+    /**
+     * Summarize the given region into the given number of equally sized
+     * bins using the coarsest level that still meets the requested
+     * resolution. Level bins that are wider than the output bins (which
+     * happens when there are fewer than {@link #getBaseBinSizeInBasePairs()}
+     * base pairs per output bin) are spread across every output bin they
+     * overlap, so every covered output bin gets a value but the means are
+     * only as sharp as the level 0 bins
+     * @param startInBasePairs
+     *          the start of the region
+     * @param extentInBasePairs
+     *          the extent of the region
+     * @param binCount
+     *          the number of output bins (eg: the width in pixels)
+     * @return
+     *          the summary
+     */
+    public RealValuedZoomSummary summarize(
+            long startInBasePairs,
+            long extentInBasePairs,
+            int binCount)
+    {
+        double[] minimums = new double[binCount];
+        double[] maximums = new double[binCount];
+        double[] weightedSums = new double[binCount];
+        double[] coveredBasePairs = new double[binCount];
+        Arrays.fill(minimums, Double.NaN);
+        Arrays.fill(maximums, Double.NaN);
+        
+        double basePairsPerBin = extentInBasePairs / (double)binCount;
+        int level = this.getLevelForResolution(basePairsPerBin);
+        long levelBinSize = this.getBinSizeInBasePairs(level);
+        double[] levelMins = this.levelMinimums[level];
+        double[] levelMaxes = this.levelMaximums[level];
+        double[] levelSums = this.levelWeightedSums[level];
+        long[] levelCovered = this.levelCoveredBasePairs[level];
+        
+        long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+        int firstLevelBin = (int)Math.max(0L, startInBasePairs / levelBinSize);
+        int lastLevelBin = (int)Math.min(
+                levelMins.length - 1,
+                endInBasePairs / levelBinSize);
+        double regionEnd = startInBasePairs + extentInBasePairs;
+        for(int levelBin = firstLevelBin; levelBin <= lastLevelBin; levelBin++)
+        {
+            if(levelCovered[levelBin] == 0L)
+            {
+                continue;
+            }
+            
+            // a level bin can be wider than the output bins (at level 0 when
+            // there are fewer than getBaseBinSizeInBasePairs() base pairs
+            // per output bin) or straddle an output bin edge, so it is spread
+            // over every output bin that it overlaps. min and max apply to
+            // all of them while the sum and coverage are split in proportion
+            // to the overlap, which assumes the covered base pairs are
+            // spread evenly through the level bin
+            double levelBinStart = Math.max(
+                    (double)levelBin * levelBinSize,
+                    startInBasePairs);
+            double levelBinEnd = Math.min(
+                    (double)(levelBin + 1) * levelBinSize,
+                    regionEnd);
+            int firstBin = Math.max(
+                    0,
+                    (int)((levelBinStart - startInBasePairs) / basePairsPerBin));
+            int lastBin = Math.min(
+                    binCount - 1,
+                    (int)Math.ceil((levelBinEnd - startInBasePairs) / basePairsPerBin) - 1);
+            for(int bin = firstBin; bin <= lastBin; bin++)
+            {
+                double binStart = startInBasePairs + bin * basePairsPerBin;
+                double overlapBp =
+                    Math.min(levelBinEnd, binStart + basePairsPerBin) -
+                    Math.max(levelBinStart, binStart);
+                if(overlapBp <= 0.0)
+                {
+                    continue;
+                }
+                
+                double overlapFraction = overlapBp / levelBinSize;
+                minimums[bin] = nanMin(minimums[bin], levelMins[levelBin]);
+                maximums[bin] = nanMax(maximums[bin], levelMaxes[levelBin]);
+                weightedSums[bin] += levelSums[levelBin] * overlapFraction;
+                coveredBasePairs[bin] += levelCovered[levelBin] * overlapFraction;
+            }
+        }
+        
+        double[] means = new double[binCount];
+        double[] coverages = new double[binCount];
+        for(int bin = 0; bin < binCount; bin++)
+        {
+            if(coveredBasePairs[bin] == 0.0)
+            {
+                means[bin] = Double.NaN;
+            }
+            else
+            {
+                means[bin] = weightedSums[bin] / coveredBasePairs[bin];
+                coverages[bin] = Math.min(
+                        1.0,
+                        coveredBasePairs[bin] / basePairsPerBin);
+            }
+        }
+        
+        return new RealValuedZoomSummary(
+                startInBasePairs,
+                extentInBasePairs,
+                minimums,
+                maximums,
+                means,
+                coverages);
+    }
+    
+    /**
+     * Write this pyramid to the given output so that it can be reloaded with
+     * {@link #read(DataInput)} without rebuilding it from the intervals
+     * @param output
+     *          the output to write to
+     * @throws IOException
+     *          if the write fails
+     */
+    public void write(DataOutput output) throws IOException
+    {
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(this.chromosomeNumber);
+        output.writeInt(this.baseBinSizeInBasePairs);
+        output.writeInt(this.getLevelCount());
+        for(int level = 0; level < this.getLevelCount(); level++)
+        {
+            int binCount = this.levelMinimums[level].length;
+            output.writeInt(binCount);
+            for(int bin = 0; bin < binCount; bin++)
+            {
+                output.writeDouble(this.levelMinimums[level][bin]);
+                output.writeDouble(this.levelMaximums[level][bin]);
+                output.writeDouble(this.levelWeightedSums[level][bin]);
+                output.writeLong(this.levelCoveredBasePairs[level][bin]);
+            }
+        }
+    }
+    
+    /**
+     * Read a pyramid that was written with {@link #write(DataOutput)}
+     * @param input
+     *          the input to read from
+     * @return
+     *          the pyramid
+     * @throws IOException
+     *          if the read fails or the input isn't in the expected format
+     */
+    public static RealValuedZoomPyramid read(DataInput input) throws IOException
+    {
+        int version = input.readInt();
+        if(version != FORMAT_VERSION)
+        {
+            throw new IOException(
+                    "unsupported zoom pyramid format version: " + version);
+        }
+        
+        int chromosomeNumber = input.readInt();
+        int baseBinSizeInBasePairs = input.readInt();
+        int levelCount = input.readInt();
+        double[][] levelMinimums = new double[levelCount][];
+        double[][] levelMaximums = new double[levelCount][];
+        double[][] levelWeightedSums = new double[levelCount][];
+        long[][] levelCoveredBasePairs = new long[levelCount][];
+        for(int level = 0; level < levelCount; level++)
+        {
+            int binCount = input.readInt();
+            levelMinimums[level] = new double[binCount];
+            levelMaximums[level] = new double[binCount];
+            levelWeightedSums[level] = new double[binCount];
+            levelCoveredBasePairs[level] = new long[binCount];
+            for(int bin = 0; bin < binCount; bin++)
+            {
+                levelMinimums[level][bin] = input.readDouble();
+                levelMaximums[level][bin] = input.readDouble();
+                levelWeightedSums[level][bin] = input.readDouble();
+                levelCoveredBasePairs[level][bin] = input.readLong();
+            }
+        }
+        
+        return new RealValuedZoomPyramid(
+                chromosomeNumber,
+                baseBinSizeInBasePairs,
+                levelMinimums,
+                levelMaximums,
+                levelWeightedSums,
+                levelCoveredBasePairs);
+    }
+}
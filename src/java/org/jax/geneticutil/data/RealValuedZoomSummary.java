@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+/**
+ * A summary of a real valued track over a region which has been divided
+ * into equally sized bins (typically one bin per pixel). Bins that no
+ * interval touches have a coverage of 0 and NaN for every other statistic.
+ * @see RealValuedZoomPyramid#summarize(long, long, int)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedZoomSummary
+{
+    private final long startInBasePairs;
+    
+    private final long extentInBasePairs;
+    
+    private final double[] minimums;
+    
+    private final double[] maximums;
+    
+    private final double[] means;
+    
+    private final double[] coverages;
+    
+    /**
+     * Constructor
+     * @param startInBasePairs
+     *          see {@link #getStartInBasePairs()}
+     * @param extentInBasePairs
+     *          see {@link #getExtentInBasePairs()}
+     * @param minimums
+     *          the per bin minimums
+     * @param maximums
+     *          the per bin maximums
+     * @param means
+     *          the per bin base pair weighted means
+     * @param coverages
+     *          the per bin coverage fractions
+     */
+    public RealValuedZoomSummary(
+            long startInBasePairs,
+            long extentInBasePairs,
+            double[] minimums,
+            double[] maximums,
+            double[] means,
+            double[] coverages)
+    {
+        this.startInBasePairs = startInBasePairs;
+        this.extentInBasePairs = extentInBasePairs;
+        this.minimums = minimums;
+        this.maximums = maximums;
+        this.means = means;
+        this.coverages = coverages;
+    }
+    
+    /**
+     * Getter for the start of the summarized region
+     * @return the start in base pairs
+     */
+    public long getStartInBasePairs()
+    {
+        return this.startInBasePairs;
+    }
+    
+    /**
+     * Getter for the extent of the summarized region
+     * @return the extent in base pairs
+     */
+    public long getExtentInBasePairs()
+    {
+        return this.extentInBasePairs;
+    }
+    
+    /**
+     * Getter for the number of bins
+     * @return the bin count
+     */
+    public int getBinCount()
+    {
+        return this.minimums.length;
+    }
+    
+    /**
+     * Getter for the minimum value in a bin
+     * @param binIndex
+     *          the bin index
+     * @return
+     *          the minimum
+     */
+    public double getMinimum(int binIndex)
+    {
+        return this.minimums[binIndex];
+    }
+    
+    /**
+     * Getter for the maximum value in a bin
+     * @param binIndex
+     *          the bin index
+     * @return
+     *          the maximum
+     */
+    public double getMaximum(int binIndex)
+    {
+        return this.maximums[binIndex];
+    }
+    
+    /**
+     * Getter for the mean value in a bin, weighted by the number of base
+     * pairs that each value covers
+     * @param binIndex
+     *          the bin index
+     * @return
+     *          the mean
+     */
+    public double getMean(int binIndex)
+    {
+        return this.means[binIndex];
+    }
+    
+    /**
+     * Getter for the fraction of base pairs in a bin that are covered by
+     * an interval
+     * @param binIndex
+     *          the bin index
+     * @return
+     *          the coverage in the range [0, 1]
+     */
+    public double getCoverage(int binIndex)
+    {
+        return this.coverages[binIndex];
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.Comparator;
+
+/**
+ * A flat implementation of {@link RealValuedBasePairInterval}. Unlike
+ * {@link CompositeRealValuedBasePairInterval} this class holds the interval
+ * coordinates directly rather than delegating to another interval. Like
+ * every {@link SimpleBasePairInterval} it is hashed and tested for equality
+ * by position only, but its natural ordering breaks position ties with
+ * the value, so the ordering is not consistent with equals
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public final class SimpleRealValuedBasePairInterval
+extends SimpleBasePairInterval
+implements RealValuedBasePairInterval
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = 2312769680816365164L;
+    
+    /**
+     * @see #getRealValue()
+     */
+    private final double realValue;
+    
+    /**
+     * Orders real valued intervals by position using
+     * {@link SimpleBasePairInterval#SNP_INTERVAL_COMPARATOR} and then by
+     * {@link RealValuedBasePairInterval#getRealValue()}. This is the
+     * natural ordering of both {@link SimpleRealValuedBasePairInterval}
+     * and {@link CompositeRealValuedBasePairInterval} when both operands
+     * are real valued
+     */
+    public static final Comparator<RealValuedBasePairInterval> POSITION_THEN_VALUE_COMPARATOR =
+        new Comparator<RealValuedBasePairInterval>()
+        {
+            public int compare(
+                    RealValuedBasePairInterval interval1,
+                    RealValuedBasePairInterval interval2)
+            {
+                int intervalComparison = SNP_INTERVAL_COMPARATOR.compare(
+                        interval1,
+                        interval2);
+                if(intervalComparison != 0)
+                {
+                    return intervalComparison;
+                }
+                else
+                {
+                    return Double.compare(
+                            interval1.getRealValue(),
+                            interval2.getRealValue());
+                }
+            }
+        };
+    
+    /**
+     * Constructor
+     * @param chromosomeNumber
+     *          the chromosome number for this interval
+     * @param startInBasePairs
+     *          the starting position for this interval
+     * @param extentInBasePairs
+     *          the extent of this interval
+     * @param realValue
+     *          the value
+     */
+    public SimpleRealValuedBasePairInterval(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs,
+            double realValue)
+    {
+        super(chromosomeNumber, startInBasePairs, extentInBasePairs);
+        this.realValue = realValue;
+    }
+    
+    /**
+     * Copy constructor that flattens any other real valued interval
+     * (eg: a {@link CompositeRealValuedBasePairInterval})
+     * @param otherInterval
+     *          the interval to copy
+     */
+    public SimpleRealValuedBasePairInterval(
+            RealValuedBasePairInterval otherInterval)
+    {
+        this(otherInterval.getChromosomeNumber(),
+             otherInterval.getStartInBasePairs(),
+             otherInterval.getExtentInBasePairs(),
+             otherInterval.getRealValue());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public double getRealValue()
+    {
+        return this.realValue;
+    }
+    
+    /**
+     * Comparison function
+     * @param otherInterval
+     *          the interval we are comparing ourselves to
+     * @return
+     *          a total ordering based on
+     *          {@link SimpleBasePairInterval#SNP_INTERVAL_COMPARATOR}
+     *          followed by {@link #getRealValue()} if the other interval is
+     *          also real valued
+     */
+    @Override
+    public int compareTo(BasePairInterval otherInterval)
+    {
+        if(otherInterval instanceof RealValuedBasePairInterval)
+        {
+            return POSITION_THEN_VALUE_COMPARATOR.compare(
+                    this,
+                    (RealValuedBasePairInterval)otherInterval);
+        }
+        else
+        {
+            return super.compareTo(otherInterval);
+        }
+    }
+    
+    /**
+     * Equality is by position only, as it is for every
+     * {@link SimpleBasePairInterval}, so that it stays symmetric and
+     * transitive when real valued and plain intervals are mixed
+     * @param otherIntervalObject
+     *          the object to compare with
+     * @return
+     *          true if the other object is a {@link SimpleBasePairInterval}
+     *          at the same position
+     */
+    @Override
+    public boolean equals(Object otherIntervalObject)
+    {
+        return otherIntervalObject instanceof SimpleBasePairInterval &&
+               SNP_INTERVAL_COMPARATOR.compare(
+                       this,
+                       (SimpleBasePairInterval)otherIntervalObject) == 0;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return super.hashCode();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return super.toString() + ", value=" + this.realValue;
+    }
+}
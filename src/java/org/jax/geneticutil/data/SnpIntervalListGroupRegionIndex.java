@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jax.geneticutil.metrics.Counter;
+import org.jax.geneticutil.metrics.MetricRegistry;
+import org.jax.geneticutil.metrics.Timer;
+
+/**
+ * Answers region queries against a {@link SnpIntervalListGroup} without
+ * copying or scanning whole interval lists. For each key a start sorted
+ * index along with a running maximum of the interval ends is built the
+ * first time the key is queried. A query then binary searches to the
+ * window of candidate intervals and returns a list view over that window,
+ * so the cost of a query grows with the number of visible intervals
+ * rather than with the list length.
+ * <p>
+ * Like the group's own bounds, queries only look at base pair positions
+ * so the group's lists are expected to be on a single chromosome. The
+ * lists must not be modified after they have been indexed.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SnpIntervalListGroupRegionIndex
+{
+    private static final Counter QUERIES = MetricRegistry.getDefault().counter(
+            "regionIndex.queries");
+    
+    private static final Timer BUILD_TIMER = MetricRegistry.getDefault().timer(
+            "regionIndex.buildTime");
+    
+    private final SnpIntervalListGroup snpIntervalListGroup;
+    
+    private final ConcurrentMap<String, IntervalListIndex> intervalListIndices =
+        new ConcurrentHashMap<String, IntervalListIndex>();
+    
+    /**
+     * Constructor
+     * @param snpIntervalListGroup
+     *          the group to index
+     */
+    public SnpIntervalListGroupRegionIndex(SnpIntervalListGroup snpIntervalListGroup)
+    {
+        this.snpIntervalListGroup = snpIntervalListGroup;
+    }
+    
+    /**
+     * Getter for the group that this index is over
+     * @return the group
+     */
+    public SnpIntervalListGroup getSnpIntervalListGroup()
+    {
+        return this.snpIntervalListGroup;
+    }
+    
+    /**
+     * Get the intervals for every key which intersect the given region
+     * @param startInBasePairs
+     *          the start of the region
+     * @param extentInBasePairs
+     *          the extent of the region
+     * @return
+     *          a map from key to a view of the intersecting intervals
+     *          in start order. the views are filtered lazily
+     */
+    public Map<String, List<BasePairInterval>> getSnpBlocksMapInRegion(
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            this.snpIntervalListGroup.getSnpBlocksMap();
+        Map<String, List<BasePairInterval>> regionSnpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>(snpBlocksMap.size() * 2);
+        for(String key: snpBlocksMap.keySet())
+        {
+            regionSnpBlocksMap.put(
+                    key,
+                    this.getSnpBlocksInRegion(key, startInBasePairs, extentInBasePairs));
+        }
+        return regionSnpBlocksMap;
+    }
+    
+    /**
+     * Get the intervals for one key which intersect the given region
+     * @param key
+     *          the key
+     * @param startInBasePairs
+     *          the start of the region
+     * @param extentInBasePairs
+     *          the extent of the region
+     * @return
+     *          a view of the intersecting intervals in start order or null
+     *          if the group doesn't have the key
+     */
+    public List<BasePairInterval> getSnpBlocksInRegion(
+            String key,
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        IntervalListIndex index = this.intervalListIndices.get(key);
+        if(index == null)
+        {
+            List<BasePairInterval> intervals =
+                this.snpIntervalListGroup.getSnpBlocksMap().get(key);
+            if(intervals == null)
+            {
+                return null;
+            }
+            
+            long buildStartNanos = BUILD_TIMER.start();
+            index = new IntervalListIndex(intervals);
+            BUILD_TIMER.stop(buildStartNanos);
+            IntervalListIndex existingIndex =
+                this.intervalListIndices.putIfAbsent(key, index);
+            if(existingIndex != null)
+            {
+                index = existingIndex;
+            }
+        }
+        
+        QUERIES.increment();
+        return index.getIntervalsInRegion(startInBasePairs, extentInBasePairs);
+    }
+    
+    /**
+     * The start sorted index for a single interval list
+     */
+    private static final class IntervalListIndex
+    {
+        private final List<BasePairInterval> intervals;
+        
+        /**
+         * the list indices in start order or null if the list is already
+         * in start order
+         */
+        private final int[] sortedOrder;
+        
+        private final long[] sortedStartsInBasePairs;
+        
+        /**
+         * the maximum end over each prefix of the sorted intervals
+         */
+        private final long[] prefixMaxEndsInBasePairs;
+        
+        /**
+         * true if the ends are in order too (which is the case when the
+         * intervals don't overlap). windows never need filtering then
+         */
+        private final boolean endsSorted;
+        
+        IntervalListIndex(List<BasePairInterval> intervals)
+        {
+            if(!(intervals instanceof RandomAccess))
+            {
+                intervals = new ArrayList<BasePairInterval>(intervals);
+            }
+            this.intervals = intervals;
+            
+            final int size = intervals.size();
+            boolean startsSorted = true;
+            for(int i = 1; i < size && startsSorted; i++)
+            {
+                startsSorted =
+                    intervals.get(i - 1).getStartInBasePairs() <=
+                    intervals.get(i).getStartInBasePairs();
+            }
+            
+            if(startsSorted)
+            {
+                this.sortedOrder = null;
+            }
+            else
+            {
+                final long[] startsInBasePairs = new long[size];
+                Integer[] boxedOrder = new Integer[size];
+                for(int i = 0; i < size; i++)
+                {
+                    startsInBasePairs[i] = intervals.get(i).getStartInBasePairs();
+                    boxedOrder[i] = i;
+                }
+                Arrays.sort(boxedOrder, new Comparator<Integer>()
+                {
+                    public int compare(Integer index1, Integer index2)
+                    {
+                        long start1 = startsInBasePairs[index1];
+                        long start2 = startsInBasePairs[index2];
+                        return start1 < start2 ? -1 : (start1 == start2 ? 0 : 1);
+                    }
+                });
+                
+                this.sortedOrder = new int[size];
+                for(int i = 0; i < size; i++)
+                {
+                    this.sortedOrder[i] = boxedOrder[i];
+                }
+            }
+            
+            this.sortedStartsInBasePairs = new long[size];
+            this.prefixMaxEndsInBasePairs = new long[size];
+            long maxEndInBasePairs = Long.MIN_VALUE;
+            boolean endsSorted = true;
+            for(int i = 0; i < size; i++)
+            {
+                BasePairInterval interval = this.getSorted(i);
+                long endInBasePairs = interval.getEndInBasePairs();
+                endsSorted &= endInBasePairs >= maxEndInBasePairs;
+                maxEndInBasePairs = Math.max(maxEndInBasePairs, endInBasePairs);
+                
+                this.sortedStartsInBasePairs[i] = interval.getStartInBasePairs();
+                this.prefixMaxEndsInBasePairs[i] = maxEndInBasePairs;
+            }
+            this.endsSorted = endsSorted;
+        }
+        
+        BasePairInterval getSorted(int sortedIndex)
+        {
+            if(this.sortedOrder == null)
+            {
+                return this.intervals.get(sortedIndex);
+            }
+            else
+            {
+                return this.intervals.get(this.sortedOrder[sortedIndex]);
+            }
+        }
+        
+        List<BasePairInterval> getIntervalsInRegion(
+                long startInBasePairs,
+                long extentInBasePairs)
+        {
+            long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+            
+            // no interval before the first prefix max end that reaches the
+            // region start can intersect the region
+            int fromIndex = lowerBound(
+                    this.prefixMaxEndsInBasePairs,
+                    startInBasePairs);
+            
+            // and no interval starting after the region end can either
+            int toIndex = lowerBound(
+                    this.sortedStartsInBasePairs,
+                    endInBasePairs + 1);
+            
+            if(fromIndex >= toIndex)
+            {
+                return Collections.emptyList();
+            }
+            else
+            {
+                return new RegionView(this, fromIndex, toIndex, startInBasePairs);
+            }
+        }
+        
+        /**
+         * Find the first index holding a value that is not less than the
+         * given value
+         * @param sortedValues
+         *          the sorted values
+         * @param value
+         *          the value to search for
+         * @return
+         *          the index
+         */
+        private static int lowerBound(long[] sortedValues, long value)
+        {
+            int low = 0;
+            int high = sortedValues.length;
+            while(low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if(sortedValues[mid] < value)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+    
+    /**
+     * A view over a window of the sorted intervals. Within the window
+     * every interval starts on or before the region end, but when intervals
+     * overlap some of them may end before the region start. Those are
+     * filtered out the first time the view is used
+     */
+    private static final class RegionView
+    extends AbstractList<BasePairInterval>
+    implements RandomAccess
+    {
+        private final IntervalListIndex index;
+        
+        private final int fromIndex;
+        
+        private final int toIndex;
+        
+        private final long startInBasePairs;
+        
+        /**
+         * the sorted indices of the intersecting intervals. this is only
+         * used if the index ends aren't sorted
+         */
+        private int[] matchingIndices = null;
+        
+        RegionView(
+                IntervalListIndex index,
+                int fromIndex,
+                int toIndex,
+                long startInBasePairs)
+        {
+            this.index = index;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.startInBasePairs = startInBasePairs;
+        }
+        
+        private int[] getMatchingIndices()
+        {
+            if(this.matchingIndices == null)
+            {
+                int[] matches = new int[this.toIndex - this.fromIndex];
+                int matchCount = 0;
+                for(int i = this.fromIndex; i < this.toIndex; i++)
+                {
+                    if(this.index.getSorted(i).getEndInBasePairs() >= this.startInBasePairs)
+                    {
+                        matches[matchCount] = i;
+                        matchCount++;
+                    }
+                }
+                this.matchingIndices = Arrays.copyOf(matches, matchCount);
+            }
+            return this.matchingIndices;
+        }
+        
+        @Override
+        public BasePairInterval get(int viewIndex)
+        {
+            if(this.index.endsSorted)
+            {
+                if(viewIndex < 0 || viewIndex >= this.size())
+                {
+                    throw new IndexOutOfBoundsException(
+                            "index: " + viewIndex + ", size: " + this.size());
+                }
+                return this.index.getSorted(this.fromIndex + viewIndex);
+            }
+            else
+            {
+                return this.index.getSorted(this.getMatchingIndices()[viewIndex]);
+            }
+        }
+        
+        @Override
+        public int size()
+        {
+            if(this.index.endsSorted)
+            {
+                return this.toIndex - this.fromIndex;
+            }
+            else
+            {
+                return this.getMatchingIndices().length;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import java.io.Serializable;
+
+/**
+ * An unordered pair of strain names. The pair (A, B) is equal to the pair
+ * (B, A) so the names are stored in lexicographic order
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public final class StrainPair implements Comparable<StrainPair>, Serializable
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = 4463910371520857214L;
+    
+    /**
+     * @see #getFirstStrainName()
+     */
+    private final String firstStrainName;
+    
+    /**
+     * @see #getSecondStrainName()
+     */
+    private final String secondStrainName;
+    
+    /**
+     * Constructor
+     * @param strainName1
+     *          one of the strains
+     * @param strainName2
+     *          the other strain
+     */
+    public StrainPair(String strainName1, String strainName2)
+    {
+        if(strainName1.compareTo(strainName2) <= 0)
+        {
+            this.firstStrainName = strainName1;
+            this.secondStrainName = strainName2;
+        }
+        else
+        {
+            this.firstStrainName = strainName2;
+            this.secondStrainName = strainName1;
+        }
+    }
+    
+    /**
+     * Getter for the lexicographically first strain name
+     * @return the first strain name
+     */
+    public String getFirstStrainName()
+    {
+        return this.firstStrainName;
+    }
+    
+    /**
+     * Getter for the lexicographically second strain name
+     * @return the second strain name
+     */
+    public String getSecondStrainName()
+    {
+        return this.secondStrainName;
+    }
+    
+    /**
+     * Determine if the given strain is part of this pair
+     * @param strainName
+     *          the strain name
+     * @return
+     *          true iff the strain is one of the two strains in the pair
+     */
+    public boolean contains(String strainName)
+    {
+        return this.firstStrainName.equals(strainName) ||
+               this.secondStrainName.equals(strainName);
+    }
+    
+    /**
+     * Compares on the first strain name followed by the second
+     * @param otherPair
+     *          the pair we're comparing ourselves to
+     * @return
+     *          see {@link Comparable#compareTo(Object)}
+     */
+    public int compareTo(StrainPair otherPair)
+    {
+        int firstComparison = this.firstStrainName.compareTo(
+                otherPair.firstStrainName);
+        if(firstComparison == 0)
+        {
+            return this.secondStrainName.compareTo(otherPair.secondStrainName);
+        }
+        else
+        {
+            return firstComparison;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object otherPairObject)
+    {
+        if(otherPairObject instanceof StrainPair)
+        {
+            StrainPair otherPair = (StrainPair)otherPairObject;
+            return this.firstStrainName.equals(otherPair.firstStrainName) &&
+                   this.secondStrainName.equals(otherPair.secondStrainName);
+        }
+        else
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return this.firstStrainName.hashCode() * 31 +
+               this.secondStrainName.hashCode();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return this.firstStrainName + "/" + this.secondStrainName;
+    }
+}
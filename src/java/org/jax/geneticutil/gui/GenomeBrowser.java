@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.MouseChromosomes;
+
+/**
+ * The genome browsers that {@link GenomeBrowserLinkAction} can link to
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum GenomeBrowser
+{
+    /**
+     * the UCSC genome browser
+     */
+    UCSC_BROWSER(
+            "UCSC Browser",
+            "http://genome.ucsc.edu/cgi-bin/hgTracks?org=Mouse&position=chr",
+            "%3A",
+            "-"),
+    
+    /**
+     * the CGD GBrowse genome browser
+     */
+    CGD_GBROWSE(
+            "CGD Browser",
+            "http://cgd.jax.org/cgi-bin/gbrowse/mouse/?name=",
+            "%3A",
+            ".."),
+    
+    /**
+     * the CGD SNP database
+     */
+    CGD_SNP_DATABASE(
+            "CGD SNP Database",
+            "http://cgd.jax.org/cgdsnpdb/search/index.php?" +
+            "searchtoolOption=position&source=16&snp_loc[]=12&mainstrainlist=all&" +
+            "report=SummaryReport&genotype=1&rcount=100&outype=1&query_single=",
+            "%3A",
+            "-");
+    
+    private final String displayName;
+    
+    private final String urlPrefix;
+    
+    private final String urlChromosomeSeparator;
+    
+    private final String urlPositionSeparator;
+    
+    /**
+     * Constructor
+     * @param displayName
+     *          see {@link #getDisplayName()}
+     * @param urlPrefix
+     *          the URL text that comes before the chromosome
+     * @param urlChromosomeSeparator
+     *          the URL text between the chromosome and the start position
+     * @param urlPositionSeparator
+     *          the URL text between the start and end positions
+     */
+    private GenomeBrowser(
+            String displayName,
+            String urlPrefix,
+            String urlChromosomeSeparator,
+            String urlPositionSeparator)
+    {
+        this.displayName = displayName;
+        this.urlPrefix = urlPrefix;
+        this.urlChromosomeSeparator = urlChromosomeSeparator;
+        this.urlPositionSeparator = urlPositionSeparator;
+    }
+    
+    /**
+     * Getter for the name to show users
+     * @return the display name
+     */
+    public String getDisplayName()
+    {
+        return this.displayName;
+    }
+    
+    /**
+     * Create the URL that shows the given interval in this browser
+     * @param interval
+     *          the interval
+     * @return
+     *          the URL
+     */
+    public String createUrl(BasePairInterval interval)
+    {
+        return this.urlPrefix +
+               MouseChromosomes.toChromosomeName(interval.getChromosomeNumber()) +
+               this.urlChromosomeSeparator +
+               interval.getStartInBasePairs() +
+               this.urlPositionSeparator +
+               interval.getEndInBasePairs();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return this.displayName;
+    }
+}
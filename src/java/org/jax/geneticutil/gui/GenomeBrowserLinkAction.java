@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.AbstractAction;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.util.gui.MessageDialogUtilities;
+
+import edu.stanford.ejalbert.BrowserLauncher;
+
+/**
+ * An action that shows an interval in a {@link GenomeBrowser}. The web
+ * browser is launched on a background thread so that the Swing event
+ * dispatch thread never blocks, and any failure is reported back on the
+ * event dispatch thread. All of these actions share a single lazily
+ * created {@link BrowserLauncher}.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomeBrowserLinkAction extends AbstractAction
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = -3166282829613850853L;
+    
+    private static final Logger LOG = Logger.getLogger(
+            GenomeBrowserLinkAction.class.getName());
+    
+    private static final String ICON_RESOURCE = "/images/internet-16x16.png";
+    
+    private final GenomeBrowser genomeBrowser;
+    
+    private final BasePairInterval interval;
+    
+    private final Component parentComponent;
+    
+    /**
+     * Constructor
+     * @param genomeBrowser
+     *          the browser to link to
+     * @param interval
+     *          the interval
+     * @param parentComponent
+     *          the parent component to use if we have to popup a dialog
+     */
+    public GenomeBrowserLinkAction(
+            GenomeBrowser genomeBrowser,
+            BasePairInterval interval,
+            Component parentComponent)
+    {
+        super("Visit the " + genomeBrowser.getDisplayName() + " for: Chr" +
+              interval.getChromosomeNumber() + " " +
+              interval.getStartInBasePairs() + "-" +
+              interval.getEndInBasePairs(),
+              new ImageIcon(GenomeBrowserLinkAction.class.getResource(
+                      ICON_RESOURCE)));
+        
+        this.genomeBrowser = genomeBrowser;
+        this.interval = interval;
+        this.parentComponent = parentComponent;
+    }
+    
+    /**
+     * Getter for the browser that this action links to
+     * @return the genome browser
+     */
+    public GenomeBrowser getGenomeBrowser()
+    {
+        return this.genomeBrowser;
+    }
+    
+    /**
+     * Getter for the interval that this action shows
+     * @return the interval
+     */
+    public BasePairInterval getInterval()
+    {
+        return this.interval;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void actionPerformed(ActionEvent e)
+    {
+        final String url = this.genomeBrowser.createUrl(this.interval);
+        LauncherHolder.EXECUTOR.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    LauncherHolder.getBrowserLauncher().openURLinBrowser(url);
+                }
+                catch(final Exception ex)
+                {
+                    LOG.log(Level.SEVERE,
+                            "Failed to launch browser",
+                            ex);
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        public void run()
+                        {
+                            MessageDialogUtilities.error(
+                                    GenomeBrowserLinkAction.this.parentComponent,
+                                    ex.getMessage(),
+                                    "Failed to Launch Browser");
+                        }
+                    });
+                }
+            }
+        });
+    }
+    
+    /**
+     * Holds the launch thread and the shared launcher. The holder class
+     * isn't initialized until the first launch, and since there is only
+     * one launch thread the launcher is confined to it and needs no locking
+     */
+    private static final class LauncherHolder
+    {
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "genome-browser-launcher");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        
+        /**
+         * only touched from the launch thread
+         */
+        private static BrowserLauncher browserLauncher = null;
+        
+        static BrowserLauncher getBrowserLauncher() throws Exception
+        {
+            if(browserLauncher == null)
+            {
+                browserLauncher = new BrowserLauncher();
+            }
+            return browserLauncher;
+        }
+    }
+}
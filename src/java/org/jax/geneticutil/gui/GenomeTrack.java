@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.awt.Graphics2D;
+
+/**
+ * A single track of data that can be drawn by a {@link GenomeTrackPanel}.
+ * Tracks are rendered one tile at a time on background threads so
+ * implementations must allow concurrent calls to
+ * {@link #renderTile(Graphics2D, long, double, int, int)}. The simplest way
+ * to do that is to never modify a track after it is constructed.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface GenomeTrack
+{
+    /**
+     * Getter for the name shown above the track
+     * @return the name
+     */
+    public String getName();
+    
+    /**
+     * Getter for the height of the track in pixels
+     * @return the height
+     */
+    public int getPreferredHeight();
+    
+    /**
+     * Render a tile of this track. The tile's pixel x covers base pairs
+     * [startInBasePairs + x * basePairsPerPixel,
+     * startInBasePairs + (x + 1) * basePairsPerPixel)
+     * @param graphics
+     *          the graphics to draw with. the origin is the tile's top left
+     *          corner
+     * @param startInBasePairs
+     *          the position at the tile's left edge
+     * @param basePairsPerPixel
+     *          the zoom
+     * @param width
+     *          the tile width in pixels
+     * @param height
+     *          the tile height in pixels
+     */
+    public void renderTile(
+            Graphics2D graphics,
+            long startInBasePairs,
+            double basePairsPerPixel,
+            int width,
+            int height);
+}
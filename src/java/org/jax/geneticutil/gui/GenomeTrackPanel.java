@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * A panel that draws a stack of {@link GenomeTrack}s for one chromosome.
+ * Tracks are drawn in fixed width tiles at power of two zoom levels. Tiles
+ * are rendered into images on a background thread pool and cached, so the
+ * event dispatch thread only ever copies images. Panning reuses every tile
+ * that is still visible and only the newly exposed tiles get rendered. While
+ * a tile is rendering we draw a scaled copy of the matching tile from the
+ * next zoom level if we have it, which keeps zooming smooth.
+ * <p>
+ * Dragging pans the view and the mouse wheel zooms around the cursor. All
+ * methods must be called from the event dispatch thread.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomeTrackPanel extends JComponent
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = 4455390870217938136L;
+    
+    private static final Logger LOG = Logger.getLogger(
+            GenomeTrackPanel.class.getName());
+    
+    /**
+     * the width of a tile in pixels
+     */
+    public static final int TILE_WIDTH = 256;
+    
+    /**
+     * the most zoomed out level. at this level a pixel covers 2^30 base
+     * pairs which is more than any chromosome
+     */
+    public static final int MAX_ZOOM_LEVEL = 30;
+    
+    /**
+     * the most bytes of tile images that a panel keeps. tiles are ARGB so
+     * this is 4 bytes per pixel, which makes 64MB a few hundred tiles
+     * for typical track heights
+     */
+    private static final long MAX_CACHED_TILE_BYTES = 64L * 1024L * 1024L;
+    
+    private static final int LABEL_HEIGHT = 14;
+    
+    private static final int DEFAULT_WIDTH = 800;
+    
+    private static final Font LABEL_FONT = new Font("SansSerif", Font.PLAIN, 11);
+    
+    /**
+     * identifies a rendered tile
+     */
+    private static final class TileKey
+    {
+        private final int trackIndex;
+        
+        private final int zoomLevel;
+        
+        private final long tileIndex;
+        
+        public TileKey(int trackIndex, int zoomLevel, long tileIndex)
+        {
+            this.trackIndex = trackIndex;
+            this.zoomLevel = zoomLevel;
+            this.tileIndex = tileIndex;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(obj instanceof TileKey)
+            {
+                TileKey otherKey = (TileKey)obj;
+                return this.trackIndex == otherKey.trackIndex &&
+                       this.zoomLevel == otherKey.zoomLevel &&
+                       this.tileIndex == otherKey.tileIndex;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            int hash = this.trackIndex;
+            hash = 31 * hash + this.zoomLevel;
+            hash = 31 * hash + (int)(this.tileIndex ^ (this.tileIndex >>> 32));
+            return hash;
+        }
+    }
+    
+    /**
+     * an immutable snapshot of what is on screen that the render threads
+     * use to skip tiles that scrolled out of view before they got to them
+     */
+    private static final class ViewState
+    {
+        private final long generation;
+        
+        private final int zoomLevel;
+        
+        private final long firstTileIndex;
+        
+        private final long lastTileIndex;
+        
+        public ViewState(
+                long generation,
+                int zoomLevel,
+                long firstTileIndex,
+                long lastTileIndex)
+        {
+            this.generation = generation;
+            this.zoomLevel = zoomLevel;
+            this.firstTileIndex = firstTileIndex;
+            this.lastTileIndex = lastTileIndex;
+        }
+        
+        public boolean isWanted(long generation, TileKey key)
+        {
+            return this.generation == generation &&
+                   this.zoomLevel == key.zoomLevel &&
+                   key.tileIndex >= this.firstTileIndex - 1 &&
+                   key.tileIndex <= this.lastTileIndex + 1;
+        }
+    }
+    
+    /**
+     * Holds the render thread pool that all panels share, so opening
+     * several panels doesn't multiply the render threads. The holder class
+     * isn't initialized until the first panel that needs it
+     */
+    private static final class SharedRenderExecutorHolder
+    {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "genome-track-renderer");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                });
+    }
+    
+    private final List<GenomeTrack> tracks = new ArrayList<GenomeTrack>();
+    
+    /**
+     * the rendered tiles in least recently drawn order
+     */
+    private final Map<TileKey, BufferedImage> tileCache =
+        new LinkedHashMap<TileKey, BufferedImage>(16, 0.75F, true);
+    
+    /**
+     * the total size of the images in {@link #tileCache}
+     */
+    private long cachedTileBytes = 0L;
+    
+    private final Set<TileKey> pendingTiles = new HashSet<TileKey>();
+    
+    private final ExecutorService renderExecutor;
+    
+    /**
+     * bumped every time the tracks change so that tiles rendered for the
+     * old tracks get thrown away
+     */
+    private long generation = 0L;
+    
+    private volatile ViewState viewState = new ViewState(0L, 0, 0L, 0L);
+    
+    private int zoomLevel = MAX_ZOOM_LEVEL;
+    
+    /**
+     * the view start as a pixel offset from position 1 at the current
+     * zoom level
+     */
+    private long viewStartInPixels = 0L;
+    
+    /**
+     * Constructor for a panel that renders on the render threads shared by
+     * all panels
+     */
+    public GenomeTrackPanel()
+    {
+        this(SharedRenderExecutorHolder.EXECUTOR);
+    }
+    
+    /**
+     * Constructor
+     * @param renderExecutor
+     *          the executor to render tiles on. the panel doesn't shut it
+     *          down
+     */
+    public GenomeTrackPanel(ExecutorService renderExecutor)
+    {
+        this.renderExecutor = renderExecutor;
+        
+        this.setOpaque(true);
+        this.setBackground(Color.WHITE);
+        
+        MouseAdapter navigationListener = new MouseAdapter()
+        {
+            private int lastDragX;
+            
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                this.lastDragX = e.getX();
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e)
+            {
+                GenomeTrackPanel.this.setView(
+                        GenomeTrackPanel.this.viewStartInPixels + this.lastDragX - e.getX(),
+                        GenomeTrackPanel.this.zoomLevel);
+                this.lastDragX = e.getX();
+            }
+            
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e)
+            {
+                GenomeTrackPanel.this.zoomAround(
+                        e.getX(),
+                        GenomeTrackPanel.this.zoomLevel + e.getWheelRotation());
+            }
+        };
+        this.addMouseListener(navigationListener);
+        this.addMouseMotionListener(navigationListener);
+        this.addMouseWheelListener(navigationListener);
+    }
+    
+    /**
+     * Add a track to the bottom of the panel
+     * @param track
+     *          the track to add
+     */
+    public void addTrack(GenomeTrack track)
+    {
+        this.tracks.add(track);
+        this.tracksChanged();
+    }
+    
+    /**
+     * Remove the given track
+     * @param track
+     *          the track to remove
+     * @return
+     *          true if the track was in this panel
+     */
+    public boolean removeTrack(GenomeTrack track)
+    {
+        boolean removed = this.tracks.remove(track);
+        if(removed)
+        {
+            this.tracksChanged();
+        }
+        return removed;
+    }
+    
+    /**
+     * Remove all of the tracks
+     */
+    public void clearTracks()
+    {
+        this.tracks.clear();
+        this.tracksChanged();
+    }
+    
+    /**
+     * Getter for the tracks
+     * @return an unmodifiable view of the tracks in top to bottom order
+     */
+    public List<GenomeTrack> getTracks()
+    {
+        return Collections.unmodifiableList(this.tracks);
+    }
+    
+    private void tracksChanged()
+    {
+        this.generation++;
+        this.clearTileCache();
+        this.pendingTiles.clear();
+        this.revalidate();
+        this.repaint();
+    }
+    
+    /**
+     * Getter for the zoom level. A pixel covers 2^zoomLevel base pairs
+     * @return the zoom level
+     */
+    public int getZoomLevel()
+    {
+        return this.zoomLevel;
+    }
+    
+    /**
+     * Getter for the number of base pairs covered by a pixel
+     * @return the base pairs per pixel
+     */
+    public long getBasePairsPerPixel()
+    {
+        return 1L << this.zoomLevel;
+    }
+    
+    /**
+     * Getter for the position at the left edge of the panel
+     * @return the view start in base pairs
+     */
+    public long getViewStartInBasePairs()
+    {
+        return 1L + (this.viewStartInPixels << this.zoomLevel);
+    }
+    
+    /**
+     * Show the given position at the left edge of the panel
+     * @param startInBasePairs
+     *          the view start which gets snapped to a pixel
+     * @param zoomLevel
+     *          the zoom level which gets clamped to [0, {@link #MAX_ZOOM_LEVEL}]
+     */
+    public void setViewStartInBasePairs(long startInBasePairs, int zoomLevel)
+    {
+        int clampedZoomLevel = Math.max(0, Math.min(MAX_ZOOM_LEVEL, zoomLevel));
+        this.setView((startInBasePairs - 1L) >> clampedZoomLevel, clampedZoomLevel);
+    }
+    
+    /**
+     * Zoom to the closest level that fits the given region in the panel
+     * @param startInBasePairs
+     *          the region start
+     * @param extentInBasePairs
+     *          the region extent
+     */
+    public void showRegion(long startInBasePairs, long extentInBasePairs)
+    {
+        int width = this.getWidth() > 0 ? this.getWidth() : DEFAULT_WIDTH;
+        int zoomLevel = 0;
+        while(zoomLevel < MAX_ZOOM_LEVEL &&
+              (extentInBasePairs >> zoomLevel) > width)
+        {
+            zoomLevel++;
+        }
+        this.setViewStartInBasePairs(startInBasePairs, zoomLevel);
+    }
+    
+    private void zoomAround(int x, int zoomLevel)
+    {
+        int clampedZoomLevel = Math.max(0, Math.min(MAX_ZOOM_LEVEL, zoomLevel));
+        if(clampedZoomLevel != this.zoomLevel)
+        {
+            long positionInBasePairs = (this.viewStartInPixels + x) << this.zoomLevel;
+            this.setView(
+                    (positionInBasePairs >> clampedZoomLevel) - x,
+                    clampedZoomLevel);
+        }
+    }
+    
+    private void setView(long viewStartInPixels, int zoomLevel)
+    {
+        if(viewStartInPixels != this.viewStartInPixels || zoomLevel != this.zoomLevel)
+        {
+            this.viewStartInPixels = Math.max(0L, viewStartInPixels);
+            this.zoomLevel = zoomLevel;
+            this.repaint();
+        }
+    }
+    
+    /**
+     * Drop the cached tiles and skip any tiles still waiting to render.
+     * The render threads are shared so they keep running. The panel
+     * shouldn't be used after this
+     */
+    public void dispose()
+    {
+        this.generation++;
+        this.viewState = new ViewState(this.generation, 0, 0L, -1L);
+        this.clearTileCache();
+        this.pendingTiles.clear();
+    }
+    
+    private void clearTileCache()
+    {
+        this.tileCache.clear();
+        this.cachedTileBytes = 0L;
+    }
+    
+    /**
+     * Cache a tile, dropping the least recently drawn tiles until the
+     * cache fits in {@link #MAX_CACHED_TILE_BYTES}
+     * @param key
+     *          the tile key
+     * @param tile
+     *          the tile image
+     */
+    private void cacheTile(TileKey key, BufferedImage tile)
+    {
+        BufferedImage replacedTile = this.tileCache.put(key, tile);
+        if(replacedTile != null)
+        {
+            this.cachedTileBytes -= getTileBytes(replacedTile);
+        }
+        this.cachedTileBytes += getTileBytes(tile);
+        
+        Iterator<Map.Entry<TileKey, BufferedImage>> eldestIter =
+            this.tileCache.entrySet().iterator();
+        while(this.cachedTileBytes > MAX_CACHED_TILE_BYTES && eldestIter.hasNext())
+        {
+            Map.Entry<TileKey, BufferedImage> eldest = eldestIter.next();
+            if(eldest.getValue() != tile)
+            {
+                this.cachedTileBytes -= getTileBytes(eldest.getValue());
+                eldestIter.remove();
+            }
+        }
+    }
+    
+    /**
+     * Getter for the number of bytes of tile images this panel is caching
+     * @return the cached tile bytes
+     */
+    long getCachedTileBytes()
+    {
+        return this.cachedTileBytes;
+    }
+    
+    private static long getTileBytes(BufferedImage tile)
+    {
+        // all tiles are TYPE_INT_ARGB
+        return 4L * tile.getWidth() * tile.getHeight();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dimension getPreferredSize()
+    {
+        if(this.isPreferredSizeSet())
+        {
+            return super.getPreferredSize();
+        }
+        else
+        {
+            int height = 0;
+            for(GenomeTrack track: this.tracks)
+            {
+                height += LABEL_HEIGHT + track.getPreferredHeight();
+            }
+            return new Dimension(DEFAULT_WIDTH, height);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void paintComponent(Graphics graphics)
+    {
+        Graphics2D graphics2D = (Graphics2D)graphics;
+        Rectangle clip = graphics2D.getClipBounds();
+        if(clip == null)
+        {
+            clip = new Rectangle(0, 0, this.getWidth(), this.getHeight());
+        }
+        
+        graphics2D.setColor(this.getBackground());
+        graphics2D.fillRect(clip.x, clip.y, clip.width, clip.height);
+        
+        long firstTileIndex = Math.floorDiv(
+                this.viewStartInPixels + clip.x,
+                (long)TILE_WIDTH);
+        long lastTileIndex = Math.floorDiv(
+                this.viewStartInPixels + clip.x + clip.width - 1,
+                (long)TILE_WIDTH);
+        this.viewState = new ViewState(
+                this.generation,
+                this.zoomLevel,
+                Math.floorDiv(this.viewStartInPixels, (long)TILE_WIDTH),
+                Math.floorDiv(
+                        this.viewStartInPixels + this.getWidth() - 1,
+                        (long)TILE_WIDTH));
+        
+        int trackTop = 0;
+        int trackCount = this.tracks.size();
+        for(int trackIndex = 0; trackIndex < trackCount; trackIndex++)
+        {
+            GenomeTrack track = this.tracks.get(trackIndex);
+            int trackHeight = track.getPreferredHeight();
+            
+            graphics2D.setColor(Color.DARK_GRAY);
+            graphics2D.setFont(LABEL_FONT);
+            graphics2D.drawString(track.getName(), 2, trackTop + LABEL_HEIGHT - 3);
+            trackTop += LABEL_HEIGHT;
+            
+            if(trackTop < clip.y + clip.height && trackTop + trackHeight > clip.y)
+            {
+                for(long tileIndex = firstTileIndex; tileIndex <= lastTileIndex; tileIndex++)
+                {
+                    this.paintTile(
+                            graphics2D,
+                            trackIndex,
+                            track,
+                            tileIndex,
+                            trackTop,
+                            trackHeight);
+                }
+            }
+            trackTop += trackHeight;
+        }
+    }
+    
+    private void paintTile(
+            Graphics2D graphics,
+            int trackIndex,
+            GenomeTrack track,
+            long tileIndex,
+            int trackTop,
+            int trackHeight)
+    {
+        int x = (int)(tileIndex * TILE_WIDTH - this.viewStartInPixels);
+        TileKey key = new TileKey(trackIndex, this.zoomLevel, tileIndex);
+        BufferedImage tile = this.tileCache.get(key);
+        if(tile != null)
+        {
+            graphics.drawImage(tile, x, trackTop, null);
+            return;
+        }
+        
+        this.requestTile(key, track, trackHeight);
+        
+        // until the tile is ready, stretch the left or right half of the
+        // more zoomed out tile that covers it
+        if(this.zoomLevel < MAX_ZOOM_LEVEL)
+        {
+            BufferedImage parentTile = this.tileCache.get(new TileKey(
+                    trackIndex,
+                    this.zoomLevel + 1,
+                    Math.floorDiv(tileIndex, 2L)));
+            if(parentTile != null)
+            {
+                int sourceX = (int)Math.floorMod(tileIndex, 2L) * (TILE_WIDTH / 2);
+                graphics.drawImage(
+                        parentTile,
+                        x,
+                        trackTop,
+                        x + TILE_WIDTH,
+                        trackTop + trackHeight,
+                        sourceX,
+                        0,
+                        sourceX + TILE_WIDTH / 2,
+                        parentTile.getHeight(),
+                        null);
+            }
+        }
+    }
+    
+    private void requestTile(
+            final TileKey key,
+            final GenomeTrack track,
+            final int trackHeight)
+    {
+        if(!this.pendingTiles.add(key))
+        {
+            return;
+        }
+        
+        final long requestGeneration = this.generation;
+        this.renderExecutor.execute(new Runnable()
+        {
+            public void run()
+            {
+                BufferedImage tile = null;
+                if(GenomeTrackPanel.this.viewState.isWanted(requestGeneration, key))
+                {
+                    try
+                    {
+                        tile = renderTile(track, key, trackHeight);
+                    }
+                    catch(RuntimeException ex)
+                    {
+                        LOG.log(Level.SEVERE,
+                                "Failed to render tile for track: " + track.getName(),
+                                ex);
+                    }
+                }
+                
+                final BufferedImage renderedTile = tile;
+                SwingUtilities.invokeLater(new Runnable()
+                {
+                    public void run()
+                    {
+                        GenomeTrackPanel.this.tileRendered(
+                                key,
+                                requestGeneration,
+                                renderedTile);
+                    }
+                });
+            }
+        });
+    }
+    
+    private static BufferedImage renderTile(
+            GenomeTrack track,
+            TileKey key,
+            int trackHeight)
+    {
+        BufferedImage tile = new BufferedImage(
+                TILE_WIDTH,
+                Math.max(1, trackHeight),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D tileGraphics = tile.createGraphics();
+        try
+        {
+            long basePairsPerPixel = 1L << key.zoomLevel;
+            track.renderTile(
+                    tileGraphics,
+                    1L + key.tileIndex * TILE_WIDTH * basePairsPerPixel,
+                    basePairsPerPixel,
+                    TILE_WIDTH,
+                    trackHeight);
+        }
+        finally
+        {
+            tileGraphics.dispose();
+        }
+        return tile;
+    }
+    
+    private void tileRendered(
+            TileKey key,
+            long requestGeneration,
+            BufferedImage tile)
+    {
+        if(requestGeneration != this.generation)
+        {
+            return;
+        }
+        
+        this.pendingTiles.remove(key);
+        if(tile != null)
+        {
+            this.cacheTile(key, tile);
+            if(key.zoomLevel == this.zoomLevel)
+            {
+                long x = key.tileIndex * TILE_WIDTH - this.viewStartInPixels;
+                if(x + TILE_WIDTH > 0 && x < this.getWidth())
+                {
+                    int trackTop = 0;
+                    for(int i = 0; i < key.trackIndex; i++)
+                    {
+                        trackTop += LABEL_HEIGHT + this.tracks.get(i).getPreferredHeight();
+                    }
+                    this.repaint(
+                            (int)x,
+                            trackTop + LABEL_HEIGHT,
+                            TILE_WIDTH,
+                            tile.getHeight());
+                }
+            }
+        }
+    }
+}
@@ -18,46 +18,23 @@
 package org.jax.geneticutil.gui;
 
 import java.awt.Component;
-import java.awt.event.ActionEvent;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import javax.swing.AbstractAction;
-import javax.swing.ImageIcon;
 
 import org.jax.geneticutil.data.BasePairInterval;
-import org.jax.util.gui.MessageDialogUtilities;
-
-import edu.stanford.ejalbert.BrowserLauncher;
 
 /**
+ * An action that shows an interval in the CGD SNP database
+ * @deprecated use a {@link GenomeBrowserLinkAction} with
+ *             {@link GenomeBrowser#CGD_SNP_DATABASE}
  * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
  */
-public class GoToMouseIntervalInCGDSnpDatabaseAction extends AbstractAction
+@Deprecated
+public class GoToMouseIntervalInCGDSnpDatabaseAction extends GenomeBrowserLinkAction
 {
     /**
      * every {@link java.io.Serializable} is supposed to have one of these
      */
     private static final long serialVersionUID = 296413713592942350L;
     
-    private static final Logger LOG = Logger.getLogger(
-            GoToMouseIntervalInCGDSnpDatabaseAction.class.getName());
-    
-    private static final String ICON_RESOURCE = "/images/internet-16x16.png";
-    
-    private static final String URL_PREFIX =
-        "http://cgd.jax.org/cgdsnpdb/search/index.php?" +
-        "searchtoolOption=position&source=16&snp_loc[]=12&mainstrainlist=all&" +
-        "report=SummaryReport&genotype=1&rcount=100&outype=1&query_single=";
-
-    private static final String URL_CHR_SEPERATOR = "%3A";
-
-    private static final String URL_POSITION_SEPERATOR = "-";
-
-    private final BasePairInterval interval;
-
-    private final Component parentComponent;
-
     /**
      * Constructor
      * @param interval
@@ -69,60 +46,6 @@ public class GoToMouseIntervalInCGDSnpDatabaseAction extends AbstractAction
             BasePairInterval interval,
             Component parentComponent)
     {
-        super("Visit the CGD SNP Database for: Chr" +
-              interval.getChromosomeNumber() + " " +
-              interval.getStartInBasePairs() + "-" +
-              interval.getEndInBasePairs(),
-              new ImageIcon(GoToMouseIntervalInCGDSnpDatabaseAction.class.getResource(
-                      ICON_RESOURCE)));
-        
-        this.interval = interval;
-        this.parentComponent = parentComponent;
-    }
-    
-    /**
-     * {@inheritDoc}
-     */
-    public void actionPerformed(ActionEvent e)
-    {
-        try
-        {
-            BrowserLauncher browserLauncher = new BrowserLauncher();
-            browserLauncher.openURLinBrowser(
-                    URL_PREFIX +
-                    this.chromosomeNumberToString(this.interval.getChromosomeNumber()) +
-                    URL_CHR_SEPERATOR +
-                    this.interval.getStartInBasePairs() +
-                    URL_POSITION_SEPERATOR +
-                    this.interval.getEndInBasePairs());
-        }
-        catch(Exception ex)
-        {
-            LOG.log(Level.SEVERE,
-                    "Failed to launch browser",
-                    ex);
-            MessageDialogUtilities.error(
-                    this.parentComponent,
-                    ex.getMessage(),
-                    "Failed to Launch Browser");
-        }
-    }
-    
-    /**
-     * Convert a chromosome number to a chromosome string
-     * @param chromosomeNumber
-     *          the number
-     * @return
-     *          the string
-     */
-    private String chromosomeNumberToString(int chromosomeNumber)
-    {
-        switch(chromosomeNumber)
-        {
-            case 20: return "X";
-            case 21: return "Y";
-            case 22: return "M";
-            default: return Integer.toString(chromosomeNumber);
-        }
+        super(GenomeBrowser.CGD_SNP_DATABASE, interval, parentComponent);
     }
 }
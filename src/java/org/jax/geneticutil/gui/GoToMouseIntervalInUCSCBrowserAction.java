@@ -18,44 +18,23 @@
 package org.jax.geneticutil.gui;
 
 import java.awt.Component;
-import java.awt.event.ActionEvent;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import javax.swing.AbstractAction;
-import javax.swing.ImageIcon;
 
 import org.jax.geneticutil.data.BasePairInterval;
-import org.jax.util.gui.MessageDialogUtilities;
-
-import edu.stanford.ejalbert.BrowserLauncher;
 
 /**
+ * An action that shows an interval in the UCSC genome browser
+ * @deprecated use a {@link GenomeBrowserLinkAction} with
+ *             {@link GenomeBrowser#UCSC_BROWSER}
  * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
  */
-public class GoToMouseIntervalInUCSCBrowserAction extends AbstractAction
+@Deprecated
+public class GoToMouseIntervalInUCSCBrowserAction extends GenomeBrowserLinkAction
 {
     /**
      * every {@link java.io.Serializable} is supposed to have one of these
      */
     private static final long serialVersionUID = 964137132592942350L;
     
-    private static final Logger LOG = Logger.getLogger(
-            GoToMouseIntervalInUCSCBrowserAction.class.getName());
-    
-    private static final String ICON_RESOURCE = "/images/internet-16x16.png";
-    
-    private static final String URL_PREFIX =
-        "http://genome.ucsc.edu/cgi-bin/hgTracks?org=Mouse&position=chr";
-
-    private static final String URL_CHR_SEPERATOR = "%3A";
-
-    private static final String URL_POSITION_SEPERATOR = "-";
-
-    private final BasePairInterval interval;
-
-    private final Component parentComponent;
-
     /**
      * Constructor
      * @param interval
@@ -67,60 +46,6 @@ public class GoToMouseIntervalInUCSCBrowserAction extends AbstractAction
             BasePairInterval interval,
             Component parentComponent)
     {
-        super("Visit the UCSC Browser for: Chr" +
-              interval.getChromosomeNumber() + " " +
-              interval.getStartInBasePairs() + "-" +
-              interval.getEndInBasePairs(),
-              new ImageIcon(GoToMouseIntervalInUCSCBrowserAction.class.getResource(
-                      ICON_RESOURCE)));
-        
-        this.interval = interval;
-        this.parentComponent = parentComponent;
-    }
-    
-    /**
-     * {@inheritDoc}
-     */
-    public void actionPerformed(ActionEvent e)
-    {
-        try
-        {
-            BrowserLauncher browserLauncher = new BrowserLauncher();
-            browserLauncher.openURLinBrowser(
-                    URL_PREFIX +
-                    this.chromosomeNumberToString(this.interval.getChromosomeNumber()) +
-                    URL_CHR_SEPERATOR +
-                    this.interval.getStartInBasePairs() +
-                    URL_POSITION_SEPERATOR +
-                    this.interval.getEndInBasePairs());
-        }
-        catch(Exception ex)
-        {
-            LOG.log(Level.SEVERE,
-                    "Failed to launch browser",
-                    ex);
-            MessageDialogUtilities.error(
-                    this.parentComponent,
-                    ex.getMessage(),
-                    "Failed to Launch Browser");
-        }
-    }
-    
-    /**
-     * Convert a chromosome number to a chromosome string
-     * @param chromosomeNumber
-     *          the number
-     * @return
-     *          the string
-     */
-    private String chromosomeNumberToString(int chromosomeNumber)
-    {
-        switch(chromosomeNumber)
-        {
-            case 20: return "X";
-            case 21: return "Y";
-            case 22: return "M";
-            default: return Integer.toString(chromosomeNumber);
-        }
+        super(GenomeBrowser.UCSC_BROWSER, interval, parentComponent);
     }
 }
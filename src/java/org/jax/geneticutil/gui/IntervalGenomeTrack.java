@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.RealValuedBasePairIntervalArray;
+import org.jax.geneticutil.data.RealValuedZoomPyramid;
+import org.jax.geneticutil.data.RealValuedZoomSummary;
+
+/**
+ * A track that draws plain intervals. When a tile holds more than a couple
+ * of intervals per pixel the track switches to a density view built from a
+ * {@link RealValuedZoomPyramid} of interval coverage, so render time
+ * depends on the tile width rather than on the number of intervals.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class IntervalGenomeTrack implements GenomeTrack
+{
+    /**
+     * above this many intervals per pixel we draw density instead of
+     * individual intervals
+     */
+    private static final int MAX_DETAILED_INTERVALS_PER_PIXEL = 2;
+    
+    private static final int DEFAULT_HEIGHT = 24;
+    
+    private static final int DENSITY_SHADE_COUNT = 16;
+    
+    private final String name;
+    
+    private final SortedIntervalColumns<BasePairInterval> columns;
+    
+    private final RealValuedZoomPyramid coveragePyramid;
+    
+    private final Color color;
+    
+    private final Color[] densityShades;
+    
+    /**
+     * Constructor
+     * @param name
+     *          the track name
+     * @param intervals
+     *          the intervals. these must all be on one chromosome
+     * @param color
+     *          the interval color
+     * @throws IllegalArgumentException
+     *          if the intervals are on more than one chromosome
+     */
+    public IntervalGenomeTrack(
+            String name,
+            List<? extends BasePairInterval> intervals,
+            Color color)
+            throws IllegalArgumentException
+    {
+        this.name = name;
+        this.columns = new SortedIntervalColumns<BasePairInterval>(intervals);
+        this.color = color;
+        
+        // every interval gets a value of 1 so the pyramid coverage is the
+        // interval depth
+        int size = this.columns.size();
+        int[] chromosomeNumbers = new int[size];
+        long[] extentsInBasePairs = new long[size];
+        double[] ones = new double[size];
+        for(int i = 0; i < size; i++)
+        {
+            BasePairInterval interval = this.columns.intervals.get(i);
+            chromosomeNumbers[i] = interval.getChromosomeNumber();
+            extentsInBasePairs[i] = interval.getExtentInBasePairs();
+            ones[i] = 1.0;
+        }
+        this.coveragePyramid = new RealValuedZoomPyramid(
+                new RealValuedBasePairIntervalArray(
+                        chromosomeNumbers,
+                        this.columns.startsInBasePairs,
+                        extentsInBasePairs,
+                        ones).asRealValuedList());
+        
+        this.densityShades = new Color[DENSITY_SHADE_COUNT];
+        for(int i = 0; i < DENSITY_SHADE_COUNT; i++)
+        {
+            int alpha = 64 + (191 * (i + 1)) / DENSITY_SHADE_COUNT;
+            this.densityShades[i] = new Color(
+                    color.getRed(),
+                    color.getGreen(),
+                    color.getBlue(),
+                    alpha);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public int getPreferredHeight()
+    {
+        return DEFAULT_HEIGHT;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void renderTile(
+            Graphics2D graphics,
+            long startInBasePairs,
+            double basePairsPerPixel,
+            int width,
+            int height)
+    {
+        long extentInBasePairs = (long)Math.ceil(width * basePairsPerPixel);
+        long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+        
+        // the pyramid can't resolve anything finer than its level 0 bins so
+        // below that resolution the intervals are drawn directly even when
+        // there are several per pixel. above it we only need to know if
+        // there are more overlaps than we would draw individually
+        int maxDetailedCount = width * MAX_DETAILED_INTERVALS_PER_PIXEL;
+        boolean pyramidResolves =
+            basePairsPerPixel >= this.coveragePyramid.getBaseBinSizeInBasePairs();
+        int[] overlappingIndices = this.columns.findOverlapping(
+                startInBasePairs,
+                endInBasePairs,
+                pyramidResolves ? maxDetailedCount + 1 : Integer.MAX_VALUE);
+        
+        if(pyramidResolves && overlappingIndices.length > maxDetailedCount)
+        {
+            RealValuedZoomSummary summary = this.coveragePyramid.summarize(
+                    startInBasePairs,
+                    extentInBasePairs,
+                    width);
+            for(int x = 0; x < width; x++)
+            {
+                double coverage = summary.getCoverage(x);
+                if(coverage > 0.0)
+                {
+                    int shade = (int)Math.min(
+                            DENSITY_SHADE_COUNT - 1,
+                            coverage * (DENSITY_SHADE_COUNT - 1));
+                    graphics.setColor(this.densityShades[shade]);
+                    graphics.fillRect(x, 0, 1, height);
+                }
+            }
+        }
+        else
+        {
+            graphics.setColor(this.color);
+            for(int i: overlappingIndices)
+            {
+                int x1 = SortedIntervalColumns.toX(
+                        this.columns.startsInBasePairs[i],
+                        startInBasePairs,
+                        basePairsPerPixel,
+                        width);
+                int x2 = SortedIntervalColumns.toX(
+                        this.columns.endsInBasePairs[i] + 1,
+                        startInBasePairs,
+                        basePairsPerPixel,
+                        width);
+                graphics.fillRect(x1, 2, Math.max(1, x2 - x1), height - 4);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+
+/**
+ * A track that draws strain partitions (eg: haplotype blocks) with one row
+ * per strain. Each strain is colored by the group it belongs to in each
+ * interval. {@link PartitionedInterval}s have two groups (the strains in the
+ * bit set and the rest) and {@link MultiPartitionedInterval}s can have any
+ * number. Zoomed out, each pixel column is colored by sampling the interval
+ * under the middle of the pixel so the render time doesn't depend on how
+ * many intervals are in view.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PartitionedGenomeTrack implements GenomeTrack
+{
+    private static final int MAX_DETAILED_INTERVALS_PER_PIXEL = 1;
+    
+    private static final int DEFAULT_ROW_HEIGHT = 4;
+    
+    /**
+     * the strain group colors. groups past the end of the palette wrap
+     */
+    private static final Color[] GROUP_COLORS = new Color[] {
+        new Color(0x1F77B4),
+        new Color(0xFF7F0E),
+        new Color(0x2CA02C),
+        new Color(0xD62728),
+        new Color(0x9467BD),
+        new Color(0x8C564B),
+        new Color(0xE377C2),
+        new Color(0x7F7F7F),
+        new Color(0xBCBD22),
+        new Color(0x17BECF)};
+    
+    private final String name;
+    
+    private final int strainCount;
+    
+    private final SortedIntervalColumns<BasePairInterval> columns;
+    
+    /**
+     * the group of every strain in every interval, in sorted interval order
+     * and then strain order
+     */
+    private final short[] strainGroups;
+    
+    /**
+     * Constructor
+     * @param name
+     *          the track name
+     * @param intervals
+     *          the intervals which must all be {@link PartitionedInterval}s or
+     *          {@link MultiPartitionedInterval}s
+     * @param strainCount
+     *          the number of strains (rows)
+     * @throws IllegalArgumentException
+     *          if an interval isn't a partition
+     */
+    public PartitionedGenomeTrack(
+            String name,
+            List<? extends BasePairInterval> intervals,
+            int strainCount)
+            throws IllegalArgumentException
+    {
+        this.name = name;
+        this.strainCount = strainCount;
+        this.columns = new SortedIntervalColumns<BasePairInterval>(intervals);
+        
+        int size = this.columns.size();
+        this.strainGroups = new short[size * strainCount];
+        for(int i = 0; i < size; i++)
+        {
+            BasePairInterval interval = this.columns.intervals.get(i);
+            int offset = i * strainCount;
+            if(interval instanceof PartitionedInterval)
+            {
+                PartitionedInterval partitionedInterval = (PartitionedInterval)interval;
+                for(int strain = 0; strain < strainCount; strain++)
+                {
+                    this.strainGroups[offset + strain] =
+                        partitionedInterval.getStrainBitSet().get(strain) ?
+                        (short)1 : (short)0;
+                }
+            }
+            else if(interval instanceof MultiPartitionedInterval)
+            {
+                short[] groups = ((MultiPartitionedInterval)interval).getStrainGroups();
+                System.arraycopy(
+                        groups,
+                        0,
+                        this.strainGroups,
+                        offset,
+                        Math.min(groups.length, strainCount));
+            }
+            else
+            {
+                throw new IllegalArgumentException(
+                        "partitioned tracks can't draw " + interval.getClass().getName());
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public int getPreferredHeight()
+    {
+        return Math.max(DEFAULT_ROW_HEIGHT, this.strainCount * DEFAULT_ROW_HEIGHT);
+    }
+    
+    private static Color getGroupColor(short group)
+    {
+        return GROUP_COLORS[(group & 0xFFFF) % GROUP_COLORS.length];
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void renderTile(
+            Graphics2D graphics,
+            long startInBasePairs,
+            double basePairsPerPixel,
+            int width,
+            int height)
+    {
+        if(this.strainCount == 0)
+        {
+            return;
+        }
+        
+        long endInBasePairs = startInBasePairs + (long)Math.ceil(width * basePairsPerPixel) - 1;
+        int maxDetailedCount = width * MAX_DETAILED_INTERVALS_PER_PIXEL;
+        int[] overlappingIndices = this.columns.findOverlapping(
+                startInBasePairs,
+                endInBasePairs,
+                maxDetailedCount + 1);
+        
+        if(overlappingIndices.length > maxDetailedCount)
+        {
+            for(int x = 0; x < width; x++)
+            {
+                long pixelCenter = startInBasePairs + (long)((x + 0.5) * basePairsPerPixel);
+                int index = this.columns.findContaining(pixelCenter);
+                if(index != -1)
+                {
+                    this.renderStrainRows(graphics, index, x, 1, height);
+                }
+            }
+        }
+        else
+        {
+            for(int i: overlappingIndices)
+            {
+                int x1 = SortedIntervalColumns.toX(
+                        this.columns.startsInBasePairs[i],
+                        startInBasePairs,
+                        basePairsPerPixel,
+                        width);
+                int x2 = SortedIntervalColumns.toX(
+                        this.columns.endsInBasePairs[i] + 1,
+                        startInBasePairs,
+                        basePairsPerPixel,
+                        width);
+                this.renderStrainRows(graphics, i, x1, Math.max(1, x2 - x1), height);
+            }
+        }
+    }
+    
+    private void renderStrainRows(
+            Graphics2D graphics,
+            int intervalIndex,
+            int x,
+            int width,
+            int height)
+    {
+        int offset = intervalIndex * this.strainCount;
+        for(int strain = 0; strain < this.strainCount; strain++)
+        {
+            int rowTop = strain * height / this.strainCount;
+            int rowBottom = (strain + 1) * height / this.strainCount;
+            graphics.setColor(getGroupColor(this.strainGroups[offset + strain]));
+            graphics.fillRect(x, rowTop, width, Math.max(1, rowBottom - rowTop));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.List;
+
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.RealValuedZoomPyramid;
+import org.jax.geneticutil.data.RealValuedZoomSummary;
+
+/**
+ * A track that plots real valued intervals (eg: association scores). Zoomed
+ * in, each interval is drawn as a bar. Zoomed out past the pyramid's base
+ * bin size, each pixel shows the minimum to maximum range and the mean of
+ * the values under it using a {@link RealValuedZoomPyramid}.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedGenomeTrack implements GenomeTrack
+{
+    private static final int MAX_DETAILED_INTERVALS_PER_PIXEL = 2;
+    
+    private static final int DEFAULT_HEIGHT = 60;
+    
+    private final String name;
+    
+    private final SortedIntervalColumns<RealValuedBasePairInterval> columns;
+    
+    private final RealValuedZoomPyramid pyramid;
+    
+    private final double minimumValue;
+    
+    private final double maximumValue;
+    
+    private final Color color;
+    
+    private final Color rangeColor;
+    
+    /**
+     * Constructor
+     * @param name
+     *          the track name
+     * @param intervals
+     *          the intervals. these must all be on one chromosome
+     * @param color
+     *          the plot color
+     * @throws IllegalArgumentException
+     *          if the intervals are on more than one chromosome
+     */
+    public RealValuedGenomeTrack(
+            String name,
+            List<? extends RealValuedBasePairInterval> intervals,
+            Color color)
+            throws IllegalArgumentException
+    {
+        this.name = name;
+        this.columns = new SortedIntervalColumns<RealValuedBasePairInterval>(intervals);
+        this.pyramid = new RealValuedZoomPyramid(intervals);
+        this.color = color;
+        this.rangeColor = new Color(
+                color.getRed(),
+                color.getGreen(),
+                color.getBlue(),
+                96);
+        
+        double minimumValue = 0.0;
+        double maximumValue = 0.0;
+        for(RealValuedBasePairInterval interval: intervals)
+        {
+            double value = interval.getRealValue();
+            if(!Double.isNaN(value))
+            {
+                minimumValue = Math.min(minimumValue, value);
+                maximumValue = Math.max(maximumValue, value);
+            }
+        }
+        if(minimumValue == maximumValue)
+        {
+            maximumValue = minimumValue + 1.0;
+        }
+        this.minimumValue = minimumValue;
+        this.maximumValue = maximumValue;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public int getPreferredHeight()
+    {
+        return DEFAULT_HEIGHT;
+    }
+    
+    private int toY(double value, int height)
+    {
+        double fraction =
+            (value - this.minimumValue) / (this.maximumValue - this.minimumValue);
+        return (int)Math.round((height - 1) * (1.0 - fraction));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void renderTile(
+            Graphics2D graphics,
+            long startInBasePairs,
+            double basePairsPerPixel,
+            int width,
+            int height)
+    {
+        long extentInBasePairs = (long)Math.ceil(width * basePairsPerPixel);
+        long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+        int zeroY = this.toY(0.0, height);
+        
+        // the pyramid can't resolve anything finer than its level 0 bins so
+        // below that resolution the intervals are drawn directly even when
+        // there are several per pixel. above it we only need to know if
+        // there are more overlaps than we would draw individually
+        int maxDetailedCount = width * MAX_DETAILED_INTERVALS_PER_PIXEL;
+        boolean pyramidResolves =
+            basePairsPerPixel >= this.pyramid.getBaseBinSizeInBasePairs();
+        int[] overlappingIndices = this.columns.findOverlapping(
+                startInBasePairs,
+                endInBasePairs,
+                pyramidResolves ? maxDetailedCount + 1 : Integer.MAX_VALUE);
+        boolean summarize =
+            pyramidResolves && overlappingIndices.length > maxDetailedCount;
+        if(summarize)
+        {
+            RealValuedZoomSummary summary = this.pyramid.summarize(
+                    startInBasePairs,
+                    extentInBasePairs,
+                    width);
+            for(int x = 0; x < width; x++)
+            {
+                if(summary.getCoverage(x) > 0.0)
+                {
+                    int minimumY = this.toY(summary.getMinimum(x), height);
+                    int maximumY = this.toY(summary.getMaximum(x), height);
+                    int meanY = this.toY(summary.getMean(x), height);
+                    graphics.setColor(this.rangeColor);
+                    graphics.fillRect(x, maximumY, 1, minimumY - maximumY + 1);
+                    graphics.setColor(this.color);
+                    graphics.fillRect(x, meanY, 1, 1);
+                }
+            }
+        }
+        else
+        {
+            graphics.setColor(this.color);
+            for(int i: overlappingIndices)
+            {
+                int x1 = SortedIntervalColumns.toX(
+                        this.columns.startsInBasePairs[i],
+                        startInBasePairs,
+                        basePairsPerPixel,
+                        width);
+                int x2 = SortedIntervalColumns.toX(
+                        this.columns.endsInBasePairs[i] + 1,
+                        startInBasePairs,
+                        basePairsPerPixel,
+                        width);
+                int valueY = this.toY(
+                        this.columns.intervals.get(i).getRealValue(),
+                        height);
+                graphics.fillRect(
+                        x1,
+                        Math.min(valueY, zeroY),
+                        Math.max(1, x2 - x1),
+                        Math.abs(zeroY - valueY) + 1);
+            }
+        }
+    }
+}
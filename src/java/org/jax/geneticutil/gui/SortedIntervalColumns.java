@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+
+/**
+ * The start sorted intervals of a track along with the primitive columns
+ * that the track renderers search to find the intervals in a tile
+ * @param <T>   the interval type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class SortedIntervalColumns<T extends BasePairInterval>
+{
+    /**
+     * the most intervals that {@link #findContaining(long)} will step back
+     * through when intervals overlap
+     */
+    private static final int MAX_CONTAINMENT_STEPS = 16;
+    
+    private static final Comparator<BasePairInterval> START_COMPARATOR =
+        new Comparator<BasePairInterval>()
+        {
+            public int compare(BasePairInterval interval1, BasePairInterval interval2)
+            {
+                long start1 = interval1.getStartInBasePairs();
+                long start2 = interval2.getStartInBasePairs();
+                return start1 < start2 ? -1 : (start1 == start2 ? 0 : 1);
+            }
+        };
+    
+    final List<T> intervals;
+    
+    final long[] startsInBasePairs;
+    
+    final long[] endsInBasePairs;
+    
+    /**
+     * the maximum end over each prefix of the sorted intervals
+     */
+    final long[] prefixMaxEndsInBasePairs;
+    
+    /**
+     * the number of leaves in {@link #treeMaxEndsInBasePairs} (a power of
+     * two >= the interval count)
+     */
+    private final int leafCount;
+    
+    /**
+     * a segment tree over the ends in start order where each node holds the
+     * maximum end below it. Node 1 is the root, the children of node n are
+     * 2n and 2n + 1 and interval i is leaf {@link #leafCount} + i
+     */
+    private final long[] treeMaxEndsInBasePairs;
+    
+    /**
+     * Constructor
+     * @param intervals
+     *          the intervals which don't need to be sorted
+     */
+    SortedIntervalColumns(List<? extends T> intervals)
+    {
+        List<T> sortedIntervals = new ArrayList<T>(intervals);
+        Collections.sort(sortedIntervals, START_COMPARATOR);
+        this.intervals = sortedIntervals;
+        
+        int size = sortedIntervals.size();
+        this.startsInBasePairs = new long[size];
+        this.endsInBasePairs = new long[size];
+        this.prefixMaxEndsInBasePairs = new long[size];
+        long maxEndInBasePairs = Long.MIN_VALUE;
+        for(int i = 0; i < size; i++)
+        {
+            T interval = sortedIntervals.get(i);
+            this.startsInBasePairs[i] = interval.getStartInBasePairs();
+            this.endsInBasePairs[i] = interval.getEndInBasePairs();
+            maxEndInBasePairs = Math.max(maxEndInBasePairs, this.endsInBasePairs[i]);
+            this.prefixMaxEndsInBasePairs[i] = maxEndInBasePairs;
+        }
+        
+        int leaves = 1;
+        while(leaves < size)
+        {
+            leaves <<= 1;
+        }
+        this.leafCount = leaves;
+        this.treeMaxEndsInBasePairs = new long[2 * leaves];
+        Arrays.fill(this.treeMaxEndsInBasePairs, Long.MIN_VALUE);
+        System.arraycopy(
+                this.endsInBasePairs,
+                0,
+                this.treeMaxEndsInBasePairs,
+                leaves,
+                size);
+        for(int node = leaves - 1; node >= 1; node--)
+        {
+            this.treeMaxEndsInBasePairs[node] = Math.max(
+                    this.treeMaxEndsInBasePairs[2 * node],
+                    this.treeMaxEndsInBasePairs[2 * node + 1]);
+        }
+    }
+    
+    /**
+     * Getter for the number of intervals
+     * @return the size
+     */
+    int size()
+    {
+        return this.startsInBasePairs.length;
+    }
+    
+    /**
+     * Get the index one past the last interval that starts on or before
+     * the given region end
+     * @param endInBasePairs
+     *          the region end
+     * @return
+     *          the index
+     */
+    int getWindowEnd(long endInBasePairs)
+    {
+        return lowerBound(this.startsInBasePairs, endInBasePairs + 1);
+    }
+    
+    /**
+     * Find an interval containing the given position. When the intervals
+     * overlap heavily this gives up after a few steps, which is fine for
+     * sampling a pixel
+     * @param positionInBasePairs
+     *          the position
+     * @return
+     *          the index of the containing interval or -1
+     */
+    int findContaining(long positionInBasePairs)
+    {
+        int index = this.getWindowEnd(positionInBasePairs) - 1;
+        for(int step = 0;
+            step < MAX_CONTAINMENT_STEPS && index >= 0 &&
+            this.prefixMaxEndsInBasePairs[index] >= positionInBasePairs;
+            step++, index--)
+        {
+            if(this.endsInBasePairs[index] >= positionInBasePairs)
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Find the intervals that overlap a region. Only tree nodes whose
+     * maximum end reaches the region are visited, so finding m intervals
+     * costs O((m + 1) log n) even when a long interval that starts early
+     * in the track spans the region
+     * @param startInBasePairs
+     *          the region start
+     * @param endInBasePairs
+     *          the region end
+     * @param maxCount
+     *          the most indices to return. callers that only need to know
+     *          whether there are more than some number of overlaps can
+     *          pass that number plus one
+     * @return
+     *          the indices of the overlapping intervals in start order
+     */
+    int[] findOverlapping(long startInBasePairs, long endInBasePairs, int maxCount)
+    {
+        OverlapCollector collector = new OverlapCollector(maxCount);
+        this.addOverlapping(
+                1,
+                0,
+                this.leafCount,
+                this.getWindowEnd(endInBasePairs),
+                startInBasePairs,
+                collector);
+        return Arrays.copyOf(collector.indices, collector.count);
+    }
+    
+    /**
+     * gathers overlap indices up to a limit
+     */
+    private static final class OverlapCollector
+    {
+        private final int maxCount;
+        
+        private int[] indices = new int[16];
+        
+        private int count = 0;
+        
+        public OverlapCollector(int maxCount)
+        {
+            this.maxCount = maxCount;
+        }
+        
+        public boolean isFull()
+        {
+            return this.count >= this.maxCount;
+        }
+        
+        public void add(int index)
+        {
+            if(this.count == this.indices.length)
+            {
+                this.indices = Arrays.copyOf(this.indices, 2 * this.count);
+            }
+            this.indices[this.count++] = index;
+        }
+    }
+    
+    private void addOverlapping(
+            int node,
+            int nodeLow,
+            int nodeHigh,
+            int high,
+            long minimumEndInBasePairs,
+            OverlapCollector collector)
+    {
+        if(collector.isFull() ||
+           nodeLow >= high ||
+           this.treeMaxEndsInBasePairs[node] < minimumEndInBasePairs)
+        {
+            return;
+        }
+        else if(node >= this.leafCount)
+        {
+            collector.add(nodeLow);
+        }
+        else
+        {
+            int nodeMiddle = (nodeLow + nodeHigh) >>> 1;
+            this.addOverlapping(
+                    2 * node,
+                    nodeLow,
+                    nodeMiddle,
+                    high,
+                    minimumEndInBasePairs,
+                    collector);
+            this.addOverlapping(
+                    2 * node + 1,
+                    nodeMiddle,
+                    nodeHigh,
+                    high,
+                    minimumEndInBasePairs,
+                    collector);
+        }
+    }
+    
+    private static int lowerBound(long[] sortedValues, long value)
+    {
+        int low = 0;
+        int high = sortedValues.length;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(sortedValues[mid] < value)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Convert a position to a tile x coordinate, clamped so that it can
+     * safely be used as an int
+     * @param positionInBasePairs
+     *          the position
+     * @param tileStartInBasePairs
+     *          the tile start
+     * @param basePairsPerPixel
+     *          the zoom
+     * @param width
+     *          the tile width
+     * @return
+     *          the x coordinate
+     */
+    static int toX(
+            long positionInBasePairs,
+            long tileStartInBasePairs,
+            double basePairsPerPixel,
+            int width)
+    {
+        double x = (positionInBasePairs - tileStartInBasePairs) / basePairsPerPixel;
+        return (int)Math.max(-1.0, Math.min(width + 1.0, Math.floor(x)));
+    }
+}
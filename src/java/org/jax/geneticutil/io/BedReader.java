@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.BasePairIntervalArrayBuilder;
+import org.jax.geneticutil.data.MouseChromosomes;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.RealValuedBasePairIntervalArray;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+
+/**
+ * A reader for BED and bedGraph files. Fields are parsed straight out of a
+ * direct byte buffer so no strings are created per line. BED coordinates
+ * are zero based and half open so a BED line "chr1 9 20" is read as an
+ * interval starting at base pair 10 with an extent of 11. Track, browser
+ * and comment lines are skipped and any fields after the ones we need are
+ * ignored. Lines on sequences that aren't mouse chromosomes (eg: unplaced
+ * contigs) are skipped too.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class BedReader implements Closeable
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    
+    private final ReadableByteChannel channel;
+    
+    private final ByteBuffer buffer;
+    
+    private boolean endOfInput = false;
+    
+    private long lineNumber = 0L;
+    
+    private int skippedLineCount = 0;
+    
+    private final FieldCharSequence chromosomeField = new FieldCharSequence();
+    
+    private int currChromosomeNumber;
+    
+    private long currStartInBasePairs;
+    
+    private long currExtentInBasePairs;
+    
+    private double currRealValue;
+    
+    /**
+     * Constructor
+     * @param channel
+     *          the channel to read from
+     */
+    public BedReader(ReadableByteChannel channel)
+    {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+    
+    /**
+     * Read all of the remaining BED records
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails or the input is malformed
+     */
+    public BasePairIntervalArray readIntervals() throws IOException
+    {
+        BasePairIntervalArrayBuilder builder = new BasePairIntervalArrayBuilder();
+        while(this.nextRecord(false))
+        {
+            builder.add(
+                    this.currChromosomeNumber,
+                    this.currStartInBasePairs,
+                    this.currExtentInBasePairs);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Read all of the remaining BED records into interval objects
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails or the input is malformed
+     */
+    public List<BasePairInterval> readIntervalList() throws IOException
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        while(this.nextRecord(false))
+        {
+            intervals.add(new SimpleBasePairInterval(
+                    this.currChromosomeNumber,
+                    this.currStartInBasePairs,
+                    this.currExtentInBasePairs));
+        }
+        return intervals;
+    }
+    
+    /**
+     * Read all of the remaining bedGraph records
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails or the input is malformed
+     */
+    public RealValuedBasePairIntervalArray readRealValuedIntervals()
+            throws IOException
+    {
+        BasePairIntervalArrayBuilder builder = new BasePairIntervalArrayBuilder();
+        while(this.nextRecord(true))
+        {
+            builder.add(
+                    this.currChromosomeNumber,
+                    this.currStartInBasePairs,
+                    this.currExtentInBasePairs,
+                    this.currRealValue);
+        }
+        return builder.buildRealValued();
+    }
+    
+    /**
+     * Read all of the remaining bedGraph records into interval objects
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails or the input is malformed
+     */
+    public List<RealValuedBasePairInterval> readRealValuedIntervalList()
+            throws IOException
+    {
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>();
+        while(this.nextRecord(true))
+        {
+            intervals.add(new SimpleRealValuedBasePairInterval(
+                    this.currChromosomeNumber,
+                    this.currStartInBasePairs,
+                    this.currExtentInBasePairs,
+                    this.currRealValue));
+        }
+        return intervals;
+    }
+    
+    /**
+     * Getter for the number of lines that were skipped because they aren't
+     * on mouse chromosomes
+     * @return the skipped line count
+     */
+    public int getSkippedLineCount()
+    {
+        return this.skippedLineCount;
+    }
+    
+    /**
+     * Find the end of the next line, refilling the buffer as needed
+     * @return
+     *          the index of the end of the line (the newline or the buffer
+     *          limit at the end of input) or -1 if there are no more lines
+     */
+    private int nextLineEnd() throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        int searchFrom = buffer.position();
+        while(true)
+        {
+            int limit = buffer.limit();
+            for(int i = searchFrom; i < limit; i++)
+            {
+                if(buffer.get(i) == '\n')
+                {
+                    return i;
+                }
+            }
+            
+            if(this.endOfInput)
+            {
+                return buffer.hasRemaining() ? limit : -1;
+            }
+            
+            // no complete line yet so pull in more input
+            int lineLength = buffer.remaining();
+            buffer.compact();
+            if(!buffer.hasRemaining())
+            {
+                throw new IOException(
+                        "line " + (this.lineNumber + 1) + " is longer than " +
+                        BUFFER_SIZE + " bytes");
+            }
+            if(this.channel.read(buffer) == -1)
+            {
+                this.endOfInput = true;
+            }
+            buffer.flip();
+            searchFrom = lineLength;
+        }
+    }
+    
+    /**
+     * Parse the next data line into the curr* fields
+     * @param withValue
+     *          if true the 4th column is parsed as a real value
+     * @return
+     *          false if there are no more records
+     */
+    private boolean nextRecord(boolean withValue) throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        int lineEnd;
+        while((lineEnd = this.nextLineEnd()) != -1)
+        {
+            this.lineNumber++;
+            int lineStart = buffer.position();
+            buffer.position(lineEnd == buffer.limit() ? lineEnd : lineEnd + 1);
+            
+            int end = lineEnd;
+            if(end > lineStart && buffer.get(end - 1) == '\r')
+            {
+                end--;
+            }
+            if(end == lineStart ||
+               buffer.get(lineStart) == '#' ||
+               startsWith(buffer, lineStart, end, "track") ||
+               startsWith(buffer, lineStart, end, "browser"))
+            {
+                continue;
+            }
+            
+            int fieldEnd = this.fieldEnd(lineStart, end);
+            try
+            {
+                this.chromosomeField.setBounds(lineStart, fieldEnd);
+                this.currChromosomeNumber = MouseChromosomes.parseChromosomeName(
+                        this.chromosomeField);
+            }
+            catch(IllegalArgumentException ex)
+            {
+                this.skippedLineCount++;
+                continue;
+            }
+            
+            int fieldStart = fieldEnd + 1;
+            fieldEnd = this.fieldEnd(fieldStart, end);
+            long bedStart = this.parseLong(fieldStart, fieldEnd);
+            
+            fieldStart = fieldEnd + 1;
+            fieldEnd = this.fieldEnd(fieldStart, end);
+            long bedEnd = this.parseLong(fieldStart, fieldEnd);
+            
+            this.currStartInBasePairs = bedStart + 1;
+            this.currExtentInBasePairs = bedEnd - bedStart;
+            
+            if(withValue)
+            {
+                fieldStart = fieldEnd + 1;
+                fieldEnd = this.fieldEnd(fieldStart, end);
+                this.currRealValue = this.parseDouble(fieldStart, fieldEnd);
+            }
+            
+            return true;
+        }
+        
+        return false;
+    }
+    
+    private static boolean startsWith(
+            ByteBuffer buffer,
+            int start,
+            int end,
+            String prefix)
+    {
+        int prefixLength = prefix.length();
+        if(end - start < prefixLength)
+        {
+            return false;
+        }
+        for(int i = 0; i < prefixLength; i++)
+        {
+            if(buffer.get(start + i) != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private int fieldEnd(int fieldStart, int lineEnd) throws IOException
+    {
+        if(fieldStart >= lineEnd)
+        {
+            throw this.malformed("too few fields");
+        }
+        for(int i = fieldStart; i < lineEnd; i++)
+        {
+            byte currByte = this.buffer.get(i);
+            if(currByte == '\t' || currByte == ' ')
+            {
+                return i;
+            }
+        }
+        return lineEnd;
+    }
+    
+    private IOException malformed(String reason)
+    {
+        return new IOException(
+                "malformed BED line " + this.lineNumber + ": " + reason);
+    }
+    
+    private long parseLong(int start, int end) throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        boolean negative = false;
+        if(start < end && buffer.get(start) == '-')
+        {
+            negative = true;
+            start++;
+        }
+        if(start == end || end - start > 18)
+        {
+            throw this.malformed("bad integer field");
+        }
+        
+        long value = 0L;
+        for(int i = start; i < end; i++)
+        {
+            int digit = buffer.get(i) - '0';
+            if(digit < 0 || digit > 9)
+            {
+                throw this.malformed("bad integer field");
+            }
+            value = 10L * value + digit;
+        }
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Parse a double. Values with up to 18 significant digits and a small
+     * exponent are parsed directly from the bytes. Anything else (eg: NaN
+     * or a very long mantissa) falls back on {@link Double#parseDouble(String)}
+     */
+    private double parseDouble(int start, int end) throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        int i = start;
+        boolean negative = false;
+        if(i < end && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+        {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        
+        long mantissa = 0L;
+        int digitCount = 0;
+        int decimalExponent = 0;
+        boolean seenPoint = false;
+        boolean fastPath = i < end;
+        for(; i < end; i++)
+        {
+            byte currByte = buffer.get(i);
+            if(currByte >= '0' && currByte <= '9')
+            {
+                if(digitCount < 18)
+                {
+                    mantissa = 10L * mantissa + (currByte - '0');
+                    if(mantissa != 0L)
+                    {
+                        digitCount++;
+                    }
+                    if(seenPoint)
+                    {
+                        decimalExponent--;
+                    }
+                }
+                else
+                {
+                    fastPath = false;
+                    break;
+                }
+            }
+            else if(currByte == '.' && !seenPoint)
+            {
+                seenPoint = true;
+            }
+            else if(currByte == 'e' || currByte == 'E')
+            {
+                i++;
+                if(i == end)
+                {
+                    fastPath = false;
+                    break;
+                }
+                int exponentSign = 1;
+                if(buffer.get(i) == '-' || buffer.get(i) == '+')
+                {
+                    exponentSign = buffer.get(i) == '-' ? -1 : 1;
+                    i++;
+                }
+                decimalExponent += exponentSign * (int)this.parseLong(i, end);
+                i = end;
+                break;
+            }
+            else
+            {
+                fastPath = false;
+                break;
+            }
+        }
+        
+        if(fastPath && mantissa < (1L << 53) &&
+           decimalExponent >= -22 && decimalExponent <= 22)
+        {
+            double value = decimalExponent < 0 ?
+                    mantissa / POWERS_OF_TEN[-decimalExponent] :
+                    mantissa * POWERS_OF_TEN[decimalExponent];
+            return negative ? -value : value;
+        }
+        else
+        {
+            byte[] fieldBytes = new byte[end - start];
+            for(int j = 0; j < fieldBytes.length; j++)
+            {
+                fieldBytes[j] = buffer.get(start + j);
+            }
+            try
+            {
+                return Double.parseDouble(new String(fieldBytes, "US-ASCII"));
+            }
+            catch(NumberFormatException ex)
+            {
+                throw this.malformed("bad numeric field");
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+    
+    /**
+     * A view of one field of the buffer as ASCII characters so that field
+     * can be parsed without creating a string
+     */
+    private class FieldCharSequence implements CharSequence
+    {
+        private int start;
+        
+        private int end;
+        
+        /**
+         * Point this view at a different field
+         * @param start
+         *          the buffer index of the field's first byte
+         * @param end
+         *          the buffer index just past the field's last byte
+         */
+        public void setBounds(int start, int end)
+        {
+            this.start = start;
+            this.end = end;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public int length()
+        {
+            return this.end - this.start;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public char charAt(int index)
+        {
+            return (char)(BedReader.this.buffer.get(this.start + index) & 0xFF);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public CharSequence subSequence(int start, int end)
+        {
+            return this.toString().subSequence(start, end);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            StringBuilder field = new StringBuilder(this.length());
+            for(int i = 0; i < this.length(); i++)
+            {
+                field.append(this.charAt(i));
+            }
+            return field.toString();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.MouseChromosomes;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.RealValuedBasePairIntervalArray;
+
+/**
+ * A writer for BED and bedGraph files. Records are formatted directly into
+ * a reusable direct byte buffer so no strings are created per line. See
+ * {@link BedReader} for how coordinates are converted.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class BedWriter implements Closeable, Flushable
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * the longest record we'll ever format (name, two longs and a double)
+     */
+    private static final int MAX_RECORD_SIZE = 128;
+    
+    /**
+     * the default number of decimal places used for bedGraph values
+     */
+    public static final int DEFAULT_DECIMAL_PLACES = 6;
+    
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+        100000000L, 1000000000L, 10000000000L};
+    
+    private final WritableByteChannel channel;
+    
+    private final ByteBuffer buffer;
+    
+    private final int decimalPlaces;
+    
+    private final byte[] digits = new byte[20];
+    
+    private final Map<Integer, byte[]> chromosomeNameBytes =
+        new HashMap<Integer, byte[]>();
+    
+    /**
+     * Constructor which uses {@link #DEFAULT_DECIMAL_PLACES}
+     * @param channel
+     *          the channel to write to
+     */
+    public BedWriter(WritableByteChannel channel)
+    {
+        this(channel, DEFAULT_DECIMAL_PLACES);
+    }
+    
+    /**
+     * Constructor
+     * @param channel
+     *          the channel to write to
+     * @param decimalPlaces
+     *          the maximum number of decimal places written for bedGraph
+     *          values (trailing zeros are dropped)
+     */
+    public BedWriter(WritableByteChannel channel, int decimalPlaces)
+    {
+        if(decimalPlaces < 0 || decimalPlaces >= POWERS_OF_TEN.length)
+        {
+            throw new IllegalArgumentException(
+                    "decimal places must be between 0 and " +
+                    (POWERS_OF_TEN.length - 1) + ": " + decimalPlaces);
+        }
+        
+        this.channel = channel;
+        this.decimalPlaces = decimalPlaces;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    
+    /**
+     * Write a header line such as a track line. This should only be used for
+     * the occasional header since it isn't allocation free
+     * @param line
+     *          the line without a trailing newline
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeHeaderLine(String line) throws IOException
+    {
+        byte[] lineBytes = (line + "\n").getBytes("US-ASCII");
+        this.flush();
+        this.channel.write(ByteBuffer.wrap(lineBytes));
+    }
+    
+    /**
+     * Write a BED record for the given interval
+     * @param interval
+     *          the interval
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeInterval(BasePairInterval interval) throws IOException
+    {
+        this.writeInterval(
+                interval.getChromosomeNumber(),
+                interval.getStartInBasePairs(),
+                interval.getExtentInBasePairs());
+    }
+    
+    /**
+     * Write a BED record for every interval in the given array
+     * @param intervals
+     *          the intervals
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeIntervals(BasePairIntervalArray intervals)
+            throws IOException
+    {
+        int[] chromosomeNumbers = intervals.getChromosomeNumbers();
+        long[] startsInBasePairs = intervals.getStartsInBasePairs();
+        long[] extentsInBasePairs = intervals.getExtentsInBasePairs();
+        int size = intervals.size();
+        for(int i = 0; i < size; i++)
+        {
+            this.writeInterval(
+                    chromosomeNumbers[i],
+                    startsInBasePairs[i],
+                    extentsInBasePairs[i]);
+        }
+    }
+    
+    /**
+     * Write a BED record
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param startInBasePairs
+     *          the start
+     * @param extentInBasePairs
+     *          the extent
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeInterval(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs)
+            throws IOException
+    {
+        this.putPosition(chromosomeNumber, startInBasePairs, extentInBasePairs);
+        this.buffer.put((byte)'\n');
+    }
+    
+    /**
+     * Write a bedGraph record for the given interval
+     * @param interval
+     *          the interval
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeRealValuedInterval(RealValuedBasePairInterval interval)
+            throws IOException
+    {
+        this.writeRealValuedInterval(
+                interval.getChromosomeNumber(),
+                interval.getStartInBasePairs(),
+                interval.getExtentInBasePairs(),
+                interval.getRealValue());
+    }
+    
+    /**
+     * Write a bedGraph record for every interval in the given array
+     * @param intervals
+     *          the intervals
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeRealValuedIntervals(RealValuedBasePairIntervalArray intervals)
+            throws IOException
+    {
+        int[] chromosomeNumbers = intervals.getChromosomeNumbers();
+        long[] startsInBasePairs = intervals.getStartsInBasePairs();
+        long[] extentsInBasePairs = intervals.getExtentsInBasePairs();
+        double[] realValues = intervals.getRealValues();
+        int size = intervals.size();
+        for(int i = 0; i < size; i++)
+        {
+            this.writeRealValuedInterval(
+                    chromosomeNumbers[i],
+                    startsInBasePairs[i],
+                    extentsInBasePairs[i],
+                    realValues[i]);
+        }
+    }
+    
+    /**
+     * Write a bedGraph record
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param startInBasePairs
+     *          the start
+     * @param extentInBasePairs
+     *          the extent
+     * @param realValue
+     *          the value
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeRealValuedInterval(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs,
+            double realValue)
+            throws IOException
+    {
+        this.putPosition(chromosomeNumber, startInBasePairs, extentInBasePairs);
+        this.buffer.put((byte)'\t');
+        this.putDouble(realValue);
+        this.buffer.put((byte)'\n');
+    }
+    
+    private void putPosition(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs)
+            throws IOException
+    {
+        if(this.buffer.remaining() < MAX_RECORD_SIZE)
+        {
+            this.drainBuffer();
+        }
+        
+        byte[] nameBytes = this.chromosomeNameBytes.get(chromosomeNumber);
+        if(nameBytes == null)
+        {
+            nameBytes = ("chr" + MouseChromosomes.toChromosomeName(
+                    chromosomeNumber)).getBytes("US-ASCII");
+            this.chromosomeNameBytes.put(chromosomeNumber, nameBytes);
+        }
+        
+        ByteBuffer buffer = this.buffer;
+        buffer.put(nameBytes);
+        buffer.put((byte)'\t');
+        this.putLong(startInBasePairs - 1);
+        buffer.put((byte)'\t');
+        this.putLong(startInBasePairs - 1 + extentInBasePairs);
+    }
+    
+    private void putLong(long value)
+    {
+        ByteBuffer buffer = this.buffer;
+        if(value < 0L)
+        {
+            buffer.put((byte)'-');
+            value = -value;
+        }
+        
+        int digitCount = 0;
+        do
+        {
+            this.digits[digitCount++] = (byte)('0' + (value % 10L));
+            value /= 10L;
+        } while(value != 0L);
+        
+        while(digitCount > 0)
+        {
+            buffer.put(this.digits[--digitCount]);
+        }
+    }
+    
+    /**
+     * Format a double with up to {@link #decimalPlaces} decimal places.
+     * Values too big to be scaled into a long fall back on
+     * {@link Double#toString(double)}
+     */
+    private void putDouble(double value) throws IOException
+    {
+        long scale = POWERS_OF_TEN[this.decimalPlaces];
+        double absValue = Math.abs(value);
+        if(Double.isNaN(value) || Double.isInfinite(value) ||
+           absValue * scale >= Long.MAX_VALUE / 10)
+        {
+            this.buffer.put(Double.toString(value).getBytes("US-ASCII"));
+            return;
+        }
+        
+        long scaledValue = Math.round(absValue * scale);
+        if(scaledValue == 0L)
+        {
+            this.buffer.put((byte)'0');
+            return;
+        }
+        
+        if(value < 0.0)
+        {
+            this.buffer.put((byte)'-');
+        }
+        this.putLong(scaledValue / scale);
+        
+        long fraction = scaledValue % scale;
+        if(fraction != 0L)
+        {
+            int places = this.decimalPlaces;
+            while(fraction % 10L == 0L)
+            {
+                fraction /= 10L;
+                places--;
+            }
+            
+            this.buffer.put((byte)'.');
+            for(int i = places - 1; i >= 0; i--)
+            {
+                this.digits[i] = (byte)('0' + (fraction % 10L));
+                fraction /= 10L;
+            }
+            this.buffer.put(this.digits, 0, places);
+        }
+    }
+    
+    private void drainBuffer() throws IOException
+    {
+        this.buffer.flip();
+        while(this.buffer.hasRemaining())
+        {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void flush() throws IOException
+    {
+        this.drainBuffer();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        this.flush();
+        this.channel.close();
+    }
+}
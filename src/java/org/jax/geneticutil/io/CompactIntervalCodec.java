@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.IndexedSnpInterval;
+import org.jax.geneticutil.data.SnpIntervalList;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+
+/**
+ * Static functions for writing and reading the container types in
+ * {@link org.jax.geneticutil.data} using the compact interval format of
+ * {@link CompactIntervalWriter} rather than default java serialization.
+ * None of these functions close the streams that they are given.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class CompactIntervalCodec
+{
+    /**
+     * private constructor. this class only has static functions
+     */
+    private CompactIntervalCodec()
+    {
+    }
+    
+    /**
+     * Write the given intervals using the most specific record type that
+     * can hold them
+     * @param intervals
+     *          the intervals
+     * @param output
+     *          the stream to write to
+     * @throws IOException
+     *          if the write fails
+     * @throws IllegalArgumentException
+     *          if the intervals need different record types
+     * @see CompactIntervalType#forIntervals(java.util.Collection)
+     */
+    public static void writeIntervals(
+            List<? extends BasePairInterval> intervals,
+            OutputStream output)
+            throws IOException, IllegalArgumentException
+    {
+        CompactIntervalWriter writer = new CompactIntervalWriter(
+                output,
+                CompactIntervalType.forIntervals(intervals));
+        writer.writeIntervals(intervals);
+        writer.finish();
+    }
+    
+    /**
+     * Read intervals written by {@link #writeIntervals(List, OutputStream)}
+     * @param input
+     *          the stream to read from
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails
+     */
+    public static List<BasePairInterval> readIntervals(InputStream input)
+            throws IOException
+    {
+        return new CompactIntervalReader(input).readAll();
+    }
+    
+    /**
+     * Write the given SNP interval list
+     * @param snpIntervalList
+     *          the list to write
+     * @param output
+     *          the stream to write to
+     * @throws IOException
+     *          if the write fails
+     */
+    public static void writeSnpIntervalList(
+            SnpIntervalList snpIntervalList,
+            OutputStream output)
+            throws IOException
+    {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeLong(snpIntervalList.getStartInBasePairs());
+        dataOutput.writeLong(snpIntervalList.getExtentInBasePairs());
+        dataOutput.flush();
+        writeIntervals(snpIntervalList.getSnpBlocks(), output);
+    }
+    
+    /**
+     * Read a list written by
+     * {@link #writeSnpIntervalList(SnpIntervalList, OutputStream)}
+     * @param input
+     *          the stream to read from
+     * @return
+     *          the list
+     * @throws IOException
+     *          if the read fails
+     */
+    public static SnpIntervalList readSnpIntervalList(InputStream input)
+            throws IOException
+    {
+        DataInputStream dataInput = new DataInputStream(input);
+        long startInBasePairs = dataInput.readLong();
+        long extentInBasePairs = dataInput.readLong();
+        return new SnpIntervalList(
+                readIntervals(input),
+                startInBasePairs,
+                extentInBasePairs);
+    }
+    
+    /**
+     * Write the given SNP interval list group. Each key's list is written
+     * as its own interval stream
+     * @param snpIntervalListGroup
+     *          the group to write
+     * @param output
+     *          the stream to write to
+     * @throws IOException
+     *          if the write fails
+     */
+    public static void writeSnpIntervalListGroup(
+            SnpIntervalListGroup snpIntervalListGroup,
+            OutputStream output)
+            throws IOException
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            snpIntervalListGroup.getSnpBlocksMap();
+        
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeLong(snpIntervalListGroup.getStartInBasePairs());
+        dataOutput.writeLong(snpIntervalListGroup.getExtentInBasePairs());
+        dataOutput.writeInt(snpBlocksMap.size());
+        for(Map.Entry<String, List<BasePairInterval>> entry: snpBlocksMap.entrySet())
+        {
+            dataOutput.writeUTF(entry.getKey());
+            dataOutput.flush();
+            writeIntervals(entry.getValue(), output);
+        }
+        dataOutput.flush();
+    }
+    
+    /**
+     * Read a group written by
+     * {@link #writeSnpIntervalListGroup(SnpIntervalListGroup, OutputStream)}
+     * @param input
+     *          the stream to read from
+     * @return
+     *          the group
+     * @throws IOException
+     *          if the read fails
+     */
+    public static SnpIntervalListGroup readSnpIntervalListGroup(InputStream input)
+            throws IOException
+    {
+        DataInputStream dataInput = new DataInputStream(input);
+        long startInBasePairs = dataInput.readLong();
+        long extentInBasePairs = dataInput.readLong();
+        int keyCount = dataInput.readInt();
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        for(int i = 0; i < keyCount; i++)
+        {
+            String key = dataInput.readUTF();
+            snpBlocksMap.put(key, readIntervals(input));
+        }
+        
+        return new SnpIntervalListGroup(
+                snpBlocksMap,
+                startInBasePairs,
+                extentInBasePairs);
+    }
+    
+    /**
+     * Write the given indexed intervals with delta encoded start indices
+     * @param indexedIntervals
+     *          the intervals to write
+     * @param output
+     *          the stream to write to
+     * @throws IOException
+     *          if the write fails
+     */
+    public static void writeIndexedSnpIntervals(
+            List<IndexedSnpInterval> indexedIntervals,
+            OutputStream output)
+            throws IOException
+    {
+        EncodingBuffer buffer = new EncodingBuffer(
+                16 + 4 * indexedIntervals.size());
+        buffer.putUnsignedVarLong(indexedIntervals.size());
+        long previousStart = 0L;
+        for(IndexedSnpInterval currInterval: indexedIntervals)
+        {
+            buffer.putSignedVarLong(currInterval.getStartIndex() - previousStart);
+            buffer.putUnsignedVarLong(currInterval.getExtentInIndices());
+            previousStart = currInterval.getStartIndex();
+        }
+        
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeInt(buffer.size());
+        buffer.writeTo(dataOutput);
+        dataOutput.flush();
+    }
+    
+    /**
+     * Read intervals written by
+     * {@link #writeIndexedSnpIntervals(List, OutputStream)}
+     * @param input
+     *          the stream to read from
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails
+     */
+    public static List<IndexedSnpInterval> readIndexedSnpIntervals(
+            InputStream input)
+            throws IOException
+    {
+        DataInputStream dataInput = new DataInputStream(input);
+        int length = dataInput.readInt();
+        EncodingBuffer buffer = new EncodingBuffer(length);
+        buffer.readFrom(dataInput, length);
+        
+        int count = (int)buffer.getUnsignedVarLong();
+        List<IndexedSnpInterval> indexedIntervals =
+            new ArrayList<IndexedSnpInterval>(count);
+        long previousStart = 0L;
+        for(int i = 0; i < count; i++)
+        {
+            previousStart += buffer.getSignedVarLong();
+            indexedIntervals.add(new IndexedSnpInterval(
+                    (int)previousStart,
+                    (int)buffer.getUnsignedVarLong()));
+        }
+        return indexedIntervals;
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+
+/**
+ * Streams intervals in from the format written by
+ * {@link CompactIntervalWriter}. Only one block of intervals is decoded at
+ * a time. Intervals that share a partition in the stream share the same
+ * partition instance when read back.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class CompactIntervalReader implements Closeable
+{
+    private final DataInputStream input;
+    
+    private final CompactIntervalType type;
+    
+    private final EncodingBuffer buffer = new EncodingBuffer(8192);
+    
+    private final List<Object> partitions = new ArrayList<Object>();
+    
+    private int[] chromosomeNumbers = new int[0];
+    
+    private long[] startsInBasePairs = new long[0];
+    
+    private long[] extentsInBasePairs = new long[0];
+    
+    private double[] realValues = new double[0];
+    
+    private int[] partitionIds = new int[0];
+    
+    private int blockCount = 0;
+    
+    private int blockPosition = 0;
+    
+    private boolean finished = false;
+    
+    /**
+     * Constructor
+     * @param input
+     *          the stream to read from. Callers are responsible for
+     *          buffering it if needed
+     * @throws IOException
+     *          if the header can't be read or isn't valid
+     */
+    public CompactIntervalReader(InputStream input) throws IOException
+    {
+        this.input = new DataInputStream(input);
+        
+        byte[] magic = new byte[CompactIntervalWriter.MAGIC.length];
+        this.input.readFully(magic);
+        for(int i = 0; i < magic.length; i++)
+        {
+            if(magic[i] != CompactIntervalWriter.MAGIC[i])
+            {
+                throw new IOException("not a compact interval stream");
+            }
+        }
+        
+        int version = this.input.readUnsignedByte();
+        if(version != CompactIntervalWriter.FORMAT_VERSION)
+        {
+            throw new IOException(
+                    "unsupported compact interval format version: " + version);
+        }
+        
+        int typeOrdinal = this.input.readUnsignedByte();
+        CompactIntervalType[] types = CompactIntervalType.values();
+        if(typeOrdinal >= types.length)
+        {
+            throw new IOException(
+                    "unknown compact interval record type: " + typeOrdinal);
+        }
+        this.type = types[typeOrdinal];
+    }
+    
+    /**
+     * Getter for the record type of this stream
+     * @return the type
+     */
+    public CompactIntervalType getType()
+    {
+        return this.type;
+    }
+    
+    /**
+     * Read the next interval. The concrete type depends on
+     * {@link #getType()}: {@link SimpleBasePairInterval},
+     * {@link SimpleRealValuedBasePairInterval}, {@link PartitionedInterval}
+     * or {@link MultiPartitionedInterval}
+     * @return
+     *          the interval or null if the end of the stream was reached
+     * @throws IOException
+     *          if the read fails
+     */
+    public BasePairInterval readInterval() throws IOException
+    {
+        if(this.blockPosition == this.blockCount)
+        {
+            if(this.finished || !this.readBlock())
+            {
+                return null;
+            }
+        }
+        
+        int i = this.blockPosition++;
+        switch(this.type)
+        {
+            case REAL_VALUED:
+                return new SimpleRealValuedBasePairInterval(
+                        this.chromosomeNumbers[i],
+                        this.startsInBasePairs[i],
+                        this.extentsInBasePairs[i],
+                        this.realValues[i]);
+            case PARTITIONED:
+                return new PartitionedInterval(
+                        this.chromosomeNumbers[i],
+                        this.startsInBasePairs[i],
+                        this.extentsInBasePairs[i],
+                        (BitSet)this.partitions.get(this.partitionIds[i]));
+            case MULTI_PARTITIONED:
+                return new MultiPartitionedInterval(
+                        this.chromosomeNumbers[i],
+                        this.startsInBasePairs[i],
+                        this.extentsInBasePairs[i],
+                        (short[])this.partitions.get(this.partitionIds[i]));
+            default:
+                return new SimpleBasePairInterval(
+                        this.chromosomeNumbers[i],
+                        this.startsInBasePairs[i],
+                        this.extentsInBasePairs[i]);
+        }
+    }
+    
+    /**
+     * Read all of the remaining intervals
+     * @return
+     *          the intervals
+     * @throws IOException
+     *          if the read fails
+     */
+    public List<BasePairInterval> readAll() throws IOException
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        BasePairInterval currInterval;
+        while((currInterval = this.readInterval()) != null)
+        {
+            intervals.add(currInterval);
+        }
+        return intervals;
+    }
+    
+    private boolean readBlock() throws IOException
+    {
+        int blockLength = this.input.readInt();
+        if(blockLength == 0)
+        {
+            this.finished = true;
+            return false;
+        }
+        
+        EncodingBuffer buffer = this.buffer;
+        buffer.readFrom(this.input, blockLength);
+        
+        int count = (int)buffer.getUnsignedVarLong();
+        if(count > this.startsInBasePairs.length)
+        {
+            this.chromosomeNumbers = new int[count];
+            this.startsInBasePairs = new long[count];
+            this.extentsInBasePairs = new long[count];
+            this.realValues = new double[count];
+            this.partitionIds = new int[count];
+        }
+        
+        int newPartitionCount = (int)buffer.getUnsignedVarLong();
+        for(int i = 0; i < newPartitionCount; i++)
+        {
+            int length = (int)buffer.getUnsignedVarLong();
+            if(this.type == CompactIntervalType.PARTITIONED)
+            {
+                long[] words = new long[length];
+                for(int j = 0; j < length; j++)
+                {
+                    words[j] = buffer.getUnsignedVarLong();
+                }
+                this.partitions.add(BitSet.valueOf(words));
+            }
+            else
+            {
+                short[] groups = new short[length];
+                for(int j = 0; j < length; j++)
+                {
+                    groups[j] = (short)buffer.getSignedVarLong();
+                }
+                this.partitions.add(groups);
+            }
+        }
+        
+        int decoded = 0;
+        while(decoded < count)
+        {
+            int chromosomeNumber = (int)buffer.getSignedVarLong();
+            int runLength = (int)buffer.getUnsignedVarLong();
+            if(runLength <= 0 || decoded + runLength > count)
+            {
+                throw new IOException("corrupt chromosome column");
+            }
+            for(int i = 0; i < runLength; i++)
+            {
+                this.chromosomeNumbers[decoded++] = chromosomeNumber;
+            }
+        }
+        
+        long previousStart = 0L;
+        for(int i = 0; i < count; i++)
+        {
+            previousStart += buffer.getSignedVarLong();
+            this.startsInBasePairs[i] = previousStart;
+        }
+        
+        for(int i = 0; i < count; i++)
+        {
+            this.extentsInBasePairs[i] = buffer.getSignedVarLong();
+        }
+        
+        if(this.type == CompactIntervalType.REAL_VALUED)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                this.realValues[i] = buffer.getDouble();
+            }
+        }
+        else if(this.type == CompactIntervalType.PARTITIONED ||
+                this.type == CompactIntervalType.MULTI_PARTITIONED)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                int partitionId = (int)buffer.getUnsignedVarLong();
+                if(partitionId >= this.partitions.size())
+                {
+                    throw new IOException(
+                            "reference to unknown partition: " + partitionId);
+                }
+                this.partitionIds[i] = partitionId;
+            }
+        }
+        
+        this.blockCount = count;
+        this.blockPosition = 0;
+        return true;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        this.input.close();
+    }
+}
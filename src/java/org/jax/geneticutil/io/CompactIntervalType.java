@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.util.Collection;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+
+/**
+ * The record types supported by {@link CompactIntervalWriter} and
+ * {@link CompactIntervalReader}. Every stream holds a single record type
+ * which fixes the set of columns written per interval.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum CompactIntervalType
+{
+    /**
+     * chromosome, start and extent only
+     */
+    SIMPLE,
+    
+    /**
+     * adds a real value column for {@link RealValuedBasePairInterval}s
+     */
+    REAL_VALUED,
+    
+    /**
+     * adds a deduplicated strain bit set column for
+     * {@link PartitionedInterval}s
+     */
+    PARTITIONED,
+    
+    /**
+     * adds a deduplicated strain group column for
+     * {@link MultiPartitionedInterval}s
+     */
+    MULTI_PARTITIONED;
+    
+    /**
+     * Pick the record type that holds all of the given intervals without
+     * losing data. The payload types don't nest (none of them can hold
+     * both a real value and a partition) so every interval must have the
+     * same record type, except that an empty collection is {@link #SIMPLE}
+     * @param intervals
+     *          the intervals
+     * @return
+     *          the record type
+     * @throws IllegalArgumentException
+     *          if the intervals need different record types. Writing them
+     *          with any one type would drop the payload of the others
+     */
+    public static CompactIntervalType forIntervals(
+            Collection<? extends BasePairInterval> intervals)
+            throws IllegalArgumentException
+    {
+        CompactIntervalType type = null;
+        for(BasePairInterval currInterval: intervals)
+        {
+            CompactIntervalType currType = forInterval(currInterval);
+            if(type == null)
+            {
+                type = currType;
+            }
+            else if(currType != type)
+            {
+                throw new IllegalArgumentException(
+                        "can't write " + type + " and " + currType +
+                        " intervals to the same stream without losing data. " +
+                        "Convert them to a common type first");
+            }
+        }
+        
+        return type == null ? SIMPLE : type;
+    }
+    
+    /**
+     * Pick the most specific record type for a single interval
+     * @param interval
+     *          the interval
+     * @return
+     *          the record type
+     */
+    public static CompactIntervalType forInterval(BasePairInterval interval)
+    {
+        if(interval instanceof PartitionedInterval)
+        {
+            return PARTITIONED;
+        }
+        else if(interval instanceof MultiPartitionedInterval)
+        {
+            return MULTI_PARTITIONED;
+        }
+        else if(interval instanceof RealValuedBasePairInterval)
+        {
+            return REAL_VALUED;
+        }
+        else
+        {
+            return SIMPLE;
+        }
+    }
+}
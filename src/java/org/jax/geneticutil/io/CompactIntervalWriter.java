@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+
+/**
+ * Streams intervals out in a compact columnar binary format. Intervals are
+ * buffered into blocks and each block is written column by column with
+ * run-length encoded chromosomes, zig-zag delta encoded start positions,
+ * variable length extents and (depending on the
+ * {@link CompactIntervalType}) a real value or partition id column.
+ * Partitions are deduplicated across the whole stream so each distinct
+ * strain partition is only written once. Use {@link CompactIntervalReader}
+ * to read the stream back.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class CompactIntervalWriter implements Closeable
+{
+    /**
+     * the magic bytes that every stream starts with
+     */
+    static final byte[] MAGIC = {'G', 'U', 'I', 'C'};
+    
+    /**
+     * the format version
+     */
+    static final int FORMAT_VERSION = 1;
+    
+    /**
+     * the default number of intervals buffered per block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+    
+    private final DataOutputStream output;
+    
+    private final CompactIntervalType type;
+    
+    private final int[] chromosomeNumbers;
+    
+    private final long[] startsInBasePairs;
+    
+    private final long[] extentsInBasePairs;
+    
+    private final double[] realValues;
+    
+    private final int[] partitionIds;
+    
+    private final Map<Object, Integer> partitionIdMap =
+        new HashMap<Object, Integer>();
+    
+    private final List<Object> newPartitions = new ArrayList<Object>();
+    
+    private final EncodingBuffer buffer = new EncodingBuffer(8192);
+    
+    private int bufferedCount = 0;
+    
+    private boolean finished = false;
+    
+    /**
+     * Constructor which uses the {@link #DEFAULT_BLOCK_SIZE}
+     * @param output
+     *          the stream to write to. Callers are responsible for
+     *          buffering it if needed
+     * @param type
+     *          the record type for this stream
+     * @throws IOException
+     *          if writing the header fails
+     */
+    public CompactIntervalWriter(
+            OutputStream output,
+            CompactIntervalType type)
+            throws IOException
+    {
+        this(output, type, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * Constructor
+     * @param output
+     *          the stream to write to. Callers are responsible for
+     *          buffering it if needed
+     * @param type
+     *          the record type for this stream
+     * @param blockSize
+     *          the number of intervals buffered per block
+     * @throws IOException
+     *          if writing the header fails
+     */
+    public CompactIntervalWriter(
+            OutputStream output,
+            CompactIntervalType type,
+            int blockSize)
+            throws IOException
+    {
+        this.output = new DataOutputStream(output);
+        this.type = type;
+        this.chromosomeNumbers = new int[blockSize];
+        this.startsInBasePairs = new long[blockSize];
+        this.extentsInBasePairs = new long[blockSize];
+        this.realValues = type == CompactIntervalType.REAL_VALUED ?
+                new double[blockSize] : null;
+        this.partitionIds = type == CompactIntervalType.PARTITIONED ||
+                            type == CompactIntervalType.MULTI_PARTITIONED ?
+                new int[blockSize] : null;
+        
+        this.output.write(MAGIC);
+        this.output.writeByte(FORMAT_VERSION);
+        this.output.writeByte(type.ordinal());
+    }
+    
+    /**
+     * Getter for the record type of this stream
+     * @return the type
+     */
+    public CompactIntervalType getType()
+    {
+        return this.type;
+    }
+    
+    /**
+     * Write all of the given intervals
+     * @param intervals
+     *          the intervals
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeIntervals(Collection<? extends BasePairInterval> intervals)
+            throws IOException
+    {
+        for(BasePairInterval currInterval: intervals)
+        {
+            this.writeInterval(currInterval);
+        }
+    }
+    
+    /**
+     * Write the given interval
+     * @param interval
+     *          the interval
+     * @throws IOException
+     *          if the write fails
+     * @throws IllegalArgumentException
+     *          if the interval doesn't match this stream's record type
+     */
+    public void writeInterval(BasePairInterval interval)
+            throws IOException, IllegalArgumentException
+    {
+        if(this.finished)
+        {
+            throw new IllegalStateException(
+                    "cannot write intervals after the stream is finished");
+        }
+        
+        int i = this.bufferedCount;
+        this.chromosomeNumbers[i] = interval.getChromosomeNumber();
+        this.startsInBasePairs[i] = interval.getStartInBasePairs();
+        this.extentsInBasePairs[i] = interval.getExtentInBasePairs();
+        switch(this.type)
+        {
+            case REAL_VALUED:
+                this.realValues[i] = asType(
+                        interval,
+                        RealValuedBasePairInterval.class).getRealValue();
+                break;
+            case PARTITIONED:
+                this.partitionIds[i] = this.toPartitionId(asType(
+                        interval,
+                        PartitionedInterval.class).getStrainBitSet());
+                break;
+            case MULTI_PARTITIONED:
+                this.partitionIds[i] = this.toPartitionId(new ShortArrayKey(asType(
+                        interval,
+                        MultiPartitionedInterval.class).getStrainGroups()));
+                break;
+            default:
+                break;
+        }
+        
+        this.bufferedCount++;
+        if(this.bufferedCount == this.startsInBasePairs.length)
+        {
+            this.writeBlock();
+        }
+    }
+    
+    private <T> T asType(BasePairInterval interval, Class<T> intervalClass)
+            throws IllegalArgumentException
+    {
+        if(intervalClass.isInstance(interval))
+        {
+            return intervalClass.cast(interval);
+        }
+        else
+        {
+            throw new IllegalArgumentException(
+                    "a " + this.type + " stream can only hold " +
+                    intervalClass.getSimpleName() + " intervals but was given " +
+                    "a " + interval.getClass().getName());
+        }
+    }
+    
+    private int toPartitionId(Object partitionKey)
+    {
+        Integer partitionId = this.partitionIdMap.get(partitionKey);
+        if(partitionId == null)
+        {
+            partitionId = this.partitionIdMap.size();
+            this.partitionIdMap.put(partitionKey, partitionId);
+            this.newPartitions.add(partitionKey);
+        }
+        return partitionId;
+    }
+    
+    private void writeBlock() throws IOException
+    {
+        EncodingBuffer buffer = this.buffer;
+        int count = this.bufferedCount;
+        buffer.clear();
+        buffer.putUnsignedVarLong(count);
+        
+        // partitions first seen in this block
+        buffer.putUnsignedVarLong(this.newPartitions.size());
+        for(Object partition: this.newPartitions)
+        {
+            if(partition instanceof BitSet)
+            {
+                long[] words = ((BitSet)partition).toLongArray();
+                buffer.putUnsignedVarLong(words.length);
+                for(long word: words)
+                {
+                    buffer.putUnsignedVarLong(word);
+                }
+            }
+            else
+            {
+                short[] groups = ((ShortArrayKey)partition).values;
+                buffer.putUnsignedVarLong(groups.length);
+                for(short group: groups)
+                {
+                    buffer.putSignedVarLong(group);
+                }
+            }
+        }
+        this.newPartitions.clear();
+        
+        // chromosome column as (chromosome, run length) pairs
+        int runStart = 0;
+        for(int i = 1; i <= count; i++)
+        {
+            if(i == count || this.chromosomeNumbers[i] != this.chromosomeNumbers[runStart])
+            {
+                buffer.putSignedVarLong(this.chromosomeNumbers[runStart]);
+                buffer.putUnsignedVarLong(i - runStart);
+                runStart = i;
+            }
+        }
+        
+        long previousStart = 0L;
+        for(int i = 0; i < count; i++)
+        {
+            buffer.putSignedVarLong(this.startsInBasePairs[i] - previousStart);
+            previousStart = this.startsInBasePairs[i];
+        }
+        
+        for(int i = 0; i < count; i++)
+        {
+            buffer.putSignedVarLong(this.extentsInBasePairs[i]);
+        }
+        
+        if(this.realValues != null)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                buffer.putDouble(this.realValues[i]);
+            }
+        }
+        
+        if(this.partitionIds != null)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                buffer.putUnsignedVarLong(this.partitionIds[i]);
+            }
+        }
+        
+        this.output.writeInt(buffer.size());
+        buffer.writeTo(this.output);
+        this.bufferedCount = 0;
+    }
+    
+    /**
+     * Write any buffered intervals and the end of stream marker without
+     * closing the underlying stream. This allows several interval streams
+     * to be embedded in one output
+     * @throws IOException
+     *          if the write fails
+     */
+    public void finish() throws IOException
+    {
+        if(!this.finished)
+        {
+            if(this.bufferedCount > 0)
+            {
+                this.writeBlock();
+            }
+            this.output.writeInt(0);
+            this.output.flush();
+            this.finished = true;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        this.finish();
+        this.output.close();
+    }
+    
+    /**
+     * a hashable wrapper for strain group arrays
+     */
+    static final class ShortArrayKey
+    {
+        final short[] values;
+        
+        private final int hashCode;
+        
+        ShortArrayKey(short[] values)
+        {
+            this.values = values;
+            this.hashCode = Arrays.hashCode(values);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object otherObject)
+        {
+            return otherObject instanceof ShortArrayKey &&
+                   Arrays.equals(this.values, ((ShortArrayKey)otherObject).values);
+        }
+    }
+}
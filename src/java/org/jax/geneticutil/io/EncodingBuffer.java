@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A growable byte buffer with variable length integer encoding used by
+ * the compact binary formats in this package. The same buffer is used for
+ * encoding (put methods) and decoding (get methods).
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+final class EncodingBuffer
+{
+    private byte[] bytes;
+    
+    private int position;
+    
+    private int limit;
+    
+    /**
+     * Constructor
+     * @param initialCapacity
+     *          the initial capacity in bytes
+     */
+    public EncodingBuffer(int initialCapacity)
+    {
+        this.bytes = new byte[initialCapacity];
+    }
+    
+    /**
+     * Clear the buffer so that it can be reused for encoding
+     */
+    public void clear()
+    {
+        this.position = 0;
+        this.limit = 0;
+    }
+    
+    /**
+     * Getter for the number of bytes encoded so far
+     * @return the size
+     */
+    public int size()
+    {
+        return this.position;
+    }
+    
+    /**
+     * Getter for the backing array. Only the first {@link #size()} bytes
+     * are valid
+     * @return the bytes
+     */
+    public byte[] getBytes()
+    {
+        return this.bytes;
+    }
+    
+    private void ensureCapacity(int additionalBytes)
+    {
+        int required = this.position + additionalBytes;
+        if(required > this.bytes.length)
+        {
+            byte[] newBytes = new byte[Math.max(required, 2 * this.bytes.length)];
+            System.arraycopy(this.bytes, 0, newBytes, 0, this.position);
+            this.bytes = newBytes;
+        }
+    }
+    
+    /**
+     * Encode an unsigned value using 7 bits per byte
+     * @param value
+     *          the value
+     */
+    public void putUnsignedVarLong(long value)
+    {
+        this.ensureCapacity(10);
+        while((value & ~0x7FL) != 0L)
+        {
+            this.bytes[this.position++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.bytes[this.position++] = (byte)value;
+    }
+    
+    /**
+     * Encode a signed value using zig-zag encoding so that values close to
+     * zero stay small
+     * @param value
+     *          the value
+     */
+    public void putSignedVarLong(long value)
+    {
+        this.putUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    /**
+     * Encode a double as 8 big endian bytes
+     * @param value
+     *          the value
+     */
+    public void putDouble(double value)
+    {
+        this.ensureCapacity(8);
+        long bits = Double.doubleToRawLongBits(value);
+        for(int shift = 56; shift >= 0; shift -= 8)
+        {
+            this.bytes[this.position++] = (byte)(bits >>> shift);
+        }
+    }
+    
+    /**
+     * Write the encoded bytes to the given stream
+     * @param output
+     *          the stream
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeTo(OutputStream output) throws IOException
+    {
+        output.write(this.bytes, 0, this.position);
+    }
+    
+    /**
+     * Replace the contents of this buffer with bytes read from the given
+     * input and prepare them for decoding
+     * @param input
+     *          the input
+     * @param length
+     *          the number of bytes to read
+     * @throws IOException
+     *          if the read fails
+     */
+    public void readFrom(DataInput input, int length) throws IOException
+    {
+        this.clear();
+        this.ensureCapacity(length);
+        input.readFully(this.bytes, 0, length);
+        this.limit = length;
+    }
+    
+    /**
+     * Prepare the given bytes for decoding
+     * @param source
+     *          the bytes (these are copied)
+     * @param offset
+     *          the offset into source
+     * @param length
+     *          the number of bytes
+     */
+    public void wrap(byte[] source, int offset, int length)
+    {
+        this.clear();
+        this.ensureCapacity(length);
+        System.arraycopy(source, offset, this.bytes, 0, length);
+        this.limit = length;
+    }
+    
+    private void checkRemaining(int byteCount) throws IOException
+    {
+        if(this.position + byteCount > this.limit)
+        {
+            throw new IOException("unexpected end of encoded data");
+        }
+    }
+    
+    /**
+     * Decode a value written with {@link #putUnsignedVarLong(long)}
+     * @return
+     *          the value
+     * @throws IOException
+     *          if the data is truncated
+     */
+    public long getUnsignedVarLong() throws IOException
+    {
+        long value = 0L;
+        for(int shift = 0; shift < 64; shift += 7)
+        {
+            this.checkRemaining(1);
+            byte currByte = this.bytes[this.position++];
+            value |= (long)(currByte & 0x7F) << shift;
+            if((currByte & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("malformed variable length integer");
+    }
+    
+    /**
+     * Decode a value written with {@link #putSignedVarLong(long)}
+     * @return
+     *          the value
+     * @throws IOException
+     *          if the data is truncated
+     */
+    public long getSignedVarLong() throws IOException
+    {
+        long zigZag = this.getUnsignedVarLong();
+        return (zigZag >>> 1) ^ -(zigZag & 1L);
+    }
+    
+    /**
+     * Decode a value written with {@link #putDouble(double)}
+     * @return
+     *          the value
+     * @throws IOException
+     *          if the data is truncated
+     */
+    public double getDouble() throws IOException
+    {
+        this.checkRemaining(8);
+        long bits = 0L;
+        for(int i = 0; i < 8; i++)
+        {
+            bits = (bits << 8) | (this.bytes[this.position++] & 0xFFL);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+}
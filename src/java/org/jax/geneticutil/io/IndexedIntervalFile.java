@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.metrics.Counter;
+import org.jax.geneticutil.metrics.MetricRegistry;
+import org.jax.geneticutil.metrics.Timer;
+
+/**
+ * Random access to a file written by {@link IndexedIntervalFileWriter}.
+ * Only the index is loaded when the file is opened. A region query looks
+ * up the blocks for the requested key and chromosome which overlap the
+ * region and only reads and inflates those blocks. Queries can be made
+ * concurrently from several threads.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class IndexedIntervalFile implements Closeable
+{
+    private static final int TRAILER_LENGTH =
+        8 + IndexedIntervalFileWriter.MAGIC.length;
+    
+    private static final Counter BLOCKS_READ = MetricRegistry.getDefault().counter(
+            "indexedIntervalFile.blocksRead");
+    
+    private static final Counter COMPRESSED_BYTES_READ = MetricRegistry.getDefault().counter(
+            "indexedIntervalFile.compressedBytesRead");
+    
+    private static final Counter INTERVALS_READ = MetricRegistry.getDefault().counter(
+            "indexedIntervalFile.intervalsRead");
+    
+    private static final Timer QUERY_TIMER = MetricRegistry.getDefault().timer(
+            "indexedIntervalFile.queryTime");
+    
+    private final FileChannel channel;
+    
+    private final CompactIntervalType type;
+    
+    private final Map<String, Map<Integer, ChromosomeBlocks>> index;
+    
+    /**
+     * Constructor
+     * @param file
+     *          the file to open
+     * @throws IOException
+     *          if the file can't be read or isn't an indexed interval file
+     */
+    public IndexedIntervalFile(File file) throws IOException
+    {
+        this.channel = new FileInputStream(file).getChannel();
+        
+        try
+        {
+            ByteBuffer header = this.read(0L, IndexedIntervalFileWriter.MAGIC.length + 2);
+            checkMagic(header);
+            int version = header.get() & 0xFF;
+            if(version != IndexedIntervalFileWriter.FORMAT_VERSION)
+            {
+                throw new IOException(
+                        "unsupported indexed interval file version: " + version);
+            }
+            this.type = CompactIntervalType.values()[header.get() & 0xFF];
+            
+            long fileSize = this.channel.size();
+            ByteBuffer trailer = this.read(fileSize - TRAILER_LENGTH, TRAILER_LENGTH);
+            long indexOffset = trailer.getLong();
+            checkMagic(trailer);
+            
+            ByteBuffer indexBytes = this.read(
+                    indexOffset,
+                    (int)(fileSize - TRAILER_LENGTH - indexOffset));
+            DataInputStream indexInput = new DataInputStream(new ByteArrayInputStream(
+                    indexBytes.array(),
+                    indexBytes.arrayOffset(),
+                    indexBytes.remaining()));
+            
+            int keyCount = indexInput.readInt();
+            this.index = new LinkedHashMap<String, Map<Integer, ChromosomeBlocks>>();
+            for(int i = 0; i < keyCount; i++)
+            {
+                String key = indexInput.readUTF();
+                int blockCount = indexInput.readInt();
+                Map<Integer, List<BlockEntry>> chromosomeEntries =
+                    new LinkedHashMap<Integer, List<BlockEntry>>();
+                for(int j = 0; j < blockCount; j++)
+                {
+                    BlockEntry blockEntry = new BlockEntry(
+                            indexInput.readInt(),
+                            indexInput.readLong(),
+                            indexInput.readLong(),
+                            indexInput.readLong(),
+                            indexInput.readInt(),
+                            indexInput.readInt());
+                    List<BlockEntry> entries =
+                        chromosomeEntries.get(blockEntry.chromosomeNumber);
+                    if(entries == null)
+                    {
+                        entries = new ArrayList<BlockEntry>();
+                        chromosomeEntries.put(blockEntry.chromosomeNumber, entries);
+                    }
+                    entries.add(blockEntry);
+                }
+                
+                Map<Integer, ChromosomeBlocks> chromosomeBlocks =
+                    new HashMap<Integer, ChromosomeBlocks>();
+                for(Map.Entry<Integer, List<BlockEntry>> entry:
+                    chromosomeEntries.entrySet())
+                {
+                    chromosomeBlocks.put(
+                            entry.getKey(),
+                            new ChromosomeBlocks(entry.getValue()));
+                }
+                this.index.put(key, chromosomeBlocks);
+            }
+        }
+        catch(IOException ex)
+        {
+            this.channel.close();
+            throw ex;
+        }
+        catch(RuntimeException ex)
+        {
+            this.channel.close();
+            throw new IOException("corrupt indexed interval file", ex);
+        }
+    }
+    
+    private static void checkMagic(ByteBuffer bytes) throws IOException
+    {
+        for(int i = 0; i < IndexedIntervalFileWriter.MAGIC.length; i++)
+        {
+            if(bytes.get() != IndexedIntervalFileWriter.MAGIC[i])
+            {
+                throw new IOException("not an indexed interval file");
+            }
+        }
+    }
+    
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while(bytes.hasRemaining())
+        {
+            if(this.channel.read(bytes, position + bytes.position()) == -1)
+            {
+                throw new IOException("unexpected end of indexed interval file");
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+    
+    /**
+     * Getter for the record type of the intervals in this file
+     * @return the type
+     */
+    public CompactIntervalType getType()
+    {
+        return this.type;
+    }
+    
+    /**
+     * Getter for the keys in this file
+     * @return the keys in the order they were written
+     */
+    public Set<String> getKeys()
+    {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+    
+    /**
+     * Getter for the chromosomes that have intervals for the given key
+     * @param key
+     *          the key
+     * @return
+     *          the chromosome numbers
+     */
+    public Set<Integer> getChromosomeNumbers(String key)
+    {
+        Map<Integer, ChromosomeBlocks> chromosomeBlocks = this.index.get(key);
+        if(chromosomeBlocks == null)
+        {
+            return Collections.emptySet();
+        }
+        else
+        {
+            return Collections.unmodifiableSet(chromosomeBlocks.keySet());
+        }
+    }
+    
+    /**
+     * Read all of the intervals for the given key and chromosome
+     * @param key
+     *          the key
+     * @param chromosomeNumber
+     *          the chromosome
+     * @return
+     *          the sorted intervals
+     * @throws IOException
+     *          if the read fails
+     */
+    public List<BasePairInterval> getIntervals(String key, int chromosomeNumber)
+            throws IOException
+    {
+        return this.getIntervals(
+                key,
+                chromosomeNumber,
+                Long.MIN_VALUE / 2,
+                Long.MAX_VALUE);
+    }
+    
+    /**
+     * Read the intervals for the given key which intersect the given region
+     * @param key
+     *          the key
+     * @param chromosomeNumber
+     *          the region's chromosome
+     * @param startInBasePairs
+     *          the region's start
+     * @param extentInBasePairs
+     *          the region's extent
+     * @return
+     *          the sorted intervals
+     * @throws IOException
+     *          if the read fails
+     */
+    public List<BasePairInterval> getIntervals(
+            String key,
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs)
+            throws IOException
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        Map<Integer, ChromosomeBlocks> chromosomeBlocksMap = this.index.get(key);
+        ChromosomeBlocks chromosomeBlocks = chromosomeBlocksMap == null ?
+                null :
+                chromosomeBlocksMap.get(chromosomeNumber);
+        if(chromosomeBlocks == null)
+        {
+            return intervals;
+        }
+        
+        long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+        int lastBlock = chromosomeBlocks.lastBlockStartingOnOrBefore(endInBasePairs);
+        int firstBlock = lastBlock + 1;
+        while(firstBlock > 0 &&
+              chromosomeBlocks.prefixMaxEndsInBasePairs[firstBlock - 1] >= startInBasePairs)
+        {
+            firstBlock--;
+        }
+        
+        long queryStartNanos = QUERY_TIMER.start();
+        Inflater inflater = new Inflater();
+        try
+        {
+            for(int i = firstBlock; i <= lastBlock; i++)
+            {
+                BlockEntry blockEntry = chromosomeBlocks.entries[i];
+                if(blockEntry.maxEndInBasePairs < startInBasePairs)
+                {
+                    continue;
+                }
+                
+                CompactIntervalReader blockReader = new CompactIntervalReader(
+                        new ByteArrayInputStream(this.inflateBlock(blockEntry, inflater)));
+                BasePairInterval currInterval;
+                while((currInterval = blockReader.readInterval()) != null)
+                {
+                    if(currInterval.getStartInBasePairs() <= endInBasePairs &&
+                       currInterval.getEndInBasePairs() >= startInBasePairs)
+                    {
+                        intervals.add(currInterval);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            inflater.end();
+            QUERY_TIMER.stop(queryStartNanos);
+        }
+        
+        INTERVALS_READ.add(intervals.size());
+        return intervals;
+    }
+    
+    private byte[] inflateBlock(BlockEntry blockEntry, Inflater inflater)
+            throws IOException
+    {
+        ByteBuffer compressedBytes = this.read(
+                blockEntry.offset,
+                blockEntry.compressedLength);
+        BLOCKS_READ.increment();
+        COMPRESSED_BYTES_READ.add(blockEntry.compressedLength);
+        byte[] uncompressedBytes = new byte[blockEntry.uncompressedLength];
+        inflater.reset();
+        inflater.setInput(compressedBytes.array(), 0, blockEntry.compressedLength);
+        try
+        {
+            int inflatedLength = 0;
+            while(inflatedLength < uncompressedBytes.length && !inflater.finished())
+            {
+                int count = inflater.inflate(
+                        uncompressedBytes,
+                        inflatedLength,
+                        uncompressedBytes.length - inflatedLength);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                inflatedLength += count;
+            }
+            
+            if(inflatedLength != uncompressedBytes.length)
+            {
+                throw new IOException("truncated block at offset " + blockEntry.offset);
+            }
+        }
+        catch(DataFormatException ex)
+        {
+            throw new IOException(
+                    "corrupt block at offset " + blockEntry.offset,
+                    ex);
+        }
+        return uncompressedBytes;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+    
+    /**
+     * The index entry for a single compressed block
+     */
+    static final class BlockEntry
+    {
+        final int chromosomeNumber;
+        
+        final long firstStartInBasePairs;
+        
+        final long maxEndInBasePairs;
+        
+        final long offset;
+        
+        final int compressedLength;
+        
+        final int uncompressedLength;
+        
+        BlockEntry(
+                int chromosomeNumber,
+                long firstStartInBasePairs,
+                long maxEndInBasePairs,
+                long offset,
+                int compressedLength,
+                int uncompressedLength)
+        {
+            this.chromosomeNumber = chromosomeNumber;
+            this.firstStartInBasePairs = firstStartInBasePairs;
+            this.maxEndInBasePairs = maxEndInBasePairs;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.uncompressedLength = uncompressedLength;
+        }
+    }
+    
+    /**
+     * The sorted blocks for one key and chromosome. The running max of the
+     * block ends lets us find every block that can reach back into a
+     * region even when the intervals overlap
+     */
+    private static final class ChromosomeBlocks
+    {
+        final BlockEntry[] entries;
+        
+        final long[] prefixMaxEndsInBasePairs;
+        
+        ChromosomeBlocks(List<BlockEntry> entries)
+        {
+            this.entries = entries.toArray(new BlockEntry[entries.size()]);
+            this.prefixMaxEndsInBasePairs = new long[this.entries.length];
+            long maxEnd = Long.MIN_VALUE;
+            for(int i = 0; i < this.entries.length; i++)
+            {
+                maxEnd = Math.max(maxEnd, this.entries[i].maxEndInBasePairs);
+                this.prefixMaxEndsInBasePairs[i] = maxEnd;
+            }
+        }
+        
+        int lastBlockStartingOnOrBefore(long positionInBasePairs)
+        {
+            int low = 0;
+            int high = this.entries.length;
+            while(low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if(this.entries[mid].firstStartInBasePairs <= positionInBasePairs)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low - 1;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+import org.jax.geneticutil.metrics.Counter;
+import org.jax.geneticutil.metrics.MetricRegistry;
+
+/**
+ * Writes a block compressed, region indexed interval file which can be
+ * queried with {@link IndexedIntervalFile}. Intervals are stored per key
+ * (eg: the strain pair keys of a {@link SnpIntervalListGroup}), sorted and
+ * cut into blocks that never span more than one chromosome. Each block is
+ * encoded with {@link CompactIntervalWriter} and then deflated. The index
+ * holding every block's key, chromosome, coordinate range and file offset
+ * is written at the end of the file.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class IndexedIntervalFileWriter implements Closeable
+{
+    /**
+     * the magic bytes at the start and end of every file
+     */
+    static final byte[] MAGIC = {'G', 'U', 'I', 'X'};
+    
+    /**
+     * the format version
+     */
+    static final int FORMAT_VERSION = 1;
+    
+    /**
+     * the default number of intervals per compressed block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    
+    private static final Counter BLOCKS_WRITTEN = MetricRegistry.getDefault().counter(
+            "indexedIntervalFile.blocksWritten");
+    
+    private static final Counter COMPRESSED_BYTES_WRITTEN = MetricRegistry.getDefault().counter(
+            "indexedIntervalFile.compressedBytesWritten");
+    
+    private static final Counter INTERVALS_WRITTEN = MetricRegistry.getDefault().counter(
+            "indexedIntervalFile.intervalsWritten");
+    
+    private final FileChannel channel;
+    
+    private final CompactIntervalType type;
+    
+    private final int blockSize;
+    
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    
+    private final Map<String, List<IndexedIntervalFile.BlockEntry>> index =
+        new LinkedHashMap<String, List<IndexedIntervalFile.BlockEntry>>();
+    
+    private byte[] compressedBytes = new byte[64 * 1024];
+    
+    /**
+     * Constructor which uses {@link #DEFAULT_BLOCK_SIZE}
+     * @param file
+     *          the file to write (any existing file is replaced)
+     * @param type
+     *          the record type of all the intervals in the file
+     * @throws IOException
+     *          if the file can't be created
+     */
+    public IndexedIntervalFileWriter(File file, CompactIntervalType type)
+            throws IOException
+    {
+        this(file, type, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * Constructor
+     * @param file
+     *          the file to write (any existing file is replaced)
+     * @param type
+     *          the record type of all the intervals in the file
+     * @param blockSize
+     *          the maximum number of intervals per compressed block
+     * @throws IOException
+     *          if the file can't be created
+     */
+    public IndexedIntervalFileWriter(
+            File file,
+            CompactIntervalType type,
+            int blockSize)
+            throws IOException
+    {
+        this.channel = new FileOutputStream(file).getChannel();
+        this.type = type;
+        this.blockSize = blockSize;
+        
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 2);
+        header.put(MAGIC);
+        header.put((byte)FORMAT_VERSION);
+        header.put((byte)type.ordinal());
+        header.flip();
+        this.writeFully(header);
+    }
+    
+    /**
+     * Write every key of the given group
+     * @param snpIntervalListGroup
+     *          the group
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeSnpIntervalListGroup(SnpIntervalListGroup snpIntervalListGroup)
+            throws IOException
+    {
+        for(Map.Entry<String, List<BasePairInterval>> entry:
+            snpIntervalListGroup.getSnpBlocksMap().entrySet())
+        {
+            this.writeIntervals(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Write the intervals for the given key
+     * @param key
+     *          the key. Each key can only be written once
+     * @param intervals
+     *          the intervals. These don't need to be sorted
+     * @throws IOException
+     *          if the write fails
+     */
+    public void writeIntervals(
+            String key,
+            List<? extends BasePairInterval> intervals)
+            throws IOException
+    {
+        if(this.index.containsKey(key))
+        {
+            throw new IllegalArgumentException(
+                    "intervals for key \"" + key + "\" were already written");
+        }
+        
+        List<BasePairInterval> sortedIntervals =
+            new ArrayList<BasePairInterval>(intervals);
+        Collections.sort(
+                sortedIntervals,
+                SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        
+        List<IndexedIntervalFile.BlockEntry> blockEntries =
+            new ArrayList<IndexedIntervalFile.BlockEntry>();
+        int blockStart = 0;
+        int intervalCount = sortedIntervals.size();
+        while(blockStart < intervalCount)
+        {
+            int chromosomeNumber =
+                sortedIntervals.get(blockStart).getChromosomeNumber();
+            int blockEnd = blockStart + 1;
+            while(blockEnd < intervalCount &&
+                  blockEnd - blockStart < this.blockSize &&
+                  sortedIntervals.get(blockEnd).getChromosomeNumber() == chromosomeNumber)
+            {
+                blockEnd++;
+            }
+            
+            blockEntries.add(this.writeBlock(
+                    sortedIntervals.subList(blockStart, blockEnd)));
+            blockStart = blockEnd;
+        }
+        
+        this.index.put(key, blockEntries);
+    }
+    
+    private IndexedIntervalFile.BlockEntry writeBlock(
+            List<BasePairInterval> blockIntervals)
+            throws IOException
+    {
+        long maxEndInBasePairs = Long.MIN_VALUE;
+        for(BasePairInterval currInterval: blockIntervals)
+        {
+            maxEndInBasePairs = Math.max(
+                    maxEndInBasePairs,
+                    currInterval.getEndInBasePairs());
+        }
+        
+        ByteArrayOutputStream encodedBlock = new ByteArrayOutputStream();
+        CompactIntervalWriter blockWriter = new CompactIntervalWriter(
+                encodedBlock,
+                this.type,
+                blockIntervals.size());
+        blockWriter.writeIntervals(blockIntervals);
+        blockWriter.finish();
+        byte[] uncompressedBytes = encodedBlock.toByteArray();
+        
+        this.deflater.reset();
+        this.deflater.setInput(uncompressedBytes);
+        this.deflater.finish();
+        int compressedLength = 0;
+        while(!this.deflater.finished())
+        {
+            if(compressedLength == this.compressedBytes.length)
+            {
+                byte[] newBytes = new byte[2 * this.compressedBytes.length];
+                System.arraycopy(this.compressedBytes, 0, newBytes, 0, compressedLength);
+                this.compressedBytes = newBytes;
+            }
+            compressedLength += this.deflater.deflate(
+                    this.compressedBytes,
+                    compressedLength,
+                    this.compressedBytes.length - compressedLength);
+        }
+        
+        long offset = this.channel.position();
+        this.writeFully(ByteBuffer.wrap(this.compressedBytes, 0, compressedLength));
+        BLOCKS_WRITTEN.increment();
+        COMPRESSED_BYTES_WRITTEN.add(compressedLength);
+        INTERVALS_WRITTEN.add(blockIntervals.size());
+        
+        BasePairInterval firstInterval = blockIntervals.get(0);
+        return new IndexedIntervalFile.BlockEntry(
+                firstInterval.getChromosomeNumber(),
+                firstInterval.getStartInBasePairs(),
+                maxEndInBasePairs,
+                offset,
+                compressedLength,
+                uncompressedBytes.length);
+    }
+    
+    private void writeFully(ByteBuffer bytes) throws IOException
+    {
+        while(bytes.hasRemaining())
+        {
+            this.channel.write(bytes);
+        }
+    }
+    
+    /**
+     * Write the index and close the file
+     * @throws IOException
+     *          if the write fails
+     */
+    public void close() throws IOException
+    {
+        long indexOffset = this.channel.position();
+        
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream indexOutput = new DataOutputStream(indexBytes);
+        indexOutput.writeInt(this.index.size());
+        for(Map.Entry<String, List<IndexedIntervalFile.BlockEntry>> entry:
+            this.index.entrySet())
+        {
+            indexOutput.writeUTF(entry.getKey());
+            indexOutput.writeInt(entry.getValue().size());
+            for(IndexedIntervalFile.BlockEntry blockEntry: entry.getValue())
+            {
+                indexOutput.writeInt(blockEntry.chromosomeNumber);
+                indexOutput.writeLong(blockEntry.firstStartInBasePairs);
+                indexOutput.writeLong(blockEntry.maxEndInBasePairs);
+                indexOutput.writeLong(blockEntry.offset);
+                indexOutput.writeInt(blockEntry.compressedLength);
+                indexOutput.writeInt(blockEntry.uncompressedLength);
+            }
+        }
+        indexOutput.writeLong(indexOffset);
+        indexOutput.write(MAGIC);
+        indexOutput.flush();
+        
+        this.writeFully(ByteBuffer.wrap(indexBytes.toByteArray()));
+        this.deflater.end();
+        this.channel.close();
+    }
+}
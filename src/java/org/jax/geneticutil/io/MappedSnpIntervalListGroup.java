@@ -0,0 +1,708 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.HeapFootprintEstimator;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+
+/**
+ * A {@link SnpIntervalListGroup} that is backed by a read only memory
+ * mapped file rather than holding all of its intervals on the heap. The
+ * file holds a key directory followed by primitive chromosome, start and
+ * extent columns for each key. Opening the group only reads the directory.
+ * The interval list for a key is materialized the first time that key is
+ * looked up in {@link #getSnpBlocksMap()} and is then shared by later
+ * lookups. Since the mapping is read only, any number of processes can
+ * map the same file at once. Files are mapped in windows of at most 1 GB so
+ * they aren't limited to the 2 GB that one mapping can address.
+ * <p>
+ * Serializing this group writes a plain {@link SnpIntervalListGroup} which
+ * holds every interval on the heap.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class MappedSnpIntervalListGroup extends SnpIntervalListGroup
+{
+    /**
+     * every {@link java.io.Serializable} is supposed to have one of these
+     */
+    private static final long serialVersionUID = -2896446513206571207L;
+    
+    /**
+     * the magic bytes that start every mapped group file
+     */
+    static final byte[] MAGIC = {'G', 'U', 'I', 'M'};
+    
+    /**
+     * the file format version that we read and write
+     */
+    static final int FORMAT_VERSION = 1;
+    
+    private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+    
+    /**
+     * the size of the windows that files are mapped in. A single
+     * {@link MappedByteBuffer} can't address more than 2 GB so larger files
+     * are mapped as several windows. This is a multiple of 8 so that the
+     * aligned int and long columns never straddle a window boundary
+     */
+    static final int DEFAULT_WINDOW_SIZE_IN_BYTES = 1 << 30;
+    
+    /**
+     * Constructor
+     * @param file
+     *          the file to map. This should have been written by
+     *          {@link #write(SnpIntervalListGroup, File)}
+     * @throws IOException
+     *          if the file can't be mapped or isn't a mapped group file
+     */
+    public MappedSnpIntervalListGroup(File file) throws IOException
+    {
+        this(file, DEFAULT_WINDOW_SIZE_IN_BYTES);
+    }
+    
+    /**
+     * Constructor which maps the file using the given window size
+     * @param file
+     *          the file to map
+     * @param windowSizeInBytes
+     *          the window size which must be a positive multiple of 8
+     * @throws IOException
+     *          if the file can't be mapped or isn't a mapped group file
+     */
+    MappedSnpIntervalListGroup(File file, int windowSizeInBytes)
+            throws IOException
+    {
+        this(MappedIntervalMap.load(file, windowSizeInBytes));
+    }
+    
+    private MappedSnpIntervalListGroup(MappedIntervalMap mappedIntervalMap)
+    {
+        super(mappedIntervalMap,
+              mappedIntervalMap.startInBasePairs,
+              mappedIntervalMap.extentInBasePairs);
+    }
+    
+    /**
+     * Get the number of intervals stored for the given key without
+     * materializing its interval list
+     * @param key
+     *          the key
+     * @return
+     *          the interval count or -1 if there is no such key
+     */
+    public int getIntervalCount(String key)
+    {
+        DirectoryEntry entry =
+            ((MappedIntervalMap)this.getSnpBlocksMap()).directory.get(key);
+        return entry == null ? -1 : entry.intervalCount;
+    }
+    
+    /**
+     * Estimate the heap used by this group. Unlike
+     * {@link HeapFootprintEstimator#estimateBytes(SnpIntervalListGroup)}
+     * this does not materialize any interval lists. It counts the key
+     * directory and the lists that have already been materialized but not
+     * the mapped file itself, which lives outside of the heap
+     * @param estimator
+     *          the estimator to use
+     * @return
+     *          the estimated size in bytes
+     */
+    public long estimateHeapBytes(HeapFootprintEstimator estimator)
+    {
+        MappedIntervalMap mappedIntervalMap =
+            (MappedIntervalMap)this.getSnpBlocksMap();
+        int keyCount = mappedIntervalMap.directory.size();
+        
+        // the group, the map (including the key set and values fields it
+        // inherits from AbstractMap), the directory with its linked entries
+        // and directory entries, and the window buffer objects (with their
+        // buffer position fields, address and flags)
+        int windowCount = mappedIntervalMap.mappedWindows.length;
+        long bytes =
+            estimator.estimateObjectBytes(1, 8 + 8) +
+            estimator.estimateObjectBytes(6, 8 + 8 + 4) +
+            estimator.estimateHashMapBytes(keyCount) +
+            keyCount * (2L * estimator.getReferenceSize() +
+                        estimator.estimateObjectBytes(0, 4 + 8)) +
+            estimator.estimateReferenceArrayBytes(windowCount) +
+            windowCount * estimator.estimateObjectBytes(4, 4 * 4 + 8 + 4 + 3);
+        for(String key: mappedIntervalMap.directory.keySet())
+        {
+            bytes += estimator.estimateBytes(key);
+        }
+        
+        bytes += estimator.estimateHashMapBytes(
+                mappedIntervalMap.materializedLists.size());
+        for(List<BasePairInterval> intervals:
+            mappedIntervalMap.materializedLists.values())
+        {
+            bytes += estimator.estimateBytes(intervals);
+        }
+        
+        return bytes;
+    }
+    
+    /**
+     * Write the given group to a file in the format that
+     * {@link #MappedSnpIntervalListGroup(File)} maps. The format only holds
+     * the chromosome, start and extent of each interval so intervals that
+     * carry anything more are rejected rather than silently losing data
+     * @param snpIntervalListGroup
+     *          the group to write
+     * @param file
+     *          the file to write to
+     * @throws IOException
+     *          if the write fails
+     * @throws IllegalArgumentException
+     *          if the group holds any {@link PartitionedInterval}s,
+     *          {@link MultiPartitionedInterval}s or
+     *          {@link RealValuedBasePairInterval}s. Nothing is written in
+     *          this case
+     */
+    public static void write(
+            SnpIntervalListGroup snpIntervalListGroup,
+            File file)
+            throws IOException, IllegalArgumentException
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            snpIntervalListGroup.getSnpBlocksMap();
+        List<byte[]> keyBytesList = new ArrayList<byte[]>(snpBlocksMap.size());
+        List<List<BasePairInterval>> intervalLists =
+            new ArrayList<List<BasePairInterval>>(snpBlocksMap.size());
+        
+        // header: magic, version, start, extent and key count
+        long directoryLength = MAGIC.length + 4 + 8 + 8 + 4;
+        for(Map.Entry<String, List<BasePairInterval>> entry: snpBlocksMap.entrySet())
+        {
+            for(BasePairInterval interval: entry.getValue())
+            {
+                if(interval instanceof PartitionedInterval ||
+                   interval instanceof MultiPartitionedInterval ||
+                   interval instanceof RealValuedBasePairInterval)
+                {
+                    throw new IllegalArgumentException(
+                            "mapped interval group files can't hold the " +
+                            "payload of " + interval.getClass().getName() +
+                            " intervals (found under key \"" +
+                            entry.getKey() + "\")");
+                }
+            }
+            
+            byte[] keyBytes = entry.getKey().getBytes(KEY_CHARSET);
+            keyBytesList.add(keyBytes);
+            intervalLists.add(entry.getValue());
+            
+            // key length, key, interval count and data offset
+            directoryLength += 4 + keyBytes.length + 4 + 8;
+        }
+        
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        try
+        {
+            out.write(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snpIntervalListGroup.getStartInBasePairs());
+            out.writeLong(snpIntervalListGroup.getExtentInBasePairs());
+            out.writeInt(keyBytesList.size());
+            
+            long dataOffset = alignToLong(directoryLength);
+            for(int i = 0; i < keyBytesList.size(); i++)
+            {
+                byte[] keyBytes = keyBytesList.get(i);
+                int intervalCount = intervalLists.get(i).size();
+                out.writeInt(keyBytes.length);
+                out.write(keyBytes);
+                out.writeInt(intervalCount);
+                out.writeLong(dataOffset);
+                dataOffset += dataLength(intervalCount);
+            }
+            writePadding(out, directoryLength);
+            
+            for(List<BasePairInterval> intervals: intervalLists)
+            {
+                for(BasePairInterval interval: intervals)
+                {
+                    out.writeInt(interval.getChromosomeNumber());
+                }
+                writePadding(out, 4L * intervals.size());
+                
+                for(BasePairInterval interval: intervals)
+                {
+                    out.writeLong(interval.getStartInBasePairs());
+                }
+                
+                for(BasePairInterval interval: intervals)
+                {
+                    out.writeLong(interval.getExtentInBasePairs());
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+    
+    /**
+     * Get the number of bytes used by the columns of one key. The int
+     * chromosome column is padded so that the long columns are aligned
+     * @param intervalCount
+     *          the number of intervals
+     * @return
+     *          the length in bytes
+     */
+    private static long dataLength(int intervalCount)
+    {
+        return alignToLong(4L * intervalCount) + 16L * intervalCount;
+    }
+    
+    private static long alignToLong(long length)
+    {
+        return (length + 7L) & ~7L;
+    }
+    
+    private static void writePadding(DataOutputStream out, long length)
+            throws IOException
+    {
+        for(long i = length; i < alignToLong(length); i++)
+        {
+            out.writeByte(0);
+        }
+    }
+    
+    /**
+     * Replace this group with a plain heap based group when serializing
+     * @return
+     *          the replacement
+     * @throws ObjectStreamException
+     *          declared as required by the serialization spec
+     */
+    private Object writeReplace() throws ObjectStreamException
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        for(Map.Entry<String, List<BasePairInterval>> entry:
+            this.getSnpBlocksMap().entrySet())
+        {
+            snpBlocksMap.put(
+                    entry.getKey(),
+                    new ArrayList<BasePairInterval>(entry.getValue()));
+        }
+        
+        return new SnpIntervalListGroup(
+                snpBlocksMap,
+                this.getStartInBasePairs(),
+                this.getExtentInBasePairs());
+    }
+    
+    /**
+     * Where a key's columns live in the mapped file
+     */
+    private static final class DirectoryEntry
+    {
+        final int intervalCount;
+        
+        final long dataOffset;
+        
+        DirectoryEntry(int intervalCount, long dataOffset)
+        {
+            this.intervalCount = intervalCount;
+            this.dataOffset = dataOffset;
+        }
+    }
+    
+    /**
+     * The lazily materialized key to interval list map that backs the
+     * group. Materialized lists are columnar copies of the mapped data
+     */
+    private static final class MappedIntervalMap
+    extends AbstractMap<String, List<BasePairInterval>>
+    {
+        final Map<String, DirectoryEntry> directory;
+        
+        final long startInBasePairs;
+        
+        final long extentInBasePairs;
+        
+        /**
+         * the file mapped in consecutive windows of
+         * {@link #windowSizeInBytes}
+         */
+        private final ByteBuffer[] mappedWindows;
+        
+        private final int windowSizeInBytes;
+        
+        private final ConcurrentMap<String, List<BasePairInterval>> materializedLists =
+            new ConcurrentHashMap<String, List<BasePairInterval>>();
+        
+        private final Set<Map.Entry<String, List<BasePairInterval>>> entrySet =
+            new AbstractSet<Map.Entry<String, List<BasePairInterval>>>()
+            {
+                @Override
+                public Iterator<Map.Entry<String, List<BasePairInterval>>> iterator()
+                {
+                    final Iterator<String> keyIter =
+                        MappedIntervalMap.this.directory.keySet().iterator();
+                    return new Iterator<Map.Entry<String, List<BasePairInterval>>>()
+                    {
+                        public boolean hasNext()
+                        {
+                            return keyIter.hasNext();
+                        }
+                        
+                        public Map.Entry<String, List<BasePairInterval>> next()
+                        {
+                            return new LazyEntry(keyIter.next());
+                        }
+                        
+                        public void remove()
+                        {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+                
+                @Override
+                public int size()
+                {
+                    return MappedIntervalMap.this.directory.size();
+                }
+            };
+        
+        private MappedIntervalMap(
+                Map<String, DirectoryEntry> directory,
+                long startInBasePairs,
+                long extentInBasePairs,
+                ByteBuffer[] mappedWindows,
+                int windowSizeInBytes)
+        {
+            this.directory = directory;
+            this.startInBasePairs = startInBasePairs;
+            this.extentInBasePairs = extentInBasePairs;
+            this.mappedWindows = mappedWindows;
+            this.windowSizeInBytes = windowSizeInBytes;
+        }
+        
+        static MappedIntervalMap load(File file, int windowSizeInBytes)
+                throws IOException
+        {
+            if(windowSizeInBytes <= 0 || windowSizeInBytes % 8 != 0)
+            {
+                throw new IllegalArgumentException(
+                        "the window size must be a positive multiple of 8: " +
+                        windowSizeInBytes);
+            }
+            
+            long fileLength = file.length();
+            long startInBasePairs;
+            long extentInBasePairs;
+            Map<String, DirectoryEntry> directory =
+                new LinkedHashMap<String, DirectoryEntry>();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            try
+            {
+                for(int i = 0; i < MAGIC.length; i++)
+                {
+                    if(in.readByte() != MAGIC[i])
+                    {
+                        throw new IOException(
+                                file + " is not a mapped interval group file");
+                    }
+                }
+                
+                int version = in.readInt();
+                if(version != FORMAT_VERSION)
+                {
+                    throw new IOException(
+                            "unsupported mapped interval group version: " + version);
+                }
+                
+                startInBasePairs = in.readLong();
+                extentInBasePairs = in.readLong();
+                int keyCount = in.readInt();
+                for(int i = 0; i < keyCount; i++)
+                {
+                    int keyLength = in.readInt();
+                    if(keyLength < 0 || keyLength > fileLength)
+                    {
+                        throw new IOException(
+                                "corrupt mapped interval group file: " + file);
+                    }
+                    byte[] keyBytes = new byte[keyLength];
+                    in.readFully(keyBytes);
+                    int intervalCount = in.readInt();
+                    long dataOffset = in.readLong();
+                    if(intervalCount < 0 ||
+                       dataOffset < 0L ||
+                       dataOffset % 8L != 0L ||
+                       dataOffset + dataLength(intervalCount) > fileLength)
+                    {
+                        throw new IOException(
+                                "truncated mapped interval group file: " + file);
+                    }
+                    directory.put(
+                            new String(keyBytes, KEY_CHARSET),
+                            new DirectoryEntry(intervalCount, dataOffset));
+                }
+            }
+            catch(EOFException ex)
+            {
+                throw new IOException(
+                        "truncated mapped interval group file: " + file,
+                        ex);
+            }
+            finally
+            {
+                in.close();
+            }
+            
+            ByteBuffer[] mappedWindows =
+                new ByteBuffer[(int)((fileLength + windowSizeInBytes - 1) / windowSizeInBytes)];
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try
+            {
+                FileChannel channel = randomAccessFile.getChannel();
+                for(int i = 0; i < mappedWindows.length; i++)
+                {
+                    long windowOffset = (long)i * windowSizeInBytes;
+                    mappedWindows[i] = channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            windowOffset,
+                            Math.min(windowSizeInBytes, fileLength - windowOffset));
+                }
+            }
+            finally
+            {
+                // the mappings stay valid after the file is closed
+                randomAccessFile.close();
+            }
+            
+            return new MappedIntervalMap(
+                    directory,
+                    startInBasePairs,
+                    extentInBasePairs,
+                    mappedWindows,
+                    windowSizeInBytes);
+        }
+        
+        @Override
+        public Set<Map.Entry<String, List<BasePairInterval>>> entrySet()
+        {
+            return this.entrySet;
+        }
+        
+        @Override
+        public int size()
+        {
+            return this.directory.size();
+        }
+        
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return this.directory.containsKey(key);
+        }
+        
+        @Override
+        public List<BasePairInterval> get(Object key)
+        {
+            List<BasePairInterval> intervals = this.materializedLists.get(key);
+            if(intervals == null)
+            {
+                DirectoryEntry entry = this.directory.get(key);
+                if(entry == null)
+                {
+                    return null;
+                }
+                
+                List<BasePairInterval> newIntervals = this.materialize(entry);
+                intervals = this.materializedLists.putIfAbsent(
+                        (String)key,
+                        newIntervals);
+                if(intervals == null)
+                {
+                    intervals = newIntervals;
+                }
+            }
+            
+            return intervals;
+        }
+        
+        private List<BasePairInterval> materialize(DirectoryEntry entry)
+        {
+            int count = entry.intervalCount;
+            long chromosomesOffset = entry.dataOffset;
+            long startsOffset = chromosomesOffset + alignToLong(4L * count);
+            long extentsOffset = startsOffset + 8L * count;
+            
+            int[] chromosomeNumbers = new int[count];
+            long[] startsInBasePairs = new long[count];
+            long[] extentsInBasePairs = new long[count];
+            this.readInts(chromosomesOffset, chromosomeNumbers);
+            this.readLongs(startsOffset, startsInBasePairs);
+            this.readLongs(extentsOffset, extentsInBasePairs);
+            
+            return new BasePairIntervalArray(
+                    chromosomeNumbers,
+                    startsInBasePairs,
+                    extentsInBasePairs).asList();
+        }
+        
+        /**
+         * Fill the given array from an int column which may span several
+         * windows
+         * @param offset
+         *          the file offset of the column
+         * @param values
+         *          the array to fill
+         */
+        private void readInts(long offset, int[] values)
+        {
+            int readCount = 0;
+            while(readCount < values.length)
+            {
+                long position = offset + 4L * readCount;
+                int windowPosition = (int)(position % this.windowSizeInBytes);
+                int count = Math.min(
+                        values.length - readCount,
+                        (this.windowSizeInBytes - windowPosition) / 4);
+                
+                // duplicate so that concurrent materializations don't
+                // share a buffer position
+                ByteBuffer window =
+                    this.mappedWindows[(int)(position / this.windowSizeInBytes)].duplicate();
+                window.position(windowPosition);
+                window.asIntBuffer().get(values, readCount, count);
+                readCount += count;
+            }
+        }
+        
+        /**
+         * Fill the given array from a long column which may span several
+         * windows
+         * @param offset
+         *          the file offset of the column
+         * @param values
+         *          the array to fill
+         */
+        private void readLongs(long offset, long[] values)
+        {
+            int readCount = 0;
+            while(readCount < values.length)
+            {
+                long position = offset + 8L * readCount;
+                int windowPosition = (int)(position % this.windowSizeInBytes);
+                int count = Math.min(
+                        values.length - readCount,
+                        (this.windowSizeInBytes - windowPosition) / 8);
+                
+                ByteBuffer window =
+                    this.mappedWindows[(int)(position / this.windowSizeInBytes)].duplicate();
+                window.position(windowPosition);
+                window.asLongBuffer().get(values, readCount, count);
+                readCount += count;
+            }
+        }
+        
+        /**
+         * A map entry that only materializes its value when asked
+         */
+        private final class LazyEntry
+        implements Map.Entry<String, List<BasePairInterval>>
+        {
+            private final String key;
+            
+            LazyEntry(String key)
+            {
+                this.key = key;
+            }
+            
+            public String getKey()
+            {
+                return this.key;
+            }
+            
+            public List<BasePairInterval> getValue()
+            {
+                return MappedIntervalMap.this.get(this.key);
+            }
+            
+            public List<BasePairInterval> setValue(List<BasePairInterval> value)
+            {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public boolean equals(Object other)
+            {
+                if(other instanceof Map.Entry<?, ?>)
+                {
+                    Map.Entry<?, ?> otherEntry = (Map.Entry<?, ?>)other;
+                    return this.key.equals(otherEntry.getKey()) &&
+                           this.getValue().equals(otherEntry.getValue());
+                }
+                else
+                {
+                    return false;
+                }
+            }
+            
+            @Override
+            public int hashCode()
+            {
+                return this.key.hashCode() ^ this.getValue().hashCode();
+            }
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The ungapped alignment blocks of one source chromosome, held in
+ * columns sorted by source position. Each chain owns the regions of the
+ * source chromosome that fall within its span and aren't in the span of a
+ * higher scoring chain, and only its blocks within those regions are
+ * kept. Neither the regions nor the blocks overlap on the source
+ * chromosome, so their starts and ends are sorted and a sorted batch of
+ * intervals can be mapped in one forward pass.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+final class ChainBlockIndex
+{
+    private static final Comparator<ChainBlock> SOURCE_START_COMPARATOR =
+        new Comparator<ChainBlock>()
+        {
+            public int compare(ChainBlock block1, ChainBlock block2)
+            {
+                return Long.compare(
+                        block1.sourceStartInBasePairs,
+                        block2.sourceStartInBasePairs);
+            }
+        };
+    
+    final long[] sourceStartsInBasePairs;
+    
+    final long[] sourceEndsInBasePairs;
+    
+    final int[] targetChromosomeNumbers;
+    
+    /**
+     * the target position that each block's first source base maps to
+     */
+    final long[] targetStartsInBasePairs;
+    
+    /**
+     * true for blocks aligned to the reverse strand of the target. The
+     * target positions of these blocks decrease as the source positions
+     * increase
+     */
+    final boolean[] reverseStrands;
+    
+    /**
+     * the chain that each block came from, given as the chain's position
+     * in its file
+     */
+    final int[] chainIds;
+    
+    final long[] regionStartsInBasePairs;
+    
+    final long[] regionEndsInBasePairs;
+    
+    /**
+     * the chain that owns each region
+     */
+    final int[] regionChainIds;
+    
+    private ChainBlockIndex(
+            List<ChainBlock> sortedBlocks,
+            List<ChainRegion> sortedRegions)
+    {
+        int size = sortedBlocks.size();
+        this.sourceStartsInBasePairs = new long[size];
+        this.sourceEndsInBasePairs = new long[size];
+        this.targetChromosomeNumbers = new int[size];
+        this.targetStartsInBasePairs = new long[size];
+        this.reverseStrands = new boolean[size];
+        this.chainIds = new int[size];
+        for(int i = 0; i < size; i++)
+        {
+            ChainBlock block = sortedBlocks.get(i);
+            this.sourceStartsInBasePairs[i] = block.sourceStartInBasePairs;
+            this.sourceEndsInBasePairs[i] = block.sourceEndInBasePairs;
+            this.targetChromosomeNumbers[i] = block.targetChromosomeNumber;
+            this.targetStartsInBasePairs[i] = block.targetStartInBasePairs;
+            this.reverseStrands[i] = block.reverseStrand;
+            this.chainIds[i] = block.chainOrder;
+        }
+        
+        int regionCount = sortedRegions.size();
+        this.regionStartsInBasePairs = new long[regionCount];
+        this.regionEndsInBasePairs = new long[regionCount];
+        this.regionChainIds = new int[regionCount];
+        for(int i = 0; i < regionCount; i++)
+        {
+            ChainRegion region = sortedRegions.get(i);
+            this.regionStartsInBasePairs[i] = region.sourceStartInBasePairs;
+            this.regionEndsInBasePairs[i] = region.sourceEndInBasePairs;
+            this.regionChainIds[i] = region.chainOrder;
+        }
+    }
+    
+    /**
+     * Getter for the number of blocks
+     * @return the block count
+     */
+    int size()
+    {
+        return this.sourceStartsInBasePairs.length;
+    }
+    
+    /**
+     * Build an index from the blocks of chains that may overlap on the
+     * source chromosome. Overlaps are resolved a chain at a time rather
+     * than a block at a time: in score order, each chain claims whatever
+     * part of its source span (first to last block) a higher scoring chain
+     * hasn't already claimed. So the best chain covering a position is
+     * used there even if the position falls in one of its gaps, and other
+     * chains only fill in outside its span, as in a liftOver run that
+     * doesn't allow multiple mappings. Blocks of the same chain which
+     * end up touching on both assemblies are joined
+     * @param blocks
+     *          the blocks of one source chromosome
+     * @return
+     *          the index
+     */
+    static ChainBlockIndex fromOverlappingBlocks(List<ChainBlock> blocks)
+    {
+        Map<Integer, List<ChainBlock>> blocksByChain =
+            new TreeMap<Integer, List<ChainBlock>>();
+        for(ChainBlock block: blocks)
+        {
+            List<ChainBlock> chainBlocks = blocksByChain.get(block.chainOrder);
+            if(chainBlocks == null)
+            {
+                chainBlocks = new ArrayList<ChainBlock>();
+                blocksByChain.put(block.chainOrder, chainBlocks);
+            }
+            chainBlocks.add(block);
+        }
+        
+        List<List<ChainBlock>> scoreOrderedChains =
+            new ArrayList<List<ChainBlock>>(blocksByChain.values());
+        for(List<ChainBlock> chainBlocks: scoreOrderedChains)
+        {
+            Collections.sort(chainBlocks, SOURCE_START_COMPARATOR);
+        }
+        Collections.sort(scoreOrderedChains, new Comparator<List<ChainBlock>>()
+        {
+            public int compare(List<ChainBlock> chain1, List<ChainBlock> chain2)
+            {
+                ChainBlock block1 = chain1.get(0);
+                ChainBlock block2 = chain2.get(0);
+                int scoreComparison = Double.compare(
+                        block2.chainScore,
+                        block1.chainScore);
+                if(scoreComparison != 0)
+                {
+                    return scoreComparison;
+                }
+                else
+                {
+                    return block1.chainOrder - block2.chainOrder;
+                }
+            }
+        });
+        
+        TreeMap<Long, ChainRegion> claimedRegions = new TreeMap<Long, ChainRegion>();
+        List<ChainBlock> keptBlocks = new ArrayList<ChainBlock>();
+        for(List<ChainBlock> chainBlocks: scoreOrderedChains)
+        {
+            int chainOrder = chainBlocks.get(0).chainOrder;
+            long spanStart = chainBlocks.get(0).sourceStartInBasePairs;
+            long spanEnd = spanStart;
+            for(ChainBlock block: chainBlocks)
+            {
+                spanEnd = Math.max(spanEnd, block.sourceEndInBasePairs);
+            }
+            
+            // walk the claimed regions that overlap this chain's span and
+            // claim the gaps between them
+            long unclaimedStart = spanStart;
+            Map.Entry<Long, ChainRegion> previousEntry =
+                claimedRegions.floorEntry(unclaimedStart);
+            if(previousEntry != null)
+            {
+                unclaimedStart = Math.max(
+                        unclaimedStart,
+                        previousEntry.getValue().sourceEndInBasePairs + 1);
+            }
+            
+            List<ChainRegion> newRegions = new ArrayList<ChainRegion>();
+            for(ChainRegion claimedRegion: claimedRegions.subMap(
+                    spanStart,
+                    false,
+                    spanEnd,
+                    true).values())
+            {
+                if(unclaimedStart < claimedRegion.sourceStartInBasePairs)
+                {
+                    newRegions.add(new ChainRegion(
+                            unclaimedStart,
+                            claimedRegion.sourceStartInBasePairs - 1,
+                            chainOrder));
+                }
+                unclaimedStart = Math.max(
+                        unclaimedStart,
+                        claimedRegion.sourceEndInBasePairs + 1);
+            }
+            if(unclaimedStart <= spanEnd)
+            {
+                newRegions.add(new ChainRegion(unclaimedStart, spanEnd, chainOrder));
+            }
+            
+            // keep the parts of the chain's blocks that fall in its regions.
+            // both are sorted so one pass does it
+            int regionCursor = 0;
+            for(ChainBlock block: chainBlocks)
+            {
+                while(regionCursor < newRegions.size() &&
+                      newRegions.get(regionCursor).sourceEndInBasePairs <
+                      block.sourceStartInBasePairs)
+                {
+                    regionCursor++;
+                }
+                for(int i = regionCursor;
+                    i < newRegions.size() &&
+                    newRegions.get(i).sourceStartInBasePairs <= block.sourceEndInBasePairs;
+                    i++)
+                {
+                    ChainRegion region = newRegions.get(i);
+                    keptBlocks.add(block.trim(
+                            Math.max(block.sourceStartInBasePairs, region.sourceStartInBasePairs),
+                            Math.min(block.sourceEndInBasePairs, region.sourceEndInBasePairs)));
+                }
+            }
+            
+            for(ChainRegion region: newRegions)
+            {
+                claimedRegions.put(region.sourceStartInBasePairs, region);
+            }
+        }
+        
+        Collections.sort(keptBlocks, SOURCE_START_COMPARATOR);
+        List<ChainBlock> joinedBlocks = new ArrayList<ChainBlock>(keptBlocks.size());
+        ChainBlock pendingBlock = null;
+        for(ChainBlock block: keptBlocks)
+        {
+            if(pendingBlock != null && pendingBlock.continuesWith(block))
+            {
+                pendingBlock = pendingBlock.join(block);
+            }
+            else
+            {
+                if(pendingBlock != null)
+                {
+                    joinedBlocks.add(pendingBlock);
+                }
+                pendingBlock = block;
+            }
+        }
+        if(pendingBlock != null)
+        {
+            joinedBlocks.add(pendingBlock);
+        }
+        
+        return new ChainBlockIndex(
+                joinedBlocks,
+                new ArrayList<ChainRegion>(claimedRegions.values()));
+    }
+    
+    /**
+     * A stretch of the source chromosome owned by one chain
+     */
+    private static final class ChainRegion
+    {
+        final long sourceStartInBasePairs;
+        
+        final long sourceEndInBasePairs;
+        
+        final int chainOrder;
+        
+        ChainRegion(
+                long sourceStartInBasePairs,
+                long sourceEndInBasePairs,
+                int chainOrder)
+        {
+            this.sourceStartInBasePairs = sourceStartInBasePairs;
+            this.sourceEndInBasePairs = sourceEndInBasePairs;
+            this.chainOrder = chainOrder;
+        }
+    }
+    
+    /**
+     * One ungapped alignment block as read from a chain
+     */
+    static final class ChainBlock
+    {
+        final long sourceStartInBasePairs;
+        
+        final long sourceEndInBasePairs;
+        
+        final int targetChromosomeNumber;
+        
+        final long targetStartInBasePairs;
+        
+        final boolean reverseStrand;
+        
+        final double chainScore;
+        
+        /**
+         * the position of the chain in its file which breaks score ties
+         */
+        final int chainOrder;
+        
+        /**
+         * Constructor
+         * @param sourceStartInBasePairs
+         *          the first source base
+         * @param sourceEndInBasePairs
+         *          the last source base
+         * @param targetChromosomeNumber
+         *          the target chromosome
+         * @param targetStartInBasePairs
+         *          the target base that the first source base maps to
+         * @param reverseStrand
+         *          true if the block is aligned to the target's reverse
+         *          strand
+         * @param chainScore
+         *          the score of the block's chain
+         * @param chainOrder
+         *          the position of the block's chain in the file
+         */
+        ChainBlock(
+                long sourceStartInBasePairs,
+                long sourceEndInBasePairs,
+                int targetChromosomeNumber,
+                long targetStartInBasePairs,
+                boolean reverseStrand,
+                double chainScore,
+                int chainOrder)
+        {
+            this.sourceStartInBasePairs = sourceStartInBasePairs;
+            this.sourceEndInBasePairs = sourceEndInBasePairs;
+            this.targetChromosomeNumber = targetChromosomeNumber;
+            this.targetStartInBasePairs = targetStartInBasePairs;
+            this.reverseStrand = reverseStrand;
+            this.chainScore = chainScore;
+            this.chainOrder = chainOrder;
+        }
+        
+        /**
+         * Get the target position that a source position maps to
+         * @param sourcePositionInBasePairs
+         *          a source position within this block
+         * @return
+         *          the target position
+         */
+        long toTargetPosition(long sourcePositionInBasePairs)
+        {
+            long offset = sourcePositionInBasePairs - this.sourceStartInBasePairs;
+            return this.reverseStrand ?
+                    this.targetStartInBasePairs - offset :
+                    this.targetStartInBasePairs + offset;
+        }
+        
+        /**
+         * Cut this block down to the given source range
+         * @param newSourceStartInBasePairs
+         *          the new first source base
+         * @param newSourceEndInBasePairs
+         *          the new last source base
+         * @return
+         *          the trimmed block
+         */
+        ChainBlock trim(
+                long newSourceStartInBasePairs,
+                long newSourceEndInBasePairs)
+        {
+            return new ChainBlock(
+                    newSourceStartInBasePairs,
+                    newSourceEndInBasePairs,
+                    this.targetChromosomeNumber,
+                    this.toTargetPosition(newSourceStartInBasePairs),
+                    this.reverseStrand,
+                    this.chainScore,
+                    this.chainOrder);
+        }
+        
+        /**
+         * Determine if the given block is from the same chain and picks up
+         * on both assemblies exactly where this one leaves off
+         * @param nextBlock
+         *          the block that follows this one on the source
+         * @return
+         *          true if the blocks can be joined
+         */
+        boolean continuesWith(ChainBlock nextBlock)
+        {
+            return nextBlock.chainOrder == this.chainOrder &&
+                   nextBlock.sourceStartInBasePairs == this.sourceEndInBasePairs + 1 &&
+                   nextBlock.targetChromosomeNumber == this.targetChromosomeNumber &&
+                   nextBlock.reverseStrand == this.reverseStrand &&
+                   nextBlock.targetStartInBasePairs ==
+                       this.toTargetPosition(nextBlock.sourceStartInBasePairs);
+        }
+        
+        /**
+         * Join this block with one that {@link #continuesWith(ChainBlock)}
+         * it
+         * @param nextBlock
+         *          the next block
+         * @return
+         *          the joined block
+         */
+        ChainBlock join(ChainBlock nextBlock)
+        {
+            return new ChainBlock(
+                    this.sourceStartInBasePairs,
+                    nextBlock.sourceEndInBasePairs,
+                    this.targetChromosomeNumber,
+                    this.targetStartInBasePairs,
+                    this.reverseStrand,
+                    this.chainScore,
+                    this.chainOrder);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jax.geneticutil.data.MouseChromosomes;
+
+/**
+ * A reader for UCSC chain files. A chain file describes the alignment of
+ * a source ("reference" or "t") assembly to a target ("query" or "q")
+ * assembly as a series of chains, each of which is a header line
+ * <pre>
+ * chain score tName tSize tStrand tStart tEnd qName qSize qStrand qStart qEnd id
+ * </pre>
+ * followed by ungapped alignment blocks given as "size dt dq" lines and a
+ * final "size" line. Chain coordinates are zero based and half open and
+ * reverse strand query coordinates count from the end of the query
+ * chromosome. Chains on sequences that aren't mouse chromosomes (eg:
+ * unplaced contigs) are skipped.
+ * @see <a href="https://genome.ucsc.edu/goldenPath/help/chain.html">the chain format</a>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ChainFileReader implements Closeable
+{
+    private static final int HEADER_FIELD_COUNT = 13;
+    
+    private final BufferedReader reader;
+    
+    private long lineNumber = 0L;
+    
+    private int skippedChainCount = 0;
+    
+    /**
+     * Constructor
+     * @param reader
+     *          the reader to read from
+     */
+    public ChainFileReader(BufferedReader reader)
+    {
+        this.reader = reader;
+    }
+    
+    /**
+     * Read all of the remaining chains
+     * @return
+     *          a liftover for the chains
+     * @throws IOException
+     *          if the read fails or the input is malformed
+     */
+    public Liftover readLiftover() throws IOException
+    {
+        Map<Integer, List<ChainBlockIndex.ChainBlock>> chromosomeBlocks =
+            new HashMap<Integer, List<ChainBlockIndex.ChainBlock>>();
+        String[] fields = new String[HEADER_FIELD_COUNT];
+        int chainOrder = 0;
+        
+        String line;
+        while((line = this.readLine()) != null)
+        {
+            int fieldCount = splitFields(line, fields);
+            if(fieldCount == 0 || line.charAt(0) == '#')
+            {
+                continue;
+            }
+            
+            if(fieldCount < HEADER_FIELD_COUNT || !fields[0].equals("chain"))
+            {
+                throw this.formatException("expected a chain header");
+            }
+            
+            double score = this.parseDouble(fields[1]);
+            String sourceName = fields[2];
+            if(!fields[4].equals("+"))
+            {
+                throw this.formatException("reference strand must be \"+\"");
+            }
+            long sourcePosition = this.parseLong(fields[5]);
+            String targetName = fields[7];
+            long targetSize = this.parseLong(fields[8]);
+            boolean reverseStrand = fields[9].equals("-");
+            long targetPosition = this.parseLong(fields[10]);
+            
+            int sourceChromosomeNumber;
+            int targetChromosomeNumber;
+            try
+            {
+                sourceChromosomeNumber = MouseChromosomes.parseChromosomeName(sourceName);
+                targetChromosomeNumber = MouseChromosomes.parseChromosomeName(targetName);
+            }
+            catch(IllegalArgumentException ex)
+            {
+                this.skipChainBlocks(fields);
+                this.skippedChainCount++;
+                continue;
+            }
+            
+            List<ChainBlockIndex.ChainBlock> blocks =
+                chromosomeBlocks.get(sourceChromosomeNumber);
+            if(blocks == null)
+            {
+                blocks = new ArrayList<ChainBlockIndex.ChainBlock>();
+                chromosomeBlocks.put(sourceChromosomeNumber, blocks);
+            }
+            
+            while(true)
+            {
+                line = this.readLine();
+                fieldCount = line == null ? 0 : splitFields(line, fields);
+                if(fieldCount != 1 && fieldCount != 3)
+                {
+                    throw this.formatException("expected an alignment block");
+                }
+                
+                long blockSize = this.parseLong(fields[0]);
+                if(blockSize > 0L)
+                {
+                    // convert the zero based chain coordinates to one based
+                    // base pair positions
+                    blocks.add(new ChainBlockIndex.ChainBlock(
+                            sourcePosition + 1L,
+                            sourcePosition + blockSize,
+                            targetChromosomeNumber,
+                            reverseStrand ? targetSize - targetPosition : targetPosition + 1L,
+                            reverseStrand,
+                            score,
+                            chainOrder));
+                }
+                
+                if(fieldCount == 1)
+                {
+                    break;
+                }
+                sourcePosition += blockSize + this.parseLong(fields[1]);
+                targetPosition += blockSize + this.parseLong(fields[2]);
+            }
+            chainOrder++;
+        }
+        
+        Map<Integer, ChainBlockIndex> blockIndices =
+            new HashMap<Integer, ChainBlockIndex>(2 * chromosomeBlocks.size());
+        for(Map.Entry<Integer, List<ChainBlockIndex.ChainBlock>> entry:
+            chromosomeBlocks.entrySet())
+        {
+            blockIndices.put(
+                    entry.getKey(),
+                    ChainBlockIndex.fromOverlappingBlocks(entry.getValue()));
+        }
+        return new Liftover(blockIndices);
+    }
+    
+    /**
+     * Getter for the number of chains that were skipped because they
+     * aren't on mouse chromosomes
+     * @return the skipped chain count
+     */
+    public int getSkippedChainCount()
+    {
+        return this.skippedChainCount;
+    }
+    
+    private void skipChainBlocks(String[] fields) throws IOException
+    {
+        String line;
+        do
+        {
+            line = this.readLine();
+        } while(line != null && splitFields(line, fields) != 1);
+    }
+    
+    private String readLine() throws IOException
+    {
+        String line = this.reader.readLine();
+        if(line != null)
+        {
+            this.lineNumber++;
+        }
+        return line;
+    }
+    
+    /**
+     * Split a line on spaces and tabs
+     * @param line
+     *          the line
+     * @param fields
+     *          the array to fill. fields past the end of this array are
+     *          counted but not stored
+     * @return
+     *          the field count
+     */
+    private static int splitFields(String line, String[] fields)
+    {
+        int fieldCount = 0;
+        int length = line.length();
+        int i = 0;
+        while(i < length)
+        {
+            while(i < length && isSeparator(line.charAt(i)))
+            {
+                i++;
+            }
+            
+            int fieldStart = i;
+            while(i < length && !isSeparator(line.charAt(i)))
+            {
+                i++;
+            }
+            
+            if(i > fieldStart)
+            {
+                if(fieldCount < fields.length)
+                {
+                    fields[fieldCount] = line.substring(fieldStart, i);
+                }
+                fieldCount++;
+            }
+        }
+        return fieldCount;
+    }
+    
+    private static boolean isSeparator(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+    
+    private long parseLong(String field) throws IOException
+    {
+        try
+        {
+            return Long.parseLong(field);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw this.formatException("bad integer \"" + field + "\"");
+        }
+    }
+    
+    private double parseDouble(String field) throws IOException
+    {
+        try
+        {
+            return Double.parseDouble(field);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw this.formatException("bad number \"" + field + "\"");
+        }
+    }
+    
+    private IOException formatException(String message)
+    {
+        return new IOException(
+                "malformed chain file at line " + this.lineNumber + ": " + message);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        this.reader.close();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import org.jax.geneticutil.data.BasePairInterval;
+
+/**
+ * Creates the lifted copy of an interval. This is how an interval's
+ * payload (eg: a real value or a strain partition) is carried over to the
+ * target assembly
+ * @param <T>   the interval type
+ * @see Liftover#liftOver(java.util.List, LiftedIntervalFactory)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface LiftedIntervalFactory<T extends BasePairInterval>
+{
+    /**
+     * Create a lifted interval. This is called once for every piece that
+     * a source interval maps to
+     * @param sourceInterval
+     *          the interval on the source assembly
+     * @param chromosomeNumber
+     *          the lifted chromosome
+     * @param startInBasePairs
+     *          the lifted start
+     * @param extentInBasePairs
+     *          the lifted extent
+     * @return
+     *          the lifted interval
+     */
+    public T createLiftedInterval(
+            T sourceInterval,
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs);
+}
@@ -0,0 +1,701 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.BasePairIntervalArrayBuilder;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.RealValuedBasePairIntervalArray;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+
+/**
+ * <p>
+ * Lifts intervals from one genome assembly to another using the
+ * alignment blocks of a UCSC chain file (see {@link ChainFileReader}).
+ * The blocks are held per source chromosome in sorted columns and a batch
+ * of intervals sorted by chromosome and start is mapped in a single
+ * forward pass over the blocks, so a batch costs time proportional to the
+ * number of intervals plus the number of blocks.
+ * </p>
+ * <p>
+ * An interval that spans gaps between the blocks of one chain is lifted
+ * to a single interval running from the first to the last target base
+ * that it maps to, as the UCSC liftOver tool does. The interval is only
+ * split where consecutive blocks come from different chains, target
+ * chromosomes or strands, or where a gap is longer than the
+ * {@link #getMaximumMergeGapInBasePairs() maximum merge gap}.
+ * </p>
+ * <p>
+ * Where chains overlap on the source assembly the highest scoring chain
+ * whose span covers a position is used there, including in its gaps, and
+ * lower scoring chains are only used outside its span. The
+ * {@link #getMinimumMappedFraction() minimum mapped fraction} is applied
+ * per chain: a chain's pieces are dropped unless that fraction of the
+ * interval bases it covers fall within its blocks. If less than the
+ * fraction of the whole interval is left mapped the interval is reported
+ * as unmapped instead.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class Liftover
+{
+    /**
+     * the default for {@link #getMinimumMappedFraction()} which matches the
+     * UCSC liftOver tool's default
+     */
+    public static final double DEFAULT_MINIMUM_MAPPED_FRACTION = 0.95;
+    
+    /**
+     * the default for {@link #getMaximumMergeGapInBasePairs()} which never
+     * splits an interval within a chain
+     */
+    public static final long DEFAULT_MAXIMUM_MERGE_GAP_IN_BASE_PAIRS = Long.MAX_VALUE;
+    
+    /**
+     * Lifts intervals as {@link SimpleBasePairInterval}s
+     */
+    public static final LiftedIntervalFactory<BasePairInterval> SIMPLE_INTERVAL_FACTORY =
+        new LiftedIntervalFactory<BasePairInterval>()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public BasePairInterval createLiftedInterval(
+                    BasePairInterval sourceInterval,
+                    int chromosomeNumber,
+                    long startInBasePairs,
+                    long extentInBasePairs)
+            {
+                return new SimpleBasePairInterval(
+                        chromosomeNumber,
+                        startInBasePairs,
+                        extentInBasePairs);
+            }
+        };
+    
+    /**
+     * Lifts real valued intervals keeping their values
+     */
+    public static final LiftedIntervalFactory<RealValuedBasePairInterval> REAL_VALUED_INTERVAL_FACTORY =
+        new LiftedIntervalFactory<RealValuedBasePairInterval>()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public RealValuedBasePairInterval createLiftedInterval(
+                    RealValuedBasePairInterval sourceInterval,
+                    int chromosomeNumber,
+                    long startInBasePairs,
+                    long extentInBasePairs)
+            {
+                return new SimpleRealValuedBasePairInterval(
+                        chromosomeNumber,
+                        startInBasePairs,
+                        extentInBasePairs,
+                        sourceInterval.getRealValue());
+            }
+        };
+    
+    /**
+     * Lifts partitioned intervals. The lifted intervals share their strain
+     * bit set with the source interval
+     */
+    public static final LiftedIntervalFactory<PartitionedInterval> PARTITIONED_INTERVAL_FACTORY =
+        new LiftedIntervalFactory<PartitionedInterval>()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public PartitionedInterval createLiftedInterval(
+                    PartitionedInterval sourceInterval,
+                    int chromosomeNumber,
+                    long startInBasePairs,
+                    long extentInBasePairs)
+            {
+                return new PartitionedInterval(
+                        chromosomeNumber,
+                        startInBasePairs,
+                        extentInBasePairs,
+                        sourceInterval.getStrainBitSet());
+            }
+        };
+    
+    /**
+     * Lifts multi-partitioned intervals. The lifted intervals share their
+     * strain groups with the source interval
+     */
+    public static final LiftedIntervalFactory<MultiPartitionedInterval> MULTI_PARTITIONED_INTERVAL_FACTORY =
+        new LiftedIntervalFactory<MultiPartitionedInterval>()
+        {
+            /**
+             * {@inheritDoc}
+             */
+            public MultiPartitionedInterval createLiftedInterval(
+                    MultiPartitionedInterval sourceInterval,
+                    int chromosomeNumber,
+                    long startInBasePairs,
+                    long extentInBasePairs)
+            {
+                return new MultiPartitionedInterval(
+                        chromosomeNumber,
+                        startInBasePairs,
+                        extentInBasePairs,
+                        sourceInterval.getStrainGroups());
+            }
+        };
+    
+    private final Map<Integer, ChainBlockIndex> blockIndices;
+    
+    private volatile double minimumMappedFraction = DEFAULT_MINIMUM_MAPPED_FRACTION;
+    
+    private volatile long maximumMergeGapInBasePairs =
+        DEFAULT_MAXIMUM_MERGE_GAP_IN_BASE_PAIRS;
+    
+    /**
+     * Constructor
+     * @param blockIndices
+     *          the blocks of each source chromosome
+     */
+    Liftover(Map<Integer, ChainBlockIndex> blockIndices)
+    {
+        this.blockIndices = blockIndices;
+    }
+    
+    /**
+     * Read a chain file. Files ending in ".gz" are decompressed
+     * @param chainFile
+     *          the file
+     * @return
+     *          the liftover
+     * @throws IOException
+     *          if the read fails or the file is malformed
+     */
+    public static Liftover readChainFile(File chainFile) throws IOException
+    {
+        InputStream input = new FileInputStream(chainFile);
+        try
+        {
+            if(chainFile.getName().endsWith(".gz"))
+            {
+                input = new GZIPInputStream(input);
+            }
+        }
+        catch(IOException ex)
+        {
+            input.close();
+            throw ex;
+        }
+        
+        ChainFileReader reader = new ChainFileReader(new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.US_ASCII)));
+        try
+        {
+            return reader.readLiftover();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+    
+    /**
+     * Getter for the source chromosomes that have alignment blocks
+     * @return the chromosome numbers
+     */
+    public Set<Integer> getSourceChromosomeNumbers()
+    {
+        return Collections.unmodifiableSet(this.blockIndices.keySet());
+    }
+    
+    /**
+     * Getter for the number of alignment blocks on a source chromosome
+     * @param chromosomeNumber
+     *          the source chromosome
+     * @return
+     *          the block count
+     */
+    public int getBlockCount(int chromosomeNumber)
+    {
+        ChainBlockIndex blockIndex = this.blockIndices.get(chromosomeNumber);
+        return blockIndex == null ? 0 : blockIndex.size();
+    }
+    
+    /**
+     * Getter for the fraction of an interval's base pairs that must fall
+     * within alignment blocks for the interval to be lifted
+     * @return the minimum mapped fraction
+     */
+    public double getMinimumMappedFraction()
+    {
+        return this.minimumMappedFraction;
+    }
+    
+    /**
+     * Setter for the minimum mapped fraction
+     * @param minimumMappedFraction
+     *          the new fraction
+     * @see #getMinimumMappedFraction()
+     */
+    public void setMinimumMappedFraction(double minimumMappedFraction)
+    {
+        this.minimumMappedFraction = minimumMappedFraction;
+    }
+    
+    /**
+     * Getter for the longest gap between the aligned pieces of an interval
+     * that will be merged over. The gap is the larger of the unaligned
+     * base pairs on the source and on the target. Pieces separated by a
+     * longer gap are lifted as separate intervals
+     * @return the maximum merge gap in base pairs
+     */
+    public long getMaximumMergeGapInBasePairs()
+    {
+        return this.maximumMergeGapInBasePairs;
+    }
+    
+    /**
+     * Setter for the maximum merge gap
+     * @param maximumMergeGapInBasePairs
+     *          the new gap. Use 0 to split an interval at every gap
+     * @see #getMaximumMergeGapInBasePairs()
+     */
+    public void setMaximumMergeGapInBasePairs(long maximumMergeGapInBasePairs)
+    {
+        this.maximumMergeGapInBasePairs = maximumMergeGapInBasePairs;
+    }
+    
+    /**
+     * Lift a batch of intervals
+     * @param <T>
+     *          the interval type
+     * @param sortedIntervals
+     *          the intervals sorted by chromosome and then by start
+     * @param factory
+     *          creates the lifted intervals, carrying over any payload.
+     *          See the factory constants in this class
+     * @return
+     *          the lifted and unmapped intervals
+     * @throws IllegalArgumentException
+     *          if the intervals are out of order
+     */
+    public <T extends BasePairInterval> LiftoverResult<T> liftOver(
+            List<? extends T> sortedIntervals,
+            LiftedIntervalFactory<T> factory)
+            throws IllegalArgumentException
+    {
+        List<T> mappedIntervals = new ArrayList<T>(sortedIntervals.size());
+        List<T> unmappedIntervals = new ArrayList<T>();
+        MergePass mergePass = new MergePass();
+        for(T interval: sortedIntervals)
+        {
+            int pieceCount = mergePass.map(
+                    interval.getChromosomeNumber(),
+                    interval.getStartInBasePairs(),
+                    interval.getExtentInBasePairs());
+            if(pieceCount == 0)
+            {
+                unmappedIntervals.add(interval);
+            }
+            else
+            {
+                for(int i = 0; i < pieceCount; i++)
+                {
+                    mappedIntervals.add(factory.createLiftedInterval(
+                            interval,
+                            mergePass.pieceChromosomeNumbers[i],
+                            mergePass.pieceStartsInBasePairs[i],
+                            mergePass.pieceExtentsInBasePairs[i]));
+                }
+            }
+        }
+        
+        return new LiftoverResult<T>(mappedIntervals, unmappedIntervals);
+    }
+    
+    /**
+     * Lift a batch of intervals held in columns. Real values are carried
+     * over if the array is a {@link RealValuedBasePairIntervalArray} and
+     * the result's source indices can be used to carry over any other
+     * columns
+     * @param sortedIntervals
+     *          the intervals sorted by chromosome and then by start
+     * @return
+     *          the lifted intervals and the indices of the unmapped ones
+     * @throws IllegalArgumentException
+     *          if the intervals are out of order
+     */
+    public LiftoverArrayResult liftOver(BasePairIntervalArray sortedIntervals)
+            throws IllegalArgumentException
+    {
+        int size = sortedIntervals.size();
+        int[] chromosomeNumbers = sortedIntervals.getChromosomeNumbers();
+        long[] startsInBasePairs = sortedIntervals.getStartsInBasePairs();
+        long[] extentsInBasePairs = sortedIntervals.getExtentsInBasePairs();
+        double[] realValues = sortedIntervals instanceof RealValuedBasePairIntervalArray ?
+                ((RealValuedBasePairIntervalArray)sortedIntervals).getRealValues() :
+                null;
+        
+        BasePairIntervalArrayBuilder builder = new BasePairIntervalArrayBuilder(size);
+        int[] mappedSourceIndices = new int[size];
+        int[] unmappedSourceIndices = new int[16];
+        int unmappedCount = 0;
+        MergePass mergePass = new MergePass();
+        for(int i = 0; i < size; i++)
+        {
+            int pieceCount = mergePass.map(
+                    chromosomeNumbers[i],
+                    startsInBasePairs[i],
+                    extentsInBasePairs[i]);
+            if(pieceCount == 0)
+            {
+                if(unmappedCount == unmappedSourceIndices.length)
+                {
+                    unmappedSourceIndices = Arrays.copyOf(
+                            unmappedSourceIndices,
+                            2 * unmappedCount);
+                }
+                unmappedSourceIndices[unmappedCount++] = i;
+            }
+            else
+            {
+                for(int j = 0; j < pieceCount; j++)
+                {
+                    if(builder.size() == mappedSourceIndices.length)
+                    {
+                        mappedSourceIndices = Arrays.copyOf(
+                                mappedSourceIndices,
+                                2 * mappedSourceIndices.length);
+                    }
+                    mappedSourceIndices[builder.size()] = i;
+                    builder.add(
+                            mergePass.pieceChromosomeNumbers[j],
+                            mergePass.pieceStartsInBasePairs[j],
+                            mergePass.pieceExtentsInBasePairs[j],
+                            realValues == null ? Double.NaN : realValues[i]);
+                }
+            }
+        }
+        
+        return new LiftoverArrayResult(
+                realValues == null ? builder.build() : builder.buildRealValued(),
+                Arrays.copyOf(mappedSourceIndices, builder.size()),
+                Arrays.copyOf(unmappedSourceIndices, unmappedCount));
+    }
+    
+    /**
+     * The state of one forward pass over the blocks. Each call to
+     * {@link #map(int, long, long)} leaves the lifted pieces of one
+     * interval in the piece columns
+     */
+    private class MergePass
+    {
+        private final double minimumMappedFraction =
+            Liftover.this.minimumMappedFraction;
+        
+        private final long maximumMergeGapInBasePairs =
+            Liftover.this.maximumMergeGapInBasePairs;
+        
+        int[] pieceChromosomeNumbers = new int[4];
+        
+        long[] pieceStartsInBasePairs = new long[4];
+        
+        long[] pieceExtentsInBasePairs = new long[4];
+        
+        private int previousChromosomeNumber = Integer.MIN_VALUE;
+        
+        private long previousStartInBasePairs = Long.MIN_VALUE;
+        
+        private ChainBlockIndex blockIndex = null;
+        
+        /**
+         * the first block that can overlap the current interval
+         */
+        private int blockCursor = 0;
+        
+        /**
+         * the first chain region that can overlap the current interval
+         */
+        private int regionCursor = 0;
+        
+        /**
+         * the chains covering the current interval along with the number
+         * of its bases that each covers and the number of those that fall
+         * in the chain's blocks. Only the first chainCount are in use
+         */
+        private int[] chainIds = new int[4];
+        
+        private long[] coveredBasePairsByChain = new long[4];
+        
+        private long[] alignedBasePairsByChain = new long[4];
+        
+        private int chainCount = 0;
+        
+        /**
+         * Find a chain's slot in the per chain columns, adding it if it
+         * isn't there yet
+         * @param chainId
+         *          the chain
+         * @return
+         *          the slot
+         */
+        private int chainSlot(int chainId)
+        {
+            for(int slot = 0; slot < this.chainCount; slot++)
+            {
+                if(this.chainIds[slot] == chainId)
+                {
+                    return slot;
+                }
+            }
+            
+            if(this.chainCount == this.chainIds.length)
+            {
+                int newLength = 2 * this.chainCount;
+                this.chainIds = Arrays.copyOf(this.chainIds, newLength);
+                this.coveredBasePairsByChain = Arrays.copyOf(
+                        this.coveredBasePairsByChain,
+                        newLength);
+                this.alignedBasePairsByChain = Arrays.copyOf(
+                        this.alignedBasePairsByChain,
+                        newLength);
+            }
+            int slot = this.chainCount++;
+            this.chainIds[slot] = chainId;
+            this.coveredBasePairsByChain[slot] = 0L;
+            this.alignedBasePairsByChain[slot] = 0L;
+            return slot;
+        }
+        
+        /**
+         * Lift the next interval
+         * @param chromosomeNumber
+         *          the interval's chromosome
+         * @param startInBasePairs
+         *          the interval's start
+         * @param extentInBasePairs
+         *          the interval's extent
+         * @return
+         *          the number of lifted pieces which is 0 if the interval
+         *          is unmapped
+         * @throws IllegalArgumentException
+         *          if the interval is out of order
+         */
+        int map(
+                int chromosomeNumber,
+                long startInBasePairs,
+                long extentInBasePairs)
+                throws IllegalArgumentException
+        {
+            if(chromosomeNumber == this.previousChromosomeNumber)
+            {
+                if(startInBasePairs < this.previousStartInBasePairs)
+                {
+                    throw new IllegalArgumentException(
+                            "intervals must be in genomic order but an interval " +
+                            "starting at " + startInBasePairs + " followed one " +
+                            "starting at " + this.previousStartInBasePairs);
+                }
+            }
+            else if(chromosomeNumber < this.previousChromosomeNumber)
+            {
+                throw new IllegalArgumentException(
+                        "intervals must be in genomic order but chromosome " +
+                        chromosomeNumber + " followed chromosome " +
+                        this.previousChromosomeNumber);
+            }
+            else
+            {
+                this.blockIndex = Liftover.this.blockIndices.get(chromosomeNumber);
+                this.blockCursor = 0;
+                this.regionCursor = 0;
+            }
+            this.previousChromosomeNumber = chromosomeNumber;
+            this.previousStartInBasePairs = startInBasePairs;
+            
+            ChainBlockIndex blockIndex = this.blockIndex;
+            if(blockIndex == null || extentInBasePairs <= 0L)
+            {
+                return 0;
+            }
+            
+            // block and region ends are sorted and interval starts never
+            // go backwards so the cursors only ever move forward
+            long[] sourceStarts = blockIndex.sourceStartsInBasePairs;
+            long[] sourceEnds = blockIndex.sourceEndsInBasePairs;
+            int blockCount = sourceStarts.length;
+            while(this.blockCursor < blockCount &&
+                  sourceEnds[this.blockCursor] < startInBasePairs)
+            {
+                this.blockCursor++;
+            }
+            long[] regionStarts = blockIndex.regionStartsInBasePairs;
+            long[] regionEnds = blockIndex.regionEndsInBasePairs;
+            int regionCount = regionStarts.length;
+            while(this.regionCursor < regionCount &&
+                  regionEnds[this.regionCursor] < startInBasePairs)
+            {
+                this.regionCursor++;
+            }
+            
+            // count the bases each chain covers and aligns so that the
+            // mapped fraction can be checked per chain. every block lies in
+            // a region of its own chain
+            long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+            this.chainCount = 0;
+            for(int i = this.regionCursor;
+                i < regionCount && regionStarts[i] <= endInBasePairs;
+                i++)
+            {
+                this.coveredBasePairsByChain[this.chainSlot(blockIndex.regionChainIds[i])] +=
+                    Math.min(endInBasePairs, regionEnds[i]) -
+                    Math.max(startInBasePairs, regionStarts[i]) + 1;
+            }
+            for(int i = this.blockCursor;
+                i < blockCount && sourceStarts[i] <= endInBasePairs;
+                i++)
+            {
+                this.alignedBasePairsByChain[this.chainSlot(blockIndex.chainIds[i])] +=
+                    Math.min(endInBasePairs, sourceEnds[i]) -
+                    Math.max(startInBasePairs, sourceStarts[i]) + 1;
+            }
+            
+            long mappedBasePairs = 0L;
+            for(int slot = 0; slot < this.chainCount; slot++)
+            {
+                if(this.isChainMapped(slot))
+                {
+                    mappedBasePairs += this.alignedBasePairsByChain[slot];
+                }
+            }
+            if(mappedBasePairs < this.minimumMappedFraction * extentInBasePairs)
+            {
+                return 0;
+            }
+            
+            int pieceCount = 0;
+            
+            // the chain, strand, source end and target span of the last
+            // piece which the next block may be merged into
+            int lastChainId = -1;
+            boolean lastReverseStrand = false;
+            long lastSourceEnd = 0L;
+            long lastTargetStart = 0L;
+            long lastTargetEnd = 0L;
+            for(int i = this.blockCursor;
+                i < blockCount && sourceStarts[i] <= endInBasePairs;
+                i++)
+            {
+                if(!this.isChainMapped(this.chainSlot(blockIndex.chainIds[i])))
+                {
+                    continue;
+                }
+                
+                long sourceStart = Math.max(startInBasePairs, sourceStarts[i]);
+                long sourceEnd = Math.min(endInBasePairs, sourceEnds[i]);
+                long alignedExtent = sourceEnd - sourceStart + 1;
+                int targetChromosomeNumber = blockIndex.targetChromosomeNumbers[i];
+                boolean reverseStrand = blockIndex.reverseStrands[i];
+                long targetStart = reverseStrand ?
+                        blockIndex.targetStartsInBasePairs[i] - (sourceEnd - sourceStarts[i]) :
+                        blockIndex.targetStartsInBasePairs[i] + (sourceStart - sourceStarts[i]);
+                long targetEnd = targetStart + alignedExtent - 1;
+                
+                if(pieceCount > 0 &&
+                   blockIndex.chainIds[i] == lastChainId &&
+                   targetChromosomeNumber == this.pieceChromosomeNumbers[pieceCount - 1] &&
+                   reverseStrand == lastReverseStrand)
+                {
+                    long sourceGap = sourceStart - lastSourceEnd - 1;
+                    long targetGap = reverseStrand ?
+                            lastTargetStart - targetEnd - 1 :
+                            targetStart - lastTargetEnd - 1;
+                    if(Math.max(sourceGap, targetGap) <= this.maximumMergeGapInBasePairs)
+                    {
+                        lastSourceEnd = sourceEnd;
+                        lastTargetStart = Math.min(lastTargetStart, targetStart);
+                        lastTargetEnd = Math.max(lastTargetEnd, targetEnd);
+                        this.pieceStartsInBasePairs[pieceCount - 1] = lastTargetStart;
+                        this.pieceExtentsInBasePairs[pieceCount - 1] =
+                            lastTargetEnd - lastTargetStart + 1;
+                        continue;
+                    }
+                }
+                
+                if(pieceCount == this.pieceStartsInBasePairs.length)
+                {
+                    int newLength = 2 * pieceCount;
+                    this.pieceChromosomeNumbers = Arrays.copyOf(
+                            this.pieceChromosomeNumbers,
+                            newLength);
+                    this.pieceStartsInBasePairs = Arrays.copyOf(
+                            this.pieceStartsInBasePairs,
+                            newLength);
+                    this.pieceExtentsInBasePairs = Arrays.copyOf(
+                            this.pieceExtentsInBasePairs,
+                            newLength);
+                }
+                this.pieceChromosomeNumbers[pieceCount] = targetChromosomeNumber;
+                this.pieceStartsInBasePairs[pieceCount] = targetStart;
+                this.pieceExtentsInBasePairs[pieceCount] = alignedExtent;
+                pieceCount++;
+                
+                lastChainId = blockIndex.chainIds[i];
+                lastReverseStrand = reverseStrand;
+                lastSourceEnd = sourceEnd;
+                lastTargetStart = targetStart;
+                lastTargetEnd = targetEnd;
+            }
+            
+            return pieceCount;
+        }
+        
+        /**
+         * Determine if enough of the bases a chain covers fall in its
+         * blocks for the chain to be used
+         * @param slot
+         *          the chain's slot
+         * @return
+         *          true if the chain passes the minimum mapped fraction
+         */
+        private boolean isChainMapped(int slot)
+        {
+            return this.alignedBasePairsByChain[slot] > 0L &&
+                   this.alignedBasePairsByChain[slot] >=
+                   this.minimumMappedFraction * this.coveredBasePairsByChain[slot];
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import org.jax.geneticutil.data.BasePairIntervalArray;
+
+/**
+ * The result of lifting a {@link BasePairIntervalArray}. Each lifted
+ * interval records the index of the source interval it came from so that
+ * any other columns the caller holds can be carried over
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class LiftoverArrayResult
+{
+    private final BasePairIntervalArray mappedIntervals;
+    
+    private final int[] mappedSourceIndices;
+    
+    private final int[] unmappedSourceIndices;
+    
+    /**
+     * Constructor
+     * @param mappedIntervals
+     *          see {@link #getMappedIntervals()}
+     * @param mappedSourceIndices
+     *          see {@link #getMappedSourceIndices()}
+     * @param unmappedSourceIndices
+     *          see {@link #getUnmappedSourceIndices()}
+     */
+    public LiftoverArrayResult(
+            BasePairIntervalArray mappedIntervals,
+            int[] mappedSourceIndices,
+            int[] unmappedSourceIndices)
+    {
+        this.mappedIntervals = mappedIntervals;
+        this.mappedSourceIndices = mappedSourceIndices;
+        this.unmappedSourceIndices = unmappedSourceIndices;
+    }
+    
+    /**
+     * Getter for the lifted intervals in source order. This is a
+     * {@link org.jax.geneticutil.data.RealValuedBasePairIntervalArray} if
+     * the source was
+     * @return the lifted intervals
+     */
+    public BasePairIntervalArray getMappedIntervals()
+    {
+        return this.mappedIntervals;
+    }
+    
+    /**
+     * Getter for the source index of each lifted interval. This is the
+     * backing array and must not be modified
+     * @return the source indices
+     */
+    public int[] getMappedSourceIndices()
+    {
+        return this.mappedSourceIndices;
+    }
+    
+    /**
+     * Getter for the indices of the source intervals that could not be
+     * lifted. This is the backing array and must not be modified
+     * @return the unmapped source indices in increasing order
+     */
+    public int[] getUnmappedSourceIndices()
+    {
+        return this.unmappedSourceIndices;
+    }
+}
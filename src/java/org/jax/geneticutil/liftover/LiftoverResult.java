@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+
+/**
+ * The result of lifting a list of intervals
+ * @param <T>   the interval type
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class LiftoverResult<T extends BasePairInterval>
+{
+    private final List<T> mappedIntervals;
+    
+    private final List<T> unmappedIntervals;
+    
+    /**
+     * Constructor
+     * @param mappedIntervals
+     *          see {@link #getMappedIntervals()}
+     * @param unmappedIntervals
+     *          see {@link #getUnmappedIntervals()}
+     */
+    public LiftoverResult(List<T> mappedIntervals, List<T> unmappedIntervals)
+    {
+        this.mappedIntervals = mappedIntervals;
+        this.unmappedIntervals = unmappedIntervals;
+    }
+    
+    /**
+     * Getter for the lifted intervals. These are in the order of the source
+     * intervals they came from, so they aren't necessarily sorted on the
+     * target assembly. A source interval that spans more than one chain,
+     * or a gap longer than {@link Liftover#getMaximumMergeGapInBasePairs()},
+     * contributes more than one lifted interval
+     * @return the lifted intervals
+     */
+    public List<T> getMappedIntervals()
+    {
+        return this.mappedIntervals;
+    }
+    
+    /**
+     * Getter for the source intervals that could not be lifted
+     * @return the unmapped source intervals
+     */
+    public List<T> getUnmappedIntervals()
+    {
+        return this.unmappedIntervals;
+    }
+}
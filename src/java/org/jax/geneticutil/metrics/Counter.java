@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.metrics;
+
+/**
+ * A count of events. Counters can also be decremented which makes them
+ * usable for things like queue depths. Implementations are striped so
+ * that threads updating the same counter don't contend
+ * @see MetricRegistry#counter(String)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface Counter
+{
+    /**
+     * Add one to the count
+     */
+    public void increment();
+    
+    /**
+     * Add the given amount to the count
+     * @param amount
+     *          the amount to add which can be negative
+     */
+    public void add(long amount);
+    
+    /**
+     * Getter for the current count
+     * @return the count
+     */
+    public long getCount();
+}
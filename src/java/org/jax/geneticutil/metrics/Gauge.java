@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.metrics;
+
+/**
+ * A value that is read on demand, such as a cache's size or hit rate.
+ * Gauges are only read when metrics are reported so they can be more
+ * expensive than a counter update
+ * @see MetricRegistry#registerGauge(String, Gauge)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface Gauge
+{
+    /**
+     * Getter for the current value
+     * @return the value
+     */
+    public double getValue();
+}
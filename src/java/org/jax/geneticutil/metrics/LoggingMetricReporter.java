@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link MetricReporter} that writes each snapshot to a
+ * {@link java.util.logging} logger, one metric per line
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class LoggingMetricReporter implements MetricReporter
+{
+    private static final Logger LOG = Logger.getLogger(
+            LoggingMetricReporter.class.getName());
+    
+    private final Logger logger;
+    
+    private final Level level;
+    
+    /**
+     * Constructor that logs to this class's logger at {@link Level#INFO}
+     */
+    public LoggingMetricReporter()
+    {
+        this(LOG, Level.INFO);
+    }
+    
+    /**
+     * Constructor
+     * @param logger
+     *          the logger to write to
+     * @param level
+     *          the level to log at
+     */
+    public LoggingMetricReporter(Logger logger, Level level)
+    {
+        this.logger = logger;
+        this.level = level;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void report(SortedMap<String, Number> snapshot)
+    {
+        if(this.logger.isLoggable(this.level) && !snapshot.isEmpty())
+        {
+            StringBuilder message = new StringBuilder("metrics:");
+            for(Map.Entry<String, Number> entry: snapshot.entrySet())
+            {
+                message.append("\n    ");
+                message.append(entry.getKey());
+                message.append(" = ");
+                message.append(entry.getValue());
+            }
+            this.logger.log(this.level, message.toString());
+        }
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * A registry of named {@link Counter}s, {@link Timer}s and {@link Gauge}s.
+ * Counters and timers are backed by {@link LongAdder}s so that scanning
+ * threads which update the same metric don't contend with each other.
+ * </p>
+ * <p>
+ * A disabled registry hands out shared no-op instruments, so instrumented
+ * code pays one virtual call per update and nothing else. The
+ * {@link #getDefault() default registry} is disabled unless the
+ * {@value #ENABLED_PROPERTY} system property is set to <code>true</code>.
+ * Code on a hot path should look its instruments up once and hold them in
+ * static fields rather than calling {@link #counter(String)} per event.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class MetricRegistry
+{
+    /**
+     * the system property that enables the {@link #getDefault() default}
+     * registry
+     */
+    public static final String ENABLED_PROPERTY =
+        "org.jax.geneticutil.metrics.enabled";
+    
+    /**
+     * the object name used by {@link #registerMBean()}
+     */
+    public static final String DEFAULT_OBJECT_NAME =
+        "org.jax.geneticutil:type=Metrics";
+    
+    /**
+     * suffix for the snapshot entry holding a timer's event count
+     */
+    public static final String TIMER_COUNT_SUFFIX = ".count";
+    
+    /**
+     * suffix for the snapshot entry holding a timer's total time
+     */
+    public static final String TIMER_TOTAL_NANOS_SUFFIX = ".totalNanos";
+    
+    /**
+     * suffix for the snapshot entry holding a timer's longest event
+     */
+    public static final String TIMER_MAX_NANOS_SUFFIX = ".maxNanos";
+    
+    private static final MetricRegistry DEFAULT_REGISTRY = new MetricRegistry(
+            Boolean.getBoolean(ENABLED_PROPERTY));
+    
+    private static final Counter NOOP_COUNTER = new Counter()
+    {
+        public void increment()
+        {
+            // no-op
+        }
+        
+        public void add(long amount)
+        {
+            // no-op
+        }
+        
+        public long getCount()
+        {
+            return 0L;
+        }
+    };
+    
+    private static final Timer NOOP_TIMER = new Timer()
+    {
+        public long start()
+        {
+            return 0L;
+        }
+        
+        public void stop(long startNanos)
+        {
+            // no-op
+        }
+        
+        public void record(long elapsedNanos)
+        {
+            // no-op
+        }
+        
+        public long getCount()
+        {
+            return 0L;
+        }
+        
+        public long getTotalNanos()
+        {
+            return 0L;
+        }
+        
+        public long getMaxNanos()
+        {
+            return 0L;
+        }
+    };
+    
+    private final boolean enabled;
+    
+    private final ConcurrentMap<String, Counter> counters =
+        new ConcurrentHashMap<String, Counter>();
+    
+    private final ConcurrentMap<String, Timer> timers =
+        new ConcurrentHashMap<String, Timer>();
+    
+    private final ConcurrentMap<String, Gauge> gauges =
+        new ConcurrentHashMap<String, Gauge>();
+    
+    /**
+     * Constructor
+     * @param enabled
+     *          if false every instrument handed out is a no-op
+     */
+    public MetricRegistry(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * Getter for the shared registry that the library instruments itself
+     * with
+     * @return the default registry
+     */
+    public static MetricRegistry getDefault()
+    {
+        return DEFAULT_REGISTRY;
+    }
+    
+    /**
+     * Determine if this registry records anything. Callers can check this
+     * to skip work that only exists to feed metrics (eg: building a metric
+     * name)
+     * @return true if enabled
+     */
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+    
+    /**
+     * Get or create the named counter
+     * @param name
+     *          the metric name
+     * @return
+     *          the counter
+     */
+    public Counter counter(String name)
+    {
+        if(!this.enabled)
+        {
+            return NOOP_COUNTER;
+        }
+        
+        Counter counter = this.counters.get(name);
+        if(counter == null)
+        {
+            Counter newCounter = new StripedCounter();
+            counter = this.counters.putIfAbsent(name, newCounter);
+            if(counter == null)
+            {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+    
+    /**
+     * Get or create the named timer
+     * @param name
+     *          the metric name
+     * @return
+     *          the timer
+     */
+    public Timer timer(String name)
+    {
+        if(!this.enabled)
+        {
+            return NOOP_TIMER;
+        }
+        
+        Timer timer = this.timers.get(name);
+        if(timer == null)
+        {
+            Timer newTimer = new StripedTimer();
+            timer = this.timers.putIfAbsent(name, newTimer);
+            if(timer == null)
+            {
+                timer = newTimer;
+            }
+        }
+        return timer;
+    }
+    
+    /**
+     * Register a gauge, replacing any gauge already registered under the
+     * same name. This does nothing if the registry is disabled
+     * @param name
+     *          the metric name
+     * @param gauge
+     *          the gauge
+     */
+    public void registerGauge(String name, Gauge gauge)
+    {
+        if(this.enabled)
+        {
+            this.gauges.put(name, gauge);
+        }
+    }
+    
+    /**
+     * Remove a gauge registered with {@link #registerGauge(String, Gauge)}
+     * @param name
+     *          the metric name
+     */
+    public void removeGauge(String name)
+    {
+        this.gauges.remove(name);
+    }
+    
+    /**
+     * Take a snapshot of every metric. Each timer contributes three entries
+     * using the {@link #TIMER_COUNT_SUFFIX}, {@link #TIMER_TOTAL_NANOS_SUFFIX}
+     * and {@link #TIMER_MAX_NANOS_SUFFIX} suffixes
+     * @return
+     *          the metric values keyed and sorted by name
+     */
+    public SortedMap<String, Number> getSnapshot()
+    {
+        SortedMap<String, Number> snapshot = new TreeMap<String, Number>();
+        for(Map.Entry<String, Counter> entry: this.counters.entrySet())
+        {
+            snapshot.put(entry.getKey(), entry.getValue().getCount());
+        }
+        
+        for(Map.Entry<String, Timer> entry: this.timers.entrySet())
+        {
+            String name = entry.getKey();
+            Timer timer = entry.getValue();
+            snapshot.put(name + TIMER_COUNT_SUFFIX, timer.getCount());
+            snapshot.put(name + TIMER_TOTAL_NANOS_SUFFIX, timer.getTotalNanos());
+            snapshot.put(name + TIMER_MAX_NANOS_SUFFIX, timer.getMaxNanos());
+        }
+        
+        for(Map.Entry<String, Gauge> entry: this.gauges.entrySet())
+        {
+            snapshot.put(entry.getKey(), entry.getValue().getValue());
+        }
+        
+        return snapshot;
+    }
+    
+    /**
+     * Register this registry with the platform MBean server under
+     * {@link #DEFAULT_OBJECT_NAME}. Every metric shows up as a read-only
+     * attribute. Registering a disabled registry does nothing
+     * @return
+     *          the name registered under or null if nothing was registered
+     * @throws JMException
+     *          if registration fails
+     */
+    public ObjectName registerMBean() throws JMException
+    {
+        return this.registerMBean(new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+    
+    /**
+     * Register this registry with the platform MBean server. Every metric
+     * shows up as a read-only attribute. Registering a disabled registry
+     * does nothing and registering under a name that is already taken
+     * replaces the existing bean
+     * @param objectName
+     *          the name to register under
+     * @return
+     *          the name registered under or null if nothing was registered
+     * @throws JMException
+     *          if registration fails
+     */
+    public ObjectName registerMBean(ObjectName objectName) throws JMException
+    {
+        if(!this.enabled)
+        {
+            return null;
+        }
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            return server.registerMBean(
+                    new MetricsMBean(), objectName).getObjectName();
+        }
+        catch(InstanceAlreadyExistsException ex)
+        {
+            server.unregisterMBean(objectName);
+            return server.registerMBean(
+                    new MetricsMBean(), objectName).getObjectName();
+        }
+    }
+    
+    /**
+     * A counter backed by a {@link LongAdder}
+     */
+    private static final class StripedCounter implements Counter
+    {
+        private final LongAdder count = new LongAdder();
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void increment()
+        {
+            this.count.increment();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void add(long amount)
+        {
+            this.count.add(amount);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public long getCount()
+        {
+            return this.count.sum();
+        }
+    }
+    
+    /**
+     * A timer backed by {@link LongAdder}s and a {@link LongAccumulator}
+     */
+    private static final class StripedTimer implements Timer
+    {
+        private static final LongBinaryOperator MAX = new LongBinaryOperator()
+        {
+            public long applyAsLong(long left, long right)
+            {
+                return Math.max(left, right);
+            }
+        };
+        
+        private final LongAdder count = new LongAdder();
+        
+        private final LongAdder totalNanos = new LongAdder();
+        
+        private final LongAccumulator maxNanos = new LongAccumulator(MAX, 0L);
+        
+        /**
+         * {@inheritDoc}
+         */
+        public long start()
+        {
+            return System.nanoTime();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void stop(long startNanos)
+        {
+            this.record(System.nanoTime() - startNanos);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void record(long elapsedNanos)
+        {
+            this.count.increment();
+            this.totalNanos.add(elapsedNanos);
+            this.maxNanos.accumulate(elapsedNanos);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public long getCount()
+        {
+            return this.count.sum();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public long getTotalNanos()
+        {
+            return this.totalNanos.sum();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public long getMaxNanos()
+        {
+            return this.maxNanos.get();
+        }
+    }
+    
+    /**
+     * Exposes {@link MetricRegistry#getSnapshot()} as read-only MBean
+     * attributes. The attribute set is rebuilt on every request since
+     * metrics can be added at any time
+     */
+    private class MetricsMBean implements DynamicMBean
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public Object getAttribute(String attribute)
+        throws AttributeNotFoundException
+        {
+            Number value = MetricRegistry.this.getSnapshot().get(attribute);
+            if(value == null)
+            {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public AttributeList getAttributes(String[] attributes)
+        {
+            SortedMap<String, Number> snapshot =
+                MetricRegistry.this.getSnapshot();
+            AttributeList attributeList = new AttributeList();
+            for(String attribute: attributes)
+            {
+                Number value = snapshot.get(attribute);
+                if(value != null)
+                {
+                    attributeList.add(new Attribute(attribute, value));
+                }
+            }
+            return attributeList;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public MBeanInfo getMBeanInfo()
+        {
+            SortedMap<String, Number> snapshot =
+                MetricRegistry.this.getSnapshot();
+            MBeanAttributeInfo[] attributeInfos =
+                new MBeanAttributeInfo[snapshot.size()];
+            int i = 0;
+            for(Map.Entry<String, Number> entry: snapshot.entrySet())
+            {
+                attributeInfos[i] = new MBeanAttributeInfo(
+                        entry.getKey(),
+                        entry.getValue().getClass().getName(),
+                        entry.getKey(),
+                        true,
+                        false,
+                        false);
+                i++;
+            }
+            
+            return new MBeanInfo(
+                    MetricRegistry.class.getName(),
+                    "genetic util metrics",
+                    attributeInfos,
+                    null,
+                    null,
+                    null);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public Object invoke(
+                String actionName,
+                Object[] params,
+                String[] signature)
+        {
+            throw new UnsupportedOperationException(
+                    "metrics have no operations");
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void setAttribute(Attribute attribute)
+        throws AttributeNotFoundException
+        {
+            throw new AttributeNotFoundException(
+                    "metric attributes are read-only: " + attribute.getName());
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public AttributeList setAttributes(AttributeList attributes)
+        {
+            return new AttributeList();
+        }
+    }
+}
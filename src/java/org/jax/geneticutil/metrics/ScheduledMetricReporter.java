@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.metrics;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically passes {@link MetricRegistry#getSnapshot() snapshots} to a
+ * {@link MetricReporter} from a daemon thread. Closing the reporter stops
+ * the schedule after sending one final snapshot
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ScheduledMetricReporter implements Closeable
+{
+    private static final Logger LOG = Logger.getLogger(
+            ScheduledMetricReporter.class.getName());
+    
+    private final MetricRegistry registry;
+    
+    private final MetricReporter reporter;
+    
+    private final ScheduledExecutorService executor;
+    
+    /**
+     * Constructor. Reporting starts right away unless the registry is
+     * disabled in which case nothing is ever reported
+     * @param registry
+     *          the registry to snapshot
+     * @param reporter
+     *          the reporter to send snapshots to
+     * @param period
+     *          the time between reports
+     * @param unit
+     *          the unit for period
+     */
+    public ScheduledMetricReporter(
+            MetricRegistry registry,
+            MetricReporter reporter,
+            long period,
+            TimeUnit unit)
+    {
+        this.registry = registry;
+        this.reporter = reporter;
+        
+        if(registry.isEnabled())
+        {
+            this.executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new Thread(
+                                    runnable,
+                                    "metric-reporter");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            this.executor.scheduleAtFixedRate(
+                    new Runnable()
+                    {
+                        public void run()
+                        {
+                            ScheduledMetricReporter.this.report();
+                        }
+                    },
+                    period,
+                    period,
+                    unit);
+        }
+        else
+        {
+            this.executor = null;
+        }
+    }
+    
+    /**
+     * Send a snapshot to the reporter now. Exceptions thrown by the
+     * reporter are logged rather than propagated so that one bad report
+     * doesn't cancel the schedule
+     */
+    public void report()
+    {
+        try
+        {
+            this.reporter.report(this.registry.getSnapshot());
+        }
+        catch(RuntimeException ex)
+        {
+            LOG.log(Level.WARNING,
+                    "failed to report metrics",
+                    ex);
+        }
+    }
+    
+    /**
+     * Stop reporting after sending a final snapshot
+     */
+    public void close()
+    {
+        if(this.executor != null)
+        {
+            this.executor.shutdownNow();
+            this.report();
+        }
+    }
+}
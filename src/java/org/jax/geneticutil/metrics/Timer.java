@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.metrics;
+
+/**
+ * Times events. To time a block of code use:
+ * <pre>
+ * long startNanos = timer.start();
+ * ...
+ * timer.stop(startNanos);
+ * </pre>
+ * When metrics are disabled {@link #start()} doesn't even read the clock.
+ * @see MetricRegistry#timer(String)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface Timer
+{
+    /**
+     * Start timing an event
+     * @return
+     *          the start time to pass to {@link #stop(long)}
+     */
+    public long start();
+    
+    /**
+     * Finish timing an event
+     * @param startNanos
+     *          the value returned by {@link #start()}
+     */
+    public void stop(long startNanos);
+    
+    /**
+     * Record an event that was timed some other way
+     * @param elapsedNanos
+     *          the event duration
+     */
+    public void record(long elapsedNanos);
+    
+    /**
+     * Getter for the number of events timed
+     * @return the count
+     */
+    public long getCount();
+    
+    /**
+     * Getter for the total time of all events
+     * @return the total in nanoseconds
+     */
+    public long getTotalNanos();
+    
+    /**
+     * Getter for the longest event
+     * @return the maximum in nanoseconds
+     */
+    public long getMaxNanos();
+}
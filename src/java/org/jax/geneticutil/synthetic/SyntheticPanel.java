@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.synthetic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jax.geneticutil.analysis.StrainSimilarityReducer;
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.ImmutableStrainChromosome;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+import org.jax.geneticutil.data.StrainPair;
+
+/**
+ * A {@link SyntheticPanelSink} that keeps everything in memory. The IBS
+ * intervals are exposed as {@link SnpIntervalListGroup}s keyed by strain
+ * pair (using {@link #STRAIN_PAIR_KEY_SEPARATOR}) so they can be fed
+ * straight into the analysis code, eg: with
+ * {@link StrainSimilarityReducer#createSeparatorKeyMapper(String)}. This
+ * class isn't thread safe so chromosomes generated in parallel need to be
+ * collected into separate panels.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SyntheticPanel implements SyntheticPanelSink
+{
+    /**
+     * the separator between the two strain names in IBS interval keys
+     */
+    public static final String STRAIN_PAIR_KEY_SEPARATOR = "|";
+    
+    private final Map<Integer, List<ImmutableStrainChromosome>> strainChromosomesMap =
+        new TreeMap<Integer, List<ImmutableStrainChromosome>>();
+    
+    private final Map<Integer, List<MultiPartitionedInterval>> haplotypeBlocksMap =
+        new TreeMap<Integer, List<MultiPartitionedInterval>>();
+    
+    private final Map<Integer, Map<String, List<BasePairInterval>>> ibsIntervalsMap =
+        new TreeMap<Integer, Map<String, List<BasePairInterval>>>();
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void chromosomeGenerated(
+            int chromosomeNumber,
+            ImmutableStrainChromosome[] strainChromosomes)
+    {
+        this.strainChromosomesMap.put(
+                chromosomeNumber,
+                Collections.unmodifiableList(Arrays.asList(strainChromosomes.clone())));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void haplotypeBlocksGenerated(
+            int chromosomeNumber,
+            List<MultiPartitionedInterval> haplotypeBlocks)
+    {
+        this.haplotypeBlocksMap.put(
+                chromosomeNumber,
+                Collections.unmodifiableList(haplotypeBlocks));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void ibsIntervalsGenerated(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            List<BasePairInterval> ibsIntervals)
+    {
+        Map<String, List<BasePairInterval>> chromosomeIbsIntervals =
+            this.ibsIntervalsMap.get(chromosomeNumber);
+        if(chromosomeIbsIntervals == null)
+        {
+            chromosomeIbsIntervals = new HashMap<String, List<BasePairInterval>>();
+            this.ibsIntervalsMap.put(chromosomeNumber, chromosomeIbsIntervals);
+        }
+        chromosomeIbsIntervals.put(
+                createStrainPairKey(strainPair),
+                Collections.unmodifiableList(ibsIntervals));
+    }
+    
+    /**
+     * Create the IBS interval key for a strain pair
+     * @param strainPair
+     *          the strain pair
+     * @return
+     *          the key
+     */
+    public static String createStrainPairKey(StrainPair strainPair)
+    {
+        return strainPair.getFirstStrainName() + STRAIN_PAIR_KEY_SEPARATOR +
+               strainPair.getSecondStrainName();
+    }
+    
+    /**
+     * Getter for the chromosomes that have been generated
+     * @return the chromosome numbers in ascending order
+     */
+    public Set<Integer> getChromosomeNumbers()
+    {
+        return Collections.unmodifiableSet(this.strainChromosomesMap.keySet());
+    }
+    
+    /**
+     * Getter for the strain chromosomes of the given chromosome
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @return
+     *          the strain chromosomes in strain order or null if the
+     *          chromosome hasn't been generated
+     */
+    public List<ImmutableStrainChromosome> getStrainChromosomes(int chromosomeNumber)
+    {
+        return this.strainChromosomesMap.get(chromosomeNumber);
+    }
+    
+    /**
+     * Getter for the haplotype blocks of the given chromosome
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @return
+     *          the blocks or null if the chromosome hasn't been generated
+     */
+    public List<MultiPartitionedInterval> getHaplotypeBlocks(int chromosomeNumber)
+    {
+        return this.haplotypeBlocksMap.get(chromosomeNumber);
+    }
+    
+    /**
+     * Getter for the IBS intervals of the given chromosome
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @return
+     *          the IBS intervals of every strain pair or null if no IBS
+     *          intervals were generated for the chromosome
+     */
+    public SnpIntervalListGroup getIbsIntervalGroup(int chromosomeNumber)
+    {
+        Map<String, List<BasePairInterval>> chromosomeIbsIntervals =
+            this.ibsIntervalsMap.get(chromosomeNumber);
+        if(chromosomeIbsIntervals == null)
+        {
+            return null;
+        }
+        
+        long minStartInBasePairs = Long.MAX_VALUE;
+        long maxEndInBasePairs = 0L;
+        for(List<BasePairInterval> ibsIntervals: chromosomeIbsIntervals.values())
+        {
+            if(!ibsIntervals.isEmpty())
+            {
+                minStartInBasePairs = Math.min(
+                        minStartInBasePairs,
+                        ibsIntervals.get(0).getStartInBasePairs());
+                maxEndInBasePairs = Math.max(
+                        maxEndInBasePairs,
+                        ibsIntervals.get(ibsIntervals.size() - 1).getEndInBasePairs());
+            }
+        }
+        
+        if(minStartInBasePairs == Long.MAX_VALUE)
+        {
+            return new SnpIntervalListGroup(
+                    Collections.unmodifiableMap(chromosomeIbsIntervals),
+                    0L,
+                    0L);
+        }
+        else
+        {
+            return new SnpIntervalListGroup(
+                    Collections.unmodifiableMap(chromosomeIbsIntervals),
+                    minStartInBasePairs,
+                    maxEndInBasePairs - minStartInBasePairs + 1L);
+        }
+    }
+}
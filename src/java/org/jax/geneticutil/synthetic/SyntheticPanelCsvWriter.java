@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.synthetic;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.ImmutableStrainChromosome;
+import org.jax.geneticutil.data.MouseChromosomes;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.StrainPair;
+
+/**
+ * A {@link SyntheticPanelSink} that streams the panel to comma separated
+ * files in a directory as it is generated:
+ * <ul>
+ * <li>{@value #GENOTYPES_FILE_NAME}: one row per SNP with the chromosome,
+ *     the position and then the allele of every strain</li>
+ * <li>{@value #HAPLOTYPE_BLOCKS_FILE_NAME}: one row per haplotype block with
+ *     the chromosome, start, end and then the ancestor of every strain</li>
+ * <li>{@value #IBS_INTERVALS_FILE_NAME}: one row per IBS interval with the
+ *     two strain names, the chromosome, start and end</li>
+ * </ul>
+ * Positions are 1-based and ends are inclusive. Only a single chromosome is
+ * held in memory at a time.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SyntheticPanelCsvWriter implements SyntheticPanelSink, Closeable
+{
+    /**
+     * the genotype file name
+     */
+    public static final String GENOTYPES_FILE_NAME = "genotypes.csv";
+    
+    /**
+     * the haplotype block file name
+     */
+    public static final String HAPLOTYPE_BLOCKS_FILE_NAME = "haplotype-blocks.csv";
+    
+    /**
+     * the IBS interval file name
+     */
+    public static final String IBS_INTERVALS_FILE_NAME = "ibs-intervals.csv";
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private final Writer genotypesWriter;
+    
+    private final Writer haplotypeBlocksWriter;
+    
+    private final Writer ibsIntervalsWriter;
+    
+    private final StringBuilder line = new StringBuilder();
+    
+    private boolean headersWritten = false;
+    
+    /**
+     * Constructor
+     * @param directory
+     *          the directory to write the files to. It's created if it
+     *          doesn't already exist
+     * @throws IOException
+     *          if the files can't be created
+     */
+    public SyntheticPanelCsvWriter(File directory) throws IOException
+    {
+        if(!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException(
+                    "failed to create directory: " + directory.getAbsolutePath());
+        }
+        
+        this.genotypesWriter = createWriter(new File(directory, GENOTYPES_FILE_NAME));
+        this.haplotypeBlocksWriter = createWriter(new File(directory, HAPLOTYPE_BLOCKS_FILE_NAME));
+        this.ibsIntervalsWriter = createWriter(new File(directory, IBS_INTERVALS_FILE_NAME));
+        
+        this.ibsIntervalsWriter.write("strain1,strain2,chromosome,start,end\n");
+    }
+    
+    private static Writer createWriter(File file) throws IOException
+    {
+        return new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), "US-ASCII"),
+                BUFFER_SIZE);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void chromosomeGenerated(
+            int chromosomeNumber,
+            ImmutableStrainChromosome[] strainChromosomes)
+            throws IOException
+    {
+        if(!this.headersWritten)
+        {
+            this.writeHeaders(strainChromosomes);
+        }
+        
+        String chromosomeName = MouseChromosomes.toChromosomeName(chromosomeNumber);
+        long[] positionsInBasePairs = strainChromosomes[0].getPositionsInBasePairs();
+        for(int snpIndex = 0; snpIndex < positionsInBasePairs.length; snpIndex++)
+        {
+            this.line.setLength(0);
+            this.line.append(chromosomeName).append(',').append(positionsInBasePairs[snpIndex]);
+            for(ImmutableStrainChromosome strainChromosome: strainChromosomes)
+            {
+                this.line.append(',').append(strainChromosome.getSnpType(snpIndex));
+            }
+            this.line.append('\n');
+            this.genotypesWriter.append(this.line);
+        }
+    }
+    
+    private void writeHeaders(ImmutableStrainChromosome[] strainChromosomes)
+            throws IOException
+    {
+        StringBuilder strainColumns = new StringBuilder();
+        for(ImmutableStrainChromosome strainChromosome: strainChromosomes)
+        {
+            strainColumns.append(',').append(strainChromosome.getStrainName());
+        }
+        strainColumns.append('\n');
+        
+        this.genotypesWriter.write("chromosome,position");
+        this.genotypesWriter.append(strainColumns);
+        this.haplotypeBlocksWriter.write("chromosome,start,end");
+        this.haplotypeBlocksWriter.append(strainColumns);
+        this.headersWritten = true;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void haplotypeBlocksGenerated(
+            int chromosomeNumber,
+            List<MultiPartitionedInterval> haplotypeBlocks)
+            throws IOException
+    {
+        String chromosomeName = MouseChromosomes.toChromosomeName(chromosomeNumber);
+        for(MultiPartitionedInterval haplotypeBlock: haplotypeBlocks)
+        {
+            this.line.setLength(0);
+            this.line.append(chromosomeName).append(',');
+            this.line.append(haplotypeBlock.getStartInBasePairs()).append(',');
+            this.line.append(haplotypeBlock.getEndInBasePairs());
+            for(short strainGroup: haplotypeBlock.getStrainGroups())
+            {
+                this.line.append(',').append(strainGroup);
+            }
+            this.line.append('\n');
+            this.haplotypeBlocksWriter.append(this.line);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void ibsIntervalsGenerated(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            List<BasePairInterval> ibsIntervals)
+            throws IOException
+    {
+        String chromosomeName = MouseChromosomes.toChromosomeName(chromosomeNumber);
+        for(BasePairInterval ibsInterval: ibsIntervals)
+        {
+            this.line.setLength(0);
+            this.line.append(strainPair.getFirstStrainName()).append(',');
+            this.line.append(strainPair.getSecondStrainName()).append(',');
+            this.line.append(chromosomeName).append(',');
+            this.line.append(ibsInterval.getStartInBasePairs()).append(',');
+            this.line.append(ibsInterval.getEndInBasePairs()).append('\n');
+            this.ibsIntervalsWriter.append(this.line);
+        }
+    }
+    
+    /**
+     * Flush and close all of the files
+     * @throws IOException
+     *          if a file fails to close
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            this.genotypesWriter.close();
+        }
+        finally
+        {
+            try
+            {
+                this.haplotypeBlocksWriter.close();
+            }
+            finally
+            {
+                this.ibsIntervalsWriter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,719 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.synthetic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.ImmutableStrainChromosome;
+import org.jax.geneticutil.data.MouseChromosomes;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SnpType;
+import org.jax.geneticutil.data.StrainPair;
+
+/**
+ * Generates a synthetic mouse strain panel for benchmarks and stress tests.
+ * Every strain is a mosaic of a small number of ancestral haplotypes (like
+ * the founders of the Collaborative Cross) with exponentially distributed
+ * block lengths, and the SNP alleles of a strain are copied from whichever
+ * ancestor it descends from at each SNP. Because the mosaic is known we also
+ * get the "true" haplotype blocks and pairwise IBS intervals to check
+ * analysis results against.
+ * <p>
+ * Output is fully determined by the seed and the settings. Each chromosome
+ * is generated from its own random stream so
+ * {@link #generateChromosome(int, SyntheticPanelSink)} can be called for
+ * different chromosomes in parallel, and generating a subset of the
+ * chromosomes gives the same data for those chromosomes as generating all
+ * of them. Strain mosaics are generated in strain order so a bigger panel
+ * starts with the same strains as a smaller one with the same seed.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SyntheticPanelGenerator
+{
+    /**
+     * the most ancestors we support. ancestors are tracked as bits in a long
+     */
+    public static final int MAX_ANCESTOR_COUNT = 64;
+    
+    /**
+     * the GRCm38 chromosome lengths indexed by chromosome number
+     */
+    private static final long[] CHROMOSOME_LENGTHS_IN_BASE_PAIRS = new long[] {
+        0L,
+        195471971L, 182113224L, 160039680L, 156508116L, 151834684L,
+        149736546L, 145441459L, 129401213L, 124595110L, 130694993L,
+        122082543L, 120129022L, 120421639L, 124902244L, 104043685L,
+        98207768L, 94987271L, 90702639L, 61431566L,
+        171031299L, // X
+        91744698L,  // Y
+        16299L};    // M
+    
+    private static final int[] DEFAULT_CHROMOSOME_NUMBERS;
+    static
+    {
+        DEFAULT_CHROMOSOME_NUMBERS = new int[MouseChromosomes.X_CHROMOSOME_NUMBER];
+        for(int i = 0; i < DEFAULT_CHROMOSOME_NUMBERS.length; i++)
+        {
+            DEFAULT_CHROMOSOME_NUMBERS[i] = i + 1;
+        }
+    }
+    
+    private static final SnpType[] SNP_TYPES = SnpType.values();
+    
+    /**
+     * each chromosome uses separate random streams for the SNP sites, the
+     * strain mosaics and the mutations so that changing the SNP density or
+     * mutation rate doesn't change the true haplotype blocks
+     */
+    private static final int SITE_STREAM = 0;
+    
+    private static final int MOSAIC_STREAM = 1;
+    
+    private static final int MUTATION_STREAM = 2;
+    
+    private static final int STREAM_COUNT = 3;
+    
+    private final long seed;
+    
+    private final List<String> strainNames;
+    
+    private int[] chromosomeNumbers = DEFAULT_CHROMOSOME_NUMBERS;
+    
+    private double lengthScale = 1.0;
+    
+    private double snpsPerMegabase = 100.0;
+    
+    private int ancestorCount = 8;
+    
+    private double meanHaplotypeBlockLengthInBasePairs = 2000000.0;
+    
+    private double mutationRate = 0.0;
+    
+    private boolean ibsIntervalsGenerated = true;
+    
+    /**
+     * Constructor
+     * @param seed
+     *          the random seed
+     * @param strainCount
+     *          the number of strains to generate
+     * @throws IllegalArgumentException
+     *          if the strain count is less than one
+     */
+    public SyntheticPanelGenerator(long seed, int strainCount)
+            throws IllegalArgumentException
+    {
+        if(strainCount < 1)
+        {
+            throw new IllegalArgumentException(
+                    "the strain count must be positive: " + strainCount);
+        }
+        
+        this.seed = seed;
+        
+        int digitCount = Math.max(3, Integer.toString(strainCount - 1).length());
+        List<String> strainNames = new ArrayList<String>(strainCount);
+        for(int i = 0; i < strainCount; i++)
+        {
+            StringBuilder strainName = new StringBuilder("S");
+            String index = Integer.toString(i);
+            for(int j = index.length(); j < digitCount; j++)
+            {
+                strainName.append('0');
+            }
+            strainNames.add(strainName.append(index).toString());
+        }
+        this.strainNames = Collections.unmodifiableList(strainNames);
+    }
+    
+    /**
+     * Getter for the length of a mouse chromosome in the GRCm38 assembly
+     * @param chromosomeNumber
+     *          the chromosome number (see {@link MouseChromosomes})
+     * @return
+     *          the length in base pairs
+     * @throws IllegalArgumentException
+     *          if the chromosome number is unknown
+     */
+    public static long getChromosomeLengthInBasePairs(int chromosomeNumber)
+            throws IllegalArgumentException
+    {
+        if(chromosomeNumber < 1 ||
+           chromosomeNumber >= CHROMOSOME_LENGTHS_IN_BASE_PAIRS.length)
+        {
+            throw new IllegalArgumentException(
+                    "unknown chromosome number: " + chromosomeNumber);
+        }
+        return CHROMOSOME_LENGTHS_IN_BASE_PAIRS[chromosomeNumber];
+    }
+    
+    /**
+     * Getter for the seed
+     * @return the seed
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+    
+    /**
+     * Getter for the strain names. Strain indices in the generated data
+     * (eg: the strain groups of the haplotype blocks) use this order
+     * @return the strain names
+     */
+    public List<String> getStrainNames()
+    {
+        return this.strainNames;
+    }
+    
+    /**
+     * Getter for the chromosomes that {@link #generate(SyntheticPanelSink)}
+     * generates. Defaults to the autosomes plus X
+     * @return the chromosome numbers
+     */
+    public int[] getChromosomeNumbers()
+    {
+        return this.chromosomeNumbers.clone();
+    }
+    
+    /**
+     * Setter for the chromosomes to generate
+     * @param chromosomeNumbers
+     *          the chromosome numbers
+     * @throws IllegalArgumentException
+     *          if any of the chromosome numbers are unknown
+     */
+    public void setChromosomeNumbers(int... chromosomeNumbers)
+            throws IllegalArgumentException
+    {
+        for(int chromosomeNumber: chromosomeNumbers)
+        {
+            getChromosomeLengthInBasePairs(chromosomeNumber);
+        }
+        this.chromosomeNumbers = chromosomeNumbers.clone();
+    }
+    
+    /**
+     * Getter for the fraction of the real chromosome lengths to generate
+     * @return the length scale
+     */
+    public double getLengthScale()
+    {
+        return this.lengthScale;
+    }
+    
+    /**
+     * Setter for the fraction of the real chromosome lengths to generate.
+     * Use a small scale for quick tests and 1 for realistic data
+     * @param lengthScale
+     *          the length scale
+     * @throws IllegalArgumentException
+     *          if the scale isn't positive
+     */
+    public void setLengthScale(double lengthScale)
+            throws IllegalArgumentException
+    {
+        if(!(lengthScale > 0.0))
+        {
+            throw new IllegalArgumentException(
+                    "the length scale must be positive: " + lengthScale);
+        }
+        this.lengthScale = lengthScale;
+    }
+    
+    /**
+     * Getter for the SNP density
+     * @return the average number of SNPs per megabase
+     */
+    public double getSnpsPerMegabase()
+    {
+        return this.snpsPerMegabase;
+    }
+    
+    /**
+     * Setter for the SNP density
+     * @param snpsPerMegabase
+     *          the average number of SNPs per megabase
+     * @throws IllegalArgumentException
+     *          if the density isn't in (0, 1000000]
+     */
+    public void setSnpsPerMegabase(double snpsPerMegabase)
+            throws IllegalArgumentException
+    {
+        if(!(snpsPerMegabase > 0.0 && snpsPerMegabase <= 1000000.0))
+        {
+            throw new IllegalArgumentException(
+                    "the SNP density must be in (0, 1000000]: " + snpsPerMegabase);
+        }
+        this.snpsPerMegabase = snpsPerMegabase;
+    }
+    
+    /**
+     * Getter for the number of ancestral haplotypes
+     * @return the ancestor count
+     */
+    public int getAncestorCount()
+    {
+        return this.ancestorCount;
+    }
+    
+    /**
+     * Setter for the number of ancestral haplotypes
+     * @param ancestorCount
+     *          the ancestor count
+     * @throws IllegalArgumentException
+     *          if the count isn't in [1, {@link #MAX_ANCESTOR_COUNT}]
+     */
+    public void setAncestorCount(int ancestorCount)
+            throws IllegalArgumentException
+    {
+        if(ancestorCount < 1 || ancestorCount > MAX_ANCESTOR_COUNT)
+        {
+            throw new IllegalArgumentException(
+                    "the ancestor count must be in [1, " + MAX_ANCESTOR_COUNT +
+                    "]: " + ancestorCount);
+        }
+        this.ancestorCount = ancestorCount;
+    }
+    
+    /**
+     * Getter for the mean length of the blocks that a strain inherits from
+     * a single ancestor
+     * @return the mean block length in base pairs
+     */
+    public double getMeanHaplotypeBlockLengthInBasePairs()
+    {
+        return this.meanHaplotypeBlockLengthInBasePairs;
+    }
+    
+    /**
+     * Setter for the mean haplotype block length. This is not scaled by
+     * {@link #getLengthScale()}
+     * @param meanHaplotypeBlockLengthInBasePairs
+     *          the mean block length in base pairs
+     * @throws IllegalArgumentException
+     *          if the length is less than one
+     */
+    public void setMeanHaplotypeBlockLengthInBasePairs(
+            double meanHaplotypeBlockLengthInBasePairs)
+            throws IllegalArgumentException
+    {
+        if(!(meanHaplotypeBlockLengthInBasePairs >= 1.0))
+        {
+            throw new IllegalArgumentException(
+                    "the mean block length must be at least 1: " +
+                    meanHaplotypeBlockLengthInBasePairs);
+        }
+        this.meanHaplotypeBlockLengthInBasePairs = meanHaplotypeBlockLengthInBasePairs;
+    }
+    
+    /**
+     * Getter for the probability that a strain's allele differs from its
+     * ancestor's allele
+     * @return the mutation rate
+     */
+    public double getMutationRate()
+    {
+        return this.mutationRate;
+    }
+    
+    /**
+     * Setter for the mutation rate. Mutations add genotyping noise but don't
+     * change the true haplotype blocks or IBS intervals
+     * @param mutationRate
+     *          the mutation rate
+     * @throws IllegalArgumentException
+     *          if the rate isn't in [0, 1]
+     */
+    public void setMutationRate(double mutationRate)
+            throws IllegalArgumentException
+    {
+        if(!(mutationRate >= 0.0 && mutationRate <= 1.0))
+        {
+            throw new IllegalArgumentException(
+                    "the mutation rate must be in [0, 1]: " + mutationRate);
+        }
+        this.mutationRate = mutationRate;
+    }
+    
+    /**
+     * Determines if pairwise IBS intervals are generated. There are
+     * n * (n - 1) / 2 strain pairs so this can be turned off for big panels
+     * when only the genotypes are needed
+     * @return true if IBS intervals are generated
+     */
+    public boolean isIbsIntervalsGenerated()
+    {
+        return this.ibsIntervalsGenerated;
+    }
+    
+    /**
+     * Setter for whether pairwise IBS intervals are generated
+     * @param ibsIntervalsGenerated
+     *          true to generate IBS intervals
+     */
+    public void setIbsIntervalsGenerated(boolean ibsIntervalsGenerated)
+    {
+        this.ibsIntervalsGenerated = ibsIntervalsGenerated;
+    }
+    
+    /**
+     * Getter for the length of a chromosome after applying the length scale
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @return
+     *          the scaled length in base pairs
+     */
+    public long getScaledChromosomeLengthInBasePairs(int chromosomeNumber)
+    {
+        return Math.max(1L, Math.round(
+                getChromosomeLengthInBasePairs(chromosomeNumber) * this.lengthScale));
+    }
+    
+    /**
+     * Generate every chromosome in {@link #getChromosomeNumbers()} order
+     * @param sink
+     *          the sink to send the data to
+     * @throws IOException
+     *          if the sink fails
+     */
+    public void generate(SyntheticPanelSink sink) throws IOException
+    {
+        for(int chromosomeNumber: this.chromosomeNumbers)
+        {
+            this.generateChromosome(chromosomeNumber, sink);
+        }
+    }
+    
+    /**
+     * Generate a single chromosome
+     * @param chromosomeNumber
+     *          the chromosome number
+     * @param sink
+     *          the sink to send the data to
+     * @throws IOException
+     *          if the sink fails
+     */
+    public void generateChromosome(int chromosomeNumber, SyntheticPanelSink sink)
+            throws IOException
+    {
+        long lengthInBasePairs = this.getScaledChromosomeLengthInBasePairs(
+                chromosomeNumber);
+        Random siteRandom = this.createRandom(chromosomeNumber, SITE_STREAM);
+        Random mosaicRandom = this.createRandom(chromosomeNumber, MOSAIC_STREAM);
+        Random mutationRandom = this.createRandom(chromosomeNumber, MUTATION_STREAM);
+        
+        // the SNP sites are shared by all strains. we space them with a
+        // little jitter rather than uniformly at random so that we don't
+        // need to sort them
+        int snpCount = (int)Math.max(1L, Math.min(
+                lengthInBasePairs,
+                Math.round(lengthInBasePairs * this.snpsPerMegabase / 1000000.0)));
+        double spacingInBasePairs = lengthInBasePairs / (double)snpCount;
+        long[] snpPositions = new long[snpCount];
+        byte[] referenceAlleles = new byte[snpCount];
+        byte[] alternateAlleles = new byte[snpCount];
+        long[] alternateAncestorMasks = new long[snpCount];
+        int[] ancestorOrder = new int[this.ancestorCount];
+        for(int i = 0; i < this.ancestorCount; i++)
+        {
+            ancestorOrder[i] = i;
+        }
+        for(int i = 0; i < snpCount; i++)
+        {
+            long position = 1L + (long)((i + siteRandom.nextDouble()) * spacingInBasePairs);
+            if(i > 0 && position <= snpPositions[i - 1])
+            {
+                position = snpPositions[i - 1] + 1L;
+            }
+            snpPositions[i] = Math.min(lengthInBasePairs, position);
+            
+            referenceAlleles[i] = (byte)siteRandom.nextInt(SNP_TYPES.length);
+            alternateAlleles[i] = (byte)((referenceAlleles[i] + 1 +
+                    siteRandom.nextInt(SNP_TYPES.length - 1)) % SNP_TYPES.length);
+            
+            // give the alternate allele to a random non-empty proper subset
+            // of the ancestors so that every SNP splits the ancestors
+            if(this.ancestorCount > 1)
+            {
+                int carrierCount = 1 + siteRandom.nextInt(this.ancestorCount - 1);
+                long mask = 0L;
+                for(int j = 0; j < carrierCount; j++)
+                {
+                    int swapIndex = j + siteRandom.nextInt(this.ancestorCount - j);
+                    int ancestor = ancestorOrder[swapIndex];
+                    ancestorOrder[swapIndex] = ancestorOrder[j];
+                    ancestorOrder[j] = ancestor;
+                    mask |= 1L << ancestor;
+                }
+                alternateAncestorMasks[i] = mask;
+            }
+        }
+        
+        int strainCount = this.strainNames.size();
+        Mosaic[] mosaics = new Mosaic[strainCount];
+        for(int strainIndex = 0; strainIndex < strainCount; strainIndex++)
+        {
+            mosaics[strainIndex] = this.generateMosaic(mosaicRandom, lengthInBasePairs);
+        }
+        
+        ImmutableStrainChromosome[] strainChromosomes =
+            new ImmutableStrainChromosome[strainCount];
+        for(int strainIndex = 0; strainIndex < strainCount; strainIndex++)
+        {
+            Mosaic mosaic = mosaics[strainIndex];
+            ImmutableStrainChromosome.Builder builder = new ImmutableStrainChromosome.Builder(
+                    this.strainNames.get(strainIndex),
+                    chromosomeNumber);
+            int segmentIndex = 0;
+            for(int i = 0; i < snpCount; i++)
+            {
+                long position = snpPositions[i];
+                while(segmentIndex + 1 < mosaic.size &&
+                      mosaic.startsInBasePairs[segmentIndex + 1] <= position)
+                {
+                    segmentIndex++;
+                }
+                
+                int ancestor = mosaic.ancestors[segmentIndex];
+                boolean alternate = ((alternateAncestorMasks[i] >>> ancestor) & 1L) != 0L;
+                if(this.mutationRate > 0.0 && mutationRandom.nextDouble() < this.mutationRate)
+                {
+                    alternate = !alternate;
+                }
+                builder.addSnp(
+                        SNP_TYPES[alternate ? alternateAlleles[i] : referenceAlleles[i]],
+                        position);
+            }
+            strainChromosomes[strainIndex] = builder.build();
+        }
+        sink.chromosomeGenerated(chromosomeNumber, strainChromosomes);
+        
+        sink.haplotypeBlocksGenerated(
+                chromosomeNumber,
+                createHaplotypeBlocks(chromosomeNumber, lengthInBasePairs, mosaics));
+        
+        if(this.ibsIntervalsGenerated)
+        {
+            for(int i = 0; i < strainCount; i++)
+            {
+                for(int j = i + 1; j < strainCount; j++)
+                {
+                    sink.ibsIntervalsGenerated(
+                            new StrainPair(this.strainNames.get(i), this.strainNames.get(j)),
+                            chromosomeNumber,
+                            createIbsIntervals(
+                                    chromosomeNumber,
+                                    lengthInBasePairs,
+                                    mosaics[i],
+                                    mosaics[j]));
+                }
+            }
+        }
+    }
+    
+    private Random createRandom(int chromosomeNumber, int stream)
+    {
+        return new Random(this.seed ^
+                (0x9E3779B97F4A7C15L * (STREAM_COUNT * (long)chromosomeNumber + stream)));
+    }
+    
+    private Mosaic generateMosaic(Random random, long lengthInBasePairs)
+    {
+        Mosaic mosaic = new Mosaic();
+        long startInBasePairs = 1L;
+        int ancestor = random.nextInt(this.ancestorCount);
+        while(startInBasePairs <= lengthInBasePairs)
+        {
+            mosaic.add(startInBasePairs, ancestor);
+            
+            long blockLength = Math.max(1L, Math.round(
+                    -this.meanHaplotypeBlockLengthInBasePairs *
+                    Math.log(1.0 - random.nextDouble())));
+            startInBasePairs += blockLength;
+            if(this.ancestorCount > 1)
+            {
+                ancestor = (ancestor + 1 + random.nextInt(this.ancestorCount - 1)) %
+                           this.ancestorCount;
+            }
+        }
+        return mosaic;
+    }
+    
+    private static List<MultiPartitionedInterval> createHaplotypeBlocks(
+            int chromosomeNumber,
+            long lengthInBasePairs,
+            Mosaic[] mosaics)
+    {
+        // the block boundaries are the union of all strain breakpoints
+        int breakpointCount = 0;
+        for(Mosaic mosaic: mosaics)
+        {
+            breakpointCount += mosaic.size;
+        }
+        long[] breakpoints = new long[breakpointCount];
+        int offset = 0;
+        for(Mosaic mosaic: mosaics)
+        {
+            System.arraycopy(mosaic.startsInBasePairs, 0, breakpoints, offset, mosaic.size);
+            offset += mosaic.size;
+        }
+        Arrays.sort(breakpoints);
+        
+        int[] segmentIndices = new int[mosaics.length];
+        List<MultiPartitionedInterval> haplotypeBlocks =
+            new ArrayList<MultiPartitionedInterval>();
+        for(int i = 0; i < breakpointCount; i++)
+        {
+            long startInBasePairs = breakpoints[i];
+            if(i + 1 < breakpointCount && breakpoints[i + 1] == startInBasePairs)
+            {
+                continue;
+            }
+            
+            // duplicates were skipped above so the next breakpoint is the
+            // start of the next block
+            long endInBasePairs = i + 1 < breakpointCount ?
+                    breakpoints[i + 1] - 1L :
+                    lengthInBasePairs;
+            
+            short[] strainGroups = new short[mosaics.length];
+            for(int strainIndex = 0; strainIndex < mosaics.length; strainIndex++)
+            {
+                Mosaic mosaic = mosaics[strainIndex];
+                int segmentIndex = segmentIndices[strainIndex];
+                while(segmentIndex + 1 < mosaic.size &&
+                      mosaic.startsInBasePairs[segmentIndex + 1] <= startInBasePairs)
+                {
+                    segmentIndex++;
+                }
+                segmentIndices[strainIndex] = segmentIndex;
+                strainGroups[strainIndex] = (short)mosaic.ancestors[segmentIndex];
+            }
+            
+            haplotypeBlocks.add(new MultiPartitionedInterval(
+                    chromosomeNumber,
+                    startInBasePairs,
+                    endInBasePairs - startInBasePairs + 1L,
+                    strainGroups));
+        }
+        return haplotypeBlocks;
+    }
+    
+    private static List<BasePairInterval> createIbsIntervals(
+            int chromosomeNumber,
+            long lengthInBasePairs,
+            Mosaic mosaic1,
+            Mosaic mosaic2)
+    {
+        List<BasePairInterval> ibsIntervals = new ArrayList<BasePairInterval>();
+        long openStartInBasePairs = -1L;
+        long openEndInBasePairs = -1L;
+        int index1 = 0;
+        int index2 = 0;
+        while(index1 < mosaic1.size && index2 < mosaic2.size)
+        {
+            long startInBasePairs = Math.max(
+                    mosaic1.startsInBasePairs[index1],
+                    mosaic2.startsInBasePairs[index2]);
+            long end1InBasePairs = mosaic1.getEndInBasePairs(index1, lengthInBasePairs);
+            long end2InBasePairs = mosaic2.getEndInBasePairs(index2, lengthInBasePairs);
+            long endInBasePairs = Math.min(end1InBasePairs, end2InBasePairs);
+            
+            if(mosaic1.ancestors[index1] == mosaic2.ancestors[index2])
+            {
+                if(openStartInBasePairs != -1L && openEndInBasePairs + 1L == startInBasePairs)
+                {
+                    openEndInBasePairs = endInBasePairs;
+                }
+                else
+                {
+                    if(openStartInBasePairs != -1L)
+                    {
+                        ibsIntervals.add(new SimpleBasePairInterval(
+                                chromosomeNumber,
+                                openStartInBasePairs,
+                                openEndInBasePairs - openStartInBasePairs + 1L));
+                    }
+                    openStartInBasePairs = startInBasePairs;
+                    openEndInBasePairs = endInBasePairs;
+                }
+            }
+            
+            if(end1InBasePairs == endInBasePairs)
+            {
+                index1++;
+            }
+            if(end2InBasePairs == endInBasePairs)
+            {
+                index2++;
+            }
+        }
+        
+        if(openStartInBasePairs != -1L)
+        {
+            ibsIntervals.add(new SimpleBasePairInterval(
+                    chromosomeNumber,
+                    openStartInBasePairs,
+                    openEndInBasePairs - openStartInBasePairs + 1L));
+        }
+        return ibsIntervals;
+    }
+    
+    /**
+     * the ancestral segments of a single strain chromosome. each segment
+     * runs up to the start of the next one
+     */
+    private static final class Mosaic
+    {
+        private long[] startsInBasePairs = new long[16];
+        
+        private int[] ancestors = new int[16];
+        
+        private int size = 0;
+        
+        public void add(long startInBasePairs, int ancestor)
+        {
+            if(this.size == this.startsInBasePairs.length)
+            {
+                this.startsInBasePairs = Arrays.copyOf(
+                        this.startsInBasePairs,
+                        2 * this.size);
+                this.ancestors = Arrays.copyOf(this.ancestors, 2 * this.size);
+            }
+            this.startsInBasePairs[this.size] = startInBasePairs;
+            this.ancestors[this.size] = ancestor;
+            this.size++;
+        }
+        
+        public long getEndInBasePairs(int index, long lengthInBasePairs)
+        {
+            return index + 1 < this.size ?
+                   this.startsInBasePairs[index + 1] - 1L :
+                   lengthInBasePairs;
+        }
+    }
+}
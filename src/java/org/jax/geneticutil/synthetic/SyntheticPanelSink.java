@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.synthetic;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.ImmutableStrainChromosome;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.StrainPair;
+
+/**
+ * Receives the data produced by a {@link SyntheticPanelGenerator}. Data
+ * is delivered one chromosome at a time so a sink that writes it out never
+ * has to hold more than a chromosome in memory. For each chromosome the
+ * generator calls {@link #chromosomeGenerated(int, ImmutableStrainChromosome[])}
+ * then {@link #haplotypeBlocksGenerated(int, List)} and then
+ * {@link #ibsIntervalsGenerated(StrainPair, int, List)} once per strain pair
+ * (if IBS intervals are turned on).
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public interface SyntheticPanelSink
+{
+    /**
+     * Called with the genotypes of every strain for a chromosome
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param strainChromosomes
+     *          the strain chromosomes in
+     *          {@link SyntheticPanelGenerator#getStrainNames()} order. They
+     *          all have the same SNP positions
+     * @throws IOException
+     *          if the sink fails to write the data
+     */
+    public void chromosomeGenerated(
+            int chromosomeNumber,
+            ImmutableStrainChromosome[] strainChromosomes)
+            throws IOException;
+    
+    /**
+     * Called with the ancestral haplotype blocks of a chromosome. Within a
+     * block every strain descends from a single ancestor and the strain
+     * groups of the block are the ancestor indices
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param haplotypeBlocks
+     *          the blocks in position order. They tile the chromosome
+     * @throws IOException
+     *          if the sink fails to write the data
+     */
+    public void haplotypeBlocksGenerated(
+            int chromosomeNumber,
+            List<MultiPartitionedInterval> haplotypeBlocks)
+            throws IOException;
+    
+    /**
+     * Called with the true identical by state intervals of a strain pair,
+     * which are the stretches where both strains descend from the same
+     * ancestor
+     * @param strainPair
+     *          the strain pair
+     * @param chromosomeNumber
+     *          the chromosome
+     * @param ibsIntervals
+     *          the intervals in position order. This may be empty
+     * @throws IOException
+     *          if the sink fails to write the data
+     */
+    public void ibsIntervalsGenerated(
+            StrainPair strainPair,
+            int chromosomeNumber,
+            List<BasePairInterval> ibsIntervals)
+            throws IOException;
+}
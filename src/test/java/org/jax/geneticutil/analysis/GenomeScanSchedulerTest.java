@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+import org.jax.geneticutil.metrics.MetricRegistry;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GenomeScanScheduler}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomeScanSchedulerTest
+{
+    static
+    {
+        // must happen before the default registry is created
+        System.setProperty(MetricRegistry.ENABLED_PROPERTY, "true");
+    }
+    
+    private static GenomeScanScheduler newScheduler(int chunkCount)
+    {
+        long[] positions = new long[100 * chunkCount];
+        for(int i = 0; i < positions.length; i++)
+        {
+            positions[i] = 1000L * (i + 1);
+        }
+        Map<Integer, long[]> snpPositionsByChromosome =
+            Collections.singletonMap(1, positions);
+        GenomeScanScheduler scheduler =
+            new GenomeScanScheduler(snpPositionsByChromosome, chunkCount, 2);
+        assertEquals(chunkCount, scheduler.getChunks().size());
+        return scheduler;
+    }
+    
+    private static long getQueuedChunkCount()
+    {
+        return MetricRegistry.getDefault().counter(
+                "genomeScan.queuedChunks").getCount();
+    }
+    
+    /**
+     * Results come back in genomic order whatever order the chunks finish
+     * in
+     * @throws Exception if the scan fails
+     */
+    @Test
+    public void testResultsInGenomicOrder() throws Exception
+    {
+        GenomeScanScheduler scheduler = newScheduler(16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Integer> results = scheduler.scan(
+                    new GenomeScanTask<Integer>()
+                    {
+                        public Integer scanChunk(GenomeScanChunk chunk)
+                                throws Exception
+                        {
+                            // make the early chunks finish last
+                            Thread.sleep(16 - chunk.getChunkIndex());
+                            return chunk.getChunkIndex();
+                        }
+                    },
+                    executor);
+            assertEquals(16, results.size());
+            for(int i = 0; i < results.size(); i++)
+            {
+                assertEquals(i, results.get(i).intValue());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * A failure must be reported when it happens even if an earlier chunk
+     * in genomic order is still running, and the running chunk must be
+     * cancelled
+     * @throws Exception if the test fails
+     */
+    @Test(timeout = 10000L)
+    public void testFailureReportedEarly() throws Exception
+    {
+        GenomeScanScheduler scheduler = newScheduler(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        final CountDownLatch firstChunkStarted = new CountDownLatch(1);
+        final CountDownLatch firstChunkInterrupted = new CountDownLatch(1);
+        try
+        {
+            scheduler.scan(
+                    new GenomeScanTask<Integer>()
+                    {
+                        public Integer scanChunk(GenomeScanChunk chunk)
+                                throws Exception
+                        {
+                            if(chunk.getChunkIndex() == 0)
+                            {
+                                firstChunkStarted.countDown();
+                                try
+                                {
+                                    neverReleased.await();
+                                }
+                                catch(InterruptedException ex)
+                                {
+                                    firstChunkInterrupted.countDown();
+                                    throw ex;
+                                }
+                            }
+                            else if(chunk.getChunkIndex() == 3)
+                            {
+                                // a chunk cancelled before it starts is
+                                // never interrupted, so fail only once
+                                // chunk 0 is running
+                                firstChunkStarted.await(5L, TimeUnit.SECONDS);
+                                throw new IllegalStateException("chunk 3 failed");
+                            }
+                            return chunk.getChunkIndex();
+                        }
+                    },
+                    executor);
+            fail("expected the scan to fail");
+        }
+        catch(ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+            assertTrue(firstChunkInterrupted.await(5L, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * A rejected submission must not leave chunks counted as queued
+     * @throws Exception if the test fails
+     */
+    @Test(timeout = 10000L)
+    public void testRejectedSubmission() throws Exception
+    {
+        GenomeScanScheduler scheduler = newScheduler(8);
+        
+        // one running chunk and two queued ones fit so the fourth
+        // submission is rejected
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(2));
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        long queuedChunkCount = getQueuedChunkCount();
+        try
+        {
+            scheduler.scan(
+                    new GenomeScanTask<Integer>()
+                    {
+                        public Integer scanChunk(GenomeScanChunk chunk)
+                                throws Exception
+                        {
+                            neverReleased.await();
+                            return chunk.getChunkIndex();
+                        }
+                    },
+                    executor);
+            fail("expected the submission to be rejected");
+        }
+        catch(RejectedExecutionException ex)
+        {
+            if(MetricRegistry.getDefault().isEnabled())
+            {
+                assertEquals(queuedChunkCount, getQueuedChunkCount());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static BasePairInterval interval(long startInBasePairs, long endInBasePairs)
+    {
+        return new SimpleRealValuedBasePairInterval(
+                1,
+                startInBasePairs,
+                endInBasePairs - startInBasePairs + 1,
+                1.0);
+    }
+    
+    private static void assertInterval(
+            long startInBasePairs,
+            long endInBasePairs,
+            BasePairInterval interval)
+    {
+        assertEquals(startInBasePairs, interval.getStartInBasePairs());
+        assertEquals(endInBasePairs, interval.getEndInBasePairs());
+    }
+    
+    /**
+     * Runs that meet at a chunk core boundary are joined, including a run
+     * crossing a whole chunk, and nothing else is touched
+     */
+    @Test
+    public void testStitchAtCoreBoundaries()
+    {
+        GenomeScanScheduler scheduler = newScheduler(3);
+        List<GenomeScanChunk> chunks = scheduler.getChunks();
+        long core0End = chunks.get(0).getCoreEndInBasePairs();
+        long core1Start = chunks.get(1).getCoreStartInBasePairs();
+        long core1End = chunks.get(1).getCoreEndInBasePairs();
+        long core2Start = chunks.get(2).getCoreStartInBasePairs();
+        assertEquals(core0End + 1, core1Start);
+        
+        BasePairInterval unjoined = interval(2000L, 3000L);
+        List<BasePairInterval> stitched = scheduler.stitchIntervals(Arrays.asList(
+                Arrays.asList(unjoined, interval(50000L, core0End)),
+                Arrays.asList(interval(core1Start, core1End)),
+                Arrays.asList(interval(core2Start, core2Start + 5000L))));
+        assertEquals(2, stitched.size());
+        assertSame(unjoined, stitched.get(0));
+        assertInterval(50000L, core2Start + 5000L, stitched.get(1));
+        assertTrue(stitched.get(1) instanceof SimpleBasePairInterval);
+    }
+    
+    /**
+     * Runs that touch inside a chunk are separate results and must not be
+     * joined, and neither are runs that only come close to a core boundary
+     * or whose chunks aren't neighbors
+     */
+    @Test
+    public void testAdjacentRunsNotStitched()
+    {
+        GenomeScanScheduler scheduler = newScheduler(3);
+        List<GenomeScanChunk> chunks = scheduler.getChunks();
+        long core0End = chunks.get(0).getCoreEndInBasePairs();
+        long core1Start = chunks.get(1).getCoreStartInBasePairs();
+        long core2Start = chunks.get(2).getCoreStartInBasePairs();
+        
+        List<BasePairInterval> chunk0Intervals = Arrays.asList(
+                interval(2000L, 3000L),
+                interval(3001L, 4000L),
+                interval(4000L, core0End - 1));
+        List<BasePairInterval> chunk1Intervals = Arrays.asList(
+                interval(core1Start, core1Start + 10L));
+        List<BasePairInterval> stitched = scheduler.stitchIntervals(Arrays.asList(
+                chunk0Intervals,
+                chunk1Intervals,
+                new ArrayList<BasePairInterval>()));
+        List<BasePairInterval> expected = new ArrayList<BasePairInterval>(chunk0Intervals);
+        expected.addAll(chunk1Intervals);
+        assertEquals(expected.size(), stitched.size());
+        for(int i = 0; i < expected.size(); i++)
+        {
+            assertSame(expected.get(i), stitched.get(i));
+        }
+        
+        // chunk 1 has no results so chunks 0 and 2 aren't neighbors
+        stitched = scheduler.stitchIntervals(Arrays.asList(
+                Arrays.asList(interval(2000L, core0End)),
+                new ArrayList<BasePairInterval>(),
+                Arrays.asList(interval(core2Start, core2Start + 10L))));
+        assertEquals(2, stitched.size());
+    }
+    
+    /**
+     * Stitching needs one result per chunk
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStitchWrongResultCount()
+    {
+        newScheduler(3).stitchIntervals(Arrays.asList(
+                Arrays.asList(interval(2000L, 3000L))));
+    }
+}
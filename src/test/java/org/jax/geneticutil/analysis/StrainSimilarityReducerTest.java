@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+import org.jax.geneticutil.data.StrainPair;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StrainSimilarityReducer} and
+ * {@link StrainSimilarityReduction}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class StrainSimilarityReducerTest
+{
+    /**
+     * Weighs an interval by its squared extent so that weighing before
+     * merging gives a different answer than merging before weighing
+     */
+    private static final IntervalWeighting SQUARED_WEIGHTING = new IntervalWeighting()
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public double weigh(
+                int chromosomeNumber,
+                long startInBasePairs,
+                long extentInBasePairs)
+        {
+            return (double)extentInBasePairs * extentInBasePairs;
+        }
+    };
+    
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    
+    /**
+     * Shut down the executor
+     */
+    @After
+    public void shutdownExecutor()
+    {
+        this.executor.shutdown();
+    }
+    
+    private static SnpIntervalListGroup makeGroup(
+            Map<String, List<BasePairInterval>> snpBlocksMap)
+    {
+        return new SnpIntervalListGroup(snpBlocksMap, 1L, 1000000L);
+    }
+    
+    private static BasePairInterval interval(int chromosomeNumber, long start, long end)
+    {
+        return new SimpleBasePairInterval(chromosomeNumber, start, end - start + 1);
+    }
+    
+    /**
+     * A pair's intervals from several groups (under either key order) are
+     * merged where they overlap before they are weighed. Touching but not
+     * overlapping intervals stay separate
+     * @throws Exception if the reduction fails
+     */
+    @Test
+    public void testMergeThenWeigh() throws Exception
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap1 =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap1.put("A|B", Arrays.asList(
+                interval(1, 1L, 100L),
+                interval(1, 101L, 110L),
+                interval(2, 1L, 10L)));
+        Map<String, List<BasePairInterval>> snpBlocksMap2 =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap2.put("B|A", Arrays.asList(
+                interval(1, 51L, 150L),
+                interval(2, 5L, 8L)));
+        
+        StrainSimilarityReducer reducer = new StrainSimilarityReducer(
+                Arrays.asList("A", "B", "C"),
+                StrainSimilarityReducer.createSeparatorKeyMapper("|"),
+                SQUARED_WEIGHTING,
+                this.executor);
+        StrainSimilarityReduction reduction = reducer.reduce(Arrays.asList(
+                makeGroup(snpBlocksMap1),
+                makeGroup(snpBlocksMap2)));
+        
+        // chromosome 1 merges into 1-150 and chromosome 2 into 1-10
+        assertEquals(150.0 * 150.0, reduction.getChromosomeMatrix(1).getValue("A", "B"), 0.0);
+        assertEquals(100.0, reduction.getChromosomeMatrix(2).getValue("B", "A"), 0.0);
+        assertEquals(150.0 * 150.0 + 100.0, reduction.getGenomeMatrix().getValue("A", "B"), 0.0);
+        assertEquals(0.0, reduction.getGenomeMatrix().getValue("A", "C"), 0.0);
+        assertNull(reduction.getChromosomeMatrix(3));
+        assertEquals(2, reduction.getChromosomeMatrices().size());
+        
+        snpBlocksMap1.clear();
+        snpBlocksMap1.put("A|B", Arrays.asList(
+                interval(1, 1L, 100L),
+                interval(1, 101L, 110L)));
+        reduction = new StrainSimilarityReducer(
+                Arrays.asList("A", "B"),
+                StrainSimilarityReducer.createSeparatorKeyMapper("|"),
+                null,
+                this.executor).reduce(Collections.singletonList(makeGroup(snpBlocksMap1)));
+        assertEquals(110.0, reduction.getGenomeMatrix().getValue("A", "B"), 0.0);
+    }
+    
+    /**
+     * Keys that don't map to a pair or that involve a strain outside of
+     * the matrices are skipped
+     * @throws Exception if the reduction fails
+     */
+    @Test
+    public void testSkippedKeys() throws Exception
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap.put("A|B", Collections.singletonList(interval(1, 1L, 10L)));
+        snpBlocksMap.put("A|Z", Collections.singletonList(interval(1, 1L, 10L)));
+        snpBlocksMap.put("no separator", Collections.singletonList(interval(1, 1L, 10L)));
+        
+        StrainSimilarityReduction reduction = new StrainSimilarityReducer(
+                Arrays.asList("A", "B"),
+                StrainSimilarityReducer.createSeparatorKeyMapper("|"),
+                null,
+                this.executor).reduce(Collections.singletonList(makeGroup(snpBlocksMap)));
+        assertEquals(10.0, reduction.getGenomeMatrix().getValue("A", "B"), 0.0);
+        assertEquals(0.0, reduction.getGenomeMatrix().getValue("A", "A"), 0.0);
+    }
+    
+    /**
+     * Enough pairs to be split over several tasks all land in the right
+     * matrix cells
+     * @throws Exception if the reduction fails
+     */
+    @Test
+    public void testManyPairs() throws Exception
+    {
+        List<String> strainNames = new ArrayList<String>();
+        for(int i = 0; i < 20; i++)
+        {
+            strainNames.add("strain" + i);
+        }
+        
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        for(int i = 0; i < strainNames.size(); i++)
+        {
+            for(int j = 0; j < i; j++)
+            {
+                snpBlocksMap.put(
+                        strainNames.get(i) + "|" + strainNames.get(j),
+                        Collections.singletonList(interval(1 + j % 3, 1L, 100L * i + j)));
+            }
+        }
+        
+        StrainSimilarityReduction reduction = new StrainSimilarityReducer(
+                strainNames,
+                StrainSimilarityReducer.createSeparatorKeyMapper("|"),
+                null,
+                this.executor).reduce(Collections.singletonList(makeGroup(snpBlocksMap)));
+        for(int i = 0; i < strainNames.size(); i++)
+        {
+            for(int j = 0; j < i; j++)
+            {
+                double expected = 100.0 * i + j;
+                assertEquals(expected, reduction.getGenomeMatrix().getValue(i, j), 0.0);
+                assertEquals(expected, reduction.getGenomeMatrix().getValue(j, i), 0.0);
+                assertEquals(
+                        expected,
+                        reduction.getChromosomeMatrix(1 + j % 3).getValue(i, j),
+                        0.0);
+            }
+        }
+    }
+    
+    /**
+     * Updating a pair replaces all of its values, clearing chromosomes
+     * that are no longer in its result, and leaves other pairs alone
+     * @throws Exception if the reduction fails
+     */
+    @Test
+    public void testUpdatePair() throws Exception
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap.put("A|B", Arrays.asList(interval(1, 1L, 10L), interval(2, 1L, 20L)));
+        snpBlocksMap.put("A|C", Collections.singletonList(interval(2, 1L, 5L)));
+        
+        StrainSimilarityReducer reducer = new StrainSimilarityReducer(
+                Arrays.asList("A", "B", "C"),
+                StrainSimilarityReducer.createSeparatorKeyMapper("|"),
+                null,
+                this.executor);
+        StrainSimilarityReduction reduction =
+            reducer.reduce(Collections.singletonList(makeGroup(snpBlocksMap)));
+        assertEquals(30.0, reduction.getGenomeMatrix().getValue("A", "B"), 0.0);
+        
+        reducer.updatePair(
+                reduction,
+                new StrainPair("B", "A"),
+                Arrays.asList(interval(3, 1L, 7L), interval(3, 5L, 9L)));
+        assertEquals(9.0, reduction.getGenomeMatrix().getValue("A", "B"), 0.0);
+        assertEquals(0.0, reduction.getChromosomeMatrix(1).getValue("A", "B"), 0.0);
+        assertEquals(0.0, reduction.getChromosomeMatrix(2).getValue("A", "B"), 0.0);
+        assertEquals(9.0, reduction.getChromosomeMatrix(3).getValue("A", "B"), 0.0);
+        assertEquals(5.0, reduction.getChromosomeMatrix(2).getValue("A", "C"), 0.0);
+        assertEquals(5.0, reduction.getGenomeMatrix().getValue("C", "A"), 0.0);
+    }
+    
+    /**
+     * Updating a pair with a strain outside of the matrices fails
+     * @throws Exception if the reduction fails
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpdateUnknownPair() throws Exception
+    {
+        StrainSimilarityReducer reducer = new StrainSimilarityReducer(
+                Arrays.asList("A", "B"),
+                StrainSimilarityReducer.createSeparatorKeyMapper("|"),
+                null,
+                this.executor);
+        StrainSimilarityReduction reduction = reducer.reduce(
+                Collections.<SnpIntervalListGroup>emptyList());
+        reducer.updatePair(
+                reduction,
+                new StrainPair("A", "Z"),
+                Collections.singletonList(interval(1, 1L, 10L)));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ThresholdSegmenter}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ThresholdSegmenterTest
+{
+    /**
+     * Collects segments as formatted strings so that tests can compare them
+     * in one assertion
+     */
+    private static class SegmentCollector implements ThresholdSegmentListener
+    {
+        final List<String> segments = new ArrayList<String>();
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void segmentFound(
+                int chromosomeNumber,
+                long startInBasePairs,
+                long extentInBasePairs,
+                long peakStartInBasePairs,
+                long peakExtentInBasePairs,
+                double peakValue)
+        {
+            this.segments.add(
+                    chromosomeNumber + ":" + startInBasePairs + "+" +
+                    extentInBasePairs + " peak " + peakStartInBasePairs + "+" +
+                    peakExtentInBasePairs + "=" + peakValue);
+        }
+    }
+    
+    /**
+     * Intervals meeting the threshold (inclusive) join a segment while
+     * below threshold intervals in between don't end it as long as the
+     * gap is within the max gap
+     */
+    @Test
+    public void testGapMerging()
+    {
+        SegmentCollector collector = new SegmentCollector();
+        ThresholdSegmenter segmenter = new ThresholdSegmenter(2.0, 10L, collector);
+        segmenter.addInterval(1, 1L, 10L, 1.0);
+        segmenter.addInterval(1, 11L, 10L, 2.0);
+        segmenter.addInterval(1, 21L, 10L, 0.5);
+        // a gap of exactly 10 base pairs after 11-20 merges
+        segmenter.addInterval(1, 31L, 10L, 5.0);
+        // a gap of 11 base pairs after 31-40 starts a new segment
+        segmenter.addInterval(1, 52L, 5L, 3.0);
+        segmenter.flush();
+        
+        assertEquals(2, collector.segments.size());
+        assertEquals("1:11+30 peak 31+10=5.0", collector.segments.get(0));
+        assertEquals("1:52+5 peak 52+5=3.0", collector.segments.get(1));
+    }
+    
+    /**
+     * A segment never spans chromosomes and the first of several equal
+     * peak values is reported
+     */
+    @Test
+    public void testChromosomeBoundaryAndPeakTies()
+    {
+        SegmentCollector collector = new SegmentCollector();
+        ThresholdSegmenter segmenter = new ThresholdSegmenter(1.0, 1000L, collector);
+        segmenter.addInterval(new SimpleRealValuedBasePairInterval(1, 100L, 10L, 4.0));
+        segmenter.addInterval(new SimpleRealValuedBasePairInterval(1, 200L, 10L, 4.0));
+        segmenter.addInterval(new SimpleRealValuedBasePairInterval(2, 1L, 10L, 1.0));
+        segmenter.flush();
+        
+        assertEquals(2, collector.segments.size());
+        assertEquals("1:100+110 peak 100+10=4.0", collector.segments.get(0));
+        assertEquals("2:1+10 peak 1+10=1.0", collector.segments.get(1));
+        
+        // flushing again doesn't report anything new
+        segmenter.flush();
+        assertEquals(2, collector.segments.size());
+    }
+    
+    /**
+     * A long interval followed by shorter intervals that it contains
+     * keeps the segment end at the long interval's end
+     */
+    @Test
+    public void testContainedIntervals()
+    {
+        SegmentCollector collector = new SegmentCollector();
+        ThresholdSegmenter segmenter = new ThresholdSegmenter(0.0, 0L, collector);
+        segmenter.addInterval(3, 1L, 100L, 1.0);
+        segmenter.addInterval(3, 10L, 5L, 2.0);
+        segmenter.addInterval(3, 101L, 1L, 0.5);
+        segmenter.flush();
+        
+        assertEquals(1, collector.segments.size());
+        assertEquals("3:1+101 peak 10+5=2.0", collector.segments.get(0));
+    }
+    
+    /**
+     * Nothing is reported when no interval meets the threshold
+     */
+    @Test
+    public void testNoSegments()
+    {
+        SegmentCollector collector = new SegmentCollector();
+        ThresholdSegmenter segmenter = new ThresholdSegmenter(10.0, 0L, collector);
+        for(int i = 0; i < 100; i++)
+        {
+            segmenter.addInterval(1, 1L + 10L * i, 10L, i / 10.0);
+        }
+        segmenter.flush();
+        assertTrue(collector.segments.isEmpty());
+    }
+    
+    /**
+     * Out of order starts on a chromosome are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfOrderStart()
+    {
+        ThresholdSegmenter segmenter =
+            new ThresholdSegmenter(0.0, 0L, new SegmentCollector());
+        segmenter.addInterval(1, 100L, 10L, 1.0);
+        segmenter.addInterval(1, 99L, 10L, 1.0);
+    }
+    
+    /**
+     * Out of order chromosomes are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfOrderChromosome()
+    {
+        ThresholdSegmenter segmenter =
+            new ThresholdSegmenter(0.0, 0L, new SegmentCollector());
+        segmenter.addInterval(2, 100L, 10L, 1.0);
+        segmenter.addInterval(1, 200L, 10L, 1.0);
+    }
+}
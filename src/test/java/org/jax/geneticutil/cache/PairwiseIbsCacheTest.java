@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.StrainPair;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PairwiseIbsCache}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PairwiseIbsCacheTest
+{
+    private static final StrainPair STRAIN_PAIR = new StrainPair("A/J", "C57BL/6J");
+    
+    private static PairwiseIbsCache newCache(
+            final BasePairInterval... intervals)
+    {
+        return new PairwiseIbsCache(
+                new PairwiseIbsComputation()
+                {
+                    public List<? extends BasePairInterval> computeIbsIntervals(
+                            StrainPair strainPair,
+                            int chromosomeNumber,
+                            String panelVersion)
+                    {
+                        return Arrays.asList(intervals);
+                    }
+                },
+                1L << 20);
+    }
+    
+    /**
+     * A region query returns every interval that intersects the region,
+     * including ones that start before it
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testRegionQuery() throws Exception
+    {
+        PairwiseIbsCache cache = newCache(
+                new SimpleBasePairInterval(1, 501L, 100L),
+                new SimpleBasePairInterval(1, 1L, 100L),
+                new SimpleBasePairInterval(1, 201L, 200L),
+                new SimpleBasePairInterval(1, 401L, 50L));
+        
+        List<BasePairInterval> region = cache.getIbsIntervals(
+                STRAIN_PAIR, 1, "v1", 300L, 200L);
+        assertEquals(2, region.size());
+        assertEquals(201L, region.get(0).getStartInBasePairs());
+        assertEquals(401L, region.get(1).getStartInBasePairs());
+        
+        // the region ends on the first base of the last interval
+        region = cache.getIbsIntervals(STRAIN_PAIR, 1, "v1", 451L, 51L);
+        assertEquals(1, region.size());
+        assertEquals(501L, region.get(0).getStartInBasePairs());
+        
+        assertTrue(cache.getIbsIntervals(
+                STRAIN_PAIR, 1, "v1", 101L, 100L).isEmpty());
+    }
+    
+    /**
+     * Overlapping results would break the region search so they must fail
+     * the lookup rather than be cached
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testOverlappingIntervalsRejected() throws Exception
+    {
+        // the long interval contains the short one so a search on sorted
+        // ends would miss it
+        PairwiseIbsCache cache = newCache(
+                new SimpleBasePairInterval(1, 1L, 1000L),
+                new SimpleBasePairInterval(1, 101L, 10L));
+        try
+        {
+            cache.getIbsIntervals(STRAIN_PAIR, 1, "v1", 501L, 10L);
+            fail("overlapping intervals should be rejected");
+        }
+        catch(ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+}
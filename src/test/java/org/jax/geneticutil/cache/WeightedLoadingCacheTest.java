@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link WeightedLoadingCache}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class WeightedLoadingCacheTest
+{
+    private static final Weigher<Integer, String> UNIT_WEIGHER =
+        new Weigher<Integer, String>()
+        {
+            public long weigh(Integer key, String value)
+            {
+                return 1L;
+            }
+        };
+    
+    /**
+     * A loader that looks up the key it is loading must fail rather than
+     * wait on itself, while lookups of other keys still work
+     * @throws Exception if the test fails
+     */
+    @Test(timeout = 10000L)
+    public void testReentrantLoad() throws Exception
+    {
+        final AtomicReference<WeightedLoadingCache<Integer, String>> cacheHolder =
+            new AtomicReference<WeightedLoadingCache<Integer, String>>();
+        cacheHolder.set(new WeightedLoadingCache<Integer, String>(
+                10L,
+                UNIT_WEIGHER,
+                new CacheLoader<Integer, String>()
+                {
+                    public String load(Integer key) throws Exception
+                    {
+                        if(key.intValue() == 0)
+                        {
+                            return "zero";
+                        }
+                        else if(key.intValue() == 1)
+                        {
+                            return "one after " + cacheHolder.get().get(0);
+                        }
+                        else
+                        {
+                            return cacheHolder.get().get(key);
+                        }
+                    }
+                },
+                false));
+        WeightedLoadingCache<Integer, String> cache = cacheHolder.get();
+        
+        assertEquals("one after zero", cache.get(1));
+        
+        try
+        {
+            cache.get(2);
+            fail("expected the re-entrant load to fail");
+        }
+        catch(ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        
+        // the failed load must not be left in flight
+        try
+        {
+            cache.get(2);
+            fail("expected the re-entrant load to fail again");
+        }
+        catch(ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("zero", cache.get(0));
+    }
+    
+    /**
+     * A loader that blocks its first load until released so tests can
+     * invalidate while a load is in flight
+     */
+    private static final class BlockingLoader implements CacheLoader<Integer, String>
+    {
+        final CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        
+        final CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+        
+        private final AtomicInteger loadCount = new AtomicInteger();
+        
+        public String load(Integer key) throws Exception
+        {
+            int loadNumber = this.loadCount.incrementAndGet();
+            if(loadNumber == 1)
+            {
+                this.firstLoadStarted.countDown();
+                this.releaseFirstLoad.await();
+            }
+            return key + " load " + loadNumber;
+        }
+    }
+    
+    private static FutureTask<String> startGet(
+            final WeightedLoadingCache<Integer, String> cache,
+            final int key)
+    {
+        FutureTask<String> getTask = new FutureTask<String>(new Callable<String>()
+        {
+            public String call() throws Exception
+            {
+                return cache.get(key);
+            }
+        });
+        new Thread(getTask, "blocked-get").start();
+        return getTask;
+    }
+    
+    /**
+     * Invalidating a key while it loads must keep the stale load from
+     * being cached over a newer load of the key
+     * @throws Exception if the test fails
+     */
+    @Test(timeout = 10000L)
+    public void testInvalidateDuringLoad() throws Exception
+    {
+        BlockingLoader loader = new BlockingLoader();
+        WeightedLoadingCache<Integer, String> cache =
+            new WeightedLoadingCache<Integer, String>(10L, UNIT_WEIGHER, loader, false);
+        
+        FutureTask<String> blockedGet = startGet(cache, 1);
+        loader.firstLoadStarted.await();
+        cache.invalidate(1);
+        
+        // the invalidated load is no longer shared so this loads again
+        assertEquals("1 load 2", cache.get(1));
+        
+        loader.releaseFirstLoad.countDown();
+        assertEquals("1 load 1", blockedGet.get());
+        assertEquals("1 load 2", cache.getIfPresent(1));
+        assertEquals(1, cache.getStatistics().getEntryCount());
+    }
+    
+    /**
+     * Invalidating everything while a key loads must keep the load from
+     * being cached
+     * @throws Exception if the test fails
+     */
+    @Test(timeout = 10000L)
+    public void testInvalidateAllDuringLoad() throws Exception
+    {
+        BlockingLoader loader = new BlockingLoader();
+        WeightedLoadingCache<Integer, String> cache =
+            new WeightedLoadingCache<Integer, String>(10L, UNIT_WEIGHER, loader, true);
+        
+        FutureTask<String> blockedGet = startGet(cache, 1);
+        loader.firstLoadStarted.await();
+        cache.invalidateAll();
+        
+        loader.releaseFirstLoad.countDown();
+        assertEquals("1 load 1", blockedGet.get());
+        assertNull(cache.getIfPresent(1));
+        assertEquals("1 load 2", cache.get(1));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcurrentSnpIntervalListGroupBuilder}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ConcurrentSnpIntervalListGroupBuilderTest
+{
+    private static SnpIntervalList makeList(long startInBasePairs, long extentInBasePairs)
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        intervals.add(new SimpleBasePairInterval(1, startInBasePairs, extentInBasePairs));
+        return new SnpIntervalList(intervals, startInBasePairs, extentInBasePairs);
+    }
+    
+    /**
+     * Adds from many threads at once all end up in the group and the
+     * group bounds cover every list
+     * @throws Exception if a worker fails
+     */
+    @Test
+    public void testConcurrentAdds() throws Exception
+    {
+        final ConcurrentSnpIntervalListGroupBuilder builder =
+            new ConcurrentSnpIntervalListGroupBuilder();
+        final int threadCount = 8;
+        final int keysPerThread = 250;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for(int thread = 0; thread < threadCount; thread++)
+            {
+                final int threadIndex = thread;
+                futures.add(executor.submit(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            startLatch.await();
+                        }
+                        catch(InterruptedException ex)
+                        {
+                            throw new RuntimeException(ex);
+                        }
+                        
+                        for(int i = 0; i < keysPerThread; i++)
+                        {
+                            int keyIndex = threadIndex * keysPerThread + i;
+                            builder.add(
+                                    "key" + keyIndex,
+                                    makeList(1000L + keyIndex, 10L + keyIndex));
+                        }
+                    }
+                }));
+            }
+            startLatch.countDown();
+            for(Future<?> future: futures)
+            {
+                future.get(30L, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        
+        int keyCount = threadCount * keysPerThread;
+        assertEquals(keyCount, builder.getKeyCount());
+        SnpIntervalListGroup group = builder.build();
+        assertEquals(keyCount, group.getSnpBlocksMap().size());
+        assertEquals(1000L, group.getStartInBasePairs());
+        
+        // the last key has the largest start and extent
+        long lastEnd = 1000L + (keyCount - 1) + 10L + (keyCount - 1);
+        assertEquals(lastEnd - 1000L, group.getExtentInBasePairs());
+        assertEquals(
+                1000L + 17L,
+                group.getSnpBlocksMap().get("key17").get(0).getStartInBasePairs());
+    }
+    
+    /**
+     * Duplicate keys are rejected and the first result is kept
+     */
+    @Test
+    public void testDuplicateKey()
+    {
+        ConcurrentSnpIntervalListGroupBuilder builder =
+            new ConcurrentSnpIntervalListGroupBuilder();
+        SnpIntervalList first = makeList(1L, 10L);
+        builder.add("key", first);
+        try
+        {
+            builder.add("key", makeList(100L, 10L));
+            fail("expected an IllegalArgumentException");
+        }
+        catch(IllegalArgumentException ex)
+        {
+            // expected
+        }
+        
+        SnpIntervalListGroup group = builder.build();
+        assertSame(first.getSnpBlocks().get(0), group.getSnpBlocksMap().get("key").get(0));
+        assertEquals(1L, group.getStartInBasePairs());
+        assertEquals(10L, group.getExtentInBasePairs());
+    }
+    
+    /**
+     * A built group can't be modified and the builder can't be added to
+     * or built again
+     */
+    @Test
+    public void testFrozenAfterBuild()
+    {
+        ConcurrentSnpIntervalListGroupBuilder builder =
+            new ConcurrentSnpIntervalListGroupBuilder();
+        SnpIntervalListGroup emptyGroup = builder.build();
+        assertTrue(emptyGroup.getSnpBlocksMap().isEmpty());
+        assertEquals(0L, emptyGroup.getStartInBasePairs());
+        assertEquals(0L, emptyGroup.getExtentInBasePairs());
+        
+        try
+        {
+            builder.add("key", makeList(1L, 10L));
+            fail("expected an IllegalStateException");
+        }
+        catch(IllegalStateException ex)
+        {
+            // expected
+        }
+        
+        try
+        {
+            builder.build();
+            fail("expected an IllegalStateException");
+        }
+        catch(IllegalStateException ex)
+        {
+            // expected
+        }
+        
+        try
+        {
+            emptyGroup.getSnpBlocksMap().put(
+                    "key",
+                    Collections.<BasePairInterval>emptyList());
+            fail("expected an UnsupportedOperationException");
+        }
+        catch(UnsupportedOperationException ex)
+        {
+            // expected
+        }
+    }
+}
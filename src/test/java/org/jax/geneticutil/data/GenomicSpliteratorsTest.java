@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link GenomicSpliterators}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class GenomicSpliteratorsTest
+{
+    /**
+     * Build 3000 one base pair intervals on chromosome 1 followed by 1000
+     * on chromosome 2
+     */
+    private static BasePairIntervalArray buildIntervals()
+    {
+        int size = 4000;
+        int[] chromosomeNumbers = new int[size];
+        long[] startsInBasePairs = new long[size];
+        long[] extentsInBasePairs = new long[size];
+        for(int i = 0; i < size; i++)
+        {
+            chromosomeNumbers[i] = i < 3000 ? 1 : 2;
+            startsInBasePairs[i] = 10L * (i % 3000 + 1);
+            extentsInBasePairs[i] = 1L;
+        }
+        return new BasePairIntervalArray(
+                chromosomeNumbers,
+                startsInBasePairs,
+                extentsInBasePairs);
+    }
+    
+    private static List<BasePairInterval> collect(
+            Spliterator<BasePairInterval> spliterator)
+    {
+        final List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        spliterator.forEachRemaining(new Consumer<BasePairInterval>()
+        {
+            public void accept(BasePairInterval interval)
+            {
+                intervals.add(interval);
+            }
+        });
+        return intervals;
+    }
+    
+    /**
+     * Interval spliterators split on the chromosome boundary and the halves
+     * cover every interval in order
+     */
+    @Test
+    public void testChromosomeBoundarySplit()
+    {
+        BasePairIntervalArray intervals = buildIntervals();
+        Spliterator<BasePairInterval> suffix = GenomicSpliterators.intervals(intervals);
+        Spliterator<BasePairInterval> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(3000L, prefix.estimateSize());
+        assertEquals(1000L, suffix.estimateSize());
+        
+        List<BasePairInterval> all = collect(prefix);
+        all.addAll(collect(suffix));
+        assertEquals(intervals.asList(), all);
+        
+        // the list based spliterator splits in the same place
+        suffix = GenomicSpliterators.intervals(
+                new ArrayList<BasePairInterval>(intervals.asList()));
+        assertEquals(3000L, suffix.trySplit().estimateSize());
+    }
+    
+    /**
+     * Only the columnar types are reported as immutable and non-null.
+     * Other lists are just sized and ordered, and the split halves keep the
+     * characteristics of the spliterator they came from
+     */
+    @Test
+    public void testCharacteristics()
+    {
+        BasePairIntervalArray intervals = buildIntervals();
+        Spliterator<BasePairInterval> arraySpliterator =
+            GenomicSpliterators.intervals(intervals);
+        assertEquals(
+                GenomicSpliterators.CHARACTERISTICS,
+                arraySpliterator.characteristics());
+        assertEquals(
+                GenomicSpliterators.CHARACTERISTICS,
+                GenomicSpliterators.intervals(intervals.asList()).characteristics());
+        
+        Spliterator<BasePairInterval> listSpliterator = GenomicSpliterators.intervals(
+                new ArrayList<BasePairInterval>(intervals.asList()));
+        assertEquals(
+                GenomicSpliterators.LIST_CHARACTERISTICS,
+                listSpliterator.characteristics());
+        assertFalse(listSpliterator.hasCharacteristics(Spliterator.IMMUTABLE));
+        assertFalse(listSpliterator.hasCharacteristics(Spliterator.NONNULL));
+        assertEquals(
+                GenomicSpliterators.LIST_CHARACTERISTICS,
+                listSpliterator.trySplit().characteristics());
+        
+        try
+        {
+            GenomicSpliterators.intervals(
+                    new LinkedList<BasePairInterval>(intervals.asList()));
+            fail("a linked list should be rejected");
+        }
+        catch(IllegalArgumentException ex)
+        {
+            // expected
+        }
+    }
+    
+    /**
+     * SNP spliterators over an immutable chromosome make block aligned
+     * splits that cover every SNP in order
+     */
+    @Test
+    public void testSnpSplit()
+    {
+        ImmutableStrainChromosome.Builder builder =
+            new ImmutableStrainChromosome.Builder("strain", 1);
+        for(int i = 0; i < 5000; i++)
+        {
+            builder.addSnp(SnpType.values()[i % SnpType.values().length], i + 1L);
+        }
+        ImmutableStrainChromosome chromosome = builder.build();
+        
+        Spliterator<SingleNucleotidePolymorphism> snps =
+            GenomicSpliterators.snps(chromosome);
+        assertEquals(GenomicSpliterators.CHARACTERISTICS, snps.characteristics());
+        Spliterator<SingleNucleotidePolymorphism> snpPrefix = snps.trySplit();
+        assertEquals(2 * GenomicSpliterators.BLOCK_SIZE, snpPrefix.estimateSize());
+        assertTrue(snps.tryAdvance(new Consumer<SingleNucleotidePolymorphism>()
+        {
+            public void accept(SingleNucleotidePolymorphism snp)
+            {
+                assertEquals(
+                        2L * GenomicSpliterators.BLOCK_SIZE + 1L,
+                        snp.getPositionInBasePairs());
+            }
+        }));
+        
+        Spliterator.OfLong positions = GenomicSpliterators.snpPositions(chromosome);
+        Spliterator.OfLong positionPrefix = positions.trySplit();
+        final long[] expectedPosition = {1L};
+        LongConsumer checker = new LongConsumer()
+        {
+            public void accept(long positionInBasePairs)
+            {
+                assertEquals(expectedPosition[0], positionInBasePairs);
+                expectedPosition[0]++;
+            }
+        };
+        positionPrefix.forEachRemaining(checker);
+        positions.forEachRemaining(checker);
+        assertEquals(5001L, expectedPosition[0]);
+    }
+}
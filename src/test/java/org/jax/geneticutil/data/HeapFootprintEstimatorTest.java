@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Tests for {@link HeapFootprintEstimator}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class HeapFootprintEstimatorTest
+{
+    private static final HeapFootprintEstimator ESTIMATOR =
+        new HeapFootprintEstimator(true, true);
+    
+    /**
+     * The default estimator reads the reference size of the running VM
+     */
+    @Test
+    public void testDefaultMatchesVM()
+    {
+        HotSpotDiagnosticMXBean diagnosticBean =
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        boolean compressedOops = Boolean.parseBoolean(
+                diagnosticBean.getVMOption("UseCompressedOops").getValue());
+        assertEquals(
+                compressedOops ? 4 : 8,
+                HeapFootprintEstimator.getDefault().getReferenceSize());
+    }
+    
+    /**
+     * Sampling a list of one interval type gives the same estimate as
+     * visiting every interval, whether or not the list is random access
+     */
+    @Test
+    public void testSampledListEstimate()
+    {
+        int size = 10 * HeapFootprintEstimator.LIST_SAMPLE_SIZE + 7;
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < size; i++)
+        {
+            intervals.add(new SimpleBasePairInterval(1, i + 1L, 1L));
+        }
+        
+        long expectedBytes =
+            ESTIMATOR.estimateObjectBytes(1, 4 + 4) +
+            ESTIMATOR.estimateReferenceArrayBytes(size) +
+            size * ESTIMATOR.estimateBytes(intervals.get(0));
+        assertEquals(expectedBytes, ESTIMATOR.estimateBytes(intervals));
+        assertEquals(
+                expectedBytes,
+                ESTIMATOR.estimateBytes(new LinkedList<BasePairInterval>(intervals)));
+    }
+    
+    /**
+     * Evenly spaced samples see every interval type in a mixed list, and
+     * short lists are estimated exactly
+     */
+    @Test
+    public void testMixedListEstimate()
+    {
+        int size = 10 * HeapFootprintEstimator.LIST_SAMPLE_SIZE;
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < size; i++)
+        {
+            if(i < size / 2)
+            {
+                intervals.add(new SimpleBasePairInterval(1, i + 1L, 1L));
+            }
+            else
+            {
+                intervals.add(new SimpleRealValuedBasePairInterval(1, i + 1L, 1L, 0.5));
+            }
+        }
+        
+        long exactBytes =
+            ESTIMATOR.estimateObjectBytes(1, 4 + 4) +
+            ESTIMATOR.estimateReferenceArrayBytes(size);
+        for(BasePairInterval interval: intervals)
+        {
+            exactBytes += ESTIMATOR.estimateBytes(interval);
+        }
+        assertEquals(exactBytes, ESTIMATOR.estimateBytes(intervals));
+        
+        List<BasePairInterval> shortList = intervals.subList(
+                size / 2 - 3,
+                size / 2 + 2);
+        exactBytes =
+            ESTIMATOR.estimateObjectBytes(1, 4 + 4) +
+            ESTIMATOR.estimateReferenceArrayBytes(5) +
+            3L * ESTIMATOR.estimateBytes(intervals.get(0)) +
+            2L * ESTIMATOR.estimateBytes(intervals.get(size - 1));
+        assertEquals(exactBytes, ESTIMATOR.estimateBytes(shortList));
+    }
+}
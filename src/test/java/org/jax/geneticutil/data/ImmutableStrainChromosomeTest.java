@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ImmutableStrainChromosome}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ImmutableStrainChromosomeTest
+{
+    private static final SnpType[] TYPES = SnpType.values();
+    
+    /**
+     * Build a chromosome with SNPs every 10 base pairs cycling through the
+     * SNP types
+     */
+    private static ImmutableStrainChromosome build(int snpCount)
+    {
+        ImmutableStrainChromosome.Builder builder =
+            new ImmutableStrainChromosome.Builder("strain", 3);
+        for(int i = 0; i < snpCount; i++)
+        {
+            builder.addSnp(TYPES[i % TYPES.length], 10L * (i + 1));
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Indexed access, positions and packed types all agree, including
+     * across the boundary between packed longs
+     */
+    @Test
+    public void testIndexedAccess()
+    {
+        ImmutableStrainChromosome chromosome = build(70);
+        assertEquals(70, chromosome.getSnpCount());
+        assertEquals(3, chromosome.getChromosomeNumber());
+        assertEquals("strain", chromosome.getStrainName());
+        
+        long[] positions = chromosome.getPositionsInBasePairs();
+        for(int i = 0; i < chromosome.getSnpCount(); i++)
+        {
+            SingleNucleotidePolymorphism snp = chromosome.getSnp(i);
+            assertEquals(10L * (i + 1), snp.getPositionInBasePairs());
+            assertEquals(snp.getPositionInBasePairs(), positions[i]);
+            assertEquals(snp.getSnpType(), chromosome.getSnpType(i));
+            assertEquals(i, chromosome.findSnpIndex(positions[i]));
+        }
+        assertEquals(-1, chromosome.findSnpIndex(5L));
+        assertEquals(-2, chromosome.findSnpIndex(15L));
+        
+        // the columns are cached
+        assertSame(positions, chromosome.getPositionsInBasePairs());
+    }
+    
+    /**
+     * The SNPs have to be added in position order
+     */
+    @Test
+    public void testUnsortedSnpsRejected()
+    {
+        ImmutableStrainChromosome.Builder builder =
+            new ImmutableStrainChromosome.Builder("strain", 1);
+        builder.addSnp(SnpType.A_SNP, 20L);
+        builder.addSnp(SnpType.C_SNP, 10L);
+        try
+        {
+            builder.build();
+            fail("expected unsorted SNPs to be rejected");
+        }
+        catch(IllegalArgumentException ex)
+        {
+            // expected
+        }
+    }
+    
+    /**
+     * Converting to and from a mutable chromosome copies the SNP array in
+     * both directions
+     */
+    @Test
+    public void testMutableConversion()
+    {
+        ImmutableStrainChromosome chromosome = build(5);
+        StrainChromosome mutableChromosome = chromosome.toStrainChromosome();
+        assertEquals("strain", mutableChromosome.getStrainName());
+        assertEquals(3, mutableChromosome.getChromosomeNumber());
+        assertArrayEquals(
+                chromosome.getSingleNucleotidePolymorphisms(),
+                mutableChromosome.getSingleNucleotidePolymorphisms());
+        
+        ImmutableStrainChromosome copy = ImmutableStrainChromosome.copyOf(mutableChromosome);
+        mutableChromosome.getSingleNucleotidePolymorphisms()[0] =
+            new SingleNucleotidePolymorphism(SnpType.G_SNP, 1L);
+        assertEquals(10L, copy.getSnp(0).getPositionInBasePairs());
+        assertEquals(chromosome, copy);
+        assertEquals(chromosome.hashCode(), copy.hashCode());
+        assertNotSame(
+                chromosome.getSingleNucleotidePolymorphisms(),
+                chromosome.getSingleNucleotidePolymorphisms());
+    }
+    
+    /**
+     * Converting an index interval gives the same base pair interval for
+     * the immutable chromosome as for its mutable copy
+     */
+    @Test
+    public void testToSnpInterval()
+    {
+        ImmutableStrainChromosome chromosome = build(20);
+        IndexedSnpInterval indexedInterval = new IndexedSnpInterval(4, 6);
+        BasePairInterval interval = indexedInterval.toSnpInterval(chromosome);
+        assertEquals(3, interval.getChromosomeNumber());
+        assertEquals(50L, interval.getStartInBasePairs());
+        assertEquals(100L, interval.getEndInBasePairs());
+        assertEquals(
+                indexedInterval.toSnpInterval(chromosome.toStrainChromosome()),
+                interval);
+    }
+}
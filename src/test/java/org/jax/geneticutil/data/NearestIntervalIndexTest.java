@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link NearestIntervalIndex}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class NearestIntervalIndexTest
+{
+    private static BasePairInterval interval(long start, long end)
+    {
+        return new SimpleBasePairInterval(1, start, end - start + 1);
+    }
+    
+    /**
+     * An upstream and a downstream interval at the same distance are
+     * returned upstream first
+     */
+    @Test
+    public void testTieFavorsUpstream()
+    {
+        BasePairInterval upstream = interval(80L, 90L);
+        BasePairInterval downstream = interval(110L, 120L);
+        NearestIntervalIndex<BasePairInterval> index =
+            new NearestIntervalIndex<BasePairInterval>(
+                    Arrays.asList(downstream, upstream));
+        BasePairInterval query = interval(100L, 100L);
+        
+        assertSame(upstream, index.getNearest(query, IntervalSearchDirection.ANY));
+        assertEquals(
+                Arrays.asList(upstream, downstream),
+                index.getNearest(query, 2, IntervalSearchDirection.ANY));
+        assertSame(
+                downstream,
+                index.getNearest(query, IntervalSearchDirection.DOWNSTREAM));
+        assertEquals(
+                Collections.singletonList(upstream),
+                index.getNearest(query, 2, IntervalSearchDirection.UPSTREAM));
+    }
+    
+    /**
+     * Touching intervals are one base pair away and beat a farther
+     * interval on the other side
+     */
+    @Test
+    public void testTouchingIntervals()
+    {
+        BasePairInterval upstream = interval(50L, 98L);
+        BasePairInterval downstream = interval(101L, 120L);
+        NearestIntervalIndex<BasePairInterval> index =
+            new NearestIntervalIndex<BasePairInterval>(
+                    Arrays.asList(upstream, downstream));
+        BasePairInterval query = interval(100L, 100L);
+        
+        assertEquals(2L, NearestIntervalIndex.getDistanceInBasePairs(query, upstream));
+        assertEquals(1L, NearestIntervalIndex.getDistanceInBasePairs(query, downstream));
+        assertSame(downstream, index.getNearest(query, IntervalSearchDirection.ANY));
+    }
+    
+    /**
+     * Overlapping intervals come first in start order in every direction,
+     * even when a long interval spanning the query hides many short ones
+     * that don't overlap it
+     */
+    @Test
+    public void testOverlapsFirst()
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        BasePairInterval longInterval = interval(1L, 100000L);
+        intervals.add(longInterval);
+        for(long start = 10L; start < 50000L; start += 10L)
+        {
+            intervals.add(interval(start, start + 4L));
+        }
+        BasePairInterval lateOverlap = interval(49990L, 50010L);
+        intervals.add(lateOverlap);
+        BasePairInterval downstream = interval(50020L, 50030L);
+        intervals.add(downstream);
+        NearestIntervalIndex<BasePairInterval> index =
+            new NearestIntervalIndex<BasePairInterval>(intervals);
+        
+        BasePairInterval query = interval(50006L, 50008L);
+        for(IntervalSearchDirection direction: IntervalSearchDirection.values())
+        {
+            assertEquals(
+                    Arrays.asList(longInterval, lateOverlap),
+                    index.getNearest(query, 2, direction));
+            assertSame(longInterval, index.getNearest(query, direction));
+        }
+        assertSame(
+                downstream,
+                index.getNearest(query, 3, IntervalSearchDirection.DOWNSTREAM).get(2));
+    }
+    
+    /**
+     * Queries on a chromosome with no intervals find nothing
+     */
+    @Test
+    public void testOtherChromosome()
+    {
+        NearestIntervalIndex<BasePairInterval> index =
+            new NearestIntervalIndex<BasePairInterval>(
+                    Collections.singletonList(interval(1L, 10L)));
+        BasePairInterval query = new SimpleBasePairInterval(2, 1L, 10L);
+        assertNull(index.getNearest(query, IntervalSearchDirection.ANY));
+        assertEquals(0, index.getNearest(query, 3, IntervalSearchDirection.ANY).size());
+    }
+    
+    /**
+     * Random k-nearest queries and the sorted batch queries must find
+     * intervals at the same distances as a brute force search
+     */
+    @Test
+    public void testAgainstBruteForce()
+    {
+        Random random = new Random(7L);
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < 500; i++)
+        {
+            long start = 1L + random.nextInt(100000);
+            long extent = 1L + (random.nextInt(20) == 0 ?
+                    random.nextInt(20000) :
+                    random.nextInt(200));
+            intervals.add(new SimpleBasePairInterval(1, start, extent));
+        }
+        NearestIntervalIndex<BasePairInterval> index =
+            new NearestIntervalIndex<BasePairInterval>(intervals);
+        
+        List<BasePairInterval> queries = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < 300; i++)
+        {
+            queries.add(new SimpleBasePairInterval(
+                    1,
+                    1L + random.nextInt(110000),
+                    1L + random.nextInt(100)));
+        }
+        Collections.sort(queries, SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        
+        for(IntervalSearchDirection direction: IntervalSearchDirection.values())
+        {
+            List<BasePairInterval> batchNearest =
+                index.getNearestForSortedQueries(queries, direction);
+            for(int i = 0; i < queries.size(); i++)
+            {
+                BasePairInterval query = queries.get(i);
+                List<Long> expectedDistances =
+                    bruteForceDistances(intervals, query, direction);
+                for(int k: new int[] {1, 3, 10})
+                {
+                    List<BasePairInterval> nearest = index.getNearest(query, k, direction);
+                    assertEquals(
+                            expectedDistances.subList(0, Math.min(k, expectedDistances.size())),
+                            distances(nearest, query, direction));
+                }
+                
+                if(expectedDistances.isEmpty())
+                {
+                    assertNull(batchNearest.get(i));
+                }
+                else
+                {
+                    assertEquals(
+                            expectedDistances.get(0).longValue(),
+                            NearestIntervalIndex.getDistanceInBasePairs(
+                                    query,
+                                    batchNearest.get(i)));
+                }
+            }
+        }
+    }
+    
+    private static boolean inDirection(
+            BasePairInterval interval,
+            BasePairInterval query,
+            IntervalSearchDirection direction)
+    {
+        boolean overlaps =
+            interval.getStartInBasePairs() <= query.getEndInBasePairs() &&
+            interval.getEndInBasePairs() >= query.getStartInBasePairs();
+        switch(direction)
+        {
+            case UPSTREAM:
+                return overlaps ||
+                       interval.getEndInBasePairs() < query.getStartInBasePairs();
+            case DOWNSTREAM:
+                return overlaps ||
+                       interval.getStartInBasePairs() > query.getEndInBasePairs();
+            default:
+                return true;
+        }
+    }
+    
+    private static List<Long> distances(
+            List<BasePairInterval> intervals,
+            BasePairInterval query,
+            IntervalSearchDirection direction)
+    {
+        List<Long> distances = new ArrayList<Long>(intervals.size());
+        for(BasePairInterval interval: intervals)
+        {
+            assertTrue(inDirection(interval, query, direction));
+            distances.add(NearestIntervalIndex.getDistanceInBasePairs(query, interval));
+        }
+        return distances;
+    }
+    
+    private static List<Long> bruteForceDistances(
+            List<BasePairInterval> intervals,
+            BasePairInterval query,
+            IntervalSearchDirection direction)
+    {
+        List<Long> distances = new ArrayList<Long>();
+        for(BasePairInterval interval: intervals)
+        {
+            if(inDirection(interval, query, direction))
+            {
+                distances.add(NearestIntervalIndex.getDistanceInBasePairs(query, interval));
+            }
+        }
+        Collections.sort(distances);
+        return distances;
+    }
+}
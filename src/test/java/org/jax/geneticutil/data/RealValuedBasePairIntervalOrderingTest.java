@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the ordering and equality of
+ * {@link SimpleRealValuedBasePairInterval} and
+ * {@link CompositeRealValuedBasePairInterval}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedBasePairIntervalOrderingTest
+{
+    private static CompositeRealValuedBasePairInterval composite(
+            long startInBasePairs,
+            double value)
+    {
+        return new CompositeRealValuedBasePairInterval(
+                new SimpleBasePairInterval(1, startInBasePairs, 10L),
+                value);
+    }
+    
+    private static SimpleRealValuedBasePairInterval simple(
+            long startInBasePairs,
+            double value)
+    {
+        return new SimpleRealValuedBasePairInterval(1, startInBasePairs, 10L, value);
+    }
+    
+    /**
+     * Intervals at the same position are ordered by value whichever
+     * implementation each operand is
+     */
+    @Test
+    public void testValueBreaksPositionTies()
+    {
+        assertTrue(composite(5L, 1.0).compareTo(composite(5L, 2.0)) < 0);
+        assertTrue(composite(5L, 2.0).compareTo(simple(5L, 1.0)) > 0);
+        assertTrue(simple(5L, 1.0).compareTo(composite(5L, 2.0)) < 0);
+        assertTrue(simple(5L, 2.0).compareTo(simple(5L, 1.0)) > 0);
+        assertEquals(0, composite(5L, 1.0).compareTo(simple(5L, 1.0)));
+        
+        // position still comes first
+        assertTrue(composite(4L, 9.0).compareTo(simple(5L, 1.0)) < 0);
+        assertTrue(simple(6L, 1.0).compareTo(composite(5L, 9.0)) > 0);
+    }
+    
+    /**
+     * Against a plain interval only the position is compared, in both
+     * directions
+     */
+    @Test
+    public void testPlainIntervalComparedByPosition()
+    {
+        SimpleBasePairInterval plain = new SimpleBasePairInterval(1, 5L, 10L);
+        assertEquals(0, composite(5L, 3.0).compareTo(plain));
+        assertEquals(0, simple(5L, 3.0).compareTo(plain));
+        assertEquals(0, plain.compareTo(simple(5L, 3.0)));
+    }
+    
+    /**
+     * Equality and hashing stay positional and symmetric
+     */
+    @Test
+    public void testEqualityIsPositional()
+    {
+        SimpleBasePairInterval plain = new SimpleBasePairInterval(1, 5L, 10L);
+        SimpleRealValuedBasePairInterval one = simple(5L, 1.0);
+        SimpleRealValuedBasePairInterval two = simple(5L, 2.0);
+        assertTrue(one.equals(two));
+        assertTrue(one.equals(plain));
+        assertTrue(plain.equals(two));
+        assertEquals(one.hashCode(), two.hashCode());
+        assertEquals(plain.hashCode(), one.hashCode());
+    }
+}
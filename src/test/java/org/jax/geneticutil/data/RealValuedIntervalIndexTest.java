@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RealValuedIntervalIndex}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedIntervalIndexTest
+{
+    private static RealValuedBasePairInterval interval(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long extentInBasePairs,
+            double realValue)
+    {
+        return new CompositeRealValuedBasePairInterval(
+                new SimpleBasePairInterval(
+                        chromosomeNumber,
+                        startInBasePairs,
+                        extentInBasePairs),
+                realValue);
+    }
+    
+    /**
+     * Make sorted, non-overlapping intervals with random gaps and values
+     */
+    private static List<RealValuedBasePairInterval> makeIntervals(
+            int chromosomeNumber,
+            int count,
+            Random random)
+    {
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>(count);
+        long start = 1L + random.nextInt(50);
+        for(int i = 0; i < count; i++)
+        {
+            long extent = 1L + random.nextInt(20);
+            intervals.add(interval(
+                    chromosomeNumber,
+                    start,
+                    extent,
+                    random.nextGaussian()));
+            start += extent + random.nextInt(10);
+        }
+        return intervals;
+    }
+    
+    private static List<Integer> overlappingIndices(
+            List<RealValuedBasePairInterval> intervals,
+            long startInBasePairs,
+            long endInBasePairs)
+    {
+        List<Integer> indices = new ArrayList<Integer>();
+        for(int i = 0; i < intervals.size(); i++)
+        {
+            if(intervals.get(i).getStartInBasePairs() <= endInBasePairs &&
+               intervals.get(i).getEndInBasePairs() >= startInBasePairs)
+            {
+                indices.add(i);
+            }
+        }
+        return indices;
+    }
+    
+    /**
+     * Every aggregate over random ranges (including empty ones and ones
+     * falling in the gaps between intervals) matches a brute force scan.
+     * Odd interval counts leave padding leaves in the tree
+     */
+    @Test
+    public void testAggregatesMatchBruteForce()
+    {
+        Random random = new Random(26L);
+        for(int count: new int[] {1, 2, 7, 64, 100})
+        {
+            final List<RealValuedBasePairInterval> intervals =
+                makeIntervals(3, count, random);
+            RealValuedIntervalIndex index = new RealValuedIntervalIndex(intervals);
+            assertEquals(3, index.getChromosomeNumber());
+            assertEquals(count, index.getIntervalCount());
+            long lastEnd = intervals.get(count - 1).getEndInBasePairs();
+            
+            for(int i = 0; i < 500; i++)
+            {
+                long start = random.nextInt((int)lastEnd + 20) - 10L;
+                long extent = 1L + random.nextInt(random.nextBoolean() ? 5 : 200);
+                List<Integer> expected =
+                    overlappingIndices(intervals, start, start + extent - 1);
+                
+                assertEquals(expected.size(), index.getIntervalCount(start, extent));
+                if(expected.isEmpty())
+                {
+                    assertTrue(Double.isNaN(index.getMinimumRealValue(start, extent)));
+                    assertTrue(Double.isNaN(index.getMaximumRealValue(start, extent)));
+                    assertTrue(Double.isNaN(index.getMeanRealValue(start, extent)));
+                    assertEquals(0.0, index.getRealValueSum(start, extent), 0.0);
+                    assertEquals(-1, index.getMaximumIntervalIndex(start, extent));
+                    assertEquals(0, index.getTopIntervalIndices(start, extent, 3).length);
+                    continue;
+                }
+                
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0.0;
+                int maxIndex = -1;
+                for(int intervalIndex: expected)
+                {
+                    double value = intervals.get(intervalIndex).getRealValue();
+                    min = Math.min(min, value);
+                    sum += value;
+                    if(value > max)
+                    {
+                        max = value;
+                        maxIndex = intervalIndex;
+                    }
+                }
+                assertEquals(min, index.getMinimumRealValue(start, extent), 0.0);
+                assertEquals(max, index.getMaximumRealValue(start, extent), 0.0);
+                assertEquals(sum, index.getRealValueSum(start, extent), 1e-9);
+                assertEquals(
+                        sum / expected.size(),
+                        index.getMeanRealValue(start, extent),
+                        1e-9);
+                assertEquals(maxIndex, index.getMaximumIntervalIndex(start, extent));
+                
+                Collections.sort(expected, new Comparator<Integer>()
+                {
+                    public int compare(Integer index1, Integer index2)
+                    {
+                        return Double.compare(
+                                intervals.get(index2).getRealValue(),
+                                intervals.get(index1).getRealValue());
+                    }
+                });
+                int k = 1 + random.nextInt(5);
+                int[] expectedTop = new int[Math.min(k, expected.size())];
+                for(int j = 0; j < expectedTop.length; j++)
+                {
+                    expectedTop[j] = expected.get(j);
+                }
+                assertArrayEquals(
+                        expectedTop,
+                        index.getTopIntervalIndices(start, extent, k));
+            }
+        }
+    }
+    
+    /**
+     * Overlapping intervals are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingIntervals()
+    {
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>();
+        intervals.add(interval(1, 10L, 10L, 1.0));
+        intervals.add(interval(1, 19L, 10L, 2.0));
+        new RealValuedIntervalIndex(intervals);
+    }
+    
+    /**
+     * Intervals spanning chromosomes are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixedChromosomes()
+    {
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>();
+        intervals.add(interval(1, 10L, 10L, 1.0));
+        intervals.add(interval(2, 30L, 10L, 2.0));
+        new RealValuedIntervalIndex(intervals);
+    }
+    
+    /**
+     * Parallel per-chromosome builds sort each chromosome's intervals and
+     * index all of them
+     * @throws Exception if a build fails
+     */
+    @Test
+    public void testBuildPerChromosome() throws Exception
+    {
+        Random random = new Random(3L);
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>();
+        intervals.addAll(makeIntervals(1, 30, random));
+        intervals.addAll(makeIntervals(20, 10, random));
+        Collections.shuffle(intervals, random);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            Map<Integer, RealValuedIntervalIndex> indices =
+                RealValuedIntervalIndex.buildPerChromosome(intervals, executor);
+            assertEquals(2, indices.size());
+            assertEquals(30, indices.get(1).getIntervalCount());
+            assertEquals(10, indices.get(20).getIntervalCount());
+            assertEquals(20, indices.get(20).getChromosomeNumber());
+            for(int i = 1; i < 30; i++)
+            {
+                assertTrue(indices.get(1).getStartInBasePairs(i) >
+                           indices.get(1).getEndInBasePairs(i - 1));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
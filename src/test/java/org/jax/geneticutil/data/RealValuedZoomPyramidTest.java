@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RealValuedZoomPyramid}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class RealValuedZoomPyramidTest
+{
+    private static final int CHROMOSOME_NUMBER = 1;
+    
+    /**
+     * Build intervals of the given extent that tile the chromosome from
+     * position 1 up to the given end with the given value
+     */
+    private static List<RealValuedBasePairInterval> tile(
+            long endInBasePairs,
+            long extentInBasePairs,
+            double value)
+    {
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>();
+        for(long start = 1; start <= endInBasePairs; start += extentInBasePairs)
+        {
+            intervals.add(new SimpleRealValuedBasePairInterval(
+                    CHROMOSOME_NUMBER,
+                    start,
+                    extentInBasePairs,
+                    value));
+        }
+        return intervals;
+    }
+    
+    /**
+     * Dense data summarized at fewer base pairs per bin than the level 0 bin
+     * size must not leave any output bins empty
+     */
+    @Test
+    public void testNoEmptyBinsBelowBaseBinSize()
+    {
+        RealValuedZoomPyramid pyramid = new RealValuedZoomPyramid(
+                tile(100000L, 10L, 2.5));
+        
+        for(int binCount: new int[] {500, 1000, 4096, 4999})
+        {
+            RealValuedZoomSummary summary = pyramid.summarize(
+                    20001L,
+                    5000L,
+                    binCount);
+            for(int bin = 0; bin < binCount; bin++)
+            {
+                assertFalse(
+                        "bin " + bin + " of " + binCount + " is empty",
+                        Double.isNaN(summary.getMean(bin)));
+                assertEquals(2.5, summary.getMinimum(bin), 0.0);
+                assertEquals(2.5, summary.getMaximum(bin), 0.0);
+                assertEquals(2.5, summary.getMean(bin), 1e-9);
+                assertEquals(1.0, summary.getCoverage(bin), 1e-9);
+            }
+        }
+    }
+    
+    /**
+     * Uncovered regions stay empty and partially covered level bins only
+     * report partial coverage
+     */
+    @Test
+    public void testGapsBelowBaseBinSize()
+    {
+        List<RealValuedBasePairInterval> intervals =
+            new ArrayList<RealValuedBasePairInterval>();
+        intervals.add(new SimpleRealValuedBasePairInterval(
+                CHROMOSOME_NUMBER, 1024L, 2048L, 1.0));
+        intervals.add(new SimpleRealValuedBasePairInterval(
+                CHROMOSOME_NUMBER, 8192L, 512L, 3.0));
+        RealValuedZoomPyramid pyramid = new RealValuedZoomPyramid(intervals);
+        
+        // 16 bp per output bin starting on a level 0 bin boundary
+        int binCount = 768;
+        RealValuedZoomSummary summary = pyramid.summarize(1024L, 12288L, binCount);
+        for(int bin = 0; bin < binCount; bin++)
+        {
+            double mean = summary.getMean(bin);
+            if(bin < 128)
+            {
+                assertEquals(1.0, mean, 1e-9);
+                assertEquals(1.0, summary.getCoverage(bin), 1e-9);
+            }
+            else if(bin >= 448 && bin < 512)
+            {
+                // the 512 bp interval is spread over its 1024 bp level bin
+                assertEquals(3.0, mean, 1e-9);
+                assertEquals(0.5, summary.getCoverage(bin), 1e-9);
+            }
+            else
+            {
+                assertTrue("bin " + bin + " should be empty", Double.isNaN(mean));
+            }
+        }
+    }
+    
+    /**
+     * Summaries at or above the base bin size must agree with the level
+     * totals
+     */
+    @Test
+    public void testCoarseSummaryPreservesCoverage()
+    {
+        RealValuedZoomPyramid pyramid = new RealValuedZoomPyramid(
+                tile(1100000L, 100L, 4.0));
+        RealValuedZoomSummary summary = pyramid.summarize(1L, 1000000L, 100);
+        double totalCoverage = 0.0;
+        for(int bin = 0; bin < 100; bin++)
+        {
+            assertEquals(4.0, summary.getMean(bin), 1e-9);
+            totalCoverage += summary.getCoverage(bin) * 10000.0;
+        }
+        assertEquals(1000000.0, totalCoverage, 2.0);
+    }
+}
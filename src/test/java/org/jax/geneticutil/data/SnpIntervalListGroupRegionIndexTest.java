@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SnpIntervalListGroupRegionIndex}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SnpIntervalListGroupRegionIndexTest
+{
+    private static final Comparator<BasePairInterval> START_COMPARATOR =
+        new Comparator<BasePairInterval>()
+        {
+            public int compare(BasePairInterval interval1, BasePairInterval interval2)
+            {
+                long start1 = interval1.getStartInBasePairs();
+                long start2 = interval2.getStartInBasePairs();
+                return start1 < start2 ? -1 : (start1 == start2 ? 0 : 1);
+            }
+        };
+    
+    /**
+     * The intersecting intervals in start order (keeping list order for
+     * equal starts) found by checking every interval
+     */
+    private static List<BasePairInterval> bruteForceRegion(
+            List<BasePairInterval> intervals,
+            long startInBasePairs,
+            long extentInBasePairs)
+    {
+        long endInBasePairs = startInBasePairs + extentInBasePairs - 1;
+        List<BasePairInterval> region = new ArrayList<BasePairInterval>();
+        for(BasePairInterval currInterval: intervals)
+        {
+            if(currInterval.getStartInBasePairs() <= endInBasePairs &&
+               currInterval.getEndInBasePairs() >= startInBasePairs)
+            {
+                region.add(currInterval);
+            }
+        }
+        Collections.sort(region, START_COMPARATOR);
+        return region;
+    }
+    
+    private static void assertSameElements(
+            List<BasePairInterval> expected,
+            List<BasePairInterval> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++)
+        {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+    
+    /**
+     * Random regions against a sorted non-overlapping list, an unsorted
+     * list of overlapping intervals (including one long interval and
+     * repeated starts) and a linked list all match a brute force scan
+     */
+    @Test
+    public void testRegionsMatchBruteForce()
+    {
+        Random random = new Random(36L);
+        
+        List<BasePairInterval> sortedIntervals = new ArrayList<BasePairInterval>();
+        long start = 1L;
+        for(int i = 0; i < 200; i++)
+        {
+            long extent = 1L + random.nextInt(50);
+            sortedIntervals.add(new SimpleBasePairInterval(1, start, extent));
+            start += extent + random.nextInt(20);
+        }
+        
+        List<BasePairInterval> overlappingIntervals = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < 200; i++)
+        {
+            overlappingIntervals.add(new SimpleBasePairInterval(
+                    1,
+                    1L + random.nextInt(10000),
+                    1L + random.nextInt(300)));
+        }
+        overlappingIntervals.add(new SimpleBasePairInterval(1, 50L, 9000L));
+        overlappingIntervals.add(new SimpleBasePairInterval(1, 50L, 10L));
+        Collections.shuffle(overlappingIntervals, random);
+        
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap.put("sorted", sortedIntervals);
+        snpBlocksMap.put("overlapping", overlappingIntervals);
+        snpBlocksMap.put("linked", new LinkedList<BasePairInterval>(overlappingIntervals));
+        snpBlocksMap.put("empty", new ArrayList<BasePairInterval>());
+        SnpIntervalListGroupRegionIndex index = new SnpIntervalListGroupRegionIndex(
+                new SnpIntervalListGroup(snpBlocksMap, 1L, 12000L));
+        
+        for(int i = 0; i < 500; i++)
+        {
+            long regionStart = random.nextInt(12000) - 100L;
+            long regionExtent = 1L + random.nextInt(random.nextBoolean() ? 10 : 2000);
+            Map<String, List<BasePairInterval>> region =
+                index.getSnpBlocksMapInRegion(regionStart, regionExtent);
+            assertEquals(snpBlocksMap.keySet(), region.keySet());
+            for(Map.Entry<String, List<BasePairInterval>> entry: snpBlocksMap.entrySet())
+            {
+                assertSameElements(
+                        bruteForceRegion(entry.getValue(), regionStart, regionExtent),
+                        region.get(entry.getKey()));
+            }
+        }
+    }
+    
+    /**
+     * Regions that touch an interval's first or last base pair include it
+     * and regions one base pair past it don't
+     */
+    @Test
+    public void testRegionBoundaries()
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        intervals.add(new SimpleBasePairInterval(1, 100L, 10L));
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap.put("strain", intervals);
+        SnpIntervalListGroupRegionIndex index = new SnpIntervalListGroupRegionIndex(
+                new SnpIntervalListGroup(snpBlocksMap, 100L, 10L));
+        
+        assertEquals(1, index.getSnpBlocksInRegion("strain", 109L, 1L).size());
+        assertEquals(1, index.getSnpBlocksInRegion("strain", 90L, 11L).size());
+        assertTrue(index.getSnpBlocksInRegion("strain", 110L, 100L).isEmpty());
+        assertTrue(index.getSnpBlocksInRegion("strain", 90L, 10L).isEmpty());
+        assertNull(index.getSnpBlocksInRegion("missing", 1L, 1000L));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.gui;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.RealValuedZoomPyramid;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.junit.Test;
+
+/**
+ * Tests for the detailed and density tile paths of
+ * {@link IntervalGenomeTrack}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class IntervalGenomeTrackTest
+{
+    private static final int WIDTH = GenomeTrackPanel.TILE_WIDTH;
+    
+    private static final int HEIGHT = 24;
+    
+    /**
+     * the detailed path leaves the top rows empty and the density path
+     * fills whole columns
+     */
+    private static final int TOP_Y = 0;
+    
+    private static final int MIDDLE_Y = HEIGHT / 2;
+    
+    private static BufferedImage render(
+            GenomeTrack track,
+            long startInBasePairs,
+            double basePairsPerPixel)
+    {
+        BufferedImage tile = new BufferedImage(
+                WIDTH,
+                HEIGHT,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = tile.createGraphics();
+        try
+        {
+            track.renderTile(graphics, startInBasePairs, basePairsPerPixel, WIDTH, HEIGHT);
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        return tile;
+    }
+    
+    private static boolean isPainted(BufferedImage tile, int x, int y)
+    {
+        return (tile.getRGB(x, y) >>> 24) != 0;
+    }
+    
+    /**
+     * Build intervals of the given extent that start every step base pairs
+     * from position 1 up to the given end
+     */
+    private static List<BasePairInterval> repeat(
+            long endInBasePairs,
+            long stepInBasePairs,
+            long extentInBasePairs)
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        for(long start = 1L; start <= endInBasePairs; start += stepInBasePairs)
+        {
+            intervals.add(new SimpleBasePairInterval(1, start, extentInBasePairs));
+        }
+        return intervals;
+    }
+    
+    /**
+     * A few intervals are drawn individually where they are
+     */
+    @Test
+    public void testDetailedTile()
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        intervals.add(new SimpleBasePairInterval(1, 101L, 100L));
+        intervals.add(new SimpleBasePairInterval(1, 301L, 100L));
+        GenomeTrack track = new IntervalGenomeTrack("test", intervals, Color.BLUE);
+        
+        BufferedImage tile = render(track, 1L, 2.0);
+        assertTrue(isPainted(tile, 50, MIDDLE_Y));
+        assertTrue(isPainted(tile, 99, MIDDLE_Y));
+        assertTrue(isPainted(tile, 150, MIDDLE_Y));
+        assertFalse(isPainted(tile, 49, MIDDLE_Y));
+        assertFalse(isPainted(tile, 100, MIDDLE_Y));
+        assertFalse(isPainted(tile, 200, MIDDLE_Y));
+        assertFalse(isPainted(tile, 50, TOP_Y));
+    }
+    
+    /**
+     * A long interval spanning a tile of sparse short intervals shouldn't
+     * push the tile into the density view
+     */
+    @Test
+    public void testSpanningIntervalStaysDetailed()
+    {
+        List<BasePairInterval> intervals = repeat(4000000L, 1000L, 10L);
+        intervals.add(new SimpleBasePairInterval(1, 1L, 4000000L));
+        GenomeTrack track = new IntervalGenomeTrack("test", intervals, Color.BLUE);
+        
+        BufferedImage tile = render(track, 2000001L, 8.0);
+        for(int x = 0; x < WIDTH; x++)
+        {
+            assertTrue(isPainted(tile, x, MIDDLE_Y));
+            assertFalse(isPainted(tile, x, TOP_Y));
+        }
+    }
+    
+    /**
+     * Dense intervals zoomed out past the pyramid base bin size are drawn
+     * as density
+     */
+    @Test
+    public void testDensityTile()
+    {
+        GenomeTrack track = new IntervalGenomeTrack(
+                "test",
+                repeat(4000000L, 100L, 50L),
+                Color.BLUE);
+        
+        BufferedImage tile = render(
+                track,
+                1L,
+                RealValuedZoomPyramid.DEFAULT_BASE_BIN_SIZE_IN_BASE_PAIRS * 4);
+        for(int x = 0; x < WIDTH; x++)
+        {
+            assertTrue(isPainted(tile, x, TOP_Y));
+        }
+    }
+    
+    /**
+     * Dense intervals zoomed in finer than the pyramid base bin size are
+     * still drawn individually since the pyramid can't resolve them
+     */
+    @Test
+    public void testDenseTileBelowBaseBinSize()
+    {
+        GenomeTrack track = new IntervalGenomeTrack(
+                "test",
+                repeat(100000L, 2L, 1L),
+                Color.BLUE);
+        
+        BufferedImage tile = render(track, 1L, 16.0);
+        for(int x = 0; x < WIDTH; x++)
+        {
+            assertTrue(isPainted(tile, x, MIDDLE_Y));
+            assertFalse(isPainted(tile, x, TOP_Y));
+        }
+    }
+}
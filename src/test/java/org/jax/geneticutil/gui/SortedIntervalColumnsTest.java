@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.gui;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SortedIntervalColumns}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SortedIntervalColumnsTest
+{
+    private static int[] bruteForceOverlapping(
+            SortedIntervalColumns<BasePairInterval> columns,
+            long startInBasePairs,
+            long endInBasePairs)
+    {
+        int[] indices = new int[columns.size()];
+        int count = 0;
+        for(int i = 0; i < columns.size(); i++)
+        {
+            if(columns.startsInBasePairs[i] <= endInBasePairs &&
+               columns.endsInBasePairs[i] >= startInBasePairs)
+            {
+                indices[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+    
+    /**
+     * Overlaps of random nested and overlapping intervals should match a
+     * brute force scan and come back in start order
+     */
+    @Test
+    public void testFindOverlappingMatchesBruteForce()
+    {
+        Random random = new Random(7L);
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < 500; i++)
+        {
+            intervals.add(new SimpleBasePairInterval(
+                    1,
+                    1L + random.nextInt(100000),
+                    1L + random.nextInt(i % 50 == 0 ? 50000 : 500)));
+        }
+        SortedIntervalColumns<BasePairInterval> columns =
+            new SortedIntervalColumns<BasePairInterval>(intervals);
+        
+        for(int query = 0; query < 200; query++)
+        {
+            long start = 1L + random.nextInt(110000);
+            long end = start + random.nextInt(2000);
+            assertArrayEquals(
+                    bruteForceOverlapping(columns, start, end),
+                    columns.findOverlapping(start, end, Integer.MAX_VALUE));
+        }
+    }
+    
+    /**
+     * A long interval at the start of the track shouldn't pull in the
+     * short intervals that it spans, and the count limit should cut the
+     * search off
+     */
+    @Test
+    public void testFindOverlappingUnderSpanningInterval()
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        intervals.add(new SimpleBasePairInterval(1, 1L, 1000000L));
+        for(long start = 1L; start < 1000000L; start += 100L)
+        {
+            intervals.add(new SimpleBasePairInterval(1, start, 10L));
+        }
+        SortedIntervalColumns<BasePairInterval> columns =
+            new SortedIntervalColumns<BasePairInterval>(intervals);
+        
+        int[] overlapping = columns.findOverlapping(500011L, 500205L, Integer.MAX_VALUE);
+        assertEquals(3, overlapping.length);
+        assertEquals(1L, columns.startsInBasePairs[overlapping[0]]);
+        assertEquals(500101L, columns.startsInBasePairs[overlapping[1]]);
+        assertEquals(500201L, columns.startsInBasePairs[overlapping[2]]);
+        
+        assertEquals(2, columns.findOverlapping(500011L, 500205L, 2).length);
+        assertEquals(0, columns.findOverlapping(1000001L, 2000000L, 10).length);
+    }
+    
+    /**
+     * An empty track has no overlaps
+     */
+    @Test
+    public void testEmpty()
+    {
+        SortedIntervalColumns<BasePairInterval> columns =
+            new SortedIntervalColumns<BasePairInterval>(
+                    new ArrayList<BasePairInterval>());
+        assertEquals(0, columns.findOverlapping(1L, 100L, Integer.MAX_VALUE).length);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.MouseChromosomes;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BedReader}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class BedReaderTest
+{
+    private static BedReader newReader(String bed) throws IOException
+    {
+        return new BedReader(Channels.newChannel(new ByteArrayInputStream(
+                bed.getBytes("US-ASCII"))));
+    }
+    
+    /**
+     * Lines on unplaced and random contigs are skipped and counted rather
+     * than failing the read
+     * @throws IOException if the test fails
+     */
+    @Test
+    public void testUnmappedContigsSkipped() throws IOException
+    {
+        BedReader reader = newReader(
+                "track name=test\n" +
+                "chr1\t9\t20\n" +
+                "chrUn_GL456239\t0\t100\n" +
+                "chr4_JH584295_random\t0\t100\n" +
+                "chrX\t0\t1\r\n" +
+                "chrM\t5\t10\n" +
+                "19\t100\t200");
+        try
+        {
+            BasePairIntervalArray intervals = reader.readIntervals();
+            assertEquals(4, intervals.size());
+            assertEquals(2, reader.getSkippedLineCount());
+            
+            assertEquals(1, intervals.getChromosomeNumber(0));
+            assertEquals(10L, intervals.getStartInBasePairs(0));
+            assertEquals(11L, intervals.getExtentInBasePairs(0));
+            assertEquals(
+                    MouseChromosomes.X_CHROMOSOME_NUMBER,
+                    intervals.getChromosomeNumber(1));
+            assertEquals(
+                    MouseChromosomes.MITOCHONDRIAL_CHROMOSOME_NUMBER,
+                    intervals.getChromosomeNumber(2));
+            assertEquals(19, intervals.getChromosomeNumber(3));
+            assertEquals(101L, intervals.getStartInBasePairs(3));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.IndexedSnpInterval;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.PartitionedInterval;
+import org.jax.geneticutil.data.RealValuedBasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+import org.jax.geneticutil.data.SnpIntervalList;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+import org.junit.Test;
+
+/**
+ * Round trip tests for {@link CompactIntervalWriter},
+ * {@link CompactIntervalReader} and {@link CompactIntervalCodec}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class CompactIntervalCodecTest
+{
+    private static final int SMALL_BLOCK_SIZE = 7;
+    
+    private static final int INTERVAL_COUNT = 50;
+    
+    /**
+     * Make intervals of the given type spread over a few chromosomes so
+     * that the chromosome runs, start deltas (including negative ones
+     * between chromosomes) and repeated partitions all get exercised
+     */
+    private static List<BasePairInterval> makeIntervals(
+            CompactIntervalType type,
+            int count,
+            long seed)
+    {
+        Random random = new Random(seed);
+        BitSet[] bitSets = new BitSet[3];
+        short[][] strainGroups = new short[3][];
+        for(int i = 0; i < bitSets.length; i++)
+        {
+            bitSets[i] = new BitSet();
+            bitSets[i].set(i);
+            bitSets[i].set(70 + i);
+            strainGroups[i] = new short[] {0, (short)i, -1, 2};
+        }
+        
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>(count);
+        int chromosomeNumber = 1;
+        long start = 1L;
+        for(int i = 0; i < count; i++)
+        {
+            if(random.nextInt(10) == 0)
+            {
+                chromosomeNumber = chromosomeNumber == 20 ? 1 : 20;
+                start = 1L + random.nextInt(1000);
+            }
+            else
+            {
+                start += random.nextInt(100000);
+            }
+            long extent = random.nextInt(5000);
+            
+            switch(type)
+            {
+                case REAL_VALUED:
+                    intervals.add(new SimpleRealValuedBasePairInterval(
+                            chromosomeNumber,
+                            start,
+                            extent,
+                            random.nextGaussian()));
+                    break;
+                case PARTITIONED:
+                    intervals.add(new PartitionedInterval(
+                            chromosomeNumber,
+                            start,
+                            extent,
+                            bitSets[random.nextInt(bitSets.length)]));
+                    break;
+                case MULTI_PARTITIONED:
+                    intervals.add(new MultiPartitionedInterval(
+                            chromosomeNumber,
+                            start,
+                            extent,
+                            strainGroups[random.nextInt(strainGroups.length)]));
+                    break;
+                default:
+                    intervals.add(new SimpleBasePairInterval(
+                            chromosomeNumber,
+                            start,
+                            extent));
+                    break;
+            }
+        }
+        return intervals;
+    }
+    
+    private static void assertIntervalsEqual(
+            CompactIntervalType type,
+            List<? extends BasePairInterval> expected,
+            List<? extends BasePairInterval> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++)
+        {
+            BasePairInterval expectedInterval = expected.get(i);
+            BasePairInterval actualInterval = actual.get(i);
+            assertEquals(
+                    expectedInterval.getChromosomeNumber(),
+                    actualInterval.getChromosomeNumber());
+            assertEquals(
+                    expectedInterval.getStartInBasePairs(),
+                    actualInterval.getStartInBasePairs());
+            assertEquals(
+                    expectedInterval.getExtentInBasePairs(),
+                    actualInterval.getExtentInBasePairs());
+            switch(type)
+            {
+                case REAL_VALUED:
+                    assertEquals(
+                            ((RealValuedBasePairInterval)expectedInterval).getRealValue(),
+                            ((RealValuedBasePairInterval)actualInterval).getRealValue(),
+                            0.0);
+                    break;
+                case PARTITIONED:
+                    assertEquals(
+                            ((PartitionedInterval)expectedInterval).getStrainBitSet(),
+                            ((PartitionedInterval)actualInterval).getStrainBitSet());
+                    break;
+                case MULTI_PARTITIONED:
+                    assertArrayEquals(
+                            ((MultiPartitionedInterval)expectedInterval).getStrainGroups(),
+                            ((MultiPartitionedInterval)actualInterval).getStrainGroups());
+                    break;
+                default:
+                    assertTrue(actualInterval instanceof SimpleBasePairInterval);
+                    break;
+            }
+        }
+    }
+    
+    private static byte[] write(
+            CompactIntervalType type,
+            List<BasePairInterval> intervals,
+            int blockSize)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactIntervalWriter writer =
+            new CompactIntervalWriter(bytes, type, blockSize);
+        writer.writeIntervals(intervals);
+        writer.close();
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Every record type survives a round trip that spans several blocks,
+     * including a partial last block
+     */
+    @Test
+    public void testRoundTripAcrossBlocks() throws IOException
+    {
+        for(CompactIntervalType type: CompactIntervalType.values())
+        {
+            List<BasePairInterval> intervals =
+                makeIntervals(type, INTERVAL_COUNT, type.ordinal());
+            assertEquals(type, CompactIntervalType.forIntervals(intervals));
+            
+            CompactIntervalReader reader = new CompactIntervalReader(
+                    new ByteArrayInputStream(write(type, intervals, SMALL_BLOCK_SIZE)));
+            assertEquals(type, reader.getType());
+            assertIntervalsEqual(type, intervals, reader.readAll());
+            assertNull(reader.readInterval());
+            reader.close();
+        }
+    }
+    
+    /**
+     * A stream that ends exactly on a block boundary or holds no
+     * intervals at all reads back correctly
+     */
+    @Test
+    public void testBlockBoundaryAndEmptyStreams() throws IOException
+    {
+        for(CompactIntervalType type: CompactIntervalType.values())
+        {
+            List<BasePairInterval> intervals =
+                makeIntervals(type, 3 * SMALL_BLOCK_SIZE, type.ordinal());
+            CompactIntervalReader reader = new CompactIntervalReader(
+                    new ByteArrayInputStream(write(type, intervals, SMALL_BLOCK_SIZE)));
+            assertIntervalsEqual(type, intervals, reader.readAll());
+            
+            List<BasePairInterval> noIntervals = Collections.emptyList();
+            reader = new CompactIntervalReader(
+                    new ByteArrayInputStream(write(type, noIntervals, SMALL_BLOCK_SIZE)));
+            assertEquals(type, reader.getType());
+            assertNull(reader.readInterval());
+            assertNull(reader.readInterval());
+        }
+    }
+    
+    /**
+     * Back to back streams written by the codec can be read from the same
+     * input since the reader stops at each stream's terminator
+     */
+    @Test
+    public void testConsecutiveStreams() throws IOException
+    {
+        List<BasePairInterval> simpleIntervals =
+            makeIntervals(CompactIntervalType.SIMPLE, INTERVAL_COUNT, 1L);
+        List<BasePairInterval> realValuedIntervals =
+            makeIntervals(CompactIntervalType.REAL_VALUED, INTERVAL_COUNT, 2L);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactIntervalCodec.writeIntervals(simpleIntervals, bytes);
+        CompactIntervalCodec.writeIntervals(realValuedIntervals, bytes);
+        
+        ByteArrayInputStream input = new ByteArrayInputStream(bytes.toByteArray());
+        assertIntervalsEqual(
+                CompactIntervalType.SIMPLE,
+                simpleIntervals,
+                CompactIntervalCodec.readIntervals(input));
+        assertIntervalsEqual(
+                CompactIntervalType.REAL_VALUED,
+                realValuedIntervals,
+                CompactIntervalCodec.readIntervals(input));
+        assertEquals(0, input.available());
+    }
+    
+    /**
+     * SNP interval lists and groups keep their bounds and every list
+     */
+    @Test
+    public void testSnpIntervalListAndGroupRoundTrip() throws IOException
+    {
+        List<BasePairInterval> intervals =
+            makeIntervals(CompactIntervalType.PARTITIONED, INTERVAL_COUNT, 3L);
+        SnpIntervalList list = new SnpIntervalList(intervals, 17L, 123456789L);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactIntervalCodec.writeSnpIntervalList(list, bytes);
+        SnpIntervalList readList = CompactIntervalCodec.readSnpIntervalList(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(17L, readList.getStartInBasePairs());
+        assertEquals(123456789L, readList.getExtentInBasePairs());
+        assertIntervalsEqual(
+                CompactIntervalType.PARTITIONED,
+                intervals,
+                readList.getSnpBlocks());
+        
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new HashMap<String, List<BasePairInterval>>();
+        snpBlocksMap.put("A/J", intervals);
+        snpBlocksMap.put("C57BL/6J", makeIntervals(
+                CompactIntervalType.PARTITIONED, INTERVAL_COUNT, 4L));
+        snpBlocksMap.put("empty", new ArrayList<BasePairInterval>());
+        SnpIntervalListGroup group = new SnpIntervalListGroup(
+                snpBlocksMap, 5L, 987654321L);
+        
+        bytes.reset();
+        CompactIntervalCodec.writeSnpIntervalListGroup(group, bytes);
+        SnpIntervalListGroup readGroup = CompactIntervalCodec.readSnpIntervalListGroup(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(5L, readGroup.getStartInBasePairs());
+        assertEquals(987654321L, readGroup.getExtentInBasePairs());
+        assertEquals(snpBlocksMap.keySet(), readGroup.getSnpBlocksMap().keySet());
+        for(Map.Entry<String, List<BasePairInterval>> entry: snpBlocksMap.entrySet())
+        {
+            assertIntervalsEqual(
+                    CompactIntervalType.PARTITIONED,
+                    entry.getValue(),
+                    readGroup.getSnpBlocksMap().get(entry.getKey()));
+        }
+    }
+    
+    /**
+     * Indexed intervals round trip including out of order starts which
+     * encode as negative deltas
+     */
+    @Test
+    public void testIndexedSnpIntervalRoundTrip() throws IOException
+    {
+        List<IndexedSnpInterval> indexedIntervals = new ArrayList<IndexedSnpInterval>();
+        indexedIntervals.add(new IndexedSnpInterval(0, 0));
+        indexedIntervals.add(new IndexedSnpInterval(10, 5));
+        indexedIntervals.add(new IndexedSnpInterval(3, 1));
+        indexedIntervals.add(new IndexedSnpInterval(Integer.MAX_VALUE - 10, 10));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactIntervalCodec.writeIndexedSnpIntervals(indexedIntervals, bytes);
+        assertEquals(
+                indexedIntervals,
+                CompactIntervalCodec.readIndexedSnpIntervals(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+    }
+    
+    /**
+     * Writing an interval that doesn't match the stream type fails
+     * without corrupting the stream
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongIntervalType() throws IOException
+    {
+        CompactIntervalWriter writer = new CompactIntervalWriter(
+                new ByteArrayOutputStream(),
+                CompactIntervalType.REAL_VALUED);
+        writer.writeInterval(new SimpleBasePairInterval(1, 1L, 10L));
+    }
+    
+    /**
+     * A list that mixes plain and real valued intervals can't be written
+     * with one record type, so the codec refuses it rather than dropping
+     * the values
+     */
+    @Test
+    public void testMixedIntervalTypesRejected() throws IOException
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        intervals.add(new SimpleBasePairInterval(1, 1L, 10L));
+        intervals.add(new SimpleRealValuedBasePairInterval(1, 20L, 10L, 2.5));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            CompactIntervalCodec.writeIntervals(intervals, bytes);
+            fail("expected mixed interval types to be rejected");
+        }
+        catch(IllegalArgumentException ex)
+        {
+            // expected
+        }
+        assertEquals(0, bytes.size());
+        
+        // once they are all real valued they round trip with their values
+        intervals.set(0, new SimpleRealValuedBasePairInterval(1, 1L, 10L, 0.0));
+        assertEquals(
+                CompactIntervalType.REAL_VALUED,
+                CompactIntervalType.forIntervals(intervals));
+        CompactIntervalCodec.writeIntervals(intervals, bytes);
+        assertIntervalsEqual(
+                CompactIntervalType.REAL_VALUED,
+                intervals,
+                CompactIntervalCodec.readIntervals(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+    }
+    
+    /**
+     * An empty list is written as plain intervals
+     */
+    @Test
+    public void testEmptyListType()
+    {
+        assertEquals(
+                CompactIntervalType.SIMPLE,
+                CompactIntervalType.forIntervals(new ArrayList<BasePairInterval>()));
+    }
+}
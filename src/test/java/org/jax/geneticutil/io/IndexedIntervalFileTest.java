@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IndexedIntervalFile} and {@link IndexedIntervalFileWriter}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class IndexedIntervalFileTest
+{
+    private static final int BLOCK_SIZE = 4;
+    
+    private File file;
+    
+    private Map<String, List<BasePairInterval>> intervalsMap;
+    
+    /**
+     * Write a few keys with a tiny block size so that queries cross many
+     * block boundaries. One key has a long interval near its start which
+     * overlaps most of the later blocks on its chromosome
+     * @throws IOException if the write fails
+     */
+    @Before
+    public void writeFile() throws IOException
+    {
+        Random random = new Random(5L);
+        this.intervalsMap = new LinkedHashMap<String, List<BasePairInterval>>();
+        for(int key = 0; key < 3; key++)
+        {
+            List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+            for(int chromosomeNumber = 1; chromosomeNumber <= 2 + key; chromosomeNumber++)
+            {
+                long start = 1L;
+                for(int i = 0; i < 10 * (key + 1); i++)
+                {
+                    start += random.nextInt(200);
+                    intervals.add(new SimpleBasePairInterval(
+                            chromosomeNumber,
+                            start,
+                            1L + random.nextInt(150)));
+                }
+            }
+            if(key == 1)
+            {
+                intervals.add(new SimpleBasePairInterval(2, 5L, 100000L));
+            }
+            
+            // the writer sorts so hand it the intervals out of order
+            Collections.shuffle(intervals, random);
+            this.intervalsMap.put("strain" + key, intervals);
+        }
+        this.intervalsMap.put("empty", new ArrayList<BasePairInterval>());
+        
+        this.file = File.createTempFile("indexed-intervals", ".bin");
+        IndexedIntervalFileWriter writer = new IndexedIntervalFileWriter(
+                this.file,
+                CompactIntervalType.SIMPLE,
+                BLOCK_SIZE);
+        for(Map.Entry<String, List<BasePairInterval>> entry: this.intervalsMap.entrySet())
+        {
+            writer.writeIntervals(entry.getKey(), entry.getValue());
+        }
+        writer.close();
+    }
+    
+    /**
+     * Delete the test file
+     */
+    @After
+    public void deleteFile()
+    {
+        this.file.delete();
+    }
+    
+    /**
+     * The overlapping intervals in position order found by checking
+     * every interval
+     */
+    private List<BasePairInterval> bruteForceOverlaps(
+            String key,
+            int chromosomeNumber,
+            long startInBasePairs,
+            long endInBasePairs)
+    {
+        List<BasePairInterval> overlaps = new ArrayList<BasePairInterval>();
+        for(BasePairInterval currInterval: this.intervalsMap.get(key))
+        {
+            if(currInterval.getChromosomeNumber() == chromosomeNumber &&
+               currInterval.getStartInBasePairs() <= endInBasePairs &&
+               currInterval.getEndInBasePairs() >= startInBasePairs)
+            {
+                overlaps.add(currInterval);
+            }
+        }
+        Collections.sort(overlaps, SimpleBasePairInterval.SNP_INTERVAL_COMPARATOR);
+        return overlaps;
+    }
+    
+    private static void assertSameIntervals(
+            List<BasePairInterval> expected,
+            List<BasePairInterval> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(
+                    expected.get(i).getChromosomeNumber(),
+                    actual.get(i).getChromosomeNumber());
+            assertEquals(
+                    expected.get(i).getStartInBasePairs(),
+                    actual.get(i).getStartInBasePairs());
+            assertEquals(
+                    expected.get(i).getExtentInBasePairs(),
+                    actual.get(i).getExtentInBasePairs());
+        }
+    }
+    
+    private void assertQuery(
+            IndexedIntervalFile indexedFile,
+            String key,
+            int chromosomeNumber,
+            long startInBasePairs,
+            long endInBasePairs)
+            throws IOException
+    {
+        assertSameIntervals(
+                this.bruteForceOverlaps(key, chromosomeNumber, startInBasePairs, endInBasePairs),
+                indexedFile.getIntervals(
+                        key,
+                        chromosomeNumber,
+                        startInBasePairs,
+                        endInBasePairs - startInBasePairs + 1));
+    }
+    
+    /**
+     * The index lists every key in write order along with the chromosomes
+     * that have intervals
+     * @throws IOException if the read fails
+     */
+    @Test
+    public void testKeysAndChromosomes() throws IOException
+    {
+        IndexedIntervalFile indexedFile = new IndexedIntervalFile(this.file);
+        try
+        {
+            assertEquals(CompactIntervalType.SIMPLE, indexedFile.getType());
+            assertEquals(
+                    new ArrayList<String>(this.intervalsMap.keySet()),
+                    new ArrayList<String>(indexedFile.getKeys()));
+            assertEquals(
+                    new HashSet<Integer>(Arrays.asList(1, 2, 3)),
+                    indexedFile.getChromosomeNumbers("strain1"));
+            assertTrue(indexedFile.getChromosomeNumbers("empty").isEmpty());
+            assertTrue(indexedFile.getChromosomeNumbers("missing").isEmpty());
+        }
+        finally
+        {
+            indexedFile.close();
+        }
+    }
+    
+    /**
+     * Whole chromosome reads return every interval in position order
+     * @throws IOException if the read fails
+     */
+    @Test
+    public void testWholeChromosomes() throws IOException
+    {
+        IndexedIntervalFile indexedFile = new IndexedIntervalFile(this.file);
+        try
+        {
+            for(String key: this.intervalsMap.keySet())
+            {
+                for(int chromosomeNumber = 1; chromosomeNumber <= 5; chromosomeNumber++)
+                {
+                    assertSameIntervals(
+                            this.bruteForceOverlaps(
+                                    key,
+                                    chromosomeNumber,
+                                    Long.MIN_VALUE,
+                                    Long.MAX_VALUE),
+                            indexedFile.getIntervals(key, chromosomeNumber));
+                }
+            }
+            assertTrue(indexedFile.getIntervals("missing", 1).isEmpty());
+        }
+        finally
+        {
+            indexedFile.close();
+        }
+    }
+    
+    /**
+     * Queries which start or end exactly on an interval's first or last
+     * base pair (and one base pair to either side of it) agree with a
+     * brute force scan. Since every block holds {@link #BLOCK_SIZE}
+     * intervals this covers the first and last interval of every block
+     * @throws IOException if the read fails
+     */
+    @Test
+    public void testQueriesAtIntervalBoundaries() throws IOException
+    {
+        IndexedIntervalFile indexedFile = new IndexedIntervalFile(this.file);
+        try
+        {
+            for(Map.Entry<String, List<BasePairInterval>> entry:
+                this.intervalsMap.entrySet())
+            {
+                String key = entry.getKey();
+                for(BasePairInterval currInterval: entry.getValue())
+                {
+                    int chromosomeNumber = currInterval.getChromosomeNumber();
+                    long start = currInterval.getStartInBasePairs();
+                    long end = currInterval.getEndInBasePairs();
+                    for(long delta = -1L; delta <= 1L; delta++)
+                    {
+                        this.assertQuery(
+                                indexedFile, key, chromosomeNumber, start + delta, start + delta);
+                        this.assertQuery(
+                                indexedFile, key, chromosomeNumber, end + delta, end + delta);
+                        this.assertQuery(
+                                indexedFile, key, chromosomeNumber, start + delta, end + 50L);
+                        this.assertQuery(
+                                indexedFile, key, chromosomeNumber, start - 50L, end + delta);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            indexedFile.close();
+        }
+    }
+    
+    /**
+     * Random ranges, including ones before the first interval, past the
+     * last interval and spanning the long interval, agree with a brute
+     * force scan
+     * @throws IOException if the read fails
+     */
+    @Test
+    public void testRandomQueries() throws IOException
+    {
+        Random random = new Random(11L);
+        IndexedIntervalFile indexedFile = new IndexedIntervalFile(this.file);
+        try
+        {
+            List<String> keys = new ArrayList<String>(this.intervalsMap.keySet());
+            for(int i = 0; i < 2000; i++)
+            {
+                String key = keys.get(random.nextInt(keys.size()));
+                int chromosomeNumber = 1 + random.nextInt(4);
+                long start = random.nextInt(10000) - 100L;
+                long end = start + random.nextInt(random.nextBoolean() ? 10 : 3000);
+                this.assertQuery(indexedFile, key, chromosomeNumber, start, end);
+            }
+            
+            this.assertQuery(indexedFile, "strain1", 2, 90000L, 90000L);
+            this.assertQuery(indexedFile, "strain1", 2, 200000L, 300000L);
+            this.assertQuery(indexedFile, "strain0", 1, -1000L, 0L);
+        }
+        finally
+        {
+            indexedFile.close();
+        }
+    }
+    
+    /**
+     * Real valued intervals keep their values through the block index
+     * @throws IOException if the read or write fails
+     */
+    @Test
+    public void testRealValuedIntervals() throws IOException
+    {
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        for(int i = 0; i < 10; i++)
+        {
+            intervals.add(new SimpleRealValuedBasePairInterval(1, 100L * i + 1L, 100L, i / 4.0));
+        }
+        IndexedIntervalFileWriter writer = new IndexedIntervalFileWriter(
+                this.file,
+                CompactIntervalType.REAL_VALUED,
+                3);
+        writer.writeIntervals("values", intervals);
+        writer.close();
+        
+        IndexedIntervalFile indexedFile = new IndexedIntervalFile(this.file);
+        try
+        {
+            List<BasePairInterval> overlaps =
+                indexedFile.getIntervals("values", 1, 300L, 202L);
+            assertEquals(4, overlaps.size());
+            for(int i = 0; i < overlaps.size(); i++)
+            {
+                SimpleRealValuedBasePairInterval overlap =
+                    (SimpleRealValuedBasePairInterval)overlaps.get(i);
+                assertEquals(100L * (i + 2) + 1L, overlap.getStartInBasePairs());
+                assertEquals((i + 2) / 4.0, overlap.getRealValue(), 0.0);
+            }
+        }
+        finally
+        {
+            indexedFile.close();
+        }
+    }
+    
+    /**
+     * Files with a bad header or a truncated trailer are rejected with an
+     * {@link IOException} rather than a runtime exception
+     * @throws IOException if the test file can't be written
+     */
+    @Test
+    public void testCorruptFiles() throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+        try
+        {
+            randomAccessFile.setLength(randomAccessFile.length() - 3L);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+        assertOpenFails(this.file);
+        
+        FileOutputStream output = new FileOutputStream(this.file);
+        try
+        {
+            output.write("not an indexed interval file".getBytes("US-ASCII"));
+        }
+        finally
+        {
+            output.close();
+        }
+        assertOpenFails(this.file);
+    }
+    
+    private static void assertOpenFails(File file)
+    {
+        try
+        {
+            new IndexedIntervalFile(file).close();
+            fail("expected an IOException");
+        }
+        catch(IOException ex)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.jax.geneticutil.data.SimpleRealValuedBasePairInterval;
+import org.jax.geneticutil.data.SnpIntervalListGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MappedSnpIntervalListGroup}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class MappedSnpIntervalListGroupTest
+{
+    private File file;
+    
+    private SnpIntervalListGroup group;
+    
+    /**
+     * Write a group with keys of several sizes (including an empty one) so
+     * that the columns land at many different offsets
+     * @throws IOException if the write fails
+     */
+    @Before
+    public void writeGroup() throws IOException
+    {
+        Map<String, List<BasePairInterval>> snpBlocksMap =
+            new LinkedHashMap<String, List<BasePairInterval>>();
+        for(int key = 0; key < 6; key++)
+        {
+            List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+            for(int i = 0; i < key * 7; i++)
+            {
+                intervals.add(new SimpleBasePairInterval(
+                        1 + i % 3,
+                        1000L * i + key,
+                        10L + i));
+            }
+            snpBlocksMap.put("strain" + key, intervals);
+        }
+        this.group = new SnpIntervalListGroup(snpBlocksMap, 1L, 100000L);
+        
+        this.file = File.createTempFile("mapped-group", ".bin");
+        MappedSnpIntervalListGroup.write(this.group, this.file);
+    }
+    
+    /**
+     * Delete the test file
+     */
+    @After
+    public void deleteFile()
+    {
+        this.file.delete();
+    }
+    
+    private void assertSameGroup(MappedSnpIntervalListGroup mappedGroup)
+    {
+        assertEquals(this.group.getStartInBasePairs(), mappedGroup.getStartInBasePairs());
+        assertEquals(this.group.getExtentInBasePairs(), mappedGroup.getExtentInBasePairs());
+        assertEquals(
+                this.group.getSnpBlocksMap().keySet(),
+                mappedGroup.getSnpBlocksMap().keySet());
+        for(Map.Entry<String, List<BasePairInterval>> entry:
+            this.group.getSnpBlocksMap().entrySet())
+        {
+            List<BasePairInterval> expected = entry.getValue();
+            List<BasePairInterval> actual =
+                mappedGroup.getSnpBlocksMap().get(entry.getKey());
+            assertEquals(expected.size(), mappedGroup.getIntervalCount(entry.getKey()));
+            assertEquals(expected.size(), actual.size());
+            for(int i = 0; i < expected.size(); i++)
+            {
+                assertEquals(
+                        expected.get(i).getChromosomeNumber(),
+                        actual.get(i).getChromosomeNumber());
+                assertEquals(
+                        expected.get(i).getStartInBasePairs(),
+                        actual.get(i).getStartInBasePairs());
+                assertEquals(
+                        expected.get(i).getExtentInBasePairs(),
+                        actual.get(i).getExtentInBasePairs());
+            }
+        }
+        assertEquals(-1, mappedGroup.getIntervalCount("missing"));
+        assertNull(mappedGroup.getSnpBlocksMap().get("missing"));
+    }
+    
+    /**
+     * Round trip through the default window size
+     * @throws IOException if the test file can't be read
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        this.assertSameGroup(new MappedSnpIntervalListGroup(this.file));
+    }
+    
+    /**
+     * Columns that straddle window boundaries must be read across the
+     * windows
+     * @throws IOException if the test file can't be read
+     */
+    @Test
+    public void testSmallWindows() throws IOException
+    {
+        for(int windowSize: new int[] {8, 16, 24, 64, 1000})
+        {
+            this.assertSameGroup(new MappedSnpIntervalListGroup(
+                    this.file,
+                    windowSize));
+        }
+    }
+    
+    /**
+     * A truncated file must be reported as an IOException
+     * @throws IOException expected since the file is truncated
+     */
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+        try
+        {
+            randomAccessFile.setLength(randomAccessFile.length() - 8L);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+        new MappedSnpIntervalListGroup(this.file);
+    }
+    
+    /**
+     * Intervals with a payload that the format can't hold must be rejected
+     * without touching the file
+     * @throws IOException if the write fails
+     */
+    @Test
+    public void testRejectsRealValuedIntervals() throws IOException
+    {
+        long fileLength = this.file.length();
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        intervals.add(new SimpleBasePairInterval(1, 1L, 10L));
+        intervals.add(new SimpleRealValuedBasePairInterval(1, 20L, 10L, 0.5));
+        SnpIntervalListGroup realValuedGroup = new SnpIntervalListGroup(
+                Collections.singletonMap("strain", intervals),
+                1L,
+                30L);
+        try
+        {
+            MappedSnpIntervalListGroup.write(realValuedGroup, this.file);
+            fail("expected an IllegalArgumentException");
+        }
+        catch(IllegalArgumentException ex)
+        {
+            assertEquals(fileLength, this.file.length());
+            this.assertSameGroup(new MappedSnpIntervalListGroup(this.file));
+        }
+    }
+}
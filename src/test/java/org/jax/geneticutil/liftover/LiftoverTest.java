@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.geneticutil.liftover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.BasePairIntervalArray;
+import org.jax.geneticutil.data.BasePairIntervalArrayBuilder;
+import org.jax.geneticutil.data.SimpleBasePairInterval;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ChainFileReader} and {@link Liftover}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class LiftoverTest
+{
+    /**
+     * chr1 100-200 (zero based, half open) maps forward to chr2 1000-1100
+     */
+    private static final String FORWARD_CHAIN =
+        "chain 1000 chr1 1000000 + 100 200 chr2 2000000 + 1000 1100 1\n" +
+        "100\n" +
+        "\n";
+    
+    /**
+     * a forward chain with a 50 bp source gap and a 70 bp target gap:
+     * chr1 100-200 to chr2 1000-1100 then chr1 250-400 to chr2 1170-1320
+     */
+    private static final String GAPPED_CHAIN =
+        "chain 1000 chr1 1000000 + 100 400 chr2 2000000 + 1000 1320 1\n" +
+        "100 50 70\n" +
+        "150\n" +
+        "\n";
+    
+    /**
+     * a reverse strand chain on a 5000 bp target chromosome with a 10 bp
+     * source gap and a 20 bp target gap: chr1 100-150 to chr3 (-) 10-60
+     * then chr1 160-200 to chr3 (-) 80-120
+     */
+    private static final String REVERSE_GAPPED_CHAIN =
+        "chain 1000 chr1 1000000 + 100 200 chr3 5000 - 10 120 2\n" +
+        "50 10 20\n" +
+        "40\n" +
+        "\n";
+    
+    /**
+     * two chains that meet on the source but go to different targets
+     */
+    private static final String ADJACENT_CHAINS =
+        "chain 2000 chr1 1000000 + 100 200 chr2 2000000 + 1000 1100 1\n" +
+        "100\n" +
+        "\n" +
+        "chain 1000 chr1 1000000 + 200 300 chr4 2000000 + 5000 5100 2\n" +
+        "100\n" +
+        "\n";
+    
+    /**
+     * a high scoring chain from chr1 100-200 and 900-1000 to chr2 with a
+     * lower scoring chain to chr4 nested in its gap and another to chr4
+     * that overlaps its end and runs on to chr1 1400
+     */
+    private static final String NESTED_CHAINS =
+        "chain 5000 chr1 1000000 + 100 1000 chr2 2000000 + 1000 1900 1\n" +
+        "100 700 700\n" +
+        "100\n" +
+        "\n" +
+        "chain 1000 chr1 1000000 + 400 500 chr4 2000000 + 5000 5100 2\n" +
+        "100\n" +
+        "\n" +
+        "chain 1000 chr1 1000000 + 950 1400 chr4 2000000 + 6000 6450 3\n" +
+        "450\n" +
+        "\n";
+    
+    private static Liftover read(String chains) throws IOException
+    {
+        ChainFileReader reader = new ChainFileReader(new BufferedReader(
+                new StringReader(chains)));
+        try
+        {
+            return reader.readLiftover();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+    
+    private static List<BasePairInterval> liftOver(
+            Liftover liftover,
+            BasePairInterval... intervals)
+    {
+        LiftoverResult<BasePairInterval> result = liftover.liftOver(
+                Arrays.asList(intervals),
+                Liftover.SIMPLE_INTERVAL_FACTORY);
+        return result.getMappedIntervals();
+    }
+    
+    private static void assertInterval(
+            int chromosomeNumber,
+            long startInBasePairs,
+            long endInBasePairs,
+            BasePairInterval interval)
+    {
+        assertEquals(chromosomeNumber, interval.getChromosomeNumber());
+        assertEquals(startInBasePairs, interval.getStartInBasePairs());
+        assertEquals(endInBasePairs, interval.getEndInBasePairs());
+    }
+    
+    /**
+     * The zero based half open chain coordinates must become one based
+     * inclusive positions
+     */
+    @Test
+    public void testOneBasedConversion() throws IOException
+    {
+        Liftover liftover = read(FORWARD_CHAIN);
+        assertEquals(1, liftover.getBlockCount(1));
+        
+        // zero based position 100 is one based position 101
+        List<BasePairInterval> lifted = liftOver(
+                liftover,
+                new SimpleBasePairInterval(1, 101L, 1L),
+                new SimpleBasePairInterval(1, 200L, 1L));
+        assertEquals(2, lifted.size());
+        assertInterval(2, 1001L, 1001L, lifted.get(0));
+        assertInterval(2, 1100L, 1100L, lifted.get(1));
+        
+        // the bases on either side of the block are unmapped
+        LiftoverResult<BasePairInterval> result = liftover.liftOver(
+                Arrays.<BasePairInterval>asList(
+                        new SimpleBasePairInterval(1, 100L, 1L),
+                        new SimpleBasePairInterval(1, 201L, 1L)),
+                Liftover.SIMPLE_INTERVAL_FACTORY);
+        assertTrue(result.getMappedIntervals().isEmpty());
+        assertEquals(2, result.getUnmappedIntervals().size());
+    }
+    
+    /**
+     * An interval spanning a chain gap lifts to one interval covering both
+     * blocks unless the gap is longer than the maximum merge gap
+     */
+    @Test
+    public void testGappedChain() throws IOException
+    {
+        Liftover liftover = read(GAPPED_CHAIN);
+        liftover.setMinimumMappedFraction(0.5);
+        
+        // 151-300 covers 151-200 and 251-300 of the blocks
+        BasePairInterval interval = new SimpleBasePairInterval(1, 151L, 150L);
+        List<BasePairInterval> lifted = liftOver(liftover, interval);
+        assertEquals(1, lifted.size());
+        assertInterval(2, 1051L, 1220L, lifted.get(0));
+        
+        // the target gap is 70 bp so a 69 bp limit splits the interval
+        liftover.setMaximumMergeGapInBasePairs(69L);
+        lifted = liftOver(liftover, interval);
+        assertEquals(2, lifted.size());
+        assertInterval(2, 1051L, 1100L, lifted.get(0));
+        assertInterval(2, 1171L, 1220L, lifted.get(1));
+        
+        liftover.setMaximumMergeGapInBasePairs(70L);
+        assertEquals(1, liftOver(liftover, interval).size());
+    }
+    
+    /**
+     * Only the aligned bases count toward the minimum mapped fraction even
+     * when the lifted interval spans the gap
+     */
+    @Test
+    public void testMappedFractionCountsAlignedBases() throws IOException
+    {
+        Liftover liftover = read(GAPPED_CHAIN);
+        
+        // 100 of 150 base pairs are aligned
+        BasePairInterval interval = new SimpleBasePairInterval(1, 151L, 150L);
+        liftover.setMinimumMappedFraction(0.67);
+        assertTrue(liftOver(liftover, interval).isEmpty());
+        liftover.setMinimumMappedFraction(0.66);
+        assertEquals(1, liftOver(liftover, interval).size());
+    }
+    
+    /**
+     * Reverse strand positions count back from the end of the target
+     * chromosome and merged pieces span from the lowest to the highest
+     * target position
+     */
+    @Test
+    public void testReverseStrand() throws IOException
+    {
+        Liftover liftover = read(REVERSE_GAPPED_CHAIN);
+        
+        // zero based reverse position 10 on a 5000 bp chromosome is one
+        // based forward position 4990
+        List<BasePairInterval> lifted = liftOver(
+                liftover,
+                new SimpleBasePairInterval(1, 101L, 10L),
+                new SimpleBasePairInterval(1, 161L, 1L));
+        assertEquals(2, lifted.size());
+        assertInterval(3, 4981L, 4990L, lifted.get(0));
+        assertInterval(3, 4920L, 4920L, lifted.get(1));
+        
+        // 141-170 covers 141-150 and 161-170 of the blocks
+        liftover.setMinimumMappedFraction(0.5);
+        BasePairInterval interval = new SimpleBasePairInterval(1, 141L, 30L);
+        lifted = liftOver(liftover, interval);
+        assertEquals(1, lifted.size());
+        assertInterval(3, 4911L, 4950L, lifted.get(0));
+        
+        liftover.setMaximumMergeGapInBasePairs(0L);
+        lifted = liftOver(liftover, interval);
+        assertEquals(2, lifted.size());
+        assertInterval(3, 4941L, 4950L, lifted.get(0));
+        assertInterval(3, 4911L, 4920L, lifted.get(1));
+    }
+    
+    /**
+     * Pieces from different chains are never merged even if they touch on
+     * the source
+     */
+    @Test
+    public void testChainChangeSplits() throws IOException
+    {
+        Liftover liftover = read(ADJACENT_CHAINS);
+        List<BasePairInterval> lifted = liftOver(
+                liftover,
+                new SimpleBasePairInterval(1, 191L, 20L));
+        assertEquals(2, lifted.size());
+        assertInterval(2, 1091L, 1100L, lifted.get(0));
+        assertInterval(4, 5001L, 5010L, lifted.get(1));
+    }
+    
+    /**
+     * A higher scoring chain covers its gaps too so lower scoring chains
+     * are only used outside of its span
+     */
+    @Test
+    public void testNestedChains() throws IOException
+    {
+        Liftover liftover = read(NESTED_CHAINS);
+        
+        // the nested chain is fully aligned here but the gap belongs to
+        // the outer chain
+        assertTrue(liftOver(
+                liftover,
+                new SimpleBasePairInterval(1, 401L, 100L)).isEmpty());
+        
+        // the overlapping chain is only used past the outer chain's end
+        List<BasePairInterval> lifted = liftOver(
+                liftover,
+                new SimpleBasePairInterval(1, 991L, 20L));
+        assertEquals(2, lifted.size());
+        assertInterval(2, 1891L, 1900L, lifted.get(0));
+        assertInterval(4, 6051L, 6060L, lifted.get(1));
+    }
+    
+    /**
+     * The minimum mapped fraction applies to each chain as well as to the
+     * whole interval
+     */
+    @Test
+    public void testMappedFractionPerChain() throws IOException
+    {
+        Liftover liftover = read(NESTED_CHAINS);
+        
+        // 751-1400 has 100 of the 250 bases of the outer chain aligned and
+        // all 400 of the bases of the overlapping chain
+        BasePairInterval interval = new SimpleBasePairInterval(1, 751L, 650L);
+        liftover.setMinimumMappedFraction(0.4);
+        List<BasePairInterval> lifted = liftOver(liftover, interval);
+        assertEquals(2, lifted.size());
+        assertInterval(2, 1801L, 1900L, lifted.get(0));
+        assertInterval(4, 6051L, 6450L, lifted.get(1));
+        
+        liftover.setMinimumMappedFraction(0.5);
+        lifted = liftOver(liftover, interval);
+        assertEquals(1, lifted.size());
+        assertInterval(4, 6051L, 6450L, lifted.get(0));
+        
+        liftover.setMinimumMappedFraction(0.62);
+        assertTrue(liftOver(liftover, interval).isEmpty());
+    }
+    
+    /**
+     * The column based liftover must agree with the list based one
+     */
+    @Test
+    public void testArrayMatchesList() throws IOException
+    {
+        Liftover liftover = read(GAPPED_CHAIN + REVERSE_GAPPED_CHAIN.replace("chr1", "chr5"));
+        liftover.setMinimumMappedFraction(0.5);
+        
+        List<BasePairInterval> intervals = new ArrayList<BasePairInterval>();
+        BasePairIntervalArrayBuilder builder = new BasePairIntervalArrayBuilder(16);
+        for(int chromosomeNumber: new int[] {1, 5})
+        {
+            for(long start = 90L; start < 420L; start += 17L)
+            {
+                intervals.add(new SimpleBasePairInterval(chromosomeNumber, start, 40L));
+                builder.add(chromosomeNumber, start, 40L, Double.NaN);
+            }
+        }
+        
+        List<BasePairInterval> lifted = liftover.liftOver(
+                intervals,
+                Liftover.SIMPLE_INTERVAL_FACTORY).getMappedIntervals();
+        LiftoverArrayResult arrayResult = liftover.liftOver(builder.build());
+        BasePairIntervalArray liftedArray = arrayResult.getMappedIntervals();
+        assertEquals(lifted.size(), liftedArray.size());
+        for(int i = 0; i < lifted.size(); i++)
+        {
+            assertInterval(
+                    liftedArray.getChromosomeNumbers()[i],
+                    liftedArray.getStartsInBasePairs()[i],
+                    liftedArray.getStartsInBasePairs()[i] +
+                    liftedArray.getExtentsInBasePairs()[i] - 1,
+                    lifted.get(i));
+        }
+    }
+    
+    /**
+     * Intervals must be given in genomic order
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfOrder() throws IOException
+    {
+        liftOver(
+                read(FORWARD_CHAIN),
+                new SimpleBasePairInterval(1, 150L, 1L),
+                new SimpleBasePairInterval(1, 120L, 1L));
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MetricRegistry} and {@link ScheduledMetricReporter}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class MetricRegistryTest
+{
+    /**
+     * Counters and timers are shared by name and updates from many
+     * threads are never lost
+     * @throws Exception if a worker fails
+     */
+    @Test
+    public void testConcurrentUpdates() throws Exception
+    {
+        final MetricRegistry registry = new MetricRegistry(true);
+        assertSame(registry.counter("events"), registry.counter("events"));
+        assertSame(registry.timer("work"), registry.timer("work"));
+        
+        final int threadCount = 4;
+        final int updatesPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for(int thread = 0; thread < threadCount; thread++)
+            {
+                futures.add(executor.submit(new Runnable()
+                {
+                    public void run()
+                    {
+                        Counter counter = registry.counter("events");
+                        Timer timer = registry.timer("work");
+                        for(int i = 0; i < updatesPerThread; i++)
+                        {
+                            counter.increment();
+                            counter.add(2L);
+                            timer.record(i);
+                        }
+                    }
+                }));
+            }
+            for(Future<?> future: futures)
+            {
+                future.get(30L, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        
+        long updateCount = (long)threadCount * updatesPerThread;
+        assertEquals(3L * updateCount, registry.counter("events").getCount());
+        Timer timer = registry.timer("work");
+        assertEquals(updateCount, timer.getCount());
+        assertEquals(
+                threadCount * ((long)updatesPerThread * (updatesPerThread - 1) / 2),
+                timer.getTotalNanos());
+        assertEquals(updatesPerThread - 1L, timer.getMaxNanos());
+    }
+    
+    /**
+     * The snapshot holds every counter, the three entries of every timer
+     * and the current value of every gauge
+     */
+    @Test
+    public void testSnapshot()
+    {
+        MetricRegistry registry = new MetricRegistry(true);
+        registry.counter("a.counter").add(5L);
+        Timer timer = registry.timer("b.timer");
+        timer.record(10L);
+        timer.record(30L);
+        final double[] gaugeValue = new double[] {1.5};
+        registry.registerGauge("c.gauge", new Gauge()
+        {
+            public double getValue()
+            {
+                return gaugeValue[0];
+            }
+        });
+        
+        SortedMap<String, Number> snapshot = registry.getSnapshot();
+        assertEquals(5, snapshot.size());
+        assertEquals(5L, snapshot.get("a.counter").longValue());
+        assertEquals(
+                2L,
+                snapshot.get("b.timer" + MetricRegistry.TIMER_COUNT_SUFFIX).longValue());
+        assertEquals(
+                40L,
+                snapshot.get("b.timer" + MetricRegistry.TIMER_TOTAL_NANOS_SUFFIX).longValue());
+        assertEquals(
+                30L,
+                snapshot.get("b.timer" + MetricRegistry.TIMER_MAX_NANOS_SUFFIX).longValue());
+        assertEquals(1.5, snapshot.get("c.gauge").doubleValue(), 0.0);
+        assertEquals("a.counter", snapshot.firstKey());
+        
+        gaugeValue[0] = 2.5;
+        assertEquals(2.5, registry.getSnapshot().get("c.gauge").doubleValue(), 0.0);
+        registry.removeGauge("c.gauge");
+        assertNull(registry.getSnapshot().get("c.gauge"));
+    }
+    
+    /**
+     * A disabled registry hands out shared no-op instruments and has an
+     * empty snapshot
+     * @throws Exception if JMX fails
+     */
+    @Test
+    public void testDisabledRegistry() throws Exception
+    {
+        MetricRegistry registry = new MetricRegistry(false);
+        assertFalse(registry.isEnabled());
+        Counter counter = registry.counter("events");
+        assertSame(counter, registry.counter("other events"));
+        counter.add(10L);
+        assertEquals(0L, counter.getCount());
+        Timer timer = registry.timer("work");
+        timer.stop(timer.start());
+        assertEquals(0L, timer.getCount());
+        registry.registerGauge("gauge", new Gauge()
+        {
+            public double getValue()
+            {
+                return 1.0;
+            }
+        });
+        assertTrue(registry.getSnapshot().isEmpty());
+        assertNull(registry.registerMBean());
+    }
+    
+    /**
+     * Registered metrics show up as read-only MBean attributes, including
+     * metrics created after registration, and registering again under the
+     * same name replaces the bean
+     * @throws Exception if JMX fails
+     */
+    @Test
+    public void testMBean() throws Exception
+    {
+        MetricRegistry registry = new MetricRegistry(true);
+        registry.counter("events").add(7L);
+        ObjectName objectName = new ObjectName(
+                "org.jax.geneticutil:type=Metrics,name=MetricRegistryTest");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            assertEquals(objectName, registry.registerMBean(objectName));
+            assertEquals(7L, ((Number)server.getAttribute(objectName, "events")).longValue());
+            
+            registry.timer("work").record(3L);
+            assertEquals(
+                    3L,
+                    ((Number)server.getAttribute(
+                            objectName,
+                            "work" + MetricRegistry.TIMER_MAX_NANOS_SUFFIX)).longValue());
+            MBeanAttributeInfo[] attributeInfos =
+                server.getMBeanInfo(objectName).getAttributes();
+            assertEquals(4, attributeInfos.length);
+            for(MBeanAttributeInfo attributeInfo: attributeInfos)
+            {
+                assertTrue(attributeInfo.isReadable());
+                assertFalse(attributeInfo.isWritable());
+            }
+            
+            MetricRegistry otherRegistry = new MetricRegistry(true);
+            otherRegistry.counter("events").add(1L);
+            otherRegistry.registerMBean(objectName);
+            assertEquals(1L, ((Number)server.getAttribute(objectName, "events")).longValue());
+        }
+        finally
+        {
+            server.unregisterMBean(objectName);
+        }
+    }
+    
+    /**
+     * Closing a scheduled reporter sends one final report and a reporter
+     * for a disabled registry never reports
+     */
+    @Test
+    public void testScheduledReporterFinalReport()
+    {
+        final List<SortedMap<String, Number>> reports =
+            new ArrayList<SortedMap<String, Number>>();
+        MetricReporter reporter = new MetricReporter()
+        {
+            public void report(SortedMap<String, Number> snapshot)
+            {
+                synchronized(reports)
+                {
+                    reports.add(snapshot);
+                }
+            }
+        };
+        
+        MetricRegistry registry = new MetricRegistry(true);
+        registry.counter("events").increment();
+        ScheduledMetricReporter scheduledReporter = new ScheduledMetricReporter(
+                registry,
+                reporter,
+                1L,
+                TimeUnit.HOURS);
+        scheduledReporter.close();
+        synchronized(reports)
+        {
+            assertEquals(1, reports.size());
+            assertEquals(1L, reports.get(0).get("events").longValue());
+        }
+        
+        new ScheduledMetricReporter(
+                new MetricRegistry(false),
+                reporter,
+                1L,
+                TimeUnit.HOURS).close();
+        synchronized(reports)
+        {
+            assertEquals(1, reports.size());
+        }
+    }
+}
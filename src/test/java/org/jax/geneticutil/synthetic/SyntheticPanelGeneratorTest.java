@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2010 The Jackson Laboratory
+ * 
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.geneticutil.synthetic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jax.geneticutil.data.BasePairInterval;
+import org.jax.geneticutil.data.ImmutableStrainChromosome;
+import org.jax.geneticutil.data.MultiPartitionedInterval;
+import org.jax.geneticutil.data.SingleNucleotidePolymorphism;
+import org.jax.geneticutil.data.StrainPair;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SyntheticPanelGenerator}
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SyntheticPanelGeneratorTest
+{
+    /**
+     * Records everything a generator produces as lines of text so that
+     * whole runs can be compared
+     */
+    private static class RecordingSink implements SyntheticPanelSink
+    {
+        final List<String> records = new ArrayList<String>();
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void chromosomeGenerated(
+                int chromosomeNumber,
+                ImmutableStrainChromosome[] strainChromosomes)
+        {
+            for(ImmutableStrainChromosome strainChromosome: strainChromosomes)
+            {
+                StringBuilder record = new StringBuilder();
+                record.append(chromosomeNumber).append(' ').append(
+                        strainChromosome.getStrainName());
+                for(int i = 0; i < strainChromosome.getSnpCount(); i++)
+                {
+                    SingleNucleotidePolymorphism snp =
+                        strainChromosome.getSnp(i);
+                    record.append(' ').append(snp.getPositionInBasePairs()).append(
+                            snp.getSnpType());
+                }
+                this.records.add(record.toString());
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void haplotypeBlocksGenerated(
+                int chromosomeNumber,
+                List<MultiPartitionedInterval> haplotypeBlocks)
+        {
+            StringBuilder record = new StringBuilder("blocks");
+            for(MultiPartitionedInterval block: haplotypeBlocks)
+            {
+                record.append(' ').append(block.getChromosomeNumber()).append(':').append(
+                        block.getStartInBasePairs()).append('+').append(
+                        block.getExtentInBasePairs());
+                for(short group: block.getStrainGroups())
+                {
+                    record.append(',').append(group);
+                }
+            }
+            this.records.add(record.toString());
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void ibsIntervalsGenerated(
+                StrainPair strainPair,
+                int chromosomeNumber,
+                List<BasePairInterval> ibsIntervals)
+        {
+            StringBuilder record = new StringBuilder("ibs ").append(strainPair);
+            for(BasePairInterval ibsInterval: ibsIntervals)
+            {
+                record.append(' ').append(chromosomeNumber).append(':').append(
+                        ibsInterval.getStartInBasePairs()).append('+').append(
+                        ibsInterval.getExtentInBasePairs());
+            }
+            this.records.add(record.toString());
+        }
+    }
+    
+    private static SyntheticPanelGenerator createGenerator(long seed, int strainCount)
+    {
+        SyntheticPanelGenerator generator = new SyntheticPanelGenerator(seed, strainCount);
+        generator.setChromosomeNumbers(18, 19);
+        generator.setLengthScale(0.01);
+        generator.setSnpsPerMegabase(1000.0);
+        generator.setAncestorCount(4);
+        generator.setMeanHaplotypeBlockLengthInBasePairs(50000.0);
+        return generator;
+    }
+    
+    private static List<String> generate(SyntheticPanelGenerator generator)
+            throws IOException
+    {
+        RecordingSink sink = new RecordingSink();
+        generator.generate(sink);
+        return sink.records;
+    }
+    
+    /**
+     * The same seed and settings always give the same panel and a
+     * different seed gives a different one
+     * @throws IOException if the sink fails
+     */
+    @Test
+    public void testSeedDeterminesOutput() throws IOException
+    {
+        List<String> records = generate(createGenerator(45L, 4));
+        assertFalse(records.isEmpty());
+        assertEquals(records, generate(createGenerator(45L, 4)));
+        assertFalse(records.equals(generate(createGenerator(46L, 4))));
+    }
+    
+    /**
+     * Generating one chromosome gives the same data for it as generating
+     * it along with others, so chromosomes can be generated separately
+     * @throws IOException if the sink fails
+     */
+    @Test
+    public void testChromosomesAreIndependent() throws IOException
+    {
+        SyntheticPanel fullPanel = new SyntheticPanel();
+        createGenerator(7L, 3).generate(fullPanel);
+        
+        SyntheticPanel chromosome19Panel = new SyntheticPanel();
+        createGenerator(7L, 3).generateChromosome(19, chromosome19Panel);
+        
+        RecordingSink fullSink = new RecordingSink();
+        RecordingSink chromosome19Sink = new RecordingSink();
+        fullSink.haplotypeBlocksGenerated(19, fullPanel.getHaplotypeBlocks(19));
+        chromosome19Sink.haplotypeBlocksGenerated(19, chromosome19Panel.getHaplotypeBlocks(19));
+        fullSink.chromosomeGenerated(
+                19,
+                fullPanel.getStrainChromosomes(19).toArray(new ImmutableStrainChromosome[0]));
+        chromosome19Sink.chromosomeGenerated(
+                19,
+                chromosome19Panel.getStrainChromosomes(19).toArray(
+                        new ImmutableStrainChromosome[0]));
+        assertEquals(fullSink.records, chromosome19Sink.records);
+    }
+    
+    /**
+     * A bigger panel starts with the same strains as a smaller one, so
+     * the IBS intervals of a pair of early strains don't change
+     * @throws IOException if the sink fails
+     */
+    @Test
+    public void testBiggerPanelKeepsEarlierStrains() throws IOException
+    {
+        SyntheticPanel smallPanel = new SyntheticPanel();
+        createGenerator(11L, 2).generate(smallPanel);
+        SyntheticPanel bigPanel = new SyntheticPanel();
+        createGenerator(11L, 6).generate(bigPanel);
+        
+        String key = SyntheticPanel.createStrainPairKey(new StrainPair("S000", "S001"));
+        for(int chromosomeNumber = 18; chromosomeNumber <= 19; chromosomeNumber++)
+        {
+            RecordingSink smallSink = new RecordingSink();
+            RecordingSink bigSink = new RecordingSink();
+            smallSink.ibsIntervalsGenerated(
+                    null,
+                    chromosomeNumber,
+                    smallPanel.getIbsIntervalGroup(chromosomeNumber).getSnpBlocksMap().get(key));
+            bigSink.ibsIntervalsGenerated(
+                    null,
+                    chromosomeNumber,
+                    bigPanel.getIbsIntervalGroup(chromosomeNumber).getSnpBlocksMap().get(key));
+            assertEquals(smallSink.records, bigSink.records);
+        }
+    }
+    
+    /**
+     * The haplotype blocks tile the scaled chromosome and the mutation
+     * rate, which uses its own random stream, doesn't move them
+     * @throws IOException if the sink fails
+     */
+    @Test
+    public void testHaplotypeBlocksTileChromosome() throws IOException
+    {
+        SyntheticPanelGenerator generator = createGenerator(3L, 5);
+        SyntheticPanel panel = new SyntheticPanel();
+        generator.generate(panel);
+        
+        generator.setMutationRate(0.01);
+        SyntheticPanel mutatedPanel = new SyntheticPanel();
+        generator.generate(mutatedPanel);
+        
+        for(int chromosomeNumber = 18; chromosomeNumber <= 19; chromosomeNumber++)
+        {
+            List<MultiPartitionedInterval> blocks = panel.getHaplotypeBlocks(chromosomeNumber);
+            List<MultiPartitionedInterval> mutatedBlocks =
+                mutatedPanel.getHaplotypeBlocks(chromosomeNumber);
+            assertTrue(blocks.size() > 1);
+            assertEquals(blocks.size(), mutatedBlocks.size());
+            
+            long nextStart = 1L;
+            for(int i = 0; i < blocks.size(); i++)
+            {
+                MultiPartitionedInterval block = blocks.get(i);
+                assertEquals(nextStart, block.getStartInBasePairs());
+                assertEquals(5, block.getStrainGroups().length);
+                nextStart = block.getEndInBasePairs() + 1L;
+                
+                assertEquals(
+                        block.getStartInBasePairs(),
+                        mutatedBlocks.get(i).getStartInBasePairs());
+                assertArrayEquals(
+                        block.getStrainGroups(),
+                        mutatedBlocks.get(i).getStrainGroups());
+            }
+            assertEquals(
+                    generator.getScaledChromosomeLengthInBasePairs(chromosomeNumber) + 1L,
+                    nextStart);
+        }
+    }
+}